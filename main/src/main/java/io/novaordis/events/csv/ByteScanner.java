@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Word-at-a-time (SWAR - SIMD within a register) byte search: eight bytes are loaded in a long and tested for the
+ * target values with a handful of arithmetic operations, instead of being compared one at a time. The remainder that
+ * does not fill a word is scanned byte by byte.
+ *
+ * The zero byte detection is the exact variant, which does not produce false positives in the bytes adjacent to a
+ * match, so the match position can be read from either end of the word, and the result is correct for both byte
+ * orders.
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+final class ByteScanner {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private static final long LOW_BITS = 0x0101010101010101L;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @param from absolute buffer offset, inclusive.
+     * @param to absolute buffer offset, exclusive.
+     *
+     * @return the absolute offset of the first byte equal to a or b in the given interval, or 'to' if there isn't
+     * any. The buffer's position and limit are not used or modified.
+     */
+    static int indexOf(ByteBuffer buffer, int from, int to, byte a, byte b) {
+
+        long patternA = LOW_BITS * (a & 0xFF);
+        long patternB = LOW_BITS * (b & 0xFF);
+
+        boolean littleEndian = buffer.order() == ByteOrder.LITTLE_ENDIAN;
+
+        int i = from;
+
+        for(; i + 8 <= to; i += 8) {
+
+            long word = buffer.getLong(i);
+
+            long matches = zeroBytes(word ^ patternA) | zeroBytes(word ^ patternB);
+
+            if (matches != 0) {
+
+                return i + firstByte(matches, littleEndian);
+            }
+        }
+
+        for(; i < to; i ++) {
+
+            byte c = buffer.get(i);
+
+            if (c == a || c == b) {
+
+                return i;
+            }
+        }
+
+        return to;
+    }
+
+    /**
+     * @param from absolute buffer offset, inclusive.
+     * @param to absolute buffer offset, exclusive.
+     *
+     * @return the absolute offset of the first byte equal to a in the given interval, or 'to' if there isn't any.
+     */
+    static int indexOf(ByteBuffer buffer, int from, int to, byte a) {
+
+        long pattern = LOW_BITS * (a & 0xFF);
+
+        boolean littleEndian = buffer.order() == ByteOrder.LITTLE_ENDIAN;
+
+        int i = from;
+
+        for(; i + 8 <= to; i += 8) {
+
+            long matches = zeroBytes(buffer.getLong(i) ^ pattern);
+
+            if (matches != 0) {
+
+                return i + firstByte(matches, littleEndian);
+            }
+        }
+
+        for(; i < to; i ++) {
+
+            if (buffer.get(i) == a) {
+
+                return i;
+            }
+        }
+
+        return to;
+    }
+
+    /**
+     * @return a word with the high bit set in each byte that is zero in the argument, and all other bits cleared.
+     */
+    static long zeroBytes(long word) {
+
+        long t = (word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS;
+
+        return ~(t | word | LOW_SEVEN_BITS);
+    }
+
+    /**
+     * @return the index, in memory order, of the first byte marked in the (non-zero) mask.
+     */
+    private static int firstByte(long mask, boolean littleEndian) {
+
+        return (littleEndian ? Long.numberOfTrailingZeros(mask) : Long.numberOfLeadingZeros(mask)) >>> 3;
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    private ByteScanner() {
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,952 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.novaordis.events.api.event.DoubleProperty;
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.FloatProperty;
+import io.novaordis.events.api.event.IntegerProperty;
+import io.novaordis.events.api.event.LongProperty;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.StringProperty;
+import io.novaordis.events.api.event.TimestampProperty;
+import io.novaordis.events.csv.event.CSVEvent;
+import io.novaordis.events.csv.event.field.DoubleConverter;
+import io.novaordis.events.csv.event.field.FieldConverter;
+import io.novaordis.events.csv.event.field.FloatConverter;
+import io.novaordis.events.csv.event.field.IntegerConverter;
+import io.novaordis.events.csv.event.field.LongConverter;
+import io.novaordis.events.csv.event.field.StringConverter;
+import io.novaordis.events.csv.event.field.TimestampConverter;
+import io.novaordis.events.csv.event.field.TimestampParser;
+import io.novaordis.utilities.parsing.ParsingException;
+
+/**
+ * A block of data lines parsed with the same CSVFormat, stored by column: the line numbers and the timestamps in long
+ * arrays, the int, long, float and double columns in primitive arrays (float values are stored as doubles), and the
+ * string columns dictionary-encoded, as int codes into a per-batch dictionary of distinct values. Each column has a
+ * null bitmap, which marks the empty cells and the cells missing from lines shorter than the format. The columns of
+ * other types hold the properties their fields' converters produce.
+ *
+ * The cells are converted as the format-driven CSVParser converts them, but no property and no event is created for
+ * the primitive and string columns. toEvents() converts the rows into the events CSVParser would have produced, for
+ * the consumers that need them.
+ *
+ * The arrays returned by the accessors are the underlying storage, valid for the first size() rows, and must not be
+ * modified. The instances are not thread safe.
+ *
+ * @see CSVBatchParser
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class CSVBatch {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final CSVFormat format;
+
+    private final int capacity;
+
+    private final long[] lineNumbers;
+
+    //
+    // the number of cells of each row that have a corresponding field
+    //
+    private final int[] widths;
+
+    private final Column[] columns;
+
+    private final int timestampIndex;
+
+    private final NumberParser numberParser;
+
+    private int size;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    /**
+     * @throws IllegalArgumentException on null format or non-positive capacity.
+     */
+    public CSVBatch(CSVFormat format, int capacity) throws IllegalArgumentException {
+
+        if (format == null) {
+
+            throw new IllegalArgumentException("null format");
+        }
+
+        if (capacity <= 0) {
+
+            throw new IllegalArgumentException("invalid capacity " + capacity);
+        }
+
+        this.format = format;
+        this.capacity = capacity;
+        this.lineNumbers = new long[capacity];
+        this.widths = new int[capacity];
+        this.numberParser = new NumberParser();
+
+        ConversionPlan plan = format.getConversionPlan();
+
+        String[] names = plan.getNames();
+        FieldConverter[] converters = plan.getConverters();
+
+        this.timestampIndex = plan.getTimestampIndex();
+        this.columns = new Column[converters.length];
+
+        for(int i = 0; i < converters.length; i ++) {
+
+            FieldConverter c = converters[i];
+
+            if (i == timestampIndex) {
+
+                columns[i] = new TimestampColumn(names[i], capacity, (TimestampConverter)c);
+            }
+            else if (c instanceof IntegerConverter) {
+
+                columns[i] = new IntColumn(names[i], capacity);
+            }
+            else if (c instanceof LongConverter) {
+
+                columns[i] = new LongColumn(names[i], capacity);
+            }
+            else if (c instanceof FloatConverter) {
+
+                columns[i] = new DoubleColumn(ColumnType.FLOAT, names[i], capacity);
+            }
+            else if (c instanceof DoubleConverter) {
+
+                columns[i] = new DoubleColumn(ColumnType.DOUBLE, names[i], capacity);
+            }
+            else if (c instanceof StringConverter) {
+
+                columns[i] = new StringColumn(names[i], capacity);
+            }
+            else {
+
+                columns[i] = new PropertyColumn(names[i], capacity, c);
+            }
+        }
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    public CSVFormat getFormat() {
+
+        return format;
+    }
+
+    public int getCapacity() {
+
+        return capacity;
+    }
+
+    /**
+     * @return the number of rows.
+     */
+    public int size() {
+
+        return size;
+    }
+
+    public boolean isEmpty() {
+
+        return size == 0;
+    }
+
+    public boolean isFull() {
+
+        return size == capacity;
+    }
+
+    /**
+     * @return the line numbers, by row.
+     */
+    public long[] getLineNumbers() {
+
+        return lineNumbers;
+    }
+
+    /**
+     * @return the event timestamps, by row, or null if the format has no timestamp field. The rows whose line is
+     * shorter than the timestamp column are marked in the timestamp column's null bitmap.
+     */
+    public long[] getTimestamps() {
+
+        return timestampIndex == -1 ? null : ((TimestampColumn)columns[timestampIndex]).values;
+    }
+
+    /**
+     * @return the index of the timestamp column, or -1 if the format has no timestamp field.
+     */
+    public int getTimestampIndex() {
+
+        return timestampIndex;
+    }
+
+    public int getColumnCount() {
+
+        return columns.length;
+    }
+
+    /**
+     * @return the index of the column with the given name, or -1 if there is no such column.
+     */
+    public int getColumnIndex(String name) {
+
+        for(int i = 0; i < columns.length; i ++) {
+
+            if (columns[i].name.equals(name)) {
+
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    public String getColumnName(int column) {
+
+        return columns[column].name;
+    }
+
+    public ColumnType getColumnType(int column) {
+
+        return columns[column].type;
+    }
+
+    /**
+     * @return true if the cell is empty, or missing because the row's line is shorter than the format.
+     */
+    public boolean isNull(int column, int row) {
+
+        checkRow(row);
+
+        return columns[column].isNull(row);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the column is not an int column.
+     */
+    public int[] getInts(int column) throws IllegalArgumentException {
+
+        return ((IntColumn)getColumn(column, ColumnType.INT)).values;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the column is not a long or the timestamp column.
+     */
+    public long[] getLongs(int column) throws IllegalArgumentException {
+
+        Column c = columns[column];
+
+        if (c.type == ColumnType.TIMESTAMP) {
+
+            return ((TimestampColumn)c).values;
+        }
+
+        return ((LongColumn)getColumn(column, ColumnType.LONG)).values;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the column is not a float or double column.
+     */
+    public double[] getDoubles(int column) throws IllegalArgumentException {
+
+        Column c = columns[column];
+
+        if (c.type == ColumnType.FLOAT) {
+
+            return ((DoubleColumn)c).values;
+        }
+
+        return ((DoubleColumn)getColumn(column, ColumnType.DOUBLE)).values;
+    }
+
+    /**
+     * @return the dictionary codes of a string column, by row. The code of a null cell is -1.
+     *
+     * @throws IllegalArgumentException if the column is not a string column.
+     *
+     * @see CSVBatch#getDictionary(int)
+     */
+    public int[] getCodes(int column) throws IllegalArgumentException {
+
+        return ((StringColumn)getColumn(column, ColumnType.STRING)).codes;
+    }
+
+    /**
+     * @return the distinct values of a string column, indexed by code. The list must not be modified.
+     *
+     * @throws IllegalArgumentException if the column is not a string column.
+     */
+    public List<String> getDictionary(int column) throws IllegalArgumentException {
+
+        return ((StringColumn)getColumn(column, ColumnType.STRING)).dictionary;
+    }
+
+    /**
+     * @return the value of a string cell, or null for a null cell.
+     *
+     * @throws IllegalArgumentException if the column is not a string column.
+     */
+    public String getString(int column, int row) throws IllegalArgumentException {
+
+        checkRow(row);
+
+        StringColumn c = (StringColumn)getColumn(column, ColumnType.STRING);
+
+        int code = c.codes[row];
+
+        return code == -1 ? null : c.dictionary.get(code);
+    }
+
+    /**
+     * @return the property of a cell of a column of type OTHER, as produced by the field's converter, or null if the
+     * cell is missing because the row's line is shorter than the format.
+     *
+     * @throws IllegalArgumentException if the column is not of type OTHER.
+     */
+    public Property getProperty(int column, int row) throws IllegalArgumentException {
+
+        checkRow(row);
+
+        return ((PropertyColumn)getColumn(column, ColumnType.OTHER)).values[row];
+    }
+
+    /**
+     * @return the event CSVParser would have produced for the given row: a TimedCSVLine if the row has a timestamp,
+     * a NonTimedCSVLine otherwise.
+     */
+    public CSVEvent toEvent(int row) {
+
+        checkRow(row);
+
+        int width = widths[row];
+
+        List<Property> properties = new ArrayList<>(width + 1);
+
+        properties.add(new LongProperty(Event.LINE_PROPERTY_NAME, lineNumbers[row]));
+
+        for(int i = 0; i < width; i ++) {
+
+            properties.add(columns[i].toProperty(row));
+        }
+
+        return CSVParser.propertyListToCSVEvent(
+                new MutableBoolean(timestampIndex != -1 && timestampIndex < width), properties);
+    }
+
+    /**
+     * @return the events CSVParser would have produced for the rows of this batch, in order.
+     */
+    public List<Event> toEvents() {
+
+        List<Event> events = new ArrayList<>(size);
+
+        for(int i = 0; i < size; i ++) {
+
+            events.add(toEvent(i));
+        }
+
+        return events;
+    }
+
+    /**
+     * Removes all rows. The string dictionaries are reset as well.
+     */
+    public void clear() {
+
+        for(Column c: columns) {
+
+            c.clear();
+        }
+
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+
+        return "CSVBatch[" + size + "/" + capacity + "]";
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    /**
+     * Converts the cells of a data line into a new row. The row is not added if any of the cells cannot be converted.
+     *
+     * @throws ParsingException if a cell cannot be converted to its column's type.
+     * @throws IllegalStateException if the batch is full.
+     */
+    void add(long lineNumber, CSVTokenRanges tokens) throws ParsingException {
+
+        if (size == capacity) {
+
+            throw new IllegalStateException(this + " is full");
+        }
+
+        int row = size;
+
+        CharSequence line = tokens.getLine();
+
+        int width = Math.min(columns.length, tokens.size());
+
+        try {
+
+            for(int i = 0; i < width; i ++) {
+
+                if (tokens.isNull(i)) {
+
+                    columns[i].setMissing(row);
+                }
+                else {
+
+                    columns[i].set(row, line, tokens.getStart(i), tokens.getEnd(i));
+                }
+            }
+        }
+        catch(IllegalArgumentException e) {
+
+            throw new ParsingException(lineNumber, e.getMessage(), e);
+        }
+        catch(ParsingException e) {
+
+            if (e.getLineNumber() != null) {
+
+                throw e;
+            }
+
+            throw new ParsingException(lineNumber, e.getMessage(), e.getCause());
+        }
+
+        for(int i = width; i < columns.length; i ++) {
+
+            columns[i].setAbsent(row);
+        }
+
+        lineNumbers[row] = lineNumber;
+        widths[row] = width;
+        size ++;
+    }
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private Column getColumn(int column, ColumnType type) throws IllegalArgumentException {
+
+        Column c = columns[column];
+
+        if (c.type != type) {
+
+            throw new IllegalArgumentException("column " + column + " (" + c.name + ") is a " + c.type + " column");
+        }
+
+        return c;
+    }
+
+    private void checkRow(int row) {
+
+        if (row < 0 || row >= size) {
+
+            throw new IndexOutOfBoundsException("row " + row + " out of bounds, size " + size);
+        }
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    public enum ColumnType {
+
+        /**
+         * The column that carries the event timestamp, stored as milliseconds in a long array.
+         */
+        TIMESTAMP,
+
+        INT,
+
+        LONG,
+
+        /**
+         * Stored in a double array.
+         */
+        FLOAT,
+
+        DOUBLE,
+
+        /**
+         * Dictionary-encoded.
+         */
+        STRING,
+
+        /**
+         * Any other type: the cells are stored as the properties produced by the field's converter.
+         */
+        OTHER
+    }
+
+    private abstract class Column {
+
+        final ColumnType type;
+
+        final String name;
+
+        private final long[] nulls;
+
+        Column(ColumnType type, String name, int capacity) {
+
+            this.type = type;
+            this.name = name;
+            this.nulls = new long[(capacity + 63) >>> 6];
+        }
+
+        /**
+         * Converts a non-empty cell.
+         *
+         * @throws IllegalArgumentException if the cell cannot be converted to the column's type.
+         * @throws ParsingException if the cell cannot be converted into a timestamp.
+         */
+        abstract void set(int row, CharSequence s, int start, int end)
+                throws IllegalArgumentException, ParsingException;
+
+        /**
+         * @return the property for the given row, which is not absent.
+         */
+        abstract Property toProperty(int row);
+
+        /**
+         * An empty cell.
+         */
+        void setMissing(int row) throws ParsingException {
+
+            setNull(row, true);
+        }
+
+        /**
+         * A cell missing because the line is shorter than the format.
+         */
+        void setAbsent(int row) {
+
+            setNull(row, true);
+        }
+
+        boolean isNull(int row) {
+
+            return (nulls[row >>> 6] & (1L << row)) != 0;
+        }
+
+        void setNull(int row, boolean b) {
+
+            if (b) {
+
+                nulls[row >>> 6] |= 1L << row;
+            }
+            else {
+
+                nulls[row >>> 6] &= ~(1L << row);
+            }
+        }
+
+        void clear() {
+
+            Arrays.fill(nulls, 0L);
+        }
+    }
+
+    private final class TimestampColumn extends Column {
+
+        private final long[] values;
+
+        private final TimestampConverter converter;
+        private final TimestampParser parser;
+
+        private TimestampColumn(String name, int capacity, TimestampConverter converter) {
+
+            super(ColumnType.TIMESTAMP, name, capacity);
+
+            this.values = new long[capacity];
+            this.converter = converter;
+            this.parser = converter.getParser();
+        }
+
+        @Override
+        void set(int row, CharSequence s, int start, int end) throws ParsingException {
+
+            try {
+
+                values[row] = parser.parse(s, start, end);
+            }
+            catch(IllegalArgumentException e) {
+
+                //
+                // the converter reports the error, the same way it does for the parser
+                //
+
+                converter.convert(s, start, end);
+                throw e;
+            }
+
+            setNull(row, false);
+        }
+
+        /**
+         * The timestamp is mandatory, the converter reports the error.
+         */
+        @Override
+        void setMissing(int row) throws ParsingException {
+
+            converter.convertMissing();
+        }
+
+        @Override
+        Property toProperty(int row) {
+
+            return new TimestampProperty(values[row]);
+        }
+    }
+
+    private final class IntColumn extends Column {
+
+        private final int[] values;
+
+        private IntColumn(String name, int capacity) {
+
+            super(ColumnType.INT, name, capacity);
+
+            this.values = new int[capacity];
+        }
+
+        @Override
+        void set(int row, CharSequence s, int start, int end) {
+
+            if (numberParser.parseInt(s, start, end) != NumberParser.Status.OK) {
+
+                throw new IllegalArgumentException("invalid int value \"" + s.subSequence(start, end) + "\"");
+            }
+
+            values[row] = numberParser.getInt();
+            setNull(row, false);
+        }
+
+        @Override
+        Property toProperty(int row) {
+
+            return new IntegerProperty(name, isNull(row) ? null : values[row]);
+        }
+    }
+
+    private final class LongColumn extends Column {
+
+        private final long[] values;
+
+        private LongColumn(String name, int capacity) {
+
+            super(ColumnType.LONG, name, capacity);
+
+            this.values = new long[capacity];
+        }
+
+        @Override
+        void set(int row, CharSequence s, int start, int end) {
+
+            if (numberParser.parseLong(s, start, end) != NumberParser.Status.OK) {
+
+                throw new IllegalArgumentException("invalid long value \"" + s.subSequence(start, end) + "\"");
+            }
+
+            values[row] = numberParser.getLong();
+            setNull(row, false);
+        }
+
+        @Override
+        Property toProperty(int row) {
+
+            return new LongProperty(name, isNull(row) ? null : values[row]);
+        }
+    }
+
+    private final class DoubleColumn extends Column {
+
+        private final double[] values;
+
+        private DoubleColumn(ColumnType type, String name, int capacity) {
+
+            super(type, name, capacity);
+
+            this.values = new double[capacity];
+        }
+
+        @Override
+        void set(int row, CharSequence s, int start, int end) {
+
+            if (type == ColumnType.FLOAT) {
+
+                if (numberParser.parseFloat(s, start, end) != NumberParser.Status.OK) {
+
+                    throw new IllegalArgumentException("invalid float value \"" + s.subSequence(start, end) + "\"");
+                }
+
+                values[row] = numberParser.getFloat();
+            }
+            else {
+
+                if (numberParser.parseDouble(s, start, end) != NumberParser.Status.OK) {
+
+                    throw new IllegalArgumentException(
+                            "invalid double value \"" + s.subSequence(start, end) + "\"");
+                }
+
+                values[row] = numberParser.getDouble();
+            }
+
+            setNull(row, false);
+        }
+
+        @Override
+        Property toProperty(int row) {
+
+            if (type == ColumnType.FLOAT) {
+
+                return new FloatProperty(name, isNull(row) ? null : (float)values[row]);
+            }
+
+            return new DoubleProperty(name, isNull(row) ? null : values[row]);
+        }
+    }
+
+    /**
+     * The dictionary is an open addressing table keyed by the raw characters of the cells, so a value is only
+     * materialized the first time it is seen in the batch.
+     */
+    private final class StringColumn extends Column {
+
+        private final int[] codes;
+
+        private final List<String> dictionary;
+
+        private char[][] keys;
+        private int[] hashes;
+        private int[] slotCodes;
+
+        private StringColumn(String name, int capacity) {
+
+            super(ColumnType.STRING, name, capacity);
+
+            this.codes = new int[capacity];
+            this.dictionary = new ArrayList<>();
+
+            allocate(16);
+        }
+
+        @Override
+        void set(int row, CharSequence s, int start, int end) {
+
+            int hash = 0;
+
+            for(int i = start; i < end; i ++) {
+
+                hash = 31 * hash + s.charAt(i);
+            }
+
+            int mask = keys.length - 1;
+
+            int slot = (hash ^ (hash >>> 16)) & mask;
+
+            for(char[] key = keys[slot]; key != null; key = keys[slot]) {
+
+                if (hashes[slot] == hash && sameContent(key, s, start, end)) {
+
+                    codes[row] = slotCodes[slot];
+                    setNull(row, false);
+                    return;
+                }
+
+                slot = (slot + 1) & mask;
+            }
+
+            int length = end - start;
+
+            char[] key = new char[length];
+
+            for(int i = 0; i < length; i ++) {
+
+                key[i] = s.charAt(start + i);
+            }
+
+            int code = dictionary.size();
+
+            dictionary.add(s.subSequence(start, end).toString());
+
+            keys[slot] = key;
+            hashes[slot] = hash;
+            slotCodes[slot] = code;
+
+            if (2 * dictionary.size() > keys.length) {
+
+                rehash();
+            }
+
+            codes[row] = code;
+            setNull(row, false);
+        }
+
+        @Override
+        void setMissing(int row) throws ParsingException {
+
+            super.setMissing(row);
+            codes[row] = -1;
+        }
+
+        @Override
+        void setAbsent(int row) {
+
+            super.setAbsent(row);
+            codes[row] = -1;
+        }
+
+        @Override
+        Property toProperty(int row) {
+
+            int code = codes[row];
+
+            return new StringProperty(name, code == -1 ? null : dictionary.get(code));
+        }
+
+        @Override
+        void clear() {
+
+            super.clear();
+            dictionary.clear();
+            allocate(16);
+        }
+
+        private void allocate(int capacity) {
+
+            keys = new char[capacity][];
+            hashes = new int[capacity];
+            slotCodes = new int[capacity];
+        }
+
+        private void rehash() {
+
+            char[][] oldKeys = keys;
+            int[] oldHashes = hashes;
+            int[] oldCodes = slotCodes;
+
+            allocate(oldKeys.length << 1);
+
+            int mask = keys.length - 1;
+
+            for(int i = 0; i < oldKeys.length; i ++) {
+
+                if (oldKeys[i] == null) {
+
+                    continue;
+                }
+
+                int slot = (oldHashes[i] ^ (oldHashes[i] >>> 16)) & mask;
+
+                while(keys[slot] != null) {
+
+                    slot = (slot + 1) & mask;
+                }
+
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                slotCodes[slot] = oldCodes[i];
+            }
+        }
+
+        private boolean sameContent(char[] key, CharSequence s, int start, int end) {
+
+            if (key.length != end - start) {
+
+                return false;
+            }
+
+            for(int i = 0; i < key.length; i ++) {
+
+                if (key[i] != s.charAt(start + i)) {
+
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private final class PropertyColumn extends Column {
+
+        private final Property[] values;
+
+        private final FieldConverter converter;
+
+        private PropertyColumn(String name, int capacity, FieldConverter converter) {
+
+            super(ColumnType.OTHER, name, capacity);
+
+            this.values = new Property[capacity];
+            this.converter = converter;
+        }
+
+        @Override
+        void set(int row, CharSequence s, int start, int end) throws ParsingException {
+
+            values[row] = converter.convert(s, start, end);
+            setNull(row, false);
+        }
+
+        @Override
+        void setMissing(int row) throws ParsingException {
+
+            super.setMissing(row);
+            values[row] = converter.convertMissing();
+        }
+
+        @Override
+        void setAbsent(int row) {
+
+            super.setAbsent(row);
+            values[row] = null;
+        }
+
+        @Override
+        Property toProperty(int row) {
+
+            return values[row];
+        }
+
+        @Override
+        void clear() {
+
+            super.clear();
+            Arrays.fill(values, null);
+        }
+    }
+
+}
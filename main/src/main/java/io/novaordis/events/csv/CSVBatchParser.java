@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import io.novaordis.utilities.parsing.ParsingException;
+
+/**
+ * Parses CSV lines into CSVBatch instances, without creating events. The lines are processed as the format-driven
+ * CSVParser processes them: blank edges are ignored, empty lines are skipped and header lines change the format of the
+ * lines that follow them. A batch only contains lines parsed with the same format, so a header line completes the
+ * current batch. Header lines do not produce any other output, the format is available from the batch.
+ *
+ * Data lines encountered before any format is available cannot be stored by column, and they are reported as parsing
+ * errors.
+ *
+ * The instances are not thread safe.
+ *
+ * @see CSVBatch
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVBatchParser {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final int batchSize;
+
+    private final CSVTokenRanges tokens;
+
+    private final CSVFormatCache formatCache;
+
+    private CSVFormat format;
+
+    private CSVBatch batch;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    /**
+     * @param formatSpecification the format in effect at the beginning of the stream. May be null, in which case the
+     *                            stream must start with a header line.
+     *
+     * @throws IllegalArgumentException if the format specification cannot be used to build a CSV format.
+     * @throws CSVFormatException if the format specification contains an incorrectly specified field.
+     */
+    public CSVBatchParser(String formatSpecification) throws IllegalArgumentException, CSVFormatException {
+
+        this(formatSpecification, CSVBatch.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param formatSpecification the format in effect at the beginning of the stream. May be null, in which case the
+     *                            stream must start with a header line.
+     * @param batchSize the maximum number of rows per batch.
+     *
+     * @throws IllegalArgumentException if the format specification cannot be used to build a CSV format, or on a
+     * non-positive batch size.
+     * @throws CSVFormatException if the format specification contains an incorrectly specified field.
+     */
+    public CSVBatchParser(String formatSpecification, int batchSize)
+            throws IllegalArgumentException, CSVFormatException {
+
+        if (batchSize <= 0) {
+
+            throw new IllegalArgumentException("invalid batch size " + batchSize);
+        }
+
+        this.batchSize = batchSize;
+        this.tokens = new CSVTokenRanges();
+        this.formatCache = new CSVFormatCache();
+
+        if (formatSpecification != null) {
+
+            this.format = new CSVFormat(formatSpecification);
+        }
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @param line may be null.
+     *
+     * @return a completed batch, if the line filled the current batch, or if it is a header line and the current
+     * batch is not empty. Null otherwise.
+     *
+     * @throws ParsingException if the line cannot be tokenized, if a cell cannot be converted to its column's type,
+     * if a header line contains an invalid format specification, or if no format is available for a data line.
+     */
+    public CSVBatch parse(long lineNumber, CharSequence line) throws ParsingException {
+
+        if (line == null) {
+
+            return null;
+        }
+
+        line = CSVParser.trim(line);
+
+        if (line.length() == 0) {
+
+            return null;
+        }
+
+        if (line.charAt(0) == CSVParser.HEADER_LEADER) {
+
+            CSVFormat f;
+
+            try {
+
+                f = formatCache.get(line.subSequence(1, line.length()).toString());
+            }
+            catch(CSVFormatException e) {
+
+                throw new ParsingException(lineNumber, e);
+            }
+
+            CSVBatch completed = flush();
+
+            format = f;
+
+            return completed;
+        }
+
+        if (format == null) {
+
+            throw new ParsingException(lineNumber, "no CSV format available, the line cannot be stored by column");
+        }
+
+        CSVTokenizer.split(lineNumber, line, CSVParser.SEPARATOR, tokens);
+
+        if (batch == null) {
+
+            batch = new CSVBatch(format, batchSize);
+        }
+
+        batch.add(lineNumber, tokens);
+
+        return batch.isFull() ? flush() : null;
+    }
+
+    /**
+     * @return the current batch, if it is not empty, or null. A new batch is started with the next data line.
+     */
+    public CSVBatch flush() {
+
+        CSVBatch b = batch;
+
+        batch = null;
+
+        return b == null || b.isEmpty() ? null : b;
+    }
+
+    /**
+     * @return the format in effect for the next data line. May be null. The formats compiled from header lines are
+     * shared with the parser's format cache, so the returned format must not be modified, see CSVFormat#copy().
+     */
+    public CSVFormat getFormat() {
+
+        return format;
+    }
+
+    public int getBatchSize() {
+
+        return batchSize;
+    }
+
+    @Override
+    public String toString() {
+
+        return "CSVBatchParser[" + (format == null ? "no format" : format.toPattern()) + "]";
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
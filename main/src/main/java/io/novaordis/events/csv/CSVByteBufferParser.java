@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.query.Query;
+import io.novaordis.utilities.parsing.ParsingException;
+
+/**
+ * A byte-oriented front end for CSVParser: scans UTF-8 encoded ByteBuffers for newlines and hands each line, as an
+ * undecoded Utf8Line view, to the CSVParser line logic. The separator and quote scanning, and the int/long
+ * conversions, happen directly on the bytes; only the tokens that need a String are decoded. The events produced
+ * (TimedCSVLine, NonTimedCSVLine, CSVHeaders) are identical to those produced by the line-oriented CSVParser API.
+ *
+ * Lines are numbered starting with 1. A line that is not terminated by a newline at the end of a buffer is retained
+ * and completed with the content of the next buffer, or flushed by close().
+ *
+ * The instance is stateful and NOT thread safe, like the CSVParser it wraps.
+ *
+ * @see Utf8Line
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVByteBufferParser {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final Logger log = LoggerFactory.getLogger(CSVByteBufferParser.class);
+
+    public static final int DEFAULT_READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte NEWLINE = '\n';
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private CSVParser parser;
+
+    private Query query;
+
+    private long lineNumber;
+
+    //
+    // the bytes of a line that started in a previous buffer but was not terminated there
+    //
+    private ByteBuffer carry;
+
+    //
+    // reused for each line
+    //
+    private Utf8Line line;
+
+    private boolean closed;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    /**
+     * @param parser the parser whose format state (installed format, header processing) applies. Must not be used
+     *               concurrently through its line-oriented API.
+     */
+    public CSVByteBufferParser(CSVParser parser) {
+
+        this(parser, 0L);
+    }
+
+    /**
+     * Used when the content starts in the middle of a larger stream.
+     *
+     * @param linesAlreadyParsed the number of lines that precede the content, so the first line parsed by this instance
+     *                           gets the number linesAlreadyParsed + 1.
+     */
+    CSVByteBufferParser(CSVParser parser, long linesAlreadyParsed) {
+
+        if (parser == null) {
+
+            throw new IllegalArgumentException("null parser");
+        }
+
+        if (linesAlreadyParsed < 0) {
+
+            throw new IllegalArgumentException("invalid line number " + linesAlreadyParsed);
+        }
+
+        this.parser = parser;
+        this.lineNumber = linesAlreadyParsed;
+        this.carry = ByteBuffer.allocate(256);
+        this.line = new Utf8Line();
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Parses all the newline-terminated lines available between the buffer's position and its limit. Upon return, the
+     * buffer's position is advanced to its limit; the trailing unterminated line, if any, is retained internally.
+     *
+     * @return the events, in order. May be empty, never null.
+     *
+     * @see CSVByteBufferParser#parse(ByteBuffer, List)
+     */
+    public List<Event> parse(ByteBuffer buffer) throws ParsingException {
+
+        List<Event> result = new ArrayList<>();
+
+        parse(buffer, result);
+
+        return result;
+    }
+
+    /**
+     * Parses all the newline-terminated lines available between the buffer's position and its limit, and appends the
+     * events, in order, to the given list, as the lines are parsed.
+     *
+     * If a line fails to parse, the list already contains the events of the lines that precede it, so the caller can
+     * deliver them before handling the failure. The parser must not be used after a failure.
+     *
+     * @exception ParsingException on a line that cannot be parsed.
+     * @exception IllegalArgumentException on a value that cannot be converted to the type of its column.
+     */
+    public void parse(ByteBuffer buffer, List<Event> result) throws ParsingException {
+
+        if (closed) {
+
+            throw new IllegalStateException(this + " closed");
+        }
+
+        int position = buffer.position();
+        int limit = buffer.limit();
+
+        int lineStart = position;
+
+        for(int i = position; i < limit; i ++) {
+
+            if (buffer.get(i) != NEWLINE) {
+
+                continue;
+            }
+
+            if (carry.position() > 0) {
+
+                //
+                // complete the line started in a previous buffer
+                //
+
+                append(buffer, lineStart, i);
+                parseLine(carry, 0, carry.position(), result);
+                carry.clear();
+            }
+            else {
+
+                parseLine(buffer, lineStart, i, result);
+            }
+
+            lineStart = i + 1;
+        }
+
+        if (lineStart < limit) {
+
+            append(buffer, lineStart, limit);
+        }
+
+        buffer.position(limit);
+    }
+
+    /**
+     * Reads and parses the whole stream. The stream is not closed, but this parser is.
+     *
+     * @return all events, in order, including the ones flushed on close().
+     */
+    public List<Event> parse(InputStream is) throws IOException, ParsingException {
+
+        List<Event> result = new ArrayList<>();
+
+        byte[] bytes = new byte[DEFAULT_READ_BUFFER_SIZE];
+
+        int n;
+
+        while((n = is.read(bytes)) != -1) {
+
+            result.addAll(parse(ByteBuffer.wrap(bytes, 0, n)));
+        }
+
+        result.addAll(close());
+
+        return result;
+    }
+
+    /**
+     * Parses the unterminated trailing line, if any, and flushes the parser state (a header not yet followed by a data
+     * line). Subsequent parse() invocations will fail.
+     */
+    public List<Event> close() throws ParsingException {
+
+        if (closed) {
+
+            throw new IllegalStateException(this + " already closed");
+        }
+
+        closed = true;
+
+        List<Event> result = new ArrayList<>();
+
+        if (carry.position() > 0) {
+
+            parseLine(carry, 0, carry.position(), result);
+            carry.clear();
+        }
+
+        result.addAll(parser.close(lineNumber));
+
+        return result;
+    }
+
+    /**
+     * The query, if any, is passed to the CSVParser line logic. May be null.
+     */
+    public void setQuery(Query query) {
+
+        this.query = query;
+    }
+
+    /**
+     * @return the number of the last line parsed, 0 if no line was parsed yet.
+     */
+    public long getLineNumber() {
+
+        return lineNumber;
+    }
+
+    public CSVParser getParser() {
+
+        return parser;
+    }
+
+    @Override
+    public String toString() {
+
+        return "CSVByteBufferParser[" + parser + "]";
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * @param from absolute buffer offset, inclusive.
+     * @param to absolute buffer offset, exclusive, pointing to the newline, or to the end of the content.
+     */
+    private void parseLine(ByteBuffer buffer, int from, int to, List<Event> result) throws ParsingException {
+
+        lineNumber ++;
+
+        line.reset(buffer, from, to - from);
+
+        if (log.isTraceEnabled()) {
+
+            log.trace(this + " parsing line " + lineNumber);
+        }
+
+        result.addAll(parser.parseLine(lineNumber, line, query));
+    }
+
+    private void append(ByteBuffer buffer, int from, int to) {
+
+        int n = to - from;
+
+        if (carry.remaining() < n) {
+
+            ByteBuffer tmp = ByteBuffer.allocate(Math.max(2 * carry.capacity(), carry.position() + n));
+            carry.flip();
+            tmp.put(carry);
+            carry = tmp;
+        }
+
+        for(int i = from; i < to; i ++) {
+
+            carry.put(buffer.get(i));
+        }
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -53,13 +53,21 @@ public class CSVFormat {
 
     private int unnamedFieldCounter = 0;
 
-    private List<CSVField> fields;
+    private FieldList fields;
+
+    private ConversionPlan conversionPlan;
+
+    //
+    // the modification counts of the field list, and of the fields, when the conversion plan was compiled
+    //
+    private int conversionPlanModificationCount;
+    private int conversionPlanFieldModificationCount;
 
     // Constructors ----------------------------------------------------------------------------------------------------
 
     public CSVFormat() {
 
-        fields = new ArrayList<>();
+        fields = new FieldList();
     }
 
     /**
@@ -184,6 +192,20 @@ public class CSVFormat {
         return fields;
     }
 
+    /**
+     * @return a new format, compiled from this format's specification, which can be modified independently of this
+     * one. Used to obtain a modifiable instance of the formats shared with a CSVFormatCache.
+     *
+     * @throws CSVFormatException if the specification of a field cannot be compiled again, which does not happen for
+     * the formats compiled from a specification.
+     *
+     * @see CSVFormatCache
+     */
+    public CSVFormat copy() throws CSVFormatException {
+
+        return new CSVFormat(toPattern());
+    }
+
     /**
      * Similar to SimpleDateFormat#toPattern(), returns the specification of this format, which consists in the
      * concatenation of its fields' specifications, in order.
@@ -216,6 +238,36 @@ public class CSVFormat {
 
     // Package protected -----------------------------------------------------------------------------------------------
 
+    /**
+     * The converters to be used by the parser for the fields of this format, compiled on first access. Any change of
+     * the field list, made through the addField() methods or directly on the storage returned by getFields(), and any
+     * change of a field's name or format, invalidates the plan, which is compiled again on the next access.
+     *
+     * @see CSVFieldImpl#getModificationCount()
+     */
+    ConversionPlan getConversionPlan() {
+
+        ConversionPlan p = conversionPlan;
+
+        int modificationCount = fields.getModificationCount();
+
+        //
+        // read before compiling, so a concurrent field change is detected on the next access
+        //
+        int fieldModificationCount = CSVFieldImpl.getModificationCount();
+
+        if (p == null || conversionPlanModificationCount != modificationCount ||
+                conversionPlanFieldModificationCount != fieldModificationCount) {
+
+            p = new ConversionPlan(fields);
+            conversionPlan = p;
+            conversionPlanModificationCount = modificationCount;
+            conversionPlanFieldModificationCount = fieldModificationCount;
+        }
+
+        return p;
+    }
+
     // Protected -------------------------------------------------------------------------------------------------------
 
     // Private ---------------------------------------------------------------------------------------------------------
@@ -228,4 +280,26 @@ public class CSVFormat {
 
     // Inner classes ---------------------------------------------------------------------------------------------------
 
+    /**
+     * The field storage. It exposes its modification count, which, unlike ArrayList's, also counts the replacement
+     * of an element, so the conversion plan can be invalidated without walking the list.
+     */
+    private static final class FieldList extends ArrayList<CSVField> {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public CSVField set(int index, CSVField element) {
+
+            modCount ++;
+
+            return super.set(index, element);
+        }
+
+        int getModificationCount() {
+
+            return modCount;
+        }
+    }
+
 }
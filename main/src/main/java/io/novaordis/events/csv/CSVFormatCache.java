@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of the CSVFormat instances compiled from format specifications, keyed by the
+ * specification text. Used by CSVParser so a header line that was already seen, as it happens with rotated or
+ * concatenated files that repeat the same header, installs its format without tokenizing the specification and
+ * building the fields again.
+ *
+ * The cached instances are shared by all the lookups of the same specification, so they must not be modified after
+ * they are returned; a modifiable instance is obtained with CSVFormat#copy(). CSVParser, CSVRowParser and
+ * CSVBatchParser, whose formats, rows and batches reference the cached instances, state the same contract.
+ * Specifications that fail to compile are not cached. The instances are not thread safe.
+ *
+ * @see CSVParser#setFormatCacheCapacity(int)
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class CSVFormatCache {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    public static final int DEFAULT_CAPACITY = 16;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final int capacity;
+
+    private final Map<String, CSVFormat> formats;
+
+    private long hitCount;
+    private long missCount;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public CSVFormatCache() {
+
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum number of formats kept. When a new format is added to a full cache, the least
+     *                 recently used one is evicted.
+     *
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public CSVFormatCache(int capacity) throws IllegalArgumentException {
+
+        if (capacity <= 0) {
+
+            throw new IllegalArgumentException("invalid capacity " + capacity);
+        }
+
+        this.capacity = capacity;
+
+        this.formats = new LinkedHashMap<String, CSVFormat>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CSVFormat> eldest) {
+
+                return size() > CSVFormatCache.this.capacity;
+            }
+        };
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the cached format for the given specification, or a newly compiled one, which is cached.
+     *
+     * @throws IllegalArgumentException if the given format specification cannot be used to build a CSV format, or
+     * if it is null.
+     *
+     * @throws CSVFormatException if the specification contains an incorrectly specified field.
+     *
+     * @see CSVFormat#CSVFormat(String)
+     */
+    public CSVFormat get(String formatSpecification) throws IllegalArgumentException, CSVFormatException {
+
+        if (formatSpecification == null) {
+
+            throw new IllegalArgumentException("null format specification");
+        }
+
+        CSVFormat f = formats.get(formatSpecification);
+
+        if (f != null) {
+
+            hitCount ++;
+            return f;
+        }
+
+        missCount ++;
+
+        f = new CSVFormat(formatSpecification);
+
+        formats.put(formatSpecification, f);
+
+        return f;
+    }
+
+    /**
+     * @return the number of lookups that were served from the cache.
+     */
+    public long getHitCount() {
+
+        return hitCount;
+    }
+
+    /**
+     * @return the number of lookups that compiled the specification, including the ones that failed.
+     */
+    public long getMissCount() {
+
+        return missCount;
+    }
+
+    public int getCapacity() {
+
+        return capacity;
+    }
+
+    /**
+     * @return the number of formats currently cached.
+     */
+    public int size() {
+
+        return formats.size();
+    }
+
+    /**
+     * Evicts all the formats. The counters are not reset.
+     */
+    public void clear() {
+
+        formats.clear();
+    }
+
+    @Override
+    public String toString() {
+
+        return "CSVFormatCache[" + formats.size() + "/" + capacity + ", hits " + hitCount + ", misses " +
+                missCount + "]";
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -16,8 +16,9 @@
 
 package io.novaordis.events.csv;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
 
@@ -25,18 +26,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.novaordis.events.api.event.Event;
-import io.novaordis.events.api.event.EventProperty;
 import io.novaordis.events.api.event.FaultEvent;
 import io.novaordis.events.api.event.MapProperty;
 import io.novaordis.events.api.event.Property;
 import io.novaordis.events.api.event.TimedEvent;
-import io.novaordis.events.api.event.TimestampProperty;
 import io.novaordis.events.api.metric.MetricDefinition;
 import io.novaordis.events.csv.event.field.CSVField;
 import io.novaordis.events.csv.event.field.MetricDefinitionBasedCSVField;
-import io.novaordis.utilities.address.Address;
 import io.novaordis.utilities.parsing.ParsingException;
-import io.novaordis.utilities.time.Timestamp;
 
 /**
  * Instances of this class convert events into comma-separated value lines containing event's properties values, usually
@@ -45,6 +42,9 @@ import io.novaordis.utilities.time.Timestamp;
  * If the CSVFormat is available, the formatter will only include the specified properties in the output. Otherwise, all
  * properties carried by the event are introspected and included in the output.
  *
+ * The output is written directly into a caller-provided Appendable or ByteBuffer. The String-returning methods are
+ * convenience wrappers that write into a StringBuilder.
+ *
  * The class contains support for generating headers. A header line is generated when the first event is received and
  * inserted *before* the first event representation. The header starts with a "#" and it contains comma-separated
  * event's properties names. Also see:
@@ -77,12 +77,33 @@ public class CSVFormatter {
      */
     public static String outputFormatToHeader(CSVFormat outputFormat) {
 
+        StringBuilder sb = new StringBuilder();
+
+        try {
+
+            outputFormatToHeader(outputFormat, sb);
+        }
+        catch(IOException e) {
+
+            throw new IllegalStateException("StringBuilder failed to append", e);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Writes the header corresponding to the given output format, without a trailing new line.
+     *
+     * @see CSVFormatter#outputFormatToHeader(CSVFormat)
+     */
+    public static void outputFormatToHeader(CSVFormat outputFormat, Appendable out) throws IOException {
+
         if (log.isTraceEnabled()) {
 
             log.trace("converting output format " + outputFormat + " to header line");
         }
 
-        String headerLine = "# ";
+        out.append("# ");
 
         List<CSVField> fields = outputFormat.getFields();
 
@@ -105,18 +126,18 @@ public class CSVFormatter {
 
             if (fieldHeader.contains(",") || fieldHeader.contains(".")) {
 
-                fieldHeader = "\"" + fieldHeader + "\"";
+                out.append('"').append(fieldHeader).append('"');
             }
+            else {
 
-            headerLine += fieldHeader;
+                out.append(fieldHeader);
+            }
 
             if (i.hasNext()) {
 
-                headerLine += ", ";
+                out.append(", ");
             }
         }
-
-        return headerLine;
     }
 
     // Attributes ------------------------------------------------------------------------------------------------------
@@ -126,39 +147,94 @@ public class CSVFormatter {
      */
     private CSVFormat outputFormat;
 
+    /**
+     * The output format compiled into per-column extractors, null if there is no output format.
+     */
+    private OutputPlan outputPlan;
+
+    /**
+     * The property order of the last event rendered via introspection.
+     */
+    private IntrospectionOrder introspectionOrder;
+
     private boolean headerOn;
 
     private boolean ignoreFaults;
 
+    //
+    // whether a subclass customizes the output by overriding the String-returning hooks, in which case they are used
+    // instead of their streaming equivalents
+    //
+    private final boolean toStringOverridden;
+    private final boolean getHeaderOverridden;
+
     // Constructors ----------------------------------------------------------------------------------------------------
 
     public CSVFormatter() {
 
         outputFormat = null;
+
+        toStringOverridden = isOverridden(getClass(), "toString", Event.class);
+        getHeaderOverridden = isOverridden(getClass(), "getHeader", Event.class);
     }
 
     // Public ----------------------------------------------------------------------------------------------------------
 
     /**
      * May return null for some types of events.
+     *
+     * @see CSVFormatter#format(Event, Appendable)
      */
     public String format(Event event) {
 
+        StringBuilder sb = new StringBuilder();
+
+        try {
+
+            if (!format(event, sb)) {
+
+                return null;
+            }
+        }
+        catch(IOException e) {
+
+            throw new IllegalStateException("StringBuilder failed to append", e);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Writes the representation of the event, preceded by the header if the header is on, into the given Appendable.
+     * Each line is terminated by a new line.
+     *
+     * @return false if nothing was written because the formatter drops this type of events (see
+     * CSVFormatter#isIgnoreFaults()), true otherwise.
+     *
+     * @exception IOException if the Appendable fails to write. The output may be incomplete in that case.
+     */
+    public boolean format(Event event, Appendable out) throws IOException {
+
         if (log.isTraceEnabled()) {
 
             log.trace(this + " formatting " + event);
         }
 
-        String s = "";
+        //
+        // TODO we may want to consider to send the fault events to stderr so we don't interfere with stdout
+        //
+
+        boolean dropped = event instanceof FaultEvent && isIgnoreFaults();
 
         if (headerOn) {
 
-            String header = getHeader(event);
+            //
+            // a dropped fault still consumes the header
+            //
 
-            if (header != null) {
+            if (!dropped) {
 
-                s += header;
-                s += "\n";
+                writeHeaderLine(event, out);
             }
 
             //
@@ -167,29 +243,65 @@ public class CSVFormatter {
             headerOn = false;
         }
 
-        if (event instanceof FaultEvent) {
+        if (dropped) {
 
-            //
-            // TODO we may want to consider to send the fault events to stderr so we don't interfere with stdout
-            //
+            // we drop the fault - we simply ignore it
 
-            if (isIgnoreFaults()) {
+            return false;
+        }
 
-                // we drop the fault - we simply ignore it
+        if (event instanceof FaultEvent) {
 
-                return null;
-            }
+            externalizeFault((FaultEvent)event, out);
+        }
+        else if (toStringOverridden) {
 
-            s += externalizeFault((FaultEvent)event);
-            s += "\n";
+            out.append(toString(event));
         }
         else {
 
-            s += toString(event);
-            s += "\n";
+            externalize(event, out);
         }
 
-        return s;
+        out.append('\n');
+
+        return true;
+    }
+
+    /**
+     * Writes the UTF-8 encoded representation of the event, preceded by the header if the header is on, into the
+     * given buffer, starting at its current position. The position is advanced past the written bytes.
+     *
+     * @return false if nothing was written because the formatter drops this type of events (see
+     * CSVFormatter#isIgnoreFaults()), true otherwise.
+     *
+     * @exception BufferOverflowException if the representation does not fit in the remaining space. The buffer's
+     * position and the formatter's state are left unchanged, so the event can be formatted again into a drained or
+     * larger buffer.
+     */
+    public boolean format(Event event, ByteBuffer buffer) throws BufferOverflowException {
+
+        int position = buffer.position();
+        boolean wasHeaderOn = headerOn;
+
+        Utf8Appendable out = new Utf8Appendable(buffer);
+
+        try {
+
+            boolean written = format(event, out);
+            out.flush();
+            return written;
+        }
+        catch(BufferOverflowException e) {
+
+            buffer.position(position);
+            headerOn = wasHeaderOn;
+            throw e;
+        }
+        catch(IOException e) {
+
+            throw new IllegalStateException("ByteBuffer failed to append", e);
+        }
     }
 
     /**
@@ -198,6 +310,7 @@ public class CSVFormatter {
     public void setFormat(CSVFormat format) {
 
         this.outputFormat = format;
+        this.outputPlan = format == null ? null : new OutputPlan(format.getFields());
 
         log.debug(this + " setting output format to " + format);
     }
@@ -253,165 +366,85 @@ public class CSVFormatter {
 
     // Static package protected ----------------------------------------------------------------------------------------
 
+    // Protected -------------------------------------------------------------------------------------------------------
+
     /**
-     * @return the string representation of the value of the event's property that matches the given CSVField. May
-     *         return null if the given CSV field does not match any property.
+     * This method was designed to be overridden by more specialized sub-classes, if they choose so. The method
+     * receives the Event and returns a comma-separated string generated based on the sub-class instance state. If it
+     * is overridden, all format() methods use it, otherwise they stream the representation via externalize().
      */
-    static String extractValueForMetricDefinitionBasedCSVField(Event e, MetricDefinitionBasedCSVField mdbf) {
-
-        if (e == null) {
-
-            throw new IllegalArgumentException("null event");
-        }
-
-        if (mdbf == null) {
-
-            throw new IllegalArgumentException("null CSV field");
-        }
-
-        MetricDefinition md = mdbf.getMetricDefinition();
-        Address address = md.getMetricSourceAddress();
-        String addressLiteral = address.getLiteral();
-        String metricId = md.getId();
-
-        //
-        // we expect a two-level event hierarchy. The top level events should contain event properties, where the
-        // property name is the address.
-        //
-
-        EventProperty ep = e.getEventProperty(addressLiteral);
-
-        if (ep == null) {
+    protected String toString(Event event) {
 
-            if (log.isDebugEnabled()) {
+        StringBuilder sb = new StringBuilder();
 
-                log.debug(e + " does not carry an event property for address \"" + addressLiteral + "\"");
-            }
+        try {
 
-            return null;
+            externalize(event, sb);
         }
+        catch(IOException e) {
 
-        Event secondLevelEvent = ep.getEvent();
-
-        //
-        // once we find a non-null event property, a null value event is a programming error; NullPointerException will
-        // indicate that
-        //
-
-        Property p = secondLevelEvent.getProperty(metricId);
-
-        //
-        // if is possible to have a valid second level event which does not carry this particular metric, because
-        // the metric was not available
-        //
-
-        if (p == null) {
-
-            if (log.isDebugEnabled()) {
-
-                log.debug("metrics generated by \"" + addressLiteral + "\" do not include a metric with ID \"" + metricId + "\"");
-            }
-
-            return null;
+            throw new IllegalStateException("StringBuilder failed to append", e);
         }
 
-        return p.externalizeValue();
+        return sb.toString();
     }
 
     /**
-     * @return the string representation of the value of the event's property. The property is located based on its
-     * name. May return null if there is no property with the given name.
+     * The streaming equivalent of toString(Event): writes the comma-separated representation of the event, without a
+     * trailing new line. Sub-classes that customize the representation should override this method.
      */
-    static String extractValueForPropertyWithGivenName(Event e, String propertyName) {
-
-        if (e == null) {
-
-            throw new IllegalArgumentException("null event");
-        }
-
-        if (propertyName == null) {
-
-            throw new IllegalArgumentException("null property name");
-        }
-
-        Property p = e.getProperty(propertyName);
-
-        if (p != null) {
-
-            return p.externalizeValue();
-        }
-
-        //
-        // look for dots, map properties, etc.
-        //
-
-        //
-        // TODO Map Handling: hacky, review this, not sufficiently tested
-        //
-
-        int i;
-        String mapKey = null;
-
-        if ((i = propertyName.indexOf('.')) != -1) {
-
-            //
-            // map property
-            //
-
-            mapKey = propertyName.substring(i + 1);
-            propertyName = propertyName.substring(0, i);
-        }
-
-
-        p = e.getProperty(propertyName);
-
-        if (p instanceof MapProperty) {
-
-            return ((MapProperty) p).externalizeValue(mapKey);
-        }
+    protected void externalize(Event event, Appendable out) throws IOException {
 
-        if (p != null) {
+        if (outputFormat != null) {
 
-            return p.externalizeValue();
+            externalizeEventInOutputFormat(outputFormat, event, out);
         }
+        else {
 
-        if (log.isDebugEnabled()) {
-
-            log.debug(e + " does not carry a \"" + propertyName + "\" property");
+            externalizeEventViaIntrospection(event, out);
         }
-
-        return null;
     }
 
-    // Protected -------------------------------------------------------------------------------------------------------
-
     /**
-     * This method was designed to be overridden by more specialized sub-classes, if they choose so. The method
-     * receives the Event and returns a comma-separated string generated based on the sub-class instance state.
+     * May be overridden by sub-classes to provide custom headers. If it is overridden, all format() methods use it,
+     * otherwise they stream the header via writeHeader().
+     *
+     * @return the header, or null if there is no header.
+     *
+     * @see CSVFormatter#writeHeader(Event, Appendable)
      */
-    protected String toString(Event event) {
+    protected String getHeader(Event event) {
 
-        if (outputFormat != null) {
+        StringBuilder sb = new StringBuilder();
+
+        try {
 
-            return externalizeEventInOutputFormat(outputFormat, event);
+            if (!writeHeader(event, sb)) {
+
+                return null;
+            }
         }
-        else {
+        catch(IOException e) {
 
-            return externalizeEventViaIntrospection(event);
+            throw new IllegalStateException("StringBuilder failed to append", e);
         }
+
+        return sb.toString();
     }
 
     /**
      * Subclasses should override this to provide custom headers. The default header is the composed of the name
-     * of the fields.
+     * of the fields. The header is written without a trailing new line.
+     *
+     * @return false if there is no header and nothing was written.
      */
-    protected String getHeader(Event event) {
+    protected boolean writeHeader(Event event, Appendable out) throws IOException {
 
         CSVFormat outputFormat = getFormat();
 
         if (outputFormat != null) {
 
-            return outputFormatToHeader(outputFormat);
+            outputFormatToHeader(outputFormat, out);
         }
         else {
 
@@ -419,115 +452,93 @@ public class CSVFormatter {
             // introspect the event and generate a header based on the event introspection
             //
 
-            return getHeaderViaIntrospection(event);
+            writeHeaderViaIntrospection(event, out);
         }
+
+        return true;
     }
 
     // Private ---------------------------------------------------------------------------------------------------------
 
-    private String externalizeEventInOutputFormat(CSVFormat outputFormat, Event event) {
-
-        if (log.isTraceEnabled()) {
-
-            log.trace(this + " externalizing event " + event + " in format " + outputFormat);
-        }
-
-        String s = "";
+    /**
+     * @return true if the method is declared by a class between the given class, inclusive, and CSVFormatter,
+     * exclusive.
+     */
+    private static boolean isOverridden(Class<?> c, String name, Class<?>... parameterTypes) {
 
-        for(Iterator<CSVField> fi = outputFormat.getFields().iterator(); fi.hasNext(); ) {
+        for(; c != CSVFormatter.class; c = c.getSuperclass()) {
 
-            CSVField f = fi.next();
+            try {
 
-            //String fieldName = f.getName();
+                c.getDeclaredMethod(name, parameterTypes);
+                return true;
+            }
+            catch(NoSuchMethodException e) {
 
-            if (f.isTimestamp()) {
+                // keep looking
+            }
+        }
 
-                Timestamp timestamp = null;
+        return false;
+    }
 
-                if (event instanceof TimedEvent) {
+    /**
+     * Writes the header, if any, followed by a new line.
+     */
+    private void writeHeaderLine(Event event, Appendable out) throws IOException {
 
-                    timestamp = ((TimedEvent)event).getTimestamp();
-                }
+        if (getHeaderOverridden) {
 
-                if (timestamp == null) {
+            String header = getHeader(event);
 
-                    s += NULL_EXTERNALIZATION;
-                }
-                else {
+            if (header != null) {
 
-                    s += timestamp.format(Constants.getDefaultTimestampFormat());
-                }
+                out.append(header).append('\n');
             }
-            else {
-
-                //
-                // The CSV token value is given by a property of the event. The property is located based on the
-                // CSVField. So far we support two mechanisms:
-                //
-                // 1. Metric definition-based CSV field.
-                //
-                // 2. The CSV field name matches the property name.
-                //
-
-                String csvToken;
+        }
+        else if (writeHeader(event, out)) {
 
-                if (f instanceof MetricDefinitionBasedCSVField) {
+            out.append('\n');
+        }
+    }
 
-                    csvToken = extractValueForMetricDefinitionBasedCSVField(event, (MetricDefinitionBasedCSVField)f);
+    private void externalizeEventInOutputFormat(CSVFormat outputFormat, Event event, Appendable out)
+            throws IOException {
 
-                }
-                else {
-
-                    csvToken = extractValueForPropertyWithGivenName(event, f.getName());
-                }
+        if (log.isTraceEnabled()) {
 
-                if (csvToken == null) {
+            log.trace(this + " externalizing event " + event + " in format " + outputFormat);
+        }
 
-                    s += NULL_EXTERNALIZATION;
-                }
-                else {
+        OutputPlan plan = outputPlan;
 
-                    s += csvToken;
-                }
-            }
+        //
+        // CSVFormat exposes its field list, so the format may have been modified after setFormat()
+        //
 
-            if (fi.hasNext()) {
+        if (plan == null || !plan.isCompiledFrom(outputFormat.getFields())) {
 
-                s += ", ";
-            }
+            plan = new OutputPlan(outputFormat.getFields());
+            outputPlan = plan;
         }
 
-        return s;
+        plan.externalize(event, out);
     }
 
-    private String externalizeEventViaIntrospection(Event event) {
+    private void externalizeEventViaIntrospection(Event event, Appendable out) throws IOException {
 
         if (log.isTraceEnabled()) {
 
             log.trace(this + " externalizing event " + event + " via introspection");
         }
 
-
-        String s = "";
-
         List<Property> properties = event.getProperties();
 
-        List <Property> orderedProperties = new ArrayList<>();
-
         //
-        // discard the timestamp property (if any), that will be handled separately
+        // the timestamp property (if any) is not part of the order, it will be handled separately
         //
-        for(Property p: properties) {
 
-            if (p instanceof TimestampProperty) {
-
-                continue;
-            }
-
-            orderedProperties.add(p);
-        }
-
-        Collections.sort(orderedProperties);
+        int[] order = getIntrospectionOrder(properties);
 
         if (event instanceof TimedEvent) {
 
@@ -537,24 +548,17 @@ public class CSVFormatter {
 
             Long timestamp = ((TimedEvent)event).getTime();
 
-            if (timestamp == null) {
+            out.append(timestamp == null ? NULL_EXTERNALIZATION : TimestampFormatter.getDefault().format(timestamp));
 
-                s += NULL_EXTERNALIZATION;
-            }
-            else {
+            if (order.length > 0) {
 
-                s += Constants.getDefaultTimestampFormat().format(timestamp);
-            }
-
-            if (!orderedProperties.isEmpty()) {
-
-                s += ", ";
+                out.append(", ");
             }
         }
 
-        for(int i = 0; i < orderedProperties.size(); i++) {
+        for(int i = 0; i < order.length; i++) {
 
-            Property p = orderedProperties.get(i);
+            Property p = properties.get(order[i]);
 
             String ev = p.externalizeValue();
 
@@ -563,11 +567,11 @@ public class CSVFormatter {
                 ev = NULL_EXTERNALIZATION;
             }
 
-            s += ev;
+            out.append(ev);
 
-            if (i < orderedProperties.size() - 1) {
+            if (i < order.length - 1) {
 
-                s += ", ";
+                out.append(", ");
             }
 
             //
@@ -609,34 +613,19 @@ public class CSVFormatter {
 //                }
 
         }
-
-        return s;
     }
 
-    private String getHeaderViaIntrospection(Event event) {
+    private void writeHeaderViaIntrospection(Event event, Appendable out) throws IOException {
 
-        String s = "# ";
+        out.append("# ");
 
         List<Property> properties = event.getProperties();
 
         //
-        // filter out the timestamp property, if any, it will be dealt with separately
+        // the timestamp property, if any, is filtered out, it will be dealt with separately
         //
 
-        List <Property> orderedProperties = new ArrayList<>();
-
-        //noinspection Convert2streamapi
-        for(Property p: properties) {
-
-            if (p instanceof TimestampProperty) {
-
-                continue;
-            }
-
-            orderedProperties.add(p);
-        }
-
-        Collections.sort(orderedProperties);
+        int[] order = getIntrospectionOrder(properties);
 
         if (event instanceof TimedEvent) {
 
@@ -644,40 +633,54 @@ public class CSVFormatter {
             // if it's a timed event, always start with the timestamp
             //
 
-            s += TimedEvent.TIME_PROPERTY_NAME;
+            out.append(TimedEvent.TIME_PROPERTY_NAME);
             if (!properties.isEmpty()) {
-                s += ", ";
+                out.append(", ");
             }
         }
 
-        for(int i = 0; i < orderedProperties.size(); i++) {
+        for(int i = 0; i < order.length; i++) {
 
-            s += orderedProperties.get(i).getName();
-            if (i < orderedProperties.size() - 1) {
-                s += ", ";
+            out.append(properties.get(order[i]).getName());
+            if (i < order.length - 1) {
+                out.append(", ");
             }
 
             //
             // TODO Map Handling
             //
         }
+    }
+
+    /**
+     * @return the indexes of the given event properties, except the timestamp, in rendering order. The order is cached
+     * and reused for the following events with the same property names, it is only computed again when the shape
+     * changes.
+     */
+    private int[] getIntrospectionOrder(List<Property> properties) {
+
+        IntrospectionOrder o = introspectionOrder;
+
+        if (o == null || !o.appliesTo(properties)) {
 
-        return s;
+            o = IntrospectionOrder.compute(properties);
+            introspectionOrder = o;
+        }
+
+        return o.getOrder();
     }
 
     /**
-     * @return a String representing the fault, to be sent to output, or null if the formatter was configured to ignore
-     * Faults.
+     * Writes a representation of the fault, to be sent to output. Nothing is written if the formatter was configured
+     * to ignore faults.
      */
-    private String externalizeFault(FaultEvent f) {
+    private void externalizeFault(FaultEvent f, Appendable out) throws IOException {
 
         if (isIgnoreFaults()) {
 
-            return null;
+            return;
         }
 
-        String s;
-
         //
         // make parsing errors easy to read
         //
@@ -687,23 +690,23 @@ public class CSVFormatter {
 
         if (cause instanceof ParsingException) {
 
-            s = "parsing error";
+            out.append("parsing error");
 
             ParsingException pe = (ParsingException)cause;
             Long lineNumber = pe.getLineNumber();
 
             if (lineNumber != null) {
-                s += " at line " + lineNumber;
+                out.append(" at line ").append(String.valueOf(lineNumber));
             }
 
             Integer position = pe.getPositionInLine();
 
             if (position != null) {
 
-                s += ", position " + position;
+                out.append(", position ").append(String.valueOf(position));
             }
 
-            s += ": " + pe.getMessage();
+            out.append(": ").append(String.valueOf(pe.getMessage()));
         }
         else {
 
@@ -711,14 +714,121 @@ public class CSVFormatter {
             // default to toString()
             //
 
-            s = f.toString();
+            out.append(f.toString());
         }
-
-        return s;
     }
 
     // Inner classes ---------------------------------------------------------------------------------------------------
 
+    /**
+     * Encodes the appended characters as UTF-8 directly into a ByteBuffer, without intermediate Strings. Malformed
+     * surrogates are replaced with '?', like String.getBytes() does. Appending beyond the buffer's limit throws
+     * BufferOverflowException.
+     */
+    private static final class Utf8Appendable implements Appendable {
+
+        private final ByteBuffer buffer;
+
+        //
+        // a high surrogate waiting for its low surrogate, or 0
+        //
+
+        private char highSurrogate;
+
+        private Utf8Appendable(ByteBuffer buffer) {
+
+            this.buffer = buffer;
+        }
+
+        @Override
+        public Appendable append(CharSequence cs) {
+
+            if (cs == null) {
+
+                cs = "null";
+            }
+
+            return append(cs, 0, cs.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence cs, int start, int end) {
+
+            if (cs == null) {
+
+                cs = "null";
+            }
+
+            for(int i = start; i < end; i ++) {
+
+                append(cs.charAt(i));
+            }
+
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+
+            if (highSurrogate != 0) {
+
+                char high = highSurrogate;
+                highSurrogate = 0;
+
+                if (Character.isLowSurrogate(c)) {
+
+                    int cp = Character.toCodePoint(high, c);
+
+                    buffer.put((byte)(0xF0 | (cp >> 18)));
+                    buffer.put((byte)(0x80 | ((cp >> 12) & 0x3F)));
+                    buffer.put((byte)(0x80 | ((cp >> 6) & 0x3F)));
+                    buffer.put((byte)(0x80 | (cp & 0x3F)));
+                    return this;
+                }
+
+                buffer.put((byte)'?');
+            }
+
+            if (c < 0x80) {
+
+                buffer.put((byte)c);
+            }
+            else if (c < 0x800) {
+
+                buffer.put((byte)(0xC0 | (c >> 6)));
+                buffer.put((byte)(0x80 | (c & 0x3F)));
+            }
+            else if (Character.isHighSurrogate(c)) {
+
+                highSurrogate = c;
+            }
+            else if (Character.isLowSurrogate(c)) {
+
+                buffer.put((byte)'?');
+            }
+            else {
+
+                buffer.put((byte)(0xE0 | (c >> 12)));
+                buffer.put((byte)(0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte)(0x80 | (c & 0x3F)));
+            }
+
+            return this;
+        }
+
+        /**
+         * Writes a pending unpaired high surrogate, if any.
+         */
+        private void flush() {
+
+            if (highSurrogate != 0) {
+
+                highSurrogate = 0;
+                buffer.put((byte)'?');
+            }
+        }
+    }
+
     // Constants -------------------------------------------------------------------------------------------------------
 
 
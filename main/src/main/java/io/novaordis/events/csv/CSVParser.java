@@ -16,10 +16,11 @@
 
 package io.novaordis.events.csv;
 
-import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,13 +34,17 @@ import io.novaordis.events.api.event.TimestampProperty;
 import io.novaordis.events.api.parser.ParserBase;
 import io.novaordis.events.csv.event.CSVEvent;
 import io.novaordis.events.csv.event.CSVHeaders;
+import io.novaordis.events.csv.event.LazyLineContent;
+import io.novaordis.events.csv.event.LazyNonTimedCSVLine;
+import io.novaordis.events.csv.event.LazyTimedCSVLine;
 import io.novaordis.events.csv.event.NonTimedCSVLine;
+import io.novaordis.events.csv.event.RecycledCSVEvent;
 import io.novaordis.events.csv.event.TimedCSVLine;
 import io.novaordis.events.csv.event.field.CSVField;
+import io.novaordis.events.csv.event.field.FieldConverter;
+import io.novaordis.events.csv.event.field.TimestampConverter;
 import io.novaordis.events.query.Query;
 import io.novaordis.utilities.parsing.ParsingException;
-import io.novaordis.utilities.time.Timestamp;
-import io.novaordis.utilities.time.TimestampImpl;
 
 /**
  * A CSV parser.
@@ -52,6 +57,22 @@ import io.novaordis.utilities.time.TimestampImpl;
  *
  * The parser can dynamically switch from introspection mode to format-driven mode if it encounters a header line.
  *
+ * By default, each data line produces a new event. Pipelines that do not retain events can enable event reuse, see
+ * setReuseEvents(boolean). Consumers that only look at a few columns of wide lines can defer the conversion of each
+ * column until it is accessed, see setLazyProperties(boolean). Consumers that only use some of the columns can
+ * restrict the conversion to those columns, see setProjection(Set). Selective queries can drop the lines they would not
+ * select before the events are built, see setLinePredicate(LinePredicate), and keyword queries can skip the lines
+ * that do not contain their keywords before they are tokenized, see setKeywordPrefilter(KeywordPrefilter).
+ *
+ * The formats compiled from header lines are cached by the header text, so repeated headers, as found in rotated or
+ * concatenated files, switch the format without compiling it again, see setFormatCacheCapacity(int).
+ *
+ * In the absence of a header, the parser can infer a format from the first lines and use it instead of introspecting
+ * each of the following lines, see setInferenceWindow(int).
+ *
+ * Consumers that retain events can have the values of the low cardinality string columns canonicalized, see
+ * setStringDictionaries(int, boolean).
+ *
  * @author Ovidiu Feodorov <ovidiu@novaordis.com>
  * @since 2/6/16
  */
@@ -65,7 +86,7 @@ public class CSVParser extends ParserBase {
 
     private static final List<Event> EMPTY_LIST = Collections.emptyList();
 
-    private static final char HEADER_LEADER = '#';
+    static final char HEADER_LEADER = '#';
 
     // Static ----------------------------------------------------------------------------------------------------------
 
@@ -82,6 +103,108 @@ public class CSVParser extends ParserBase {
     //
     private CSVHeaders header;
 
+    //
+    // reused across lines, the parser is not thread safe anyway
+    //
+    private CSVTokenRanges tokens;
+
+    //
+    // non-null if event reuse is enabled
+    //
+    private EventRecycler recycler;
+
+    //
+    // the result list, reused if event reuse is enabled
+    //
+    private List<Event> recycledResult;
+
+    private boolean lazyProperties;
+
+    //
+    // the names of the properties referenced by the consumer, or null if no projection is in effect
+    //
+    private Set<String> projection;
+
+    //
+    // the effective projection for the last query, cached by query identity
+    //
+    private Query projectionQuery;
+    private Set<String> queryProjection;
+
+    //
+    // the last projected plan, cached by the identity of the plan and of the projection it was derived from
+    //
+    private ConversionPlan projectedFrom;
+    private Set<String> projectedNames;
+    private ConversionPlan projectedPlan;
+
+    private LinePredicate linePredicate;
+
+    //
+    // the effective predicate for the last query, cached by query identity
+    //
+    private Query predicateQuery;
+    private LinePredicate queryPredicate;
+
+    //
+    // the last compiled predicate, cached by the identity of the predicate and of the plan it was compiled for
+    //
+    private LinePredicate filterPredicate;
+    private ConversionPlan filterPlan;
+    private LinePredicate.Filter filter;
+
+    private KeywordPrefilter keywordPrefilter;
+
+    //
+    // the prefilter of the last query, cached by query identity
+    //
+    private Query prefilterQuery;
+    private KeywordPrefilter queryPrefilter;
+
+    //
+    // whether the query's prefilter only applies to formats with string columns, and whether the plan of the current
+    // format, cached by identity, is such a format
+    //
+    private boolean queryPrefilterVerbatimOnly;
+    private ConversionPlan verbatimPlan;
+    private boolean verbatim;
+
+    private long filteredLineCount;
+
+    //
+    // null if format caching is disabled
+    //
+    private CSVFormatCache formatCache;
+
+    //
+    // 0 if format inference is disabled
+    //
+    private int inferenceWindow;
+
+    //
+    // non-null while the inference window is open
+    //
+    private FormatInference inference;
+
+    //
+    // the format installed when the inference window closed, if any
+    //
+    private CSVFormat inferredFormat;
+
+    private long nonConformingLineCount;
+
+    //
+    // 0 if string dictionaries are disabled
+    //
+    private int dictionaryCardinality;
+    private boolean shareStringProperties;
+
+    //
+    // the plan with dictionaries, cached by the identity of the format's plan it was derived from
+    //
+    private ConversionPlan dictionaryFrom;
+    private ConversionPlan dictionaryPlan;
+
     // Constructors ----------------------------------------------------------------------------------------------------
 
     /**
@@ -115,6 +238,8 @@ public class CSVParser extends ParserBase {
         }
 
         this.propertyFactory = new PropertyFactory();
+        this.tokens = new CSVTokenRanges();
+        this.formatCache = new CSVFormatCache();
     }
 
     // Public ----------------------------------------------------------------------------------------------------------
@@ -122,6 +247,12 @@ public class CSVParser extends ParserBase {
     /**
      * May return null if no format was installed. CSVParser will still function and parse CSV lines based on
      * introspection.
+     *
+     * The returned format is the one the parser uses. The formats compiled from header lines are shared with the
+     * parser's format cache, so the returned format must not be modified. To change the format in effect, install a
+     * modified copy: setFormat(getFormat().copy()).
+     *
+     * @see CSVFormat#copy()
      */
     public CSVFormat getFormat() {
 
@@ -142,6 +273,284 @@ public class CSVParser extends ParserBase {
         }
     }
 
+    /**
+     * Enables or disables event reuse. When enabled, the format-driven data lines are converted into the same two
+     * RecycledCSVEvent instances, a timed and a non-timed one, whose content is replaced for each line, and the
+     * properties of the columns whose text did not change since the previous line are reused. The returned event
+     * list is reused as well. The lines parsed in introspection mode, before a format is available, and the headers,
+     * produce regular events.
+     *
+     * Event reuse is only safe if the events are processed before the next line is parsed, and the procedures that
+     * keep events past that point use RecycledCSVEvent#copy(). It must not be enabled for consumers that accumulate
+     * the events of several lines, such as ParallelCSVParser or CSVByteBufferParser#parse(ByteBuffer).
+     *
+     * @see RecycledCSVEvent
+     */
+    public void setReuseEvents(boolean b) {
+
+        if (b) {
+
+            if (recycler == null) {
+
+                recycler = new EventRecycler();
+                recycledResult = new ArrayList<>(2);
+            }
+        }
+        else {
+
+            recycler = null;
+            recycledResult = null;
+        }
+    }
+
+    public boolean isReuseEvents() {
+
+        return recycler != null;
+    }
+
+    /**
+     * Enables or disables lazy property conversion. When enabled, the format-driven data lines produce
+     * LazyTimedCSVLine and LazyNonTimedCSVLine events, which keep the line and the token offsets, and convert a column
+     * into a property only when it is first requested via getProperty() or getProperties(). The timestamp column is
+     * always converted while parsing, so the event time and the header's next timed event timestamp are available
+     * as usual, and an invalid timestamp fails the line.
+     *
+     * The conversion errors of the other columns are reported, as IllegalArgumentException, when the column is first
+     * accessed, and not while parsing. The lines parsed in introspection mode and the headers produce regular events.
+     * Event reuse, if enabled, takes precedence.
+     *
+     * @see LazyLineContent
+     */
+    public void setLazyProperties(boolean b) {
+
+        this.lazyProperties = b;
+    }
+
+    public boolean isLazyProperties() {
+
+        return lazyProperties;
+    }
+
+    /**
+     * Installs the names of the properties referenced by the consumer of the events, usually the procedure. When a
+     * projection is in effect, the format-driven data lines only convert the projected columns, and the events only
+     * carry the projected properties, the timestamp and the line number.
+     *
+     * The properties used by the query passed to parse(), if any, are added to the projection. They are known for the
+     * queries that declare them by implementing ReferencedProperties, and for the field, time and mixed queries of the
+     * events runtime, see QueryAdapter. A keyword query, or a query whose references are not known, disables the
+     * projection, as it may inspect any property. The references of a query instance are only read once.
+     * The lines parsed in introspection mode and the headers are not affected.
+     *
+     * @param propertyNames the referenced property names, may be empty. Null removes the projection.
+     *
+     * @see ReferencedProperties
+     */
+    public void setProjection(Set<String> propertyNames) {
+
+        this.projection = propertyNames == null ? null : Collections.unmodifiableSet(new HashSet<>(propertyNames));
+        this.projectionQuery = null;
+        this.queryProjection = null;
+    }
+
+    /**
+     * @return the installed projection, or null if no projection is in effect.
+     */
+    public Set<String> getProjection() {
+
+        return projection;
+    }
+
+    /**
+     * Installs a predicate that is evaluated against the raw tokens of each format-driven data line. The lines the
+     * predicate rejects are dropped before any property or event is built. If the query passed to parse() implements
+     * LinePredicateSource, or is a time query of the events runtime (see QueryAdapter), its predicate is
+     * evaluated as well.
+     *
+     * The data line that immediately follows a header is never dropped, so the header still carries the next timed
+     * event timestamp. The lines parsed in introspection mode and the headers are not filtered.
+     *
+     * @param predicate may be null, in which case only the query's predicate, if any, is evaluated.
+     *
+     * @see LinePredicate
+     */
+    public void setLinePredicate(LinePredicate predicate) {
+
+        this.linePredicate = predicate;
+        this.predicateQuery = null;
+        this.queryPredicate = null;
+    }
+
+    public LinePredicate getLinePredicate() {
+
+        return linePredicate;
+    }
+
+    /**
+     * Installs a keyword prefilter, which is applied to the raw content of the data lines before they are tokenized.
+     * The lines that do not contain any of the keywords are dropped. If the query passed to parse() implements
+     * KeywordPrefilterSource, its prefilter is applied as well. The keywords of an events runtime keyword query are
+     * also applied, to the lines of the formats whose columns are all strings, see QueryAdapter.
+     *
+     * The header lines always pass, so the format switching works as usual, and so does the data line that
+     * immediately follows a header, so the header still carries the next timed event timestamp.
+     *
+     * @param prefilter may be null, in which case only the query's prefilter, if any, is applied.
+     *
+     * @see KeywordPrefilter
+     */
+    public void setKeywordPrefilter(KeywordPrefilter prefilter) {
+
+        this.keywordPrefilter = prefilter;
+    }
+
+    public KeywordPrefilter getKeywordPrefilter() {
+
+        return keywordPrefilter;
+    }
+
+    /**
+     * @return the number of data lines dropped because they did not pass the keyword prefilter or did not satisfy the
+     * line predicate.
+     */
+    public long getFilteredLineCount() {
+
+        return filteredLineCount;
+    }
+
+    /**
+     * Sets the maximum number of formats compiled from header lines that are kept for reuse. The cache is enabled by
+     * default, with a capacity of CSVFormatCache.DEFAULT_CAPACITY. Setting the capacity discards the formats cached
+     * so far, and the counters. The cached formats are shared, see getFormat().
+     *
+     * @param capacity 0 disables the cache.
+     *
+     * @throws IllegalArgumentException on negative capacity.
+     *
+     * @see CSVFormatCache
+     */
+    public void setFormatCacheCapacity(int capacity) throws IllegalArgumentException {
+
+        if (capacity < 0) {
+
+            throw new IllegalArgumentException("invalid format cache capacity " + capacity);
+        }
+
+        this.formatCache = capacity == 0 ? null : new CSVFormatCache(capacity);
+    }
+
+    /**
+     * @return the format cache, which also maintains the hit and miss counters, or null if caching is disabled.
+     */
+    public CSVFormatCache getFormatCache() {
+
+        return formatCache;
+    }
+
+    /**
+     * Enables format inference. As long as no format is installed, the parser introspects the data lines as usual,
+     * and samples the first 'lines' of them. Once the window is full, it infers a format from the sample (the column
+     * types, and the timestamp column and its pattern) and installs it, so the subsequent lines are converted with
+     * the inferred format. The lines that do not conform to the inferred format, because they have more columns or
+     * contain values that cannot be converted, are introspected. In lazy properties mode, only the timestamp is
+     * converted when the line is parsed, so the non-conforming values of the other columns are reported when they
+     * are accessed.
+     *
+     * A header line, or an explicitly installed format, takes precedence over inference. The inferred format is
+     * available via getInferredFormat(), and its toPattern() can be used as an explicit format specification.
+     *
+     * @param lines the size of the inference window. 0 disables inference.
+     *
+     * @throws IllegalArgumentException on negative values.
+     *
+     * @see FormatInference
+     */
+    public void setInferenceWindow(int lines) throws IllegalArgumentException {
+
+        if (lines < 0) {
+
+            throw new IllegalArgumentException("invalid inference window " + lines);
+        }
+
+        this.inferenceWindow = lines;
+        this.inference = lines == 0 ? null : new FormatInference();
+    }
+
+    public int getInferenceWindow() {
+
+        return inferenceWindow;
+    }
+
+    /**
+     * @return the format inferred when the inference window closed, or null if no format was inferred.
+     */
+    public CSVFormat getInferredFormat() {
+
+        return inferredFormat;
+    }
+
+    /**
+     * @return the number of lines that were introspected because they did not conform to the inferred format.
+     */
+    public long getNonConformingLineCount() {
+
+        return nonConformingLineCount;
+    }
+
+    /**
+     * Enables per-column string dictionaries for the string columns of the installed formats. Each column's
+     * distinct values are converted into canonical String instances, and optionally into shared StringProperty
+     * instances, as long as their number does not exceed the given maximum cardinality. The columns that exceed it
+     * are converted as usual from that point on. A format change starts new dictionaries. The lines parsed in
+     * introspection mode are not affected.
+     *
+     * @param maxCardinality 0 disables the dictionaries. At most StringDictionary.MAX_CARDINALITY.
+     * @param shareProperties whether the cells with the same content share the same property instance. The shared
+     *                        properties are read-only, their setters throw UnsupportedOperationException.
+     *
+     * @throws IllegalArgumentException on negative maximum cardinality, or on one that exceeds
+     * StringDictionary.MAX_CARDINALITY.
+     *
+     * @see StringDictionary
+     */
+    public void setStringDictionaries(int maxCardinality, boolean shareProperties) throws IllegalArgumentException {
+
+        if (maxCardinality < 0 || maxCardinality > StringDictionary.MAX_CARDINALITY) {
+
+            throw new IllegalArgumentException("invalid maximum cardinality " + maxCardinality);
+        }
+
+        this.dictionaryCardinality = maxCardinality;
+        this.shareStringProperties = shareProperties;
+        this.dictionaryFrom = null;
+        this.dictionaryPlan = null;
+    }
+
+    /**
+     * @return the dictionary of the given string column of the installed format, which also maintains the column's
+     * statistics, or null if there is no such dictionary, or no line was converted with the installed format yet.
+     */
+    public StringDictionary getStringDictionary(String columnName) {
+
+        if (format == null || dictionaryPlan == null || dictionaryFrom != format.getConversionPlan()) {
+
+            return null;
+        }
+
+        String[] names = dictionaryPlan.getNames();
+        FieldConverter[] converters = dictionaryPlan.getConverters();
+
+        for(int i = 0; i < names.length; i ++) {
+
+            if (names[i].equals(columnName) && converters[i] instanceof StringDictionary) {
+
+                return (StringDictionary)converters[i];
+            }
+        }
+
+        return null;
+    }
+
     @Override
     public String toString() {
 
@@ -155,6 +564,36 @@ public class CSVParser extends ParserBase {
     @Override
     protected List<Event> parse(long lineNumber, String line, Query query) throws ParsingException {
 
+        return parseLine(lineNumber, line, query);
+    }
+
+    @Override
+    protected List<Event> close(long lineNumber) throws ParsingException {
+
+
+        if (header == null) {
+
+            return EMPTY_LIST;
+        }
+
+        List<Event> result = Collections.singletonList(header);
+
+        header = null;
+
+        return result;
+    }
+
+    /**
+     * The line parsing logic, written in terms of CharSequence so it can be applied to String lines, as received from
+     * ParserBase, and to undecoded UTF-8 lines (Utf8Line), as produced by CSVByteBufferParser. The content is never
+     * copied, and it is decoded only for the tokens that need a String.
+     *
+     * @param line may be null.
+     *
+     * @see CSVByteBufferParser
+     */
+    List<Event> parseLine(long lineNumber, CharSequence line, Query query) throws ParsingException {
+
         if (line == null) {
 
             return EMPTY_LIST;
@@ -164,12 +603,12 @@ public class CSVParser extends ParserBase {
         // blank edges are ignored
         //
 
-        line = line.trim();
+        line = trim(line);
 
         //
         // we ignore empty lines
         //
-        if (line.isEmpty()) {
+        if (line.length() == 0) {
 
             return EMPTY_LIST;
         }
@@ -191,13 +630,21 @@ public class CSVParser extends ParserBase {
                     log.debug("detected header line");
                 }
 
-                CSVFormat f = new CSVFormat(line.substring(1));
+                String specification = line.subSequence(1, line.length()).toString();
+
+                CSVFormat f = formatCache == null ? new CSVFormat(specification) : formatCache.get(specification);
 
                 //
                 // install the format ...
                 //
 
                 setFormat(f);
+
+                //
+                // ... which makes inference unnecessary
+                //
+
+                inference = null;
             }
             catch(CSVFormatException e) {
 
@@ -229,71 +676,77 @@ public class CSVParser extends ParserBase {
         // regular CSV line (or empty line) - we proceed differently if a format instance is installed or not
         //
 
-        final List<Property> properties = new ArrayList<>();
+        if (header == null && !passesKeywordPrefilter(line, query)) {
 
-        properties.add(new LongProperty(Event.LINE_PROPERTY_NAME, lineNumber));
-
-        //
-        // we're prepared to handle the situation when no format was installed (no header line detected so far)
-        //
+            //
+            // the line cannot be selected, it is not even tokenized
+            //
 
-        List<String> tokens = CSVTokenizer.split(lineNumber, line, SEPARATOR);
+            filteredLineCount ++;
 
-        final MutableBoolean timestampFound = new MutableBoolean(false);
+            return EMPTY_LIST;
+        }
 
-        List<CSVField> headers = format == null ? null : format.getFields();
+        CSVTokenizer.split(lineNumber, line, SEPARATOR, tokens);
 
-        int fieldCount = headers == null ? Integer.MAX_VALUE : headers.size();
+        if (format == null) {
 
-        for(int i = 0; i < Math.min(fieldCount, tokens.size()); i ++) {
+            //
+            // no format was installed (no header line detected so far)
+            //
 
-            String token = tokens.get(i);
+            if (inference != null) {
 
-            CSVField header = headers == null ? null : headers.get(i);
+                sampleForInference();
+            }
 
-            buildAndStoreProperty(propertyFactory, token, i, header, timestampFound, properties);
+            return introspect(lineNumber);
         }
 
-        CSVEvent dataLineEvent = propertyListToCSVEvent(timestampFound, properties);
+        if (header == null) {
 
-        List<Event> result = new ArrayList<>(2);
+            LinePredicate.Filter f = getFilter(query);
 
-        if (header != null) {
+            if (f != null && f.rejects(tokens)) {
 
-            //
-            // inject the timestamp of this event into the header, so the header has this information
-            //
+                //
+                // the line cannot be selected, no event is built
+                //
 
-            if (dataLineEvent.isTimed()) {
+                filteredLineCount ++;
 
-                long time = ((TimedEvent)dataLineEvent).getTime();
-                header.setNextTimedEventTimestamp(time);
+                return EMPTY_LIST;
             }
+        }
 
-            result.add(header);
+        if (format != inferredFormat) {
 
-            header = null;
+            return parseWithFormat(lineNumber, query);
         }
 
-        result.add(dataLineEvent);
+        //
+        // the inferred format is only as good as the sample it was inferred from, the lines that do not conform to it
+        // are introspected
+        //
 
-        return result;
-    }
+        if (tokens.size() <= inferredFormat.getFields().size()) {
 
-    @Override
-    protected List<Event> close(long lineNumber) throws ParsingException {
+            try {
 
+                return parseWithFormat(lineNumber, query);
+            }
+            catch(ParsingException | IllegalArgumentException e) {
 
-        if (header == null) {
+                if (log.isDebugEnabled()) {
 
-            return EMPTY_LIST;
+                    log.debug("line " + lineNumber + " does not conform to the inferred format: " + e.getMessage());
+                }
+            }
         }
 
-        List<Event> result = Collections.singletonList(header);
-
-        header = null;
+        nonConformingLineCount ++;
 
-        return result;
+        return introspect(lineNumber);
     }
 
     // Static package protected ----------------------------------------------------------------------------------------
@@ -329,6 +782,49 @@ public class CSVParser extends ParserBase {
         return dataLineEvent;
     }
 
+    /**
+     * Converts the tokens of a data line with the converters compiled for the current format. The tokens that do not
+     * have a corresponding field are ignored, and so are the fields that do not have a corresponding token.
+     *
+     * @return true if the timestamp column was converted, so the line produces a timed event.
+     *
+     * @see ConversionPlan
+     */
+    static boolean convert(ConversionPlan plan, CSVTokenRanges tokens, List<Property> properties)
+            throws ParsingException {
+
+        FieldConverter[] converters = plan.getConverters();
+
+        CharSequence line = tokens.getLine();
+
+        int count = Math.min(converters.length, tokens.size());
+
+        for(int i = 0; i < count; i ++) {
+
+            if (converters[i] == null) {
+
+                //
+                // not projected
+                //
+
+                continue;
+            }
+
+            if (tokens.isNull(i)) {
+
+                properties.add(converters[i].convertMissing());
+            }
+            else {
+
+                properties.add(converters[i].convert(line, tokens.getStart(i), tokens.getEnd(i)));
+            }
+        }
+
+        int timestampIndex = plan.getTimestampIndex();
+
+        return timestampIndex != -1 && timestampIndex < count;
+    }
+
     /**
      * Builds the appropriate property instance and update the stack state.
      *
@@ -360,19 +856,7 @@ public class CSVParser extends ParserBase {
             // this is our timestamp, produce a timestamp property, and not a regular property
             //
 
-            Timestamp t;
-
-            try {
-
-                t = new TimestampImpl(tok, (DateFormat)header.getFormat());
-            }
-            catch(Exception e) {
-
-                throw new ParsingException(
-                        "invalid timestamp value \"" + tok + "\", does not match the required timestamp format", e);
-            }
-
-            p = new TimestampProperty(t.getTime());
+            p = TimestampConverter.forField(header).convert(tok);
 
             timestampCreated.setTrue();
         }
@@ -421,8 +905,381 @@ public class CSVParser extends ParserBase {
         properties.add(p);
     }
 
+    /**
+     * Offset-based variant of buildAndStoreProperty(PropertyFactory, String, ...). Regular (non-timestamp) fields
+     * convert the token directly from its character range, so the token String is only materialized if the field
+     * needs it. The timestamp and the introspection paths materialize the token and delegate.
+     *
+     * @param tokens the current line's tokens. The token to process is found on the position given by 'index'.
+     * @param header may be null if no format was installed.
+     */
+    static void buildAndStorePropertyFromTokenRange(
+            PropertyFactory propertyFactory, CSVTokenRanges tokens, int index, CSVField header,
+            MutableBoolean timestampCreated, List<Property> properties)
+            throws ParsingException {
+
+        if (header == null || (header.isTimestamp() && timestampCreated.isFalse())) {
+
+            buildAndStoreProperty(
+                    propertyFactory, tokens.toString(index), index, header, timestampCreated, properties);
+
+            return;
+        }
+
+        Property p;
+
+        if (tokens.isNull(index)) {
+
+            p = header.toProperty(null);
+        }
+        else {
+
+            p = header.toProperty(tokens.getLine(), tokens.getStart(index), tokens.getEnd(index));
+        }
+
+        properties.add(p);
+    }
+
+    /**
+     * The equivalent of String.trim() for character sequences: leading and trailing characters less than or equal to
+     * ' ' are excluded. Returns the argument itself if there is nothing to trim, so no copy is made in the common case.
+     * The trimmed version of a Utf8Line is a view over the same bytes.
+     */
+    static CharSequence trim(CharSequence s) {
+
+        int length = s.length();
+        int from = 0;
+        int to = length;
+
+        while(from < to && s.charAt(from) <= ' ') {
+
+            from ++;
+        }
+
+        while(to > from && s.charAt(to - 1) <= ' ') {
+
+            to --;
+        }
+
+        if (from == 0 && to == length) {
+
+            return s;
+        }
+
+        return s.subSequence(from, to);
+    }
+
+    /**
+     * @return a character sequence with the same content, which does not depend on buffers that are reused for the
+     * next lines. The offsets within the sequence are preserved.
+     */
+    static CharSequence detach(CharSequence line) {
+
+        if (line instanceof String) {
+
+            return line;
+        }
+
+        if (line instanceof Utf8Line) {
+
+            return ((Utf8Line)line).copy();
+        }
+
+        return line.toString();
+    }
+
     // Private ---------------------------------------------------------------------------------------------------------
 
+    /**
+     * @return the current format's conversion plan, projected if a projection is in effect for the given query.
+     */
+    private ConversionPlan getConversionPlan(Query query) {
+
+        ConversionPlan plan = format.getConversionPlan();
+
+        if (dictionaryCardinality > 0) {
+
+            if (plan != dictionaryFrom) {
+
+                dictionaryPlan = plan.withStringDictionaries(dictionaryCardinality, shareStringProperties);
+                dictionaryFrom = plan;
+            }
+
+            plan = dictionaryPlan;
+        }
+
+        Set<String> names = getEffectiveProjection(query);
+
+        if (names == null) {
+
+            return plan;
+        }
+
+        if (plan != projectedFrom || names != projectedNames) {
+
+            projectedPlan = plan.project(names);
+            projectedFrom = plan;
+            projectedNames = names;
+        }
+
+        return projectedPlan;
+    }
+
+    private boolean passesKeywordPrefilter(CharSequence line, Query query) {
+
+        if (keywordPrefilter != null && !keywordPrefilter.mayMatch(line)) {
+
+            return false;
+        }
+
+        if (query == null) {
+
+            return true;
+        }
+
+        if (query != prefilterQuery) {
+
+            prefilterQuery = query;
+
+            if (query instanceof KeywordPrefilterSource) {
+
+                queryPrefilter = ((KeywordPrefilterSource)query).getKeywordPrefilter();
+                queryPrefilterVerbatimOnly = false;
+            }
+            else {
+
+                queryPrefilter = QueryAdapter.getKeywordPrefilter(query);
+                queryPrefilterVerbatimOnly = true;
+            }
+        }
+
+        if (queryPrefilter == null) {
+
+            return true;
+        }
+
+        if (queryPrefilterVerbatimOnly) {
+
+            //
+            // the events-api keyword queries match the rendered values, which are only found in the line as they are
+            // if the line is converted with a format that only has string columns
+            //
+
+            if (format == null || format == inferredFormat) {
+
+                return true;
+            }
+
+            ConversionPlan plan = format.getConversionPlan();
+
+            if (plan != verbatimPlan) {
+
+                verbatim = QueryAdapter.isVerbatim(plan);
+                verbatimPlan = plan;
+            }
+
+            if (!verbatim) {
+
+                return true;
+            }
+        }
+
+        return queryPrefilter.mayMatch(line);
+    }
+
+    /**
+     * @return the line predicate compiled for the current format, or null if no line can be rejected.
+     */
+    private LinePredicate.Filter getFilter(Query query) {
+
+        LinePredicate p = getEffectivePredicate(query);
+
+        if (p == null) {
+
+            return null;
+        }
+
+        ConversionPlan plan = format.getConversionPlan();
+
+        if (p != filterPredicate || plan != filterPlan) {
+
+            filter = p.compile(plan);
+            filterPredicate = p;
+            filterPlan = plan;
+        }
+
+        return filter;
+    }
+
+    /**
+     * @return the conjunction of the installed predicate and of the query's predicate, or null if there is none.
+     */
+    private LinePredicate getEffectivePredicate(Query query) {
+
+        if (query == null) {
+
+            return linePredicate;
+        }
+
+        if (query != predicateQuery) {
+
+            predicateQuery = query;
+
+            LinePredicate p = QueryAdapter.getLinePredicate(query);
+
+            if (p == null) {
+
+                queryPredicate = linePredicate;
+            }
+            else {
+
+                queryPredicate = linePredicate == null ? p : LinePredicate.and(linePredicate, p);
+            }
+        }
+
+        return queryPredicate;
+    }
+
+    /**
+     * @return the union of the installed projection and of the query's references, or null if no projection can be
+     * applied.
+     */
+    private Set<String> getEffectiveProjection(Query query) {
+
+        if (projection == null || query == null) {
+
+            return projection;
+        }
+
+        if (query != projectionQuery) {
+
+            projectionQuery = query;
+            queryProjection = null;
+
+            Set<String> referenced = QueryAdapter.getReferencedPropertyNames(query);
+
+            if (referenced != null) {
+
+                queryProjection = new HashSet<>(projection);
+                queryProjection.addAll(referenced);
+            }
+        }
+
+        return queryProjection;
+    }
+
+    /**
+     * Converts the current tokens with the installed format.
+     */
+    private List<Event> parseWithFormat(long lineNumber, Query query) throws ParsingException {
+
+        if (recycler != null) {
+
+            RecycledCSVEvent e = recycler.convert(lineNumber, getConversionPlan(query), tokens);
+
+            recycledResult.clear();
+
+            return release(e, recycledResult);
+        }
+
+        if (lazyProperties) {
+
+            ConversionPlan plan = getConversionPlan(query);
+
+            LazyLineContent content = new LazyLineContent(
+                    lineNumber, detach(tokens.getLine()), tokens,
+                    plan.getNames(), plan.getConverters(), plan.getTimestampIndex());
+
+            CSVEvent e = content.getTimestampProperty() == null ?
+                    new LazyNonTimedCSVLine(content) : new LazyTimedCSVLine(content);
+
+            return release(e, new ArrayList<>(2));
+        }
+
+        List<Property> properties = new ArrayList<>();
+
+        properties.add(new LongProperty(Event.LINE_PROPERTY_NAME, lineNumber));
+
+        MutableBoolean timestampFound = new MutableBoolean(convert(getConversionPlan(query), tokens, properties));
+
+        return release(propertyListToCSVEvent(timestampFound, properties), new ArrayList<>(2));
+    }
+
+    /**
+     * Converts the current tokens using the type heuristics built into PropertyFactory.
+     */
+    private List<Event> introspect(long lineNumber) throws ParsingException {
+
+        List<Property> properties = new ArrayList<>();
+
+        properties.add(new LongProperty(Event.LINE_PROPERTY_NAME, lineNumber));
+
+        MutableBoolean timestampFound = new MutableBoolean(false);
+
+        for(int i = 0; i < tokens.size(); i ++) {
+
+            buildAndStorePropertyFromTokenRange(propertyFactory, tokens, i, null, timestampFound, properties);
+        }
+
+        return release(propertyListToCSVEvent(timestampFound, properties), new ArrayList<>(2));
+    }
+
+    /**
+     * Samples the current tokens and, once the inference window is full, installs the inferred format. The current
+     * line is still introspected.
+     */
+    private void sampleForInference() {
+
+        inference.sample(tokens);
+
+        if (inference.getSampleCount() < inferenceWindow) {
+
+            return;
+        }
+
+        CSVFormat f = inference.infer();
+
+        inference = null;
+
+        if (log.isDebugEnabled()) {
+
+            log.debug(this + " inferred format \"" + f.toPattern() + "\" from " + inferenceWindow + " line(s)");
+        }
+
+        setFormat(f);
+
+        inferredFormat = f;
+    }
+
+    /**
+     * Adds the pending header, if any, followed by the data line event, to the given result list.
+     *
+     * @return the result list.
+     */
+    private List<Event> release(CSVEvent dataLineEvent, List<Event> result) {
+
+        if (header != null) {
+
+            //
+            // inject the timestamp of this event into the header, so the header has this information
+            //
+
+            if (dataLineEvent.isTimed()) {
+
+                long time = ((TimedEvent)dataLineEvent).getTime();
+                header.setNextTimedEventTimestamp(time);
+            }
+
+            result.add(header);
+
+            header = null;
+        }
+
+        result.add(dataLineEvent);
+
+        return result;
+    }
+
     // Inner classes ---------------------------------------------------------------------------------------------------
 
 }
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import io.novaordis.events.csv.event.field.FieldConverter;
+import io.novaordis.events.csv.event.field.TimestampConverter;
+import io.novaordis.events.csv.event.field.TimestampParser;
+
+/**
+ * A reusable view over the cells of the current data line, passed by CSVRowParser to CSVRowVisitor#onRow(). The
+ * typed accessors convert the cell's characters directly, on each invocation, into primitive values, and they do not
+ * depend on the type declared by the format for the column, so a column can be read as any type its content can be
+ * converted to. The cells that are not read are never converted.
+ *
+ * Columns are addressed by index, starting with 0. The column names are available if a format is in effect. The row
+ * is only valid during the onRow() invocation it was passed to; the accessors return values that do not depend on the
+ * line's buffer, except getLine().
+ *
+ * @see CSVRowVisitor
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class CSVRow {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final NumberParser numberParser;
+
+    private long lineNumber;
+
+    private CSVTokenRanges tokens;
+
+    private CSVFormat format;
+
+    private String[] names;
+
+    private int timestampIndex;
+
+    private TimestampParser timestampParser;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    CSVRow() {
+
+        this.numberParser = new NumberParser();
+        this.timestampIndex = -1;
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    public long getLineNumber() {
+
+        return lineNumber;
+    }
+
+    /**
+     * @return the format in effect for this row. May be null, if the stream has no header and no format was
+     * specified.
+     */
+    public CSVFormat getFormat() {
+
+        return format;
+    }
+
+    /**
+     * @return the number of cells of the line, which may differ from the number of fields of the format.
+     */
+    public int size() {
+
+        return tokens.size();
+    }
+
+    /**
+     * @return the index of the column with the given name, or -1 if there is no such column, or no format is in
+     * effect.
+     */
+    public int getColumnIndex(String name) {
+
+        if (names == null) {
+
+            return -1;
+        }
+
+        for(int i = 0; i < names.length; i ++) {
+
+            if (names[i].equals(name)) {
+
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return true if the cell is empty.
+     *
+     * @throws IndexOutOfBoundsException if the line has no such cell.
+     */
+    public boolean isNull(int column) {
+
+        checkColumn(column);
+
+        return tokens.isNull(column);
+    }
+
+    /**
+     * @return the cell's content, or null if the cell is empty.
+     */
+    public String getString(int column) {
+
+        checkColumn(column);
+
+        return tokens.toString(column);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cell is empty, or its content is not a valid int.
+     */
+    public int getInt(int column) throws IllegalArgumentException {
+
+        checkColumn(column);
+
+        check(numberParser.parseInt(line(), tokens.getStart(column), tokens.getEnd(column)), column, "int");
+
+        return numberParser.getInt();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cell is empty, or its content is not a valid long.
+     */
+    public long getLong(int column) throws IllegalArgumentException {
+
+        checkColumn(column);
+
+        check(numberParser.parseLong(line(), tokens.getStart(column), tokens.getEnd(column)), column, "long");
+
+        return numberParser.getLong();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cell is empty, or its content is not a valid double.
+     */
+    public double getDouble(int column) throws IllegalArgumentException {
+
+        checkColumn(column);
+
+        check(numberParser.parseDouble(line(), tokens.getStart(column), tokens.getEnd(column)), column, "double");
+
+        return numberParser.getDouble();
+    }
+
+    /**
+     * @return true if the format in effect has a timestamp field, and this row has a non-empty cell for it.
+     */
+    public boolean hasTimestamp() {
+
+        return timestampIndex != -1 && timestampIndex < tokens.size() && !tokens.isNull(timestampIndex);
+    }
+
+    /**
+     * @return the event timestamp, converted with the format of the timestamp field.
+     *
+     * @throws IllegalStateException if the row has no timestamp.
+     * @throws IllegalArgumentException if the cell's content does not match the timestamp format.
+     *
+     * @see CSVRow#hasTimestamp()
+     */
+    public long getTimestamp() throws IllegalStateException, IllegalArgumentException {
+
+        if (!hasTimestamp()) {
+
+            throw new IllegalStateException("line " + lineNumber + " has no timestamp");
+        }
+
+        return timestampParser.parse(line(), tokens.getStart(timestampIndex), tokens.getEnd(timestampIndex));
+    }
+
+    /**
+     * @return the underlying line, valid only for the duration of the onRow() invocation. Together with getStart()
+     * and getEnd(), it allows access to the cell's characters without copying them.
+     */
+    public CharSequence getLine() {
+
+        return tokens.getLine();
+    }
+
+    /**
+     * @return the offset of the cell's first character in the line.
+     */
+    public int getStart(int column) {
+
+        checkColumn(column);
+
+        return tokens.getStart(column);
+    }
+
+    /**
+     * @return the offset that follows the cell's last character in the line.
+     */
+    public int getEnd(int column) {
+
+        checkColumn(column);
+
+        return tokens.getEnd(column);
+    }
+
+    @Override
+    public String toString() {
+
+        return "CSVRow[" + lineNumber + "]";
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    /**
+     * Associates the row with a new format. May be null.
+     */
+    void setFormat(CSVFormat format) {
+
+        this.format = format;
+        this.names = null;
+        this.timestampIndex = -1;
+        this.timestampParser = null;
+
+        if (format == null) {
+
+            return;
+        }
+
+        ConversionPlan plan = format.getConversionPlan();
+
+        this.names = plan.getNames();
+        this.timestampIndex = plan.getTimestampIndex();
+
+        if (timestampIndex != -1) {
+
+            FieldConverter c = plan.getConverters()[timestampIndex];
+
+            this.timestampParser = ((TimestampConverter)c).getParser();
+        }
+    }
+
+    /**
+     * Associates the row with the tokens of a new line.
+     */
+    void reset(long lineNumber, CSVTokenRanges tokens) {
+
+        this.lineNumber = lineNumber;
+        this.tokens = tokens;
+    }
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private CharSequence line() {
+
+        return tokens.getLine();
+    }
+
+    private void checkColumn(int column) {
+
+        if (column < 0 || column >= tokens.size()) {
+
+            throw new IndexOutOfBoundsException(
+                    "line " + lineNumber + " has no column " + column + ", it has " + tokens.size() + " column(s)");
+        }
+    }
+
+    private void check(NumberParser.Status status, int column, String type) throws IllegalArgumentException {
+
+        if (status == NumberParser.Status.OK) {
+
+            return;
+        }
+
+        throw new IllegalArgumentException(
+                "invalid " + type + " value \"" + (tokens.isNull(column) ? "" : tokens.toString(column)) +
+                        "\" in column " + column + " of line " + lineNumber);
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
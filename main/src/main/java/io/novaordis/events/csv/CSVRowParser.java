@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import io.novaordis.utilities.parsing.ParsingException;
+
+/**
+ * Parses CSV lines and pushes their content to a CSVRowVisitor, instead of returning events. The lines are processed
+ * as CSVParser processes them: blank edges are ignored, empty lines are skipped and header lines change the format of
+ * the lines that follow them. Each data line is tokenized into reusable token ranges and passed as the same CSVRow
+ * instance, so, unless the visitor reads the content as Strings, a line does not allocate. Undecoded UTF-8 lines can
+ * be passed as Utf8Line views.
+ *
+ * The instances are not thread safe.
+ *
+ * @see CSVRowVisitor
+ * @see CSVRow
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVRowParser {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final CSVTokenRanges tokens;
+
+    private final CSVRow row;
+
+    private final CSVFormatCache formatCache;
+
+    private CSVFormat format;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    /**
+     * @param formatSpecification the format in effect at the beginning of the stream. May be null, in which case the
+     *                            rows that precede the first header line, if any, are passed without a format.
+     *
+     * @throws IllegalArgumentException if the format specification cannot be used to build a CSV format.
+     * @throws CSVFormatException if the format specification contains an incorrectly specified field.
+     */
+    public CSVRowParser(String formatSpecification) throws IllegalArgumentException, CSVFormatException {
+
+        this.tokens = new CSVTokenRanges();
+        this.row = new CSVRow();
+        this.formatCache = new CSVFormatCache();
+
+        if (formatSpecification != null) {
+
+            setFormat(new CSVFormat(formatSpecification));
+        }
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @param line may be null.
+     *
+     * @throws IllegalArgumentException on null visitor.
+     */
+    public void parse(long lineNumber, CharSequence line, CSVRowVisitor visitor) throws IllegalArgumentException {
+
+        if (visitor == null) {
+
+            throw new IllegalArgumentException("null visitor");
+        }
+
+        if (line == null) {
+
+            return;
+        }
+
+        line = CSVParser.trim(line);
+
+        if (line.length() == 0) {
+
+            return;
+        }
+
+        if (line.charAt(0) == CSVParser.HEADER_LEADER) {
+
+            CSVFormat f;
+
+            try {
+
+                f = formatCache.get(line.subSequence(1, line.length()).toString());
+            }
+            catch(CSVFormatException e) {
+
+                visitor.onError(new ParsingException(lineNumber, e));
+                return;
+            }
+
+            setFormat(f);
+
+            visitor.onHeader(f);
+
+            return;
+        }
+
+        try {
+
+            CSVTokenizer.split(lineNumber, line, CSVParser.SEPARATOR, tokens);
+        }
+        catch(ParsingException e) {
+
+            visitor.onError(e);
+            return;
+        }
+
+        row.reset(lineNumber, tokens);
+
+        visitor.onRow(lineNumber, row);
+    }
+
+    /**
+     * @return the format in effect for the next data line. May be null. The formats compiled from header lines are
+     * shared with the parser's format cache, so the returned format must not be modified, see CSVFormat#copy().
+     */
+    public CSVFormat getFormat() {
+
+        return format;
+    }
+
+    @Override
+    public String toString() {
+
+        return "CSVRowParser[" + (format == null ? "no format" : format.toPattern()) + "]";
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private void setFormat(CSVFormat format) {
+
+        this.format = format;
+
+        row.setFormat(format);
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import io.novaordis.utilities.parsing.ParsingException;
+
+/**
+ * Receives the content of a CSV stream, line by line, from a CSVRowParser, as an alternative to the events produced by
+ * CSVParser. No event, property or per-line object is created on the way.
+ *
+ * @see CSVRowParser
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public interface CSVRowVisitor {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Invoked when a header line installs a new format, which applies to the rows that follow. The format is shared
+     * with the parser's format cache, so it must not be modified, see CSVFormat#copy().
+     */
+    void onHeader(CSVFormat format);
+
+    /**
+     * Invoked for each data line.
+     *
+     * @param row a view over the current line, which is only valid for the duration of the invocation. The same
+     *            instance is passed for all lines.
+     */
+    void onRow(long lineNumber, CSVRow row);
+
+    /**
+     * Invoked for lines that cannot be tokenized, and for header lines with an invalid format specification. The
+     * parsing continues with the next line.
+     */
+    void onError(ParsingException e);
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
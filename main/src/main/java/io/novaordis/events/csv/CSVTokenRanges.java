@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+/**
+ * The result of an offset-based tokenization: the start (inclusive) and end (exclusive) offsets of each token, relative
+ * to the original character sequence. The offsets already account for blank space trimming and paired quote
+ * stripping, so the token content is exactly the characters between start and end. No String is created unless
+ * toString(int) is explicitly invoked.
+ *
+ * A null token (missing value, the semantic equivalent of a null element in the list returned by
+ * CSVTokenizer.split(Long, String, char)) is recorded with a start offset of -1.
+ *
+ * The instance is designed to be reused across lines - the offset array only grows - so it is NOT thread safe.
+ *
+ * @see CSVTokenizer#split(Long, CharSequence, char, CSVTokenRanges)
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVTokenRanges {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private CharSequence line;
+
+    //
+    // start and end offsets, interleaved
+    //
+    private int[] offsets;
+
+    private int size;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public CSVTokenRanges() {
+
+        this.offsets = new int[2 * INITIAL_CAPACITY];
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the character sequence the offsets refer to. May be null if the instance was never used.
+     */
+    public CharSequence getLine() {
+
+        return line;
+    }
+
+    /**
+     * @return the number of tokens, including the null ones.
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * @return true if the token on the given position is a null token (missing value).
+     *
+     * @exception IndexOutOfBoundsException
+     */
+    public boolean isNull(int index) {
+
+        return offsets[2 * checkIndex(index)] == -1;
+    }
+
+    /**
+     * @return the start offset (inclusive) of the token, or -1 for a null token.
+     *
+     * @exception IndexOutOfBoundsException
+     */
+    public int getStart(int index) {
+
+        return offsets[2 * checkIndex(index)];
+    }
+
+    /**
+     * @return the end offset (exclusive) of the token, or -1 for a null token.
+     *
+     * @exception IndexOutOfBoundsException
+     */
+    public int getEnd(int index) {
+
+        return offsets[2 * checkIndex(index) + 1];
+    }
+
+    /**
+     * @return the token length, or -1 for a null token.
+     *
+     * @exception IndexOutOfBoundsException
+     */
+    public int getLength(int index) {
+
+        int i = 2 * checkIndex(index);
+
+        return offsets[i] == -1 ? -1 : offsets[i + 1] - offsets[i];
+    }
+
+    /**
+     * Materializes the token as a String. This is the only operation that allocates.
+     *
+     * @return the token, or null for a null token (missing value).
+     *
+     * @exception IndexOutOfBoundsException
+     */
+    public String toString(int index) {
+
+        int i = 2 * checkIndex(index);
+
+        int start = offsets[i];
+
+        if (start == -1) {
+
+            return null;
+        }
+
+        if (line instanceof Utf8Line) {
+
+            //
+            // decode straight from the bytes, without creating an intermediate view
+            //
+
+            return ((Utf8Line)line).toString(start, offsets[i + 1]);
+        }
+
+        return line.subSequence(start, offsets[i + 1]).toString();
+    }
+
+    @Override
+    public String toString() {
+
+        return "CSVTokenRanges[" + size + "]";
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    /**
+     * Resets the state and associates the instance with a new line. The offset array is retained.
+     */
+    void reset(CharSequence line) {
+
+        this.line = line;
+        this.size = 0;
+    }
+
+    void add(int start, int end) {
+
+        int i = 2 * size;
+
+        if (i == offsets.length) {
+
+            int[] tmp = new int[2 * offsets.length];
+            System.arraycopy(offsets, 0, tmp, 0, offsets.length);
+            offsets = tmp;
+        }
+
+        offsets[i] = start;
+        offsets[i + 1] = end;
+        size ++;
+    }
+
+    void addNull() {
+
+        add(-1, -1);
+    }
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private int checkIndex(int index) {
+
+        if (index < 0 || index >= size) {
+
+            throw new IndexOutOfBoundsException("token index " + index + " out of bounds, size " + size);
+        }
+
+        return index;
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
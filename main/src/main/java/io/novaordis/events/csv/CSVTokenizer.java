@@ -39,6 +39,11 @@ class CSVTokenizer {
 
     public static final char DOUBLE_QUOTE = '"';
 
+    //
+    // tokenRange() sentinel for a null token; a valid packed range never has a negative start
+    //
+    private static final long NULL_TOKEN = -1L;
+
     // Static ----------------------------------------------------------------------------------------------------------
 
     /**
@@ -55,86 +60,108 @@ class CSVTokenizer {
             throw new IllegalArgumentException("null input string");
         }
 
-        List<String> result = new ArrayList<>();
+        CSVTokenRanges ranges = new CSVTokenRanges();
 
-        int i = 0;
-        int quotedStart = -1;
-        int tokenStart = 0;
-        String token;
+        split(lineNumber, s, separator, ranges);
 
-        if (s.isEmpty()) {
+        List<String> result = new ArrayList<>(ranges.size());
 
-            result.add(null);
-            return result;
+        for(int i = 0; i < ranges.size(); i ++) {
+
+            result.add(ranges.toString(i));
         }
 
-        for(;;i++) {
+        return result;
+    }
 
-            char crt = s.charAt(i);
+    /**
+     * Offset-based tokenization. The semantics is identical to split(Long, String, char), but instead of creating a
+     * list of substrings, the method records the start and end offsets of each token in the given (reusable)
+     * CSVTokenRanges instance. The character sequence is not copied.
+     *
+     * @param result the instance to record the token offsets into. Its previous state is discarded.
+     *
+     * @see CSVTokenizer#split(Long, String, char)
+     *
+     * @throws ParsingException
+     */
+    static void split(Long lineNumber, CharSequence s, char separator, CSVTokenRanges result)
+            throws ParsingException {
 
-            if (quotedStart != -1) {
+        if (s == null) {
 
-                //
-                // quoted sequence, keep accumulating, unless it's the end of it
-                //
+            throw new IllegalArgumentException("null input string");
+        }
 
-                if (crt == DOUBLE_QUOTE) {
+        if (result == null) {
 
-                    //
-                    // end of the quoted sequence
-                    //
-                    quotedStart = -1;
-                }
-            }
-            else if (crt == separator) {
+            throw new IllegalArgumentException("null token ranges");
+        }
 
-                token = processToken(lineNumber, s, tokenStart, i);
+        result.reset(s);
 
-                result.add(token);
+        int length = s.length();
 
-                tokenStart = i + 1;
-            }
-            else if (crt == DOUBLE_QUOTE) {
+        if (length == 0) {
 
-                //
-                // begin quoted sequence
-                //
+            result.addNull();
+            return;
+        }
 
-                quotedStart = i;
+        int tokenStart = 0;
+        int i = 0;
+
+        while(true) {
+
+            //
+            // jump straight to the next character that matters, everything in between belongs to the current token
+            //
+
+            i = indexOfSeparatorOrQuote(s, i, length, separator);
+
+            if (i == length) {
+
+                break;
             }
 
-            if (i == s.length() - 1) {
+            if (s.charAt(i) == separator) {
+
+                addToken(lineNumber, s, tokenStart, i, result);
+
+                tokenStart = i + 1;
+                i ++;
+            }
+            else {
 
                 //
-                // last character of the string
+                // quoted sequence, separators are ignored until the closing quote
                 //
 
-                if (quotedStart != -1) {
+                int quotedStart = i;
+
+                i = indexOfQuote(s, i + 1, length);
 
-                    //
-                    // unterminated quoted sequence
-                    //
+                if (i == length) {
 
                     throw new ParsingException(lineNumber, quotedStart, "unbalanced quotes");
                 }
 
-                if (crt == separator) {
+                i ++;
+            }
+        }
 
-                    result.add(null);
-                }
+        if (tokenStart == length) {
 
-                if (tokenStart <= i) {
+            //
+            // the line ends with a separator
+            //
 
-                    token = processToken(lineNumber, s, tokenStart, i + 1);
-                    result.add(token);
-                }
-
-                break;
-            }
+            result.addNull();
         }
+        else {
 
-
-        return result;
+            addToken(lineNumber, s, tokenStart, length, result);
+        }
     }
 
     /**
@@ -146,6 +173,103 @@ class CSVTokenizer {
      */
     static String processToken(Long lineNumber, String s, int from, int to) throws ParsingException {
 
+        long range = tokenRange(lineNumber, s, from, to);
+
+        if (range == NULL_TOKEN) {
+
+            return null;
+        }
+
+        return s.substring(rangeStart(range), rangeEnd(range));
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the index of the first separator or double quote in the [from, to) interval, or 'to' if there isn't
+     * any. Undecoded UTF-8 lines are scanned eight bytes at a time.
+     */
+    private static int indexOfSeparatorOrQuote(CharSequence s, int from, int to, char separator) {
+
+        if (s instanceof Utf8Line && separator < 0x80) {
+
+            Utf8Line line = (Utf8Line)s;
+            int offset = line.getOffset();
+
+            return ByteScanner.indexOf(
+                    line.getBuffer(), offset + from, offset + to, (byte)separator, (byte)DOUBLE_QUOTE) - offset;
+        }
+
+        for(; from < to; from ++) {
+
+            char c = s.charAt(from);
+
+            if (c == separator || c == DOUBLE_QUOTE) {
+
+                return from;
+            }
+        }
+
+        return to;
+    }
+
+    /**
+     * @return the index of the first double quote in the [from, to) interval, or 'to' if there isn't any.
+     */
+    private static int indexOfQuote(CharSequence s, int from, int to) {
+
+        if (s instanceof Utf8Line) {
+
+            Utf8Line line = (Utf8Line)s;
+            int offset = line.getOffset();
+
+            return ByteScanner.indexOf(line.getBuffer(), offset + from, offset + to, (byte)DOUBLE_QUOTE) - offset;
+        }
+
+        for(; from < to; from ++) {
+
+            if (s.charAt(from) == DOUBLE_QUOTE) {
+
+                return from;
+            }
+        }
+
+        return to;
+    }
+
+    private static void addToken(Long lineNumber, CharSequence s, int from, int to, CSVTokenRanges result) {
+
+        long range = tokenRange(lineNumber, s, from, to);
+
+        if (range == NULL_TOKEN) {
+
+            result.addNull();
+        }
+        else {
+
+            result.add(rangeStart(range), rangeEnd(range));
+        }
+    }
+
+    /**
+     * Applies the processToken() rules to the given interval, without creating a String.
+     *
+     * @return the start and end offsets of the processed token, packed in a long, or NULL_TOKEN if the token is null.
+     *
+     * @see CSVTokenizer#processToken(Long, String, int, int)
+     */
+    private static long tokenRange(Long lineNumber, CharSequence s, int from, int to) {
+
         if (s == null) {
 
             throw new IllegalArgumentException("null line");
@@ -174,7 +298,7 @@ class CSVTokenizer {
 
         if (from == to) {
 
-            return null;
+            return NULL_TOKEN;
         }
 
         //
@@ -183,37 +307,30 @@ class CSVTokenizer {
 
         if (s.charAt(from) == DOUBLE_QUOTE && s.charAt(to - 1) == DOUBLE_QUOTE) {
 
-            if (to - from == 2) {
-
-                return "";
-            }
+            //
+            // a pair of quotes with nothing in between is an empty, but not null, token
+            //
 
-            return s.substring(from + 1, to - 1);
+            return packRange(from + 1, to - 1);
         }
-        else {
-
-            s = s.substring(from, to);
-
-            if (s.isEmpty()) {
 
-                return null;
-            }
-
-            return s;
-        }
+        return packRange(from, to);
     }
 
-    // Attributes ------------------------------------------------------------------------------------------------------
+    private static long packRange(int start, int end) {
 
-    // Constructors ----------------------------------------------------------------------------------------------------
+        return ((long)start << 32) | (end & 0xFFFFFFFFL);
+    }
 
-    // Public ----------------------------------------------------------------------------------------------------------
+    private static int rangeStart(long range) {
 
-    // Package protected -----------------------------------------------------------------------------------------------
+        return (int)(range >>> 32);
+    }
 
-    // Protected -------------------------------------------------------------------------------------------------------
+    private static int rangeEnd(long range) {
 
-    // Private ---------------------------------------------------------------------------------------------------------
+        return (int)range;
+    }
 
     // Inner classes ---------------------------------------------------------------------------------------------------
 
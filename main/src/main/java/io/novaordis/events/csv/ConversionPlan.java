@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.List;
+import java.util.Set;
+
+import io.novaordis.events.csv.event.field.CSVField;
+import io.novaordis.events.csv.event.field.FieldConverter;
+import io.novaordis.events.csv.event.field.StringConverter;
+import io.novaordis.events.csv.event.field.TimestampConverter;
+
+/**
+ * The per-format list of field converters, indexed by column, as compiled by CSVFormat. The type dispatch happens once,
+ * when the plan is compiled, and not for each cell.
+ *
+ * Only the first timestamp field produces the event timestamp, the subsequent timestamp fields, if any, are converted
+ * as regular fields.
+ *
+ * A projected plan, see project(Set), does not convert the columns that are not referenced: their converters are null.
+ *
+ * A plan can be derived with dictionary converters for its string columns, see withStringDictionaries(int, boolean).
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+class ConversionPlan {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final CSVField[] fields;
+
+    private final FieldConverter[] converters;
+
+    private final String[] names;
+
+    private final int timestampIndex;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    ConversionPlan(List<CSVField> fields) {
+
+        this.fields = fields.toArray(new CSVField[fields.size()]);
+        this.converters = new FieldConverter[this.fields.length];
+        this.names = new String[this.fields.length];
+
+        int timestampIndex = -1;
+
+        for(int i = 0; i < this.fields.length; i ++) {
+
+            CSVField f = this.fields[i];
+
+            names[i] = f.getName();
+
+            if (timestampIndex == -1 && f.isTimestamp()) {
+
+                timestampIndex = i;
+                converters[i] = TimestampConverter.forField(f);
+            }
+            else {
+
+                converters[i] = f.getConverter();
+            }
+        }
+
+        this.timestampIndex = timestampIndex;
+    }
+
+    /**
+     * A projection of the given plan.
+     */
+    private ConversionPlan(ConversionPlan plan, Set<String> projection) {
+
+        this.fields = plan.fields;
+        this.names = plan.names;
+        this.timestampIndex = plan.timestampIndex;
+        this.converters = new FieldConverter[fields.length];
+
+        for(int i = 0; i < fields.length; i ++) {
+
+            if (i == timestampIndex || projection.contains(names[i])) {
+
+                converters[i] = plan.converters[i];
+            }
+        }
+    }
+
+    /**
+     * The same fields, with different converters.
+     */
+    private ConversionPlan(ConversionPlan plan, FieldConverter[] converters) {
+
+        this.fields = plan.fields;
+        this.names = plan.names;
+        this.timestampIndex = plan.timestampIndex;
+        this.converters = converters;
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    /**
+     * @return a plan for the same fields, where the string columns are converted by new StringDictionary instances.
+     * Returns this plan if there are no string columns. The dictionaries are specific to the returned plan, so the
+     * plan must not be shared by parsers that run on different threads.
+     *
+     * @see StringDictionary
+     */
+    ConversionPlan withStringDictionaries(int maxCardinality, boolean shareProperties) {
+
+        FieldConverter[] dictionaryConverters = null;
+
+        for(int i = 0; i < converters.length; i ++) {
+
+            if (i == timestampIndex || !(converters[i] instanceof StringConverter)) {
+
+                continue;
+            }
+
+            if (dictionaryConverters == null) {
+
+                dictionaryConverters = converters.clone();
+            }
+
+            dictionaryConverters[i] = new StringDictionary(names[i], maxCardinality, shareProperties);
+        }
+
+        return dictionaryConverters == null ? this : new ConversionPlan(this, dictionaryConverters);
+    }
+
+    /**
+     * @return a plan for the same fields, which only converts the timestamp column and the columns whose names are
+     * in the given set. The converters of the other columns are null. Returns this plan if all columns are projected.
+     */
+    ConversionPlan project(Set<String> projection) {
+
+        for(int i = 0; i < names.length; i ++) {
+
+            if (converters[i] != null && i != timestampIndex && !projection.contains(names[i])) {
+
+                return new ConversionPlan(this, projection);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * @return the underlying storage, which must not be modified. The converters of the columns that are not
+     * projected are null.
+     */
+    FieldConverter[] getConverters() {
+
+        return converters;
+    }
+
+    /**
+     * @return the fields, by column. This is the underlying storage, which must not be modified.
+     */
+    CSVField[] getFields() {
+
+        return fields;
+    }
+
+    /**
+     * @return the field names, by column. This is the underlying storage, which must not be modified.
+     */
+    String[] getNames() {
+
+        return names;
+    }
+
+    /**
+     * @return the index of the column that carries the event timestamp, or -1 if the format has no timestamp field.
+     */
+    int getTimestampIndex() {
+
+        return timestampIndex;
+    }
+
+    int size() {
+
+        return converters.length;
+    }
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.Arrays;
+
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.csv.event.RecycledCSVEvent;
+import io.novaordis.events.csv.event.RecycledLineContent;
+import io.novaordis.events.csv.event.RecycledNonTimedCSVLine;
+import io.novaordis.events.csv.event.RecycledTimedCSVLine;
+import io.novaordis.events.csv.event.field.FieldConverter;
+import io.novaordis.utilities.parsing.ParsingException;
+
+/**
+ * Converts format-driven data lines into the parser's recycled events, when event reuse is enabled.
+ *
+ * Besides reusing the event instances, the recycler remembers, for each column, the text of the previous line's token
+ * and the property it was converted into. The conversion only depends on the text, so if a token did not change the
+ * previous property is reused instead of being converted again. Counters, labels and configuration values that stay
+ * the same for long stretches of a capture cost a character comparison instead of a conversion and an allocation.
+ *
+ * Properties are not immutable, so sharing them across lines is only safe if the consumers do not modify the
+ * properties of the events they receive, or of their copies. The recycled events themselves reject modifications.
+ *
+ * Not thread safe, like the parser that owns it.
+ *
+ * @see CSVParser#setReuseEvents(boolean)
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+class EventRecycler {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    //
+    // the previous token was null (missing value)
+    //
+
+    private static final int MISSING = -1;
+
+    //
+    // there is no previous token, or it must not be reused
+    //
+
+    private static final int NONE = -2;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final RecycledLineContent content;
+
+    private final RecycledTimedCSVLine timedEvent;
+
+    private final RecycledNonTimedCSVLine nonTimedEvent;
+
+    //
+    // the plan the token cache was built for
+    //
+
+    private ConversionPlan plan;
+
+    private char[][] previousTokens;
+
+    //
+    // the length of the previous token, or MISSING, or NONE
+    //
+
+    private int[] previousLengths;
+
+    private Property[] previousProperties;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    EventRecycler() {
+
+        this.content = new RecycledLineContent();
+        this.timedEvent = new RecycledTimedCSVLine(content);
+        this.nonTimedEvent = new RecycledNonTimedCSVLine(content);
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    /**
+     * Same conversion as CSVParser#convert(), into the recycled event.
+     *
+     * @return the recycled timed event if the timestamp column was converted, the recycled non-timed event otherwise.
+     * Either way, the returned event is only valid until the next invocation.
+     */
+    RecycledCSVEvent convert(long lineNumber, ConversionPlan plan, CSVTokenRanges tokens) throws ParsingException {
+
+        if (plan != this.plan) {
+
+            install(plan);
+        }
+
+        content.reset(lineNumber);
+
+        FieldConverter[] converters = plan.getConverters();
+
+        CharSequence line = tokens.getLine();
+
+        int count = Math.min(converters.length, tokens.size());
+
+        int timestampIndex = plan.getTimestampIndex();
+
+        int contentTimestampIndex = -1;
+
+        for(int i = 0; i < count; i ++) {
+
+            if (converters[i] == null) {
+
+                //
+                // not projected
+                //
+
+                continue;
+            }
+
+            if (i == timestampIndex) {
+
+                contentTimestampIndex = content.size();
+            }
+
+            content.add(convert(i, converters[i], line, tokens));
+        }
+
+        if (contentTimestampIndex != -1) {
+
+            content.setTimestampIndex(contentTimestampIndex);
+            return timedEvent;
+        }
+
+        return nonTimedEvent;
+    }
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private void install(ConversionPlan plan) {
+
+        int size = plan.size();
+
+        this.plan = plan;
+        this.previousTokens = new char[size][];
+        this.previousLengths = new int[size];
+        this.previousProperties = new Property[size];
+
+        Arrays.fill(previousLengths, NONE);
+    }
+
+    private Property convert(int i, FieldConverter converter, CharSequence line, CSVTokenRanges tokens)
+            throws ParsingException {
+
+        int previousLength = previousLengths[i];
+
+        if (tokens.isNull(i)) {
+
+            if (previousLength != MISSING) {
+
+                previousProperties[i] = converter.convertMissing();
+                previousLengths[i] = MISSING;
+            }
+
+            return previousProperties[i];
+        }
+
+        int start = tokens.getStart(i);
+        int end = tokens.getEnd(i);
+        int length = end - start;
+
+        if (previousLength == length && sameText(previousTokens[i], line, start, end)) {
+
+            return previousProperties[i];
+        }
+
+        //
+        // invalidate first, so a conversion failure does not leave a mismatched entry behind
+        //
+
+        previousLengths[i] = NONE;
+
+        Property p = converter.convert(line, start, end);
+
+        char[] text = previousTokens[i];
+
+        if (text == null || text.length < length) {
+
+            text = new char[Math.max(length, 16)];
+            previousTokens[i] = text;
+        }
+
+        for(int j = 0; j < length; j ++) {
+
+            text[j] = line.charAt(start + j);
+        }
+
+        previousProperties[i] = p;
+        previousLengths[i] = length;
+
+        return p;
+    }
+
+    private static boolean sameText(char[] text, CharSequence line, int start, int end) {
+
+        for(int i = start, j = 0; i < end; i ++, j ++) {
+
+            if (text[j] != line.charAt(i)) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
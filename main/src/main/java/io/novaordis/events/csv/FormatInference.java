@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.novaordis.events.api.event.TimedEvent;
+import io.novaordis.events.csv.event.CSVEvent;
+
+/**
+ * Infers a CSVFormat from the tokens of a sample of data lines, for the parser to use instead of introspecting each
+ * line. Each column is typed with the narrowest type all its sampled values can be converted to: int, long, double
+ * or, if none applies, string. Missing values are compatible with any type. The first column whose values all match
+ * one of the candidate timestamp patterns becomes the timestamp column. The columns are named as introspection names
+ * them (field_0, field_1, ...), and the timestamp column is named "time", so the properties keep their names once the
+ * inferred format is installed.
+ *
+ * The timestamp patterns are matched strictly and on their full width, so a pattern is only inferred if it parses
+ * the sampled values unambiguously.
+ *
+ * The instances are not thread safe.
+ *
+ * @see CSVParser#setInferenceWindow(int)
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+final class FormatInference {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    /**
+     * The timestamp patterns that are tried, in order.
+     */
+    static final String[] TIMESTAMP_PATTERNS = {
+
+            Constants.DEFAULT_TIMESTAMP_FORMAT_LITERAL,
+            "MM/dd/yyyy HH:mm:ss",
+            "yyyy-MM-dd HH:mm:ss",
+            "yyyy-MM-dd HH:mm:ss.SSS",
+            "yyyy-MM-dd'T'HH:mm:ss",
+            "yyyy-MM-dd'T'HH:mm:ss.SSS",
+            "yyyy/MM/dd HH:mm:ss",
+    };
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final SimpleDateFormat[] timestampFormats;
+
+    //
+    // the width of the values each timestamp pattern produces
+    //
+    private final int[] timestampWidths;
+
+    private final NumberParser numberParser;
+
+    private final List<Column> columns;
+
+    private int sampleCount;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    FormatInference() {
+
+        this.timestampFormats = new SimpleDateFormat[TIMESTAMP_PATTERNS.length];
+        this.timestampWidths = new int[TIMESTAMP_PATTERNS.length];
+
+        for(int i = 0; i < TIMESTAMP_PATTERNS.length; i ++) {
+
+            SimpleDateFormat f = new SimpleDateFormat(TIMESTAMP_PATTERNS[i]);
+            f.setLenient(false);
+
+            timestampFormats[i] = f;
+            timestampWidths[i] = TIMESTAMP_PATTERNS[i].replace("'", "").length();
+        }
+
+        this.numberParser = new NumberParser();
+        this.columns = new ArrayList<>();
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    /**
+     * Narrows the column types with the values of a data line.
+     */
+    void sample(CSVTokenRanges tokens) {
+
+        CharSequence line = tokens.getLine();
+
+        for(int i = 0; i < tokens.size(); i ++) {
+
+            if (i == columns.size()) {
+
+                columns.add(new Column(timestampFormats.length));
+            }
+
+            if (tokens.isNull(i)) {
+
+                continue;
+            }
+
+            columns.get(i).sample(line, tokens.getStart(i), tokens.getEnd(i));
+        }
+
+        sampleCount ++;
+    }
+
+    int getSampleCount() {
+
+        return sampleCount;
+    }
+
+    /**
+     * @return the format inferred from the lines sampled so far. A column for which no value was sampled is a string
+     * column. May return an empty format, if no line was sampled.
+     */
+    CSVFormat infer() {
+
+        CSVFormat format = new CSVFormat();
+
+        boolean timestampFound = false;
+
+        for(int i = 0; i < columns.size(); i ++) {
+
+            Column c = columns.get(i);
+
+            String specification = null;
+
+            if (!timestampFound && c.valueCount > 0) {
+
+                int pattern = c.getTimestampPattern();
+
+                if (pattern != -1) {
+
+                    specification = TimedEvent.TIME_PROPERTY_NAME + "(time:" + TIMESTAMP_PATTERNS[pattern] + ")";
+                    timestampFound = true;
+                }
+            }
+
+            if (specification == null) {
+
+                specification = CSVEvent.GENERIC_FIELD_NAME_PREFIX + i + "(" + c.getTypeLiteral() + ")";
+            }
+
+            try {
+
+                format.addField(specification);
+            }
+            catch(CSVFormatException e) {
+
+                //
+                // the specifications are built from known types and patterns
+                //
+
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return format;
+    }
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    /**
+     * The types still compatible with the values sampled for a column.
+     */
+    private final class Column {
+
+        private boolean integer;
+        private boolean longInteger;
+        private boolean floatingPoint;
+
+        //
+        // the candidate timestamp patterns
+        //
+        private final boolean[] timestamp;
+
+        private int valueCount;
+
+        private Column(int patternCount) {
+
+            this.integer = true;
+            this.longInteger = true;
+            this.floatingPoint = true;
+            this.timestamp = new boolean[patternCount];
+
+            Arrays.fill(timestamp, true);
+        }
+
+        private void sample(CharSequence line, int start, int end) {
+
+            valueCount ++;
+
+            if (integer && numberParser.parseInt(line, start, end) != NumberParser.Status.OK) {
+
+                integer = false;
+            }
+
+            if (!integer && longInteger && numberParser.parseLong(line, start, end) != NumberParser.Status.OK) {
+
+                longInteger = false;
+            }
+
+            if (!longInteger && floatingPoint &&
+                    numberParser.parseDouble(line, start, end) != NumberParser.Status.OK) {
+
+                floatingPoint = false;
+            }
+
+            String value = null;
+
+            for(int i = 0; i < timestamp.length; i ++) {
+
+                if (!timestamp[i]) {
+
+                    continue;
+                }
+
+                if (end - start != timestampWidths[i]) {
+
+                    timestamp[i] = false;
+                    continue;
+                }
+
+                if (value == null) {
+
+                    value = line.subSequence(start, end).toString();
+                }
+
+                ParsePosition position = new ParsePosition(0);
+
+                if (timestampFormats[i].parse(value, position) == null || position.getIndex() != value.length()) {
+
+                    timestamp[i] = false;
+                }
+            }
+        }
+
+        /**
+         * @return the index of the first matching timestamp pattern, or -1.
+         */
+        private int getTimestampPattern() {
+
+            for(int i = 0; i < timestamp.length; i ++) {
+
+                if (timestamp[i]) {
+
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        private String getTypeLiteral() {
+
+            if (valueCount == 0) {
+
+                return "string";
+            }
+
+            if (integer) {
+
+                return "int";
+            }
+
+            if (longInteger) {
+
+                return "long";
+            }
+
+            if (floatingPoint) {
+
+                return "double";
+            }
+
+            return "string";
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.TimestampProperty;
+
+/**
+ * The order in which CSVFormatter renders the properties of an event it introspects: the non-timestamp properties,
+ * sorted with Collections.sort(). The order is computed for a property list "shape" - the names of the properties, in
+ * the event's order - and it is reused for subsequent events with the same shape, which, in practice, are all the
+ * events of a stream.
+ *
+ * Property#compareTo() may depend on more than the name, so a reused order is also checked to be the stable sort order
+ * of the new list, which takes a linear pass instead of a copy and a sort. If the check fails, the order is computed
+ * again.
+ *
+ * Instances are immutable.
+ *
+ * @see CSVFormatter
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+final class IntrospectionOrder {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the order of the given property list.
+     */
+    static IntrospectionOrder compute(List<Property> properties) {
+
+        int size = properties.size();
+
+        String[] names = new String[size];
+        boolean[] timestamps = new boolean[size];
+
+        List<IndexedProperty> sortable = new ArrayList<>(size);
+
+        for(int i = 0; i < size; i ++) {
+
+            Property p = properties.get(i);
+
+            names[i] = p.getName();
+
+            if (p instanceof TimestampProperty) {
+
+                timestamps[i] = true;
+                continue;
+            }
+
+            sortable.add(new IndexedProperty(p, i));
+        }
+
+        //
+        // stable, like sorting the properties themselves
+        //
+
+        Collections.sort(sortable);
+
+        int[] order = new int[sortable.size()];
+
+        for(int i = 0; i < order.length; i ++) {
+
+            order[i] = sortable.get(i).index;
+        }
+
+        return new IntrospectionOrder(names, timestamps, order);
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final String[] names;
+
+    private final boolean[] timestamps;
+
+    private final int[] order;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    private IntrospectionOrder(String[] names, boolean[] timestamps, int[] order) {
+
+        this.names = names;
+        this.timestamps = timestamps;
+        this.order = order;
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    /**
+     * @return the indexes of the non-timestamp properties, in the order they must be rendered. The array must not be
+     * modified.
+     */
+    int[] getOrder() {
+
+        return order;
+    }
+
+    /**
+     * @return true if the given property list has the shape this order was computed for, and the order is the one
+     * compute() would return for it.
+     */
+    boolean appliesTo(List<Property> properties) {
+
+        int size = names.length;
+
+        if (properties.size() != size) {
+
+            return false;
+        }
+
+        for(int i = 0; i < size; i ++) {
+
+            Property p = properties.get(i);
+
+            String name = p.getName();
+
+            //noinspection StringEquality
+            if ((name != names[i] && !names[i].equals(name)) || (p instanceof TimestampProperty) != timestamps[i]) {
+
+                return false;
+            }
+        }
+
+        for(int i = 1; i < order.length; i ++) {
+
+            int c = properties.get(order[i - 1]).compareTo(properties.get(order[i]));
+
+            if (c > 0 || (c == 0 && order[i - 1] > order[i])) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    int size() {
+
+        return names.length;
+    }
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    private static final class IndexedProperty implements Comparable<IndexedProperty> {
+
+        private final Property property;
+        private final int index;
+
+        private IndexedProperty(Property property, int index) {
+
+            this.property = property;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(IndexedProperty o) {
+
+            return property.compareTo(o.property);
+        }
+    }
+
+}
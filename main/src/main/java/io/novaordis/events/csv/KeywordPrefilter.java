@@ -0,0 +1,435 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Scans the raw content of a line for a set of keywords, before the line is tokenized, and tells whether the line may
+ * contain any of them. The lines that do not contain any keyword can be skipped without being tokenized or converted.
+ *
+ * A single keyword is searched with Boyer-Moore-Horspool, several keywords with an Aho-Corasick automaton. Both work on
+ * the low byte of each character, so a String line is scanned the same way as the undecoded bytes of a Utf8Line; the
+ * characters that only share the low byte with a keyword character produce false positives, which are harmless for a
+ * prefilter, but never false negatives.
+ *
+ * Case-insensitive matching folds the ASCII letters. If case-insensitive matching is requested and any of the keywords
+ * contains non-ASCII characters, the prefilter lets all lines pass.
+ *
+ * The instances are immutable and thread safe.
+ *
+ * @see CSVParser#setKeywordPrefilter(KeywordPrefilter)
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class KeywordPrefilter {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final int ALPHABET = 256;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the scanning symbol of a character: its low byte, with the ASCII letters folded to lower case if case
+     * is ignored.
+     */
+    static int symbol(char c, boolean ignoreCase) {
+
+        if (ignoreCase && c >= 'A' && c <= 'Z') {
+
+            return c + ('a' - 'A');
+        }
+
+        return c & 0xFF;
+    }
+
+    private static boolean isAscii(String s) {
+
+        for(int i = 0; i < s.length(); i ++) {
+
+            if (s.charAt(i) >= 0x80) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param utf8 whether the keywords are represented by the symbols of their UTF-8 bytes (to scan Utf8Line
+     *             instances) or by the symbols of their characters.
+     */
+    private static Matcher compile(List<String> keywords, boolean ignoreCase, boolean utf8) {
+
+        List<int[]> patterns = new ArrayList<>();
+
+        for(String k: keywords) {
+
+            int[] p;
+
+            if (utf8) {
+
+                byte[] bytes = k.getBytes(StandardCharsets.UTF_8);
+
+                p = new int[bytes.length];
+
+                for(int i = 0; i < bytes.length; i ++) {
+
+                    p[i] = symbol((char)(bytes[i] & 0xFF), ignoreCase);
+                }
+            }
+            else {
+
+                p = new int[k.length()];
+
+                for(int i = 0; i < p.length; i ++) {
+
+                    p[i] = symbol(k.charAt(i), ignoreCase);
+                }
+            }
+
+            patterns.add(p);
+        }
+
+        if (patterns.size() == 1) {
+
+            return new Horspool(patterns.get(0), ignoreCase);
+        }
+
+        return new AhoCorasick(patterns, ignoreCase);
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final List<String> keywords;
+
+    private final boolean ignoreCase;
+
+    //
+    // null if all lines pass
+    //
+    private final Matcher charMatcher;
+
+    //
+    // the matcher for Utf8Line content, the same instance as charMatcher if all keywords are ASCII
+    //
+    private final Matcher utf8Matcher;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public KeywordPrefilter(boolean ignoreCase, String... keywords) {
+
+        this(keywords == null ? null : Arrays.asList(keywords), ignoreCase);
+    }
+
+    /**
+     * @param keywords a line passes if it contains any of the keywords.
+     *
+     * @throws IllegalArgumentException on null or empty keyword list, or on null keywords.
+     */
+    public KeywordPrefilter(List<String> keywords, boolean ignoreCase) {
+
+        if (keywords == null || keywords.isEmpty()) {
+
+            throw new IllegalArgumentException("no keywords");
+        }
+
+        boolean ascii = true;
+        boolean empty = false;
+
+        for(String k: keywords) {
+
+            if (k == null) {
+
+                throw new IllegalArgumentException("null keyword");
+            }
+
+            ascii &= isAscii(k);
+            empty |= k.isEmpty();
+        }
+
+        this.keywords = Collections.unmodifiableList(new ArrayList<>(keywords));
+        this.ignoreCase = ignoreCase;
+
+        if (empty || (ignoreCase && !ascii)) {
+
+            //
+            // an empty keyword is contained by all lines, and we cannot fold the case of non-ASCII characters
+            //
+
+            this.charMatcher = null;
+            this.utf8Matcher = null;
+        }
+        else {
+
+            this.charMatcher = compile(this.keywords, ignoreCase, false);
+            this.utf8Matcher = ascii ? charMatcher : compile(this.keywords, ignoreCase, true);
+        }
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return false if the line certainly does not contain any of the keywords.
+     */
+    public boolean mayMatch(CharSequence line) {
+
+        Matcher m = line instanceof Utf8Line ? utf8Matcher : charMatcher;
+
+        return m == null || m.find(line);
+    }
+
+    public List<String> getKeywords() {
+
+        return keywords;
+    }
+
+    public boolean isIgnoreCase() {
+
+        return ignoreCase;
+    }
+
+    /**
+     * @return true if the prefilter lets all lines pass, so it does not need to be evaluated.
+     */
+    public boolean isPassThrough() {
+
+        return charMatcher == null;
+    }
+
+    @Override
+    public String toString() {
+
+        return "KeywordPrefilter" + keywords + (ignoreCase ? "[ignore case]" : "");
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    interface Matcher {
+
+        /**
+         * @return true if the symbols of the sequence contain the symbols of any of the patterns.
+         */
+        boolean find(CharSequence s);
+    }
+
+    /**
+     * Boyer-Moore-Horspool, for a single pattern.
+     */
+    static final class Horspool implements Matcher {
+
+        private final int[] pattern;
+        private final boolean ignoreCase;
+        private final int[] shift;
+
+        Horspool(int[] pattern, boolean ignoreCase) {
+
+            this.pattern = pattern;
+            this.ignoreCase = ignoreCase;
+            this.shift = new int[ALPHABET];
+
+            int m = pattern.length;
+
+            Arrays.fill(shift, m);
+
+            for(int i = 0; i < m - 1; i ++) {
+
+                shift[pattern[i]] = m - 1 - i;
+            }
+        }
+
+        @Override
+        public boolean find(CharSequence s) {
+
+            int m = pattern.length;
+            int last = s.length() - m;
+
+            for(int i = 0; i <= last; ) {
+
+                int j = m - 1;
+
+                int tail = symbol(s.charAt(i + j), ignoreCase);
+
+                if (tail == pattern[j]) {
+
+                    while(j > 0 && symbol(s.charAt(i + j - 1), ignoreCase) == pattern[j - 1]) {
+
+                        j --;
+                    }
+
+                    if (j == 0) {
+
+                        return true;
+                    }
+                }
+
+                i += shift[tail];
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Aho-Corasick, for several patterns. The automaton is compiled into a complete transition table, so the scan
+     * performs one table lookup per character.
+     */
+    static final class AhoCorasick implements Matcher {
+
+        private final boolean ignoreCase;
+
+        //
+        // transitions, ALPHABET entries per state
+        //
+        private final int[] delta;
+
+        //
+        // true for the states that complete a pattern, directly or via their suffixes
+        //
+        private final boolean[] accepting;
+
+        AhoCorasick(List<int[]> patterns, boolean ignoreCase) {
+
+            this.ignoreCase = ignoreCase;
+
+            int maxStates = 1;
+
+            for(int[] p: patterns) {
+
+                maxStates += p.length;
+            }
+
+            int[] trie = new int[maxStates * ALPHABET];
+            Arrays.fill(trie, -1);
+
+            boolean[] terminal = new boolean[maxStates];
+
+            int states = 1;
+
+            for(int[] p: patterns) {
+
+                int state = 0;
+
+                for(int symbol: p) {
+
+                    int next = trie[state * ALPHABET + symbol];
+
+                    if (next == -1) {
+
+                        next = states ++;
+                        trie[state * ALPHABET + symbol] = next;
+                    }
+
+                    state = next;
+                }
+
+                terminal[state] = true;
+            }
+
+            this.delta = new int[states * ALPHABET];
+            this.accepting = new boolean[states];
+
+            int[] failure = new int[states];
+
+            //
+            // breadth first, so the failure state of each state is complete when the state is processed
+            //
+
+            Deque<Integer> queue = new ArrayDeque<>();
+
+            for(int c = 0; c < ALPHABET; c ++) {
+
+                int next = trie[c];
+
+                if (next == -1) {
+
+                    delta[c] = 0;
+                }
+                else {
+
+                    delta[c] = next;
+                    failure[next] = 0;
+                    queue.add(next);
+                }
+            }
+
+            accepting[0] = terminal[0];
+
+            while(!queue.isEmpty()) {
+
+                int state = queue.poll();
+
+                accepting[state] = terminal[state] || accepting[failure[state]];
+
+                for(int c = 0; c < ALPHABET; c ++) {
+
+                    int next = trie[state * ALPHABET + c];
+
+                    if (next == -1) {
+
+                        delta[state * ALPHABET + c] = delta[failure[state] * ALPHABET + c];
+                    }
+                    else {
+
+                        delta[state * ALPHABET + c] = next;
+                        failure[next] = delta[failure[state] * ALPHABET + c];
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean find(CharSequence s) {
+
+            int state = 0;
+
+            for(int i = 0; i < s.length(); i ++) {
+
+                state = delta[state * ALPHABET + symbol(s.charAt(i), ignoreCase)];
+
+                if (accepting[state]) {
+
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        int getStateCount() {
+
+            return accepting.length;
+        }
+    }
+
+}
@@ -0,0 +1,630 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.novaordis.events.csv.event.field.CSVField;
+import io.novaordis.events.csv.event.field.FieldConverter;
+import io.novaordis.events.csv.event.field.TimestampConverter;
+
+/**
+ * A simple condition on the columns of a data line - field equality, numeric comparison, time range and conjunctions of
+ * those - which CSVParser evaluates against the raw tokens of format-driven lines, before any property or event is
+ * built. The lines the predicate rejects are dropped.
+ *
+ * The evaluation is conservative: a line is only rejected if the predicate is certainly false for it. Lines whose
+ * tokens cannot be interpreted (missing columns, missing values, values that do not parse, fields of a type that is not
+ * supported or fields that are not part of the format) are kept, so the regular conversion and the query decide, and
+ * report errors, as usual. A predicate used on behalf of a query must therefore be a necessary condition for the query
+ * to select the event, not an equivalent of the query.
+ *
+ * @see CSVParser#setLinePredicate(LinePredicate)
+ * @see LinePredicateSource
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public abstract class LinePredicate {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * The value of the given field is equal to the given value. String fields are compared with the raw token, as is,
+     * numeric fields are compared numerically.
+     */
+    public static LinePredicate equalTo(String propertyName, String value) {
+
+        if (propertyName == null) {
+
+            throw new IllegalArgumentException("null property name");
+        }
+
+        if (value == null) {
+
+            throw new IllegalArgumentException("null value");
+        }
+
+        return new Equality(propertyName, value);
+    }
+
+    /**
+     * The value of the given numeric (int, long, float or double) field compares with the given value as indicated.
+     */
+    public static LinePredicate compare(String propertyName, Comparison comparison, double value) {
+
+        if (propertyName == null) {
+
+            throw new IllegalArgumentException("null property name");
+        }
+
+        if (comparison == null) {
+
+            throw new IllegalArgumentException("null comparison");
+        }
+
+        return new NumericComparison(propertyName, comparison, value);
+    }
+
+    /**
+     * The event timestamp is in the [from, to) interval.
+     *
+     * @param from the inclusive lower bound, in milliseconds. Null for no lower bound.
+     * @param to the exclusive upper bound, in milliseconds. Null for no upper bound.
+     */
+    public static LinePredicate timeRange(Long from, Long to) {
+
+        if (from != null && to != null && from > to) {
+
+            throw new IllegalArgumentException("invalid time range [" + from + ", " + to + ")");
+        }
+
+        return new TimeRange(from, to);
+    }
+
+    /**
+     * All the given predicates are true.
+     */
+    public static LinePredicate and(LinePredicate... predicates) {
+
+        if (predicates == null || predicates.length == 0) {
+
+            throw new IllegalArgumentException("no predicates");
+        }
+
+        for(LinePredicate p: predicates) {
+
+            if (p == null) {
+
+                throw new IllegalArgumentException("null predicate");
+            }
+        }
+
+        return new Conjunction(Arrays.asList(predicates));
+    }
+
+    private static boolean isNumeric(Class type) {
+
+        return type == Integer.class || type == Long.class || type == Float.class || type == Double.class;
+    }
+
+    private static boolean isIntegral(Class type) {
+
+        return type == Integer.class || type == Long.class;
+    }
+
+    /**
+     * @return the index of the column that carries the given non-timestamp field, or -1.
+     */
+    private static int indexOf(ConversionPlan plan, String name) {
+
+        String[] names = plan.getNames();
+
+        for(int i = 0; i < names.length; i ++) {
+
+            if (i != plan.getTimestampIndex() && names[i].equals(name)) {
+
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    private LinePredicate() {
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    /**
+     * @return the predicate compiled for the given format, or null if the predicate can never reject a line of
+     * that format.
+     */
+    abstract Filter compile(ConversionPlan plan);
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    public enum Comparison {
+
+        EQ, NE, LT, LE, GT, GE;
+
+        /**
+         * @param c the result of comparing the column value with the predicate value.
+         */
+        boolean test(int c) {
+
+            switch(this) {
+
+                case EQ: return c == 0;
+                case NE: return c != 0;
+                case LT: return c < 0;
+                case LE: return c <= 0;
+                case GT: return c > 0;
+                default: return c >= 0;
+            }
+        }
+    }
+
+    /**
+     * A predicate compiled for a specific format. Instances are not thread safe.
+     */
+    interface Filter {
+
+        /**
+         * @return true if the line certainly does not satisfy the predicate.
+         */
+        boolean rejects(CSVTokenRanges tokens);
+    }
+
+    private static final class Equality extends LinePredicate {
+
+        private final String name;
+        private final String value;
+
+        private Equality(String name, String value) {
+
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        Filter compile(ConversionPlan plan) {
+
+            int index = indexOf(plan, name);
+
+            if (index == -1) {
+
+                return null;
+            }
+
+            Class type = plan.getFields()[index].getType();
+
+            if (type == String.class) {
+
+                return new StringEqualityFilter(index, value);
+            }
+
+            if (!isNumeric(type)) {
+
+                return null;
+            }
+
+            NumberParser p = new NumberParser();
+
+            if (p.parseDouble(value, 0, value.length()) != NumberParser.Status.OK) {
+
+                return null;
+            }
+
+            return new NumericFilter(index, type, Comparison.EQ, p.getDouble());
+        }
+
+        @Override
+        public String toString() {
+
+            return name + " == \"" + value + "\"";
+        }
+    }
+
+    private static final class NumericComparison extends LinePredicate {
+
+        private final String name;
+        private final Comparison comparison;
+        private final double value;
+
+        private NumericComparison(String name, Comparison comparison, double value) {
+
+            this.name = name;
+            this.comparison = comparison;
+            this.value = value;
+        }
+
+        @Override
+        Filter compile(ConversionPlan plan) {
+
+            int index = indexOf(plan, name);
+
+            if (index == -1) {
+
+                return null;
+            }
+
+            Class type = plan.getFields()[index].getType();
+
+            if (!isNumeric(type) || Double.isNaN(value)) {
+
+                return null;
+            }
+
+            return new NumericFilter(index, type, comparison, value);
+        }
+
+        @Override
+        public String toString() {
+
+            return name + " " + comparison + " " + value;
+        }
+    }
+
+    private static final class TimeRange extends LinePredicate {
+
+        private final Long from;
+        private final Long to;
+
+        private TimeRange(Long from, Long to) {
+
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        Filter compile(ConversionPlan plan) {
+
+            int index = plan.getTimestampIndex();
+
+            if (index == -1 || (from == null && to == null)) {
+
+                return null;
+            }
+
+            FieldConverter c = plan.getConverters()[index];
+
+            if (!(c instanceof TimestampConverter)) {
+
+                return null;
+            }
+
+            return new TimeRangeFilter(index, (TimestampConverter)c, from, to);
+        }
+
+        @Override
+        public String toString() {
+
+            return "time in [" + from + ", " + to + ")";
+        }
+    }
+
+    private static final class Conjunction extends LinePredicate {
+
+        private final List<LinePredicate> predicates;
+
+        private Conjunction(List<LinePredicate> predicates) {
+
+            this.predicates = predicates;
+        }
+
+        @Override
+        Filter compile(ConversionPlan plan) {
+
+            List<Filter> filters = new ArrayList<>();
+
+            for(LinePredicate p: predicates) {
+
+                Filter f = p.compile(plan);
+
+                if (f != null) {
+
+                    filters.add(f);
+                }
+            }
+
+            if (filters.isEmpty()) {
+
+                return null;
+            }
+
+            if (filters.size() == 1) {
+
+                return filters.get(0);
+            }
+
+            Filter[] a = filters.toArray(new Filter[filters.size()]);
+
+            return tokens -> {
+
+                for(Filter f: a) {
+
+                    if (f.rejects(tokens)) {
+
+                        return true;
+                    }
+                }
+
+                return false;
+            };
+        }
+
+        @Override
+        public String toString() {
+
+            return "and" + predicates;
+        }
+    }
+
+    private static final class StringEqualityFilter implements Filter {
+
+        private final int index;
+        private final String value;
+
+        //
+        // the UTF-8 bytes of the value, as exposed by Utf8Line#charAt()
+        //
+        private final char[] utf8;
+
+        private StringEqualityFilter(int index, String value) {
+
+            this.index = index;
+            this.value = value;
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+            this.utf8 = new char[bytes.length];
+
+            for(int i = 0; i < bytes.length; i ++) {
+
+                utf8[i] = (char)(bytes[i] & 0xFF);
+            }
+        }
+
+        @Override
+        public boolean rejects(CSVTokenRanges tokens) {
+
+            if (index >= tokens.size() || tokens.isNull(index)) {
+
+                return false;
+            }
+
+            CharSequence line = tokens.getLine();
+
+            int start = tokens.getStart(index);
+            int length = tokens.getEnd(index) - start;
+
+            if (line instanceof Utf8Line) {
+
+                if (length != utf8.length) {
+
+                    return true;
+                }
+
+                for(int i = 0; i < length; i ++) {
+
+                    if (line.charAt(start + i) != utf8[i]) {
+
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+
+            if (length != value.length()) {
+
+                return true;
+            }
+
+            for(int i = 0; i < length; i ++) {
+
+                if (line.charAt(start + i) != value.charAt(i)) {
+
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    private static final class NumericFilter implements Filter {
+
+        private final int index;
+        private final Class type;
+        private final Comparison comparison;
+        private final double value;
+
+        //
+        // integral columns are compared as longs with integral values, so large values are compared exactly
+        //
+        private final boolean integral;
+
+        private final NumberParser parser;
+
+        /**
+         * @param type the column type: Integer, Long, Float or Double.
+         */
+        private NumericFilter(int index, Class type, Comparison comparison, double value) {
+
+            this.index = index;
+            this.type = type;
+            this.comparison = comparison;
+            this.value = value;
+            this.integral = isIntegral(type) && value == Math.rint(value) &&
+                    value >= Long.MIN_VALUE && value < Long.MAX_VALUE;
+            this.parser = new NumberParser();
+        }
+
+        @Override
+        public boolean rejects(CSVTokenRanges tokens) {
+
+            if (index >= tokens.size() || tokens.isNull(index)) {
+
+                return false;
+            }
+
+            CharSequence line = tokens.getLine();
+            int start = tokens.getStart(index);
+            int end = tokens.getEnd(index);
+
+            //
+            // the token is parsed as the column converter parses it, a token the converter would reject is kept, so
+            // the conversion reports it
+            //
+
+            double d;
+
+            if (type == Integer.class) {
+
+                if (parser.parseInt(line, start, end) != NumberParser.Status.OK) {
+
+                    return false;
+                }
+
+                d = parser.getInt();
+            }
+            else if (type == Long.class) {
+
+                if (parser.parseLong(line, start, end) != NumberParser.Status.OK) {
+
+                    return false;
+                }
+
+                if (integral) {
+
+                    return !comparison.test(Long.compare(parser.getLong(), (long)value));
+                }
+
+                d = parser.getLong();
+            }
+            else if (type == Float.class) {
+
+                if (parser.parseFloat(line, start, end) != NumberParser.Status.OK) {
+
+                    return false;
+                }
+
+                float v = parser.getFloat();
+
+                if (Float.isNaN(v)) {
+
+                    return false;
+                }
+
+                //
+                // the value may be compared as float or as double, the line is only rejected if neither matches
+                //
+
+                if (comparison.test(compare(v, (float)value))) {
+
+                    return false;
+                }
+
+                d = v;
+            }
+            else {
+
+                if (parser.parseDouble(line, start, end) != NumberParser.Status.OK) {
+
+                    return false;
+                }
+
+                d = parser.getDouble();
+            }
+
+            if (Double.isNaN(d)) {
+
+                return false;
+            }
+
+            return !comparison.test(compare(d, value));
+        }
+
+        /**
+         * Unlike Double.compare(), 0.0 and -0.0 compare as equal.
+         */
+        private static int compare(double a, double b) {
+
+            return a == b ? 0 : Double.compare(a, b);
+        }
+    }
+
+    private static final class TimeRangeFilter implements Filter {
+
+        private final int index;
+        private final TimestampConverter converter;
+        private final long from;
+        private final long to;
+
+        private TimeRangeFilter(int index, TimestampConverter converter, Long from, Long to) {
+
+            this.index = index;
+            this.converter = converter;
+            this.from = from == null ? Long.MIN_VALUE : from;
+            this.to = to == null ? Long.MAX_VALUE : to;
+        }
+
+        @Override
+        public boolean rejects(CSVTokenRanges tokens) {
+
+            if (index >= tokens.size() || tokens.isNull(index)) {
+
+                return false;
+            }
+
+            long time;
+
+            try {
+
+                time = converter.getParser().parse(tokens.getLine(), tokens.getStart(index), tokens.getEnd(index));
+            }
+            catch(IllegalArgumentException e) {
+
+                //
+                // the conversion will report it
+                //
+
+                return false;
+            }
+
+            return time < from || (to != Long.MAX_VALUE && time >= to);
+        }
+    }
+
+}
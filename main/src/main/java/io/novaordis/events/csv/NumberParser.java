@@ -0,0 +1,698 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+/**
+ * Parses int, long, float and double values directly from a character range, without materializing the token as a
+ * String and without throwing exceptions for invalid input: the outcome is reported by the returned Status, and the
+ * value is available via the corresponding getter after a successful parsing. Undecoded UTF-8 content can be parsed via
+ * Utf8Line, which exposes the bytes as a CharSequence.
+ *
+ * The accepted syntax is the syntax accepted by the corresponding java.lang methods (Integer.parseInt(),
+ * Long.parseLong(), Float.parseFloat() and Double.parseDouble()), and the results are identical. Floating point
+ * values whose decimal mantissa and exponent are small enough to be converted with a single correctly rounded operation
+ * (Clinger's fast path) are computed directly, the others are delegated to the java.lang methods, after the syntax was
+ * validated, so invalid input never gets to throw.
+ *
+ * Instances are not thread safe, use getInstance() to get the calling thread's instance.
+ *
+ * @see Utf8Line
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class NumberParser {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final ThreadLocal<NumberParser> INSTANCE = ThreadLocal.withInitial(NumberParser::new);
+
+    /**
+     * The largest mantissa that can be represented exactly as a double (2^53), respectively as a float (2^24).
+     */
+    private static final long MAX_EXACT_DOUBLE_MANTISSA = 1L << 53;
+    private static final long MAX_EXACT_FLOAT_MANTISSA = 1L << 24;
+
+    /**
+     * Mantissas with more digits than this are not accumulated, the value is delegated to the java.lang methods.
+     */
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    /**
+     * Larger exponents are not accumulated, they are well outside the range of double anyway.
+     */
+    private static final int MAX_EXPONENT = 100000;
+
+    /**
+     * The powers of ten that are exactly representable as double, respectively as float.
+     */
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+
+    private static final long[] LONG_POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L, 10000000000L,
+            100000000000L, 1000000000000L, 10000000000000L, 100000000000000L, 1000000000000000L };
+
+    //
+    // the kind of floating point literal found by scan()
+    //
+
+    private static final int DECIMAL = 0;
+    private static final int NAN = 1;
+    private static final int INFINITY = 2;
+    private static final int HEXADECIMAL = 3;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the calling thread's instance.
+     */
+    public static NumberParser getInstance() {
+
+        return INSTANCE.get();
+    }
+
+    /**
+     * Like Character.digit(c, 10), with a fast path for ASCII.
+     */
+    private static int digit(char c) {
+
+        int d = c - '0';
+
+        if (d >= 0 && d <= 9) {
+
+            return d;
+        }
+
+        return c < 0x80 ? -1 : Character.digit(c, 10);
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private int intValue;
+    private long longValue;
+    private float floatValue;
+    private double doubleValue;
+
+    //
+    // floating point scanning state
+    //
+
+    private int kind;
+    private boolean negative;
+    private long mantissa;
+    private int mantissaDigits;
+    private int exponent;
+    private int trimmedStart;
+    private int trimmedEnd;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public NumberParser() {
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Parses the characters between start (inclusive) and end (exclusive) as Integer.parseInt() would. The value is
+     * available via getInt() if the parsing is successful.
+     *
+     * @return OK, EMPTY, INVALID or OUT_OF_RANGE.
+     */
+    public Status parseInt(CharSequence s, int start, int end) {
+
+        Status status = parseLong(s, start, end);
+
+        if (status != Status.OK) {
+
+            return status;
+        }
+
+        if (longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE) {
+
+            return Status.OUT_OF_RANGE;
+        }
+
+        intValue = (int)longValue;
+
+        return Status.OK;
+    }
+
+    /**
+     * Parses the characters between start (inclusive) and end (exclusive) as Long.parseLong() would. The value is
+     * available via getLong() if the parsing is successful.
+     *
+     * @return OK, EMPTY, INVALID or OUT_OF_RANGE.
+     */
+    public Status parseLong(CharSequence s, int start, int end) {
+
+        if (start >= end) {
+
+            return Status.EMPTY;
+        }
+
+        int i = start;
+
+        boolean negative = false;
+
+        //
+        // the value is accumulated negatively, to handle Long.MIN_VALUE
+        //
+
+        long limit = -Long.MAX_VALUE;
+
+        char c = s.charAt(i);
+
+        if (c == '-' || c == '+') {
+
+            if (c == '-') {
+
+                negative = true;
+                limit = Long.MIN_VALUE;
+            }
+
+            if (++i == end) {
+
+                return Status.INVALID;
+            }
+        }
+
+        long multiplicationLimit = limit / 10;
+
+        long result = 0;
+
+        boolean overflow = false;
+
+        for(; i < end; i ++) {
+
+            int digit = digit(s.charAt(i));
+
+            if (digit < 0) {
+
+                return Status.INVALID;
+            }
+
+            if (overflow) {
+
+                //
+                // keep going, an invalid character has precedence over the overflow
+                //
+
+                continue;
+            }
+
+            if (result < multiplicationLimit) {
+
+                overflow = true;
+                continue;
+            }
+
+            result *= 10;
+
+            if (result < limit + digit) {
+
+                overflow = true;
+                continue;
+            }
+
+            result -= digit;
+        }
+
+        if (overflow) {
+
+            return Status.OUT_OF_RANGE;
+        }
+
+        longValue = negative ? result : -result;
+
+        return Status.OK;
+    }
+
+    /**
+     * Parses the characters between start (inclusive) and end (exclusive) as Double.parseDouble() would. The value is
+     * available via getDouble() if the parsing is successful.
+     *
+     * @return OK, EMPTY or INVALID. Out of range values are converted to infinity or zero, as Double.parseDouble()
+     * does.
+     */
+    public Status parseDouble(CharSequence s, int start, int end) {
+
+        Status status = scan(s, start, end);
+
+        if (status != Status.OK) {
+
+            return status;
+        }
+
+        if (kind == NAN) {
+
+            doubleValue = Double.NaN;
+        }
+        else if (kind == INFINITY) {
+
+            doubleValue = negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        else if (kind == DECIMAL && mantissaDigits <= MAX_MANTISSA_DIGITS && fastPathDouble()) {
+
+            if (negative) {
+
+                doubleValue = -doubleValue;
+            }
+        }
+        else {
+
+            try {
+
+                doubleValue = Double.parseDouble(s.subSequence(trimmedStart, trimmedEnd).toString());
+            }
+            catch(NumberFormatException e) {
+
+                //
+                // only reachable for hexadecimal literals, the decimal syntax was already validated
+                //
+
+                return Status.INVALID;
+            }
+        }
+
+        return Status.OK;
+    }
+
+    /**
+     * Parses the characters between start (inclusive) and end (exclusive) as Float.parseFloat() would. The value is
+     * available via getFloat() if the parsing is successful.
+     *
+     * @return OK, EMPTY or INVALID. Out of range values are converted to infinity or zero, as Float.parseFloat()
+     * does.
+     */
+    public Status parseFloat(CharSequence s, int start, int end) {
+
+        Status status = scan(s, start, end);
+
+        if (status != Status.OK) {
+
+            return status;
+        }
+
+        if (kind == NAN) {
+
+            floatValue = Float.NaN;
+        }
+        else if (kind == INFINITY) {
+
+            floatValue = negative ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+        }
+        else if (kind == DECIMAL && mantissaDigits <= MAX_MANTISSA_DIGITS && fastPathFloat()) {
+
+            if (negative) {
+
+                floatValue = -floatValue;
+            }
+        }
+        else {
+
+            //
+            // parsing the double first and then narrowing it would round twice, so we delegate to Float.parseFloat()
+            //
+
+            try {
+
+                floatValue = Float.parseFloat(s.subSequence(trimmedStart, trimmedEnd).toString());
+            }
+            catch(NumberFormatException e) {
+
+                return Status.INVALID;
+            }
+        }
+
+        return Status.OK;
+    }
+
+    /**
+     * @return the result of the last successful parseInt().
+     */
+    public int getInt() {
+
+        return intValue;
+    }
+
+    /**
+     * @return the result of the last successful parseLong() or parseInt().
+     */
+    public long getLong() {
+
+        return longValue;
+    }
+
+    /**
+     * @return the result of the last successful parseFloat().
+     */
+    public float getFloat() {
+
+        return floatValue;
+    }
+
+    /**
+     * @return the result of the last successful parseDouble().
+     */
+    public double getDouble() {
+
+        return doubleValue;
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * Validates the floating point syntax and collects the sign, the decimal mantissa (if it has at most 18 significant
+     * digits) and the decimal exponent. The syntax is the one accepted by Double.parseDouble(): optional blank edges,
+     * optional sign, "NaN", "Infinity", a hexadecimal literal or a decimal literal with an optional exponent and an
+     * optional float/double type suffix.
+     */
+    private Status scan(CharSequence s, int start, int end) {
+
+        //
+        // Double.parseDouble() ignores the characters smaller or equal to space on both edges
+        //
+
+        while(start < end && s.charAt(start) <= ' ') {
+
+            start ++;
+        }
+
+        while(end > start && s.charAt(end - 1) <= ' ') {
+
+            end --;
+        }
+
+        if (start == end) {
+
+            return Status.EMPTY;
+        }
+
+        trimmedStart = start;
+        trimmedEnd = end;
+        negative = false;
+        mantissa = 0;
+        mantissaDigits = 0;
+        exponent = 0;
+
+        int i = start;
+
+        char c = s.charAt(i);
+
+        if (c == '-' || c == '+') {
+
+            negative = c == '-';
+
+            if (++i == end) {
+
+                return Status.INVALID;
+            }
+
+            c = s.charAt(i);
+        }
+
+        if (c == 'N') {
+
+            kind = NAN;
+            return matches(s, i, end, "NaN") ? Status.OK : Status.INVALID;
+        }
+
+        if (c == 'I') {
+
+            kind = INFINITY;
+            return matches(s, i, end, "Infinity") ? Status.OK : Status.INVALID;
+        }
+
+        if (c == '0' && i + 1 < end && (s.charAt(i + 1) == 'x' || s.charAt(i + 1) == 'X')) {
+
+            kind = HEXADECIMAL;
+            return Status.OK;
+        }
+
+        kind = DECIMAL;
+
+        int digits = 0;
+
+        boolean fraction = false;
+
+        for(; i < end; i ++) {
+
+            c = s.charAt(i);
+
+            if (c == '.') {
+
+                if (fraction) {
+
+                    return Status.INVALID;
+                }
+
+                fraction = true;
+                continue;
+            }
+
+            int digit = c - '0';
+
+            if (digit < 0 || digit > 9) {
+
+                break;
+            }
+
+            digits ++;
+
+            if (mantissaDigits < MAX_MANTISSA_DIGITS) {
+
+                if (mantissa != 0 || digit != 0) {
+
+                    mantissa = mantissa * 10 + digit;
+                    mantissaDigits ++;
+                }
+
+                if (fraction) {
+
+                    exponent --;
+                }
+            }
+            else if (mantissa != 0 || digit != 0) {
+
+                //
+                // too many significant digits for the fast path, we only validate the rest
+                //
+
+                mantissaDigits ++;
+            }
+        }
+
+        if (digits == 0) {
+
+            return Status.INVALID;
+        }
+
+        if (i < end && (c == 'e' || c == 'E')) {
+
+            if (++i == end) {
+
+                return Status.INVALID;
+            }
+
+            boolean negativeExponent = false;
+
+            c = s.charAt(i);
+
+            if (c == '-' || c == '+') {
+
+                negativeExponent = c == '-';
+
+                if (++i == end) {
+
+                    return Status.INVALID;
+                }
+            }
+
+            int exponentDigits = 0;
+            int explicitExponent = 0;
+
+            for(; i < end; i ++) {
+
+                c = s.charAt(i);
+
+                int digit = c - '0';
+
+                if (digit < 0 || digit > 9) {
+
+                    break;
+                }
+
+                exponentDigits ++;
+
+                if (explicitExponent < MAX_EXPONENT) {
+
+                    explicitExponent = explicitExponent * 10 + digit;
+                }
+            }
+
+            if (exponentDigits == 0) {
+
+                return Status.INVALID;
+            }
+
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (i < end && (c == 'f' || c == 'F' || c == 'd' || c == 'D')) {
+
+            i ++;
+        }
+
+        return i == end ? Status.OK : Status.INVALID;
+    }
+
+    /**
+     * Clinger's fast path: if the mantissa and the power of ten are both exactly representable as doubles, the result
+     * of a single (correctly rounded) multiplication or division is the correctly rounded value of the literal.
+     *
+     * @return false if the value cannot be computed on the fast path.
+     */
+    private boolean fastPathDouble() {
+
+        if (mantissa == 0) {
+
+            doubleValue = 0d;
+            return true;
+        }
+
+        if (mantissa > MAX_EXACT_DOUBLE_MANTISSA) {
+
+            return false;
+        }
+
+        int e = exponent;
+
+        if (e < 0) {
+
+            if (e < -22) {
+
+                return false;
+            }
+
+            doubleValue = (double)mantissa / DOUBLE_POWERS_OF_TEN[-e];
+            return true;
+        }
+
+        long m = mantissa;
+
+        if (e > 22) {
+
+            //
+            // the excess can be moved into the mantissa if the mantissa stays exact
+            //
+
+            int excess = e - 22;
+
+            if (excess >= LONG_POWERS_OF_TEN.length || m > MAX_EXACT_DOUBLE_MANTISSA / LONG_POWERS_OF_TEN[excess]) {
+
+                return false;
+            }
+
+            m *= LONG_POWERS_OF_TEN[excess];
+            e = 22;
+        }
+
+        doubleValue = (double)m * DOUBLE_POWERS_OF_TEN[e];
+        return true;
+    }
+
+    /**
+     * The float equivalent of fastPathDouble().
+     */
+    private boolean fastPathFloat() {
+
+        if (mantissa == 0) {
+
+            floatValue = 0f;
+            return true;
+        }
+
+        if (mantissa > MAX_EXACT_FLOAT_MANTISSA || exponent < -10 || exponent > 10) {
+
+            return false;
+        }
+
+        if (exponent < 0) {
+
+            floatValue = (float)mantissa / FLOAT_POWERS_OF_TEN[-exponent];
+        }
+        else {
+
+            floatValue = (float)mantissa * FLOAT_POWERS_OF_TEN[exponent];
+        }
+
+        return true;
+    }
+
+    private static boolean matches(CharSequence s, int start, int end, String literal) {
+
+        if (end - start != literal.length()) {
+
+            return false;
+        }
+
+        for(int i = 0; i < literal.length(); i ++) {
+
+            if (s.charAt(start + i) != literal.charAt(i)) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    public enum Status {
+
+        /**
+         * The value was parsed successfully and it is available via the corresponding getter.
+         */
+        OK,
+
+        /**
+         * The range is empty (or blank, for floating point values).
+         */
+        EMPTY,
+
+        /**
+         * The range does not contain a valid literal.
+         */
+        INVALID,
+
+        /**
+         * The range contains a valid integer literal, which does not fit the requested type.
+         */
+        OUT_OF_RANGE
+    }
+
+}
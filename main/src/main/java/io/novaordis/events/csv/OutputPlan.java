@@ -0,0 +1,489 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.EventProperty;
+import io.novaordis.events.api.event.MapProperty;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.TimedEvent;
+import io.novaordis.events.api.metric.MetricDefinition;
+import io.novaordis.events.csv.event.field.CSVField;
+import io.novaordis.events.csv.event.field.CSVFieldImpl;
+import io.novaordis.events.csv.event.field.MetricDefinitionBasedCSVField;
+import io.novaordis.utilities.time.Timestamp;
+
+/**
+ * The output format of a CSVFormatter, compiled into a list of per-column value extractors. The field type dispatch,
+ * the metric definition address resolution and the "map.key" name splitting happen once, when the plan is compiled,
+ * and not for each event.
+ *
+ * The metric definition columns that share a metric source address are grouped: the second level event for the
+ * address is resolved once per event and all the group's metrics are pulled from it in one pass, using the positions
+ * where they were found in the previous event, validated by name, instead of a lookup for each metric.
+ *
+ * A property column is externalized from the property with the column's name. A "map.key" column is externalized from
+ * the property with the full name, if the event has one, otherwise from the value stored under the key in the map
+ * property, or from the whole property if it is not a map. A metric definition column is externalized from the metric
+ * with the definition's ID, of the second level event carried by the event property named after the definition's
+ * metric source address. A value the event does not carry is rendered as an empty string.
+ *
+ * @see CSVFormatter#setFormat(CSVFormat)
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+class OutputPlan {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final CSVField[] fields;
+
+    private final ColumnExtractor[] extractors;
+
+    private final MetricGroup[] metricGroups;
+
+    //
+    // true for the columns whose values are produced by a metric group
+    //
+
+    private final boolean[] grouped;
+
+    //
+    // CSVFieldImpl's modification count when the plan was compiled, the plan copies the field names
+    //
+    private final int fieldModificationCount;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    OutputPlan(List<CSVField> fields) {
+
+        this.fieldModificationCount = CSVFieldImpl.getModificationCount();
+        this.fields = fields.toArray(new CSVField[fields.size()]);
+        this.extractors = new ColumnExtractor[this.fields.length];
+
+        for(int i = 0; i < this.fields.length; i ++) {
+
+            extractors[i] = compile(this.fields[i]);
+        }
+
+        this.grouped = new boolean[extractors.length];
+        this.metricGroups = groupMetrics(extractors, grouped);
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    /**
+     * Writes the comma-separated values of the event's properties that correspond to the plan's columns.
+     */
+    void externalize(Event event, Appendable out) throws IOException {
+
+        String[] groupValues = null;
+
+        if (metricGroups.length > 0) {
+
+            groupValues = new String[extractors.length];
+
+            for(MetricGroup g: metricGroups) {
+
+                g.extract(event, groupValues);
+            }
+        }
+
+        for(int i = 0; i < extractors.length; i ++) {
+
+            if (i > 0) {
+
+                out.append(", ");
+            }
+
+            String value = grouped[i] ? groupValues[i] : extractors[i].extract(event);
+
+            out.append(value == null ? CSVFormatter.NULL_EXTERNALIZATION : value);
+        }
+    }
+
+    /**
+     * @return the underlying storage, which must not be modified.
+     */
+    ColumnExtractor[] getExtractors() {
+
+        return extractors;
+    }
+
+    /**
+     * @return the underlying storage, which must not be modified.
+     */
+    MetricGroup[] getMetricGroups() {
+
+        return metricGroups;
+    }
+
+    /**
+     * @return true if the plan was compiled from the given fields, in the same order, and no field name or format
+     * changed since.
+     */
+    boolean isCompiledFrom(List<CSVField> fields) {
+
+        if (fields.size() != this.fields.length || fieldModificationCount != CSVFieldImpl.getModificationCount()) {
+
+            return false;
+        }
+
+        for(int i = 0; i < this.fields.length; i ++) {
+
+            if (fields.get(i) != this.fields[i]) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static ColumnExtractor compile(CSVField field) {
+
+        if (field.isTimestamp()) {
+
+            return new TimestampExtractor();
+        }
+
+        if (field instanceof MetricDefinitionBasedCSVField) {
+
+            MetricDefinition md = ((MetricDefinitionBasedCSVField)field).getMetricDefinition();
+
+            return new MetricDefinitionExtractor(md.getMetricSourceAddress().getLiteral(), md.getId());
+        }
+
+        String name = field.getName();
+
+        int dot = name.indexOf('.');
+
+        if (dot == -1) {
+
+            return new PropertyExtractor(name);
+        }
+
+        return new MapKeyExtractor(name, name.substring(0, dot), name.substring(dot + 1));
+    }
+
+    /**
+     * Groups the metric definition columns by address. Addresses with a single metric are not grouped, the column's
+     * own extractor is cheaper.
+     *
+     * @param grouped output, set to true for the columns covered by the returned groups.
+     */
+    private static MetricGroup[] groupMetrics(ColumnExtractor[] extractors, boolean[] grouped) {
+
+        Map<String, List<Integer>> columnsByAddress = new LinkedHashMap<>();
+
+        for(int i = 0; i < extractors.length; i ++) {
+
+            if (extractors[i] instanceof MetricDefinitionExtractor) {
+
+                String addressLiteral = ((MetricDefinitionExtractor)extractors[i]).addressLiteral;
+                columnsByAddress.computeIfAbsent(addressLiteral, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<MetricGroup> groups = new ArrayList<>();
+
+        for(Map.Entry<String, List<Integer>> e: columnsByAddress.entrySet()) {
+
+            List<Integer> columns = e.getValue();
+
+            if (columns.size() < 2) {
+
+                continue;
+            }
+
+            int[] c = new int[columns.size()];
+            String[] metricIds = new String[c.length];
+
+            for(int j = 0; j < c.length; j ++) {
+
+                c[j] = columns.get(j);
+                metricIds[j] = ((MetricDefinitionExtractor)extractors[c[j]]).metricId;
+                grouped[c[j]] = true;
+            }
+
+            groups.add(new MetricGroup(e.getKey(), metricIds, c));
+        }
+
+        return groups.toArray(new MetricGroup[groups.size()]);
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Extracts the string representation of a column value from an event.
+     */
+    interface ColumnExtractor {
+
+        /**
+         * @return the externalized value, or null if the event does not carry it.
+         */
+        String extract(Event event);
+    }
+
+    static final class TimestampExtractor implements ColumnExtractor {
+
+        @Override
+        public String extract(Event event) {
+
+            if (!(event instanceof TimedEvent)) {
+
+                return null;
+            }
+
+            Timestamp timestamp = ((TimedEvent)event).getTimestamp();
+
+            if (timestamp == null) {
+
+                return null;
+            }
+
+            //
+            // timestamps that carry their own offset are rendered in that offset by Timestamp.format()
+            //
+
+            return timestamp.getTimeOffset() == null ?
+                    TimestampFormatter.getDefault().format(timestamp.getTime()) :
+                    timestamp.format(Constants.getDefaultTimestampFormat());
+        }
+    }
+
+    static final class PropertyExtractor implements ColumnExtractor {
+
+        private final String name;
+
+        PropertyExtractor(String name) {
+
+            this.name = name;
+        }
+
+        @Override
+        public String extract(Event event) {
+
+            Property p = event.getProperty(name);
+
+            return p == null ? null : p.externalizeValue();
+        }
+    }
+
+    /**
+     * A "map.key" name: a property with the full name takes precedence, otherwise the key is looked up in the map
+     * property.
+     */
+    static final class MapKeyExtractor implements ColumnExtractor {
+
+        private final String name;
+        private final String mapName;
+        private final String key;
+
+        MapKeyExtractor(String name, String mapName, String key) {
+
+            this.name = name;
+            this.mapName = mapName;
+            this.key = key;
+        }
+
+        @Override
+        public String extract(Event event) {
+
+            Property p = event.getProperty(name);
+
+            if (p != null) {
+
+                return p.externalizeValue();
+            }
+
+            p = event.getProperty(mapName);
+
+            if (p instanceof MapProperty) {
+
+                return ((MapProperty)p).externalizeValue(key);
+            }
+
+            return p == null ? null : p.externalizeValue();
+        }
+    }
+
+    /**
+     * Two-level event hierarchy: the top level event carries event properties named after the metric source
+     * addresses, and the second level events carry the metrics, named after the metric definition IDs.
+     */
+    static final class MetricDefinitionExtractor implements ColumnExtractor {
+
+        private final String addressLiteral;
+        private final String metricId;
+
+        MetricDefinitionExtractor(String addressLiteral, String metricId) {
+
+            this.addressLiteral = addressLiteral;
+            this.metricId = metricId;
+        }
+
+        @Override
+        public String extract(Event event) {
+
+            EventProperty ep = event.getEventProperty(addressLiteral);
+
+            if (ep == null) {
+
+                return null;
+            }
+
+            Property p = ep.getEvent().getProperty(metricId);
+
+            return p == null ? null : p.externalizeValue();
+        }
+    }
+
+    /**
+     * The metric definition columns that share a metric source address.
+     *
+     * The positions at which the metrics were found in the previous second level event are remembered. They are only
+     * hints: a position is used only if the property found there has the expected name, so concurrent or stale updates
+     * cannot produce wrong values.
+     */
+    static final class MetricGroup {
+
+        private final String addressLiteral;
+        private final String[] metricIds;
+        private final int[] columns;
+        private final int[] positions;
+
+        MetricGroup(String addressLiteral, String[] metricIds, int[] columns) {
+
+            this.addressLiteral = addressLiteral;
+            this.metricIds = metricIds;
+            this.columns = columns;
+            this.positions = new int[metricIds.length];
+        }
+
+        /**
+         * Stores the externalized value of each metric in values[column]. The values of the metrics the event does not
+         * carry are left null.
+         */
+        void extract(Event event, String[] values) {
+
+            EventProperty ep = event.getEventProperty(addressLiteral);
+
+            if (ep == null) {
+
+                return;
+            }
+
+            Event secondLevelEvent = ep.getEvent();
+
+            List<Property> properties = secondLevelEvent.getProperties();
+
+            int size = properties.size();
+
+            Map<String, Integer> index = null;
+
+            for(int j = 0; j < metricIds.length; j ++) {
+
+                String metricId = metricIds[j];
+
+                Property p = null;
+
+                int position = positions[j];
+
+                if (position < size) {
+
+                    Property candidate = properties.get(position);
+
+                    if (metricId.equals(candidate.getName())) {
+
+                        p = candidate;
+                    }
+                }
+
+                if (p == null) {
+
+                    if (index == null) {
+
+                        index = index(properties);
+                    }
+
+                    Integer i = index.get(metricId);
+
+                    if (i != null) {
+
+                        positions[j] = i;
+                        p = properties.get(i);
+                    }
+                    else {
+
+                        //
+                        // not among the listed properties, defer to the event
+                        //
+
+                        p = secondLevelEvent.getProperty(metricId);
+                    }
+                }
+
+                values[columns[j]] = p == null ? null : p.externalizeValue();
+            }
+        }
+
+        String getAddressLiteral() {
+
+            return addressLiteral;
+        }
+
+        int size() {
+
+            return metricIds.length;
+        }
+
+        /**
+         * @return the position of the first property with a given name.
+         */
+        private static Map<String, Integer> index(List<Property> properties) {
+
+            Map<String, Integer> index = new HashMap<>();
+
+            for(int i = 0; i < properties.size(); i ++) {
+
+                index.putIfAbsent(properties.get(i).getName(), i);
+            }
+
+            return index;
+        }
+    }
+
+}
@@ -0,0 +1,646 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.TimedEvent;
+import io.novaordis.events.csv.event.CSVHeaders;
+import io.novaordis.events.processing.EventProcessingException;
+import io.novaordis.events.processing.Procedure;
+import io.novaordis.utilities.parsing.ParsingException;
+
+/**
+ * Parses a CSV file on multiple threads. The file is memory-mapped and split into newline-aligned chunks, which are
+ * parsed concurrently, each with its own CSVParser, and the resulting events are delivered to the procedure in the
+ * original line order, with the same line numbers and content a sequential CSVParser would produce.
+ *
+ * Header lines change the format of all the lines that follow them, so the format that governs the beginning of a
+ * chunk depends on the content of all preceding chunks. This is resolved with a parallel pre-pass that only counts
+ * lines and identifies the last header line of each chunk, which is much cheaper than parsing. A header line that is
+ * not followed by a data line in its own chunk is carried over and issued, as the sequential parser would, before the
+ * first data line of a subsequent chunk.
+ *
+ * At most 2 * threadCount chunks are parsed ahead of the procedure, so the memory footprint is bounded regardless of
+ * the file size.
+ *
+ * @see CSVParser
+ * @see CSVByteBufferParser
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class ParallelCSVParser {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelCSVParser.class);
+
+    public static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    private static final byte NEWLINE = '\n';
+
+    private static final byte HEADER_LEADER = '#';
+
+    private static final int PROBE_SIZE = 8 * 1024;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Splits the content into chunks that end with a newline (except the last one) and are approximately chunkSize
+     * long.
+     *
+     * @exception IOException if a line is too long to fit in a mappable region.
+     */
+    static List<Chunk> split(FileChannel channel, long chunkSize) throws IOException {
+
+        long size = channel.size();
+
+        List<Chunk> chunks = new ArrayList<>();
+
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+
+        long start = 0;
+
+        while(start < size) {
+
+            long end = start + chunkSize;
+
+            if (end >= size) {
+
+                end = size;
+            }
+            else {
+
+                end = nextLineStart(channel, end - 1, size, probe);
+            }
+
+            if (end - start > Integer.MAX_VALUE) {
+
+                throw new IOException("line longer than " + Integer.MAX_VALUE + " bytes at offset " + start);
+            }
+
+            chunks.add(new Chunk(chunks.size(), start, end));
+
+            start = end;
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Counts the lines of a chunk and records the format specification of its last header line, if any.
+     */
+    static void scan(ByteBuffer buffer, Chunk chunk) {
+
+        int limit = buffer.limit();
+
+        long lineCount = 0;
+        int headerStart = -1;
+        int headerEnd = -1;
+
+        boolean lineStart = true;
+        boolean headerLine = false;
+        int currentLineStart = 0;
+
+        for(int i = 0; i < limit; i ++) {
+
+            byte b = buffer.get(i);
+
+            if (b == NEWLINE) {
+
+                if (headerLine) {
+
+                    headerStart = currentLineStart;
+                    headerEnd = i;
+                }
+
+                lineCount ++;
+                lineStart = true;
+                headerLine = false;
+                currentLineStart = i + 1;
+            }
+            else if (lineStart && (b & 0xFF) > ' ') {
+
+                //
+                // first non-blank byte of the line
+                //
+
+                lineStart = false;
+                headerLine = b == HEADER_LEADER;
+            }
+        }
+
+        if (headerLine) {
+
+            //
+            // unterminated last line
+            //
+
+            headerStart = currentLineStart;
+            headerEnd = limit;
+        }
+
+        chunk.lineCount = lineCount;
+
+        if (headerStart != -1) {
+
+            CharSequence header = CSVParser.trim(new Utf8Line(buffer, headerStart, headerEnd - headerStart));
+            chunk.lastFormatSpecification = header.subSequence(1, header.length()).toString();
+        }
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe)
+            throws IOException {
+
+        while(position < size) {
+
+            probe.clear();
+
+            int n = channel.read(probe, position);
+
+            if (n <= 0) {
+
+                break;
+            }
+
+            for(int i = 0; i < n; i ++) {
+
+                if (probe.get(i) == NEWLINE) {
+
+                    return position + i + 1;
+                }
+            }
+
+            position += n;
+        }
+
+        return size;
+    }
+
+    private static <T> T get(Future<T> future) throws IOException, ParsingException {
+
+        try {
+
+            return future.get();
+        }
+        catch(InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a chunk");
+        }
+        catch(ExecutionException e) {
+
+            Throwable t = e.getCause();
+
+            if (t instanceof ParsingException) {
+
+                throw (ParsingException)t;
+            }
+            else if (t instanceof IOException) {
+
+                throw (IOException)t;
+            }
+            else if (t instanceof RuntimeException) {
+
+                throw (RuntimeException)t;
+            }
+            else if (t instanceof Error) {
+
+                throw (Error)t;
+            }
+
+            throw new IllegalStateException(t);
+        }
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    //
+    // the format in effect at the beginning of the file, may be null
+    //
+    private String formatSpecification;
+
+    private int threadCount;
+
+    private long chunkSize;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    /**
+     * Introspection at the beginning of the file, as many threads as available processors.
+     */
+    public ParallelCSVParser() throws IllegalArgumentException, CSVFormatException {
+
+        this(null, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param formatSpecification the format in effect at the beginning of the file. May be null, same semantics as
+     *                            for CSVParser.
+     *
+     * @throws IllegalArgumentException on an invalid thread count, or if the format specification cannot be used to
+     * build a CSV format.
+     *
+     * @throws CSVFormatException if the format specification contains an incorrectly specified field.
+     *
+     * @see CSVParser#CSVParser(String)
+     */
+    public ParallelCSVParser(String formatSpecification, int threadCount)
+            throws IllegalArgumentException, CSVFormatException {
+
+        if (threadCount < 1) {
+
+            throw new IllegalArgumentException("invalid thread count " + threadCount);
+        }
+
+        if (formatSpecification != null) {
+
+            //
+            // fail early, the same way CSVParser would
+            //
+
+            new CSVFormat(formatSpecification);
+        }
+
+        this.formatSpecification = formatSpecification;
+        this.threadCount = threadCount;
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Parses the file and delivers the events to the procedure, in order, one chunk worth of events at a time. The
+     * procedure is invoked on the calling thread. Parsing stops early if the procedure requests it via isExitLoop().
+     * If the procedure implements ReferencedProperties, only the columns it references are converted.
+     *
+     * @exception ParsingException the first parsing failure, in line order. All the events that precede the failing
+     * line are delivered before the failure is reported.
+     */
+    public void parse(File file, Procedure procedure) throws IOException, ParsingException, EventProcessingException {
+
+        if (file == null) {
+
+            throw new IllegalArgumentException("null file");
+        }
+
+        if (procedure == null) {
+
+            throw new IllegalArgumentException("null procedure");
+        }
+
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            List<Chunk> chunks = split(channel, chunkSize);
+
+            if (log.isDebugEnabled()) {
+
+                log.debug(this + " split " + file + " into " + chunks.size() + " chunk(s)");
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount, new WorkerThreadFactory());
+
+            try {
+
+                prePass(channel, chunks, executor);
+
+                parseChunks(channel, chunks, executor, procedure);
+            }
+            finally {
+
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    public int getThreadCount() {
+
+        return threadCount;
+    }
+
+    public long getChunkSize() {
+
+        return chunkSize;
+    }
+
+    /**
+     * The chunk boundaries are aligned to the next newline, so the actual chunk sizes may be slightly larger.
+     */
+    public void setChunkSize(long chunkSize) {
+
+        if (chunkSize < 1) {
+
+            throw new IllegalArgumentException("invalid chunk size " + chunkSize);
+        }
+
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public String toString() {
+
+        return "ParallelCSVParser[" + threadCount + " thread(s)]";
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * Establishes the number of the first line and the governing format for each chunk.
+     */
+    private void prePass(FileChannel channel, List<Chunk> chunks, ExecutorService executor)
+            throws IOException, ParsingException {
+
+        List<Future<Chunk>> futures = new ArrayList<>(chunks.size());
+
+        for(Chunk c: chunks) {
+
+            futures.add(executor.submit(() -> {
+
+                scan(c.map(channel), c);
+                return c;
+            }));
+        }
+
+        long linesBefore = 0;
+        String governing = formatSpecification;
+
+        for(Future<Chunk> f: futures) {
+
+            Chunk c = get(f);
+
+            c.linesBefore = linesBefore;
+            c.formatSpecification = governing;
+
+            linesBefore += c.lineCount;
+
+            if (c.lastFormatSpecification != null) {
+
+                governing = c.lastFormatSpecification;
+            }
+        }
+    }
+
+    private void parseChunks(FileChannel channel, List<Chunk> chunks, ExecutorService executor, Procedure procedure)
+            throws IOException, ParsingException, EventProcessingException {
+
+        Deque<Future<ChunkResult>> inFlight = new ArrayDeque<>();
+
+        //
+        // the chunk parsers only convert the columns the procedure uses, if it declares them
+        //
+        Set<String> projection = procedure instanceof ReferencedProperties ?
+                ((ReferencedProperties)procedure).getReferencedPropertyNames() : null;
+
+        int window = 2 * threadCount;
+        int next = 0;
+
+        //
+        // a header not yet followed by a data line, issued by a previous chunk
+        //
+        CSVHeaders pendingHeader = null;
+
+        while(next < chunks.size() || !inFlight.isEmpty()) {
+
+            while(next < chunks.size() && inFlight.size() < window) {
+
+                Chunk c = chunks.get(next ++);
+                boolean last = next == chunks.size();
+                inFlight.add(executor.submit(() -> parse(channel, c, last, projection)));
+            }
+
+            ChunkResult r = get(inFlight.removeFirst());
+
+            List<Event> events = r.events;
+
+            if (pendingHeader != null && !events.isEmpty()) {
+
+                Event first = events.get(0);
+
+                //
+                // if the chunk starts with a header line, the pending header is discarded, like the sequential parser
+                // does; otherwise it is issued before the first data line, with that line's timestamp
+                //
+
+                if (!(first instanceof CSVHeaders)) {
+
+                    if (first.isTimed()) {
+
+                        pendingHeader.setNextTimedEventTimestamp(((TimedEvent)first).getTime());
+                    }
+
+                    List<Event> tmp = new ArrayList<>(events.size() + 1);
+                    tmp.add(pendingHeader);
+                    tmp.addAll(events);
+                    events = tmp;
+                }
+
+                pendingHeader = null;
+            }
+
+            if (r.pendingHeader != null) {
+
+                pendingHeader = r.pendingHeader;
+            }
+
+            if (!events.isEmpty()) {
+
+                procedure.process(events);
+            }
+
+            if (procedure.isExitLoop()) {
+
+                return;
+            }
+
+            r.rethrowFailure();
+        }
+
+        if (pendingHeader != null) {
+
+            procedure.process(Collections.singletonList(pendingHeader));
+        }
+    }
+
+    /**
+     * @param projection may be null.
+     */
+    private ChunkResult parse(FileChannel channel, Chunk c, boolean last, Set<String> projection)
+            throws IOException, ParsingException {
+
+        CSVParser parser;
+
+        try {
+
+            parser = new CSVParser(c.formatSpecification);
+        }
+        catch(CSVFormatException e) {
+
+            //
+            // the header line that introduced the format failed in a previous chunk already, and that failure has
+            // precedence
+            //
+
+            throw new ParsingException(c.linesBefore, e);
+        }
+
+        parser.setProjection(projection);
+
+        CSVByteBufferParser p = new CSVByteBufferParser(parser, c.linesBefore);
+
+        List<Event> events = new ArrayList<>();
+
+        try {
+
+            p.parse(c.map(channel), events);
+        }
+        catch(ParsingException | RuntimeException e) {
+
+            //
+            // the events of the lines that precede the failing line are delivered before the failure
+            //
+
+            return new ChunkResult(events, null, e);
+        }
+
+        List<Event> tail = p.close();
+
+        if (last) {
+
+            events.addAll(tail);
+            return new ChunkResult(events, null, null);
+        }
+
+        //
+        // the chunk ends with a newline, so the tail can only contain a header not yet followed by a data line
+        //
+
+        return new ChunkResult(events, tail.isEmpty() ? null : (CSVHeaders)tail.get(0), null);
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    static class Chunk {
+
+        final int index;
+
+        //
+        // file offsets, start inclusive, end exclusive
+        //
+        final long start;
+        final long end;
+
+        //
+        // pre-pass results
+        //
+        long lineCount;
+        String lastFormatSpecification;
+
+        //
+        // the number of lines in all preceding chunks, and the format in effect at the beginning of the chunk
+        //
+        long linesBefore;
+        String formatSpecification;
+
+        Chunk(int index, long start, long end) {
+
+            this.index = index;
+            this.start = start;
+            this.end = end;
+        }
+
+        ByteBuffer map(FileChannel channel) throws IOException {
+
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+
+            return "Chunk[" + index + ", " + start + "-" + end + "]";
+        }
+    }
+
+    private static class ChunkResult {
+
+        final List<Event> events;
+        final CSVHeaders pendingHeader;
+
+        //
+        // the failure that stopped the parsing of the chunk after the events, null if the chunk was parsed entirely
+        //
+        final Exception failure;
+
+        ChunkResult(List<Event> events, CSVHeaders pendingHeader, Exception failure) {
+
+            this.events = events;
+            this.pendingHeader = pendingHeader;
+            this.failure = failure;
+        }
+
+        void rethrowFailure() throws ParsingException {
+
+            if (failure instanceof ParsingException) {
+
+                throw (ParsingException)failure;
+            }
+            else if (failure != null) {
+
+                throw (RuntimeException)failure;
+            }
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger counter = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+
+            Thread t = new Thread(r, "csv-parser-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+}
@@ -0,0 +1,556 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.processing.EventProcessingException;
+import io.novaordis.events.processing.Procedure;
+import io.novaordis.utilities.parsing.ParsingException;
+
+/**
+ * Parses a CSV stream in three pipelined stages, each running on its own thread: a reader thread reads the stream into
+ * blocks of complete lines, a parser thread converts the blocks into events, with a single CSVParser, and the calling
+ * thread runs the procedure on the events. The stages are connected by bounded single producer single consumer ring
+ * buffers, and the handoff is done one block, and one block worth of events, at a time, so its cost is amortized over
+ * many lines. The read buffers are returned by the parser stage to the reader stage and reused.
+ *
+ * Because all lines are parsed in order, by the same CSVParser, the events, their line numbers and the issuing of each
+ * CSVHeaders immediately before the next data line, with that line's timestamp, are exactly the ones the sequential
+ * parser would produce. The memory footprint is bounded by the queue capacity and the block size.
+ *
+ * Unlike ParallelCSVParser, it does not need a seekable file, so it can be used on any stream, including stdin.
+ *
+ * This is an API for applications that embed the parser. The csv command line tool does not use it: its parsing loop
+ * is driven by the events runtime (EventParserRuntime), which does not allow a parser to take over the stream, so the
+ * command line still parses sequentially, with a single CSVParser on the calling thread.
+ *
+ * @see CSVParser
+ * @see CSVByteBufferParser
+ * @see ParallelCSVParser
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class PipelinedCSVParser {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final Logger log = LoggerFactory.getLogger(PipelinedCSVParser.class);
+
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private static final byte NEWLINE = '\n';
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    private static final AtomicInteger counter = new AtomicInteger(0);
+
+    /**
+     * @return the index that follows the last newline in the given range, or -1 if there is no newline.
+     */
+    static int endOfLastLine(byte[] bytes, int from, int to) {
+
+        for(int i = to - 1; i >= from; i --) {
+
+            if (bytes[i] == NEWLINE) {
+
+                return i + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    //
+    // the format in effect at the beginning of the stream, may be null
+    //
+    private String formatSpecification;
+
+    private int blockSize;
+
+    private int queueCapacity;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    /**
+     * @param formatSpecification the format in effect at the beginning of the stream. May be null, same semantics as
+     *                            for CSVParser.
+     *
+     * @throws IllegalArgumentException if the format specification cannot be used to build a CSV format.
+     *
+     * @throws CSVFormatException if the format specification contains an incorrectly specified field.
+     *
+     * @see CSVParser#CSVParser(String)
+     */
+    public PipelinedCSVParser(String formatSpecification) throws IllegalArgumentException, CSVFormatException {
+
+        if (formatSpecification != null) {
+
+            //
+            // fail early, the same way CSVParser would
+            //
+
+            new CSVFormat(formatSpecification);
+        }
+
+        this.formatSpecification = formatSpecification;
+        this.blockSize = DEFAULT_BLOCK_SIZE;
+        this.queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @see PipelinedCSVParser#parse(InputStream, Procedure)
+     */
+    public void parse(File file, Procedure procedure) throws IOException, ParsingException, EventProcessingException {
+
+        if (file == null) {
+
+            throw new IllegalArgumentException("null file");
+        }
+
+        try(InputStream is = new FileInputStream(file)) {
+
+            parse(is, procedure);
+        }
+    }
+
+    /**
+     * Parses the stream and delivers the events to the procedure, in order, one block worth of events at a time. The
+     * procedure is invoked on the calling thread. Parsing stops early if the procedure requests it via isExitLoop().
+     * If the procedure implements ReferencedProperties, only the columns it references are converted. The stream is
+     * not closed.
+     *
+     * The method returns after the parser thread exits, and, if the stream was read to the end, after the reader
+     * thread exits. If parsing stops early, or fails, the method does not wait for the reader thread, which may be
+     * blocked in a read that does not return for a long time, as on stdin or on a growing file; the reader thread,
+     * a daemon, exits without reading further when the read returns.
+     *
+     * @exception ParsingException the first parsing failure, in line order. All the events that precede the failing
+     * line are delivered before the failure is reported.
+     *
+     * @exception IOException a failure to read the stream, reported after all the events parsed from the content read
+     * before the failure are delivered.
+     */
+    public void parse(InputStream is, Procedure procedure)
+            throws IOException, ParsingException, EventProcessingException {
+
+        if (is == null) {
+
+            throw new IllegalArgumentException("null input stream");
+        }
+
+        if (procedure == null) {
+
+            throw new IllegalArgumentException("null procedure");
+        }
+
+        CSVParser parser;
+
+        try {
+
+            parser = new CSVParser(formatSpecification);
+        }
+        catch(CSVFormatException e) {
+
+            //
+            // the specification was validated by the constructor
+            //
+
+            throw new IllegalStateException(e);
+        }
+
+        //
+        // the parser stage only converts the columns the procedure uses, if it declares them
+        //
+        Set<String> projection = procedure instanceof ReferencedProperties ?
+                ((ReferencedProperties)procedure).getReferencedPropertyNames() : null;
+
+        parser.setProjection(projection);
+
+        Pipeline p = new Pipeline(queueCapacity);
+
+        int id = counter.incrementAndGet();
+
+        Thread reader = new Thread(() -> read(is, p), "csv-reader-" + id);
+        Thread parsing = new Thread(() -> parse(parser, p), "csv-parser-" + id);
+
+        reader.setDaemon(true);
+        parsing.setDaemon(true);
+
+        reader.start();
+        parsing.start();
+
+        if (log.isDebugEnabled()) {
+
+            log.debug(this + " started " + reader.getName() + " and " + parsing.getName());
+        }
+
+        //
+        // whether the reader thread finished, or is about to, because its output was consumed to the end
+        //
+        boolean drained = false;
+
+        try {
+
+            List<Event> events;
+
+            while((events = p.events.take()) != null) {
+
+                procedure.process(events);
+
+                if (procedure.isExitLoop()) {
+
+                    return;
+                }
+            }
+
+            drained = p.parserFailure == null;
+
+            p.rethrowFailure();
+        }
+        catch(InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for events");
+        }
+        finally {
+
+            p.cancel();
+
+            join(parsing);
+
+            if (drained) {
+
+                join(reader);
+            }
+        }
+    }
+
+    public int getBlockSize() {
+
+        return blockSize;
+    }
+
+    /**
+     * The blocks are aligned to the end of the last line read, so the actual block sizes vary. A line longer than the
+     * block size is read into a larger block.
+     */
+    public void setBlockSize(int blockSize) {
+
+        if (blockSize < 1) {
+
+            throw new IllegalArgumentException("invalid block size " + blockSize);
+        }
+
+        this.blockSize = blockSize;
+    }
+
+    public int getQueueCapacity() {
+
+        return queueCapacity;
+    }
+
+    /**
+     * @param queueCapacity the maximum number of blocks, and of event batches, waiting between two stages. Rounded up
+     *                      to the next power of two.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+
+        if (queueCapacity < 1 || queueCapacity > (1 << 30)) {
+
+            throw new IllegalArgumentException("invalid queue capacity " + queueCapacity);
+        }
+
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public String toString() {
+
+        return "PipelinedCSVParser[" + blockSize + ", " + queueCapacity + "]";
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * The reader stage: reads the stream into blocks that end with a complete line, except the last one.
+     */
+    private void read(InputStream is, Pipeline p) {
+
+        try {
+
+            //
+            // the bytes that follow the last newline of the previous block
+            //
+            byte[] carry = new byte[0];
+            int carryLength = 0;
+
+            boolean eof = false;
+
+            while(!eof) {
+
+                byte[] bytes = p.free.poll();
+
+                if (bytes == null || bytes.length < 2 * carryLength) {
+
+                    bytes = new byte[Math.max(blockSize, 2 * carryLength)];
+                }
+
+                System.arraycopy(carry, 0, bytes, 0, carryLength);
+
+                int length = carryLength;
+                int end = -1;
+
+                while(end == -1) {
+
+                    if (length == bytes.length) {
+
+                        bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+                    }
+
+                    int n = is.read(bytes, length, bytes.length - length);
+
+                    if (n == -1) {
+
+                        eof = true;
+                        end = length;
+                        break;
+                    }
+
+                    end = endOfLastLine(bytes, length, length + n);
+
+                    length += n;
+                }
+
+                carryLength = length - end;
+
+                if (carry.length < carryLength) {
+
+                    carry = new byte[2 * carryLength];
+                }
+
+                System.arraycopy(bytes, end, carry, 0, carryLength);
+
+                if (end > 0 && !p.blocks.put(ByteBuffer.wrap(bytes, 0, end))) {
+
+                    //
+                    // cancelled
+                    //
+
+                    return;
+                }
+            }
+        }
+        catch(Throwable t) {
+
+            p.readerFailure = t;
+        }
+        finally {
+
+            p.blocks.close();
+        }
+    }
+
+    /**
+     * The parser stage.
+     */
+    private void parse(CSVParser parser, Pipeline p) {
+
+        try {
+
+            CSVByteBufferParser bp = new CSVByteBufferParser(parser);
+
+            ByteBuffer block;
+
+            while((block = p.blocks.take()) != null) {
+
+                List<Event> events = new ArrayList<>();
+
+                Exception failure = null;
+
+                try {
+
+                    bp.parse(block, events);
+                }
+                catch(ParsingException | RuntimeException e) {
+
+                    //
+                    // the events of the lines that precede the failing line are delivered before the failure
+                    //
+
+                    failure = e;
+                }
+
+                p.free.offer(block.array());
+
+                if (!events.isEmpty() && !p.events.put(events)) {
+
+                    //
+                    // cancelled
+                    //
+
+                    return;
+                }
+
+                if (failure != null) {
+
+                    throw failure;
+                }
+            }
+
+            if (p.readerFailure != null) {
+
+                return;
+            }
+
+            List<Event> events = bp.close();
+
+            if (!events.isEmpty()) {
+
+                p.events.put(events);
+            }
+        }
+        catch(Throwable t) {
+
+            p.parserFailure = t;
+        }
+        finally {
+
+            p.events.close();
+        }
+    }
+
+    private void join(Thread t) throws InterruptedIOException {
+
+        try {
+
+            t.join();
+        }
+        catch(InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for " + t.getName());
+        }
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    /**
+     * The queues that connect the stages, and the stage failures. A stage closes its output queue when it exits,
+     * normally or not, after recording its failure, if any, so the failure is visible to the next stage once it
+     * consumed everything the failing stage produced.
+     */
+    private static class Pipeline {
+
+        //
+        // reader to parser
+        //
+        final SpscRingBuffer<ByteBuffer> blocks;
+
+        //
+        // parser to reader, the buffers available for reuse
+        //
+        final SpscRingBuffer<byte[]> free;
+
+        //
+        // parser to procedure
+        //
+        final SpscRingBuffer<List<Event>> events;
+
+        volatile Throwable readerFailure;
+        volatile Throwable parserFailure;
+
+        Pipeline(int queueCapacity) {
+
+            this.blocks = new SpscRingBuffer<>(queueCapacity);
+            this.free = new SpscRingBuffer<>(queueCapacity + 2);
+            this.events = new SpscRingBuffer<>(queueCapacity);
+        }
+
+        /**
+         * Stops the upstream stages.
+         */
+        void cancel() {
+
+            events.close();
+            blocks.close();
+        }
+
+        /**
+         * The parser stage only parses content that precedes the point where the reader failed, so its failure, if
+         * any, comes first in line order.
+         */
+        void rethrowFailure() throws IOException, ParsingException {
+
+            Throwable t = parserFailure != null ? parserFailure : readerFailure;
+
+            if (t == null) {
+
+                return;
+            }
+
+            if (t instanceof ParsingException) {
+
+                throw (ParsingException)t;
+            }
+            else if (t instanceof IOException) {
+
+                throw (IOException)t;
+            }
+            else if (t instanceof RuntimeException) {
+
+                throw (RuntimeException)t;
+            }
+            else if (t instanceof Error) {
+
+                throw (Error)t;
+            }
+            else if (t instanceof InterruptedException) {
+
+                throw new InterruptedIOException("pipeline stage interrupted");
+            }
+
+            throw new IllegalStateException(t);
+        }
+    }
+
+}
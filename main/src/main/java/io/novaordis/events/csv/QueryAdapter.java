@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.novaordis.events.csv.event.field.CSVField;
+import io.novaordis.events.query.FieldQuery;
+import io.novaordis.events.query.KeywordQuery;
+import io.novaordis.events.query.MixedQuery;
+import io.novaordis.events.query.Query;
+import io.novaordis.events.query.TimeQuery;
+
+/**
+ * Reads the queries built by the events runtime from the command line - keyword, field, time and mixed queries - for
+ * the information CSVParser can use before building events.
+ *
+ * Any other query does not contribute anything, and the parser behaves as if no adapter existed. The queries that
+ * implement the parser's own interfaces (ReferencedProperties, LinePredicateSource, KeywordPrefilterSource) are read
+ * through those interfaces instead.
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+final class QueryAdapter {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the names of the properties the query uses, the same as ReferencedProperties#getReferencedPropertyNames(),
+     * or null if they are not known. A keyword query inspects all properties, a field query its field, a time query
+     * only the timestamp, and a mixed query the union of the references of its queries.
+     */
+    static Set<String> getReferencedPropertyNames(Query query) {
+
+        if (query instanceof ReferencedProperties) {
+
+            return ((ReferencedProperties)query).getReferencedPropertyNames();
+        }
+
+        if (query instanceof FieldQuery) {
+
+            String name = ((FieldQuery)query).getFieldName();
+
+            return name == null ? null : Collections.singleton(name);
+        }
+
+        if (query instanceof TimeQuery) {
+
+            return Collections.emptySet();
+        }
+
+        if (query instanceof MixedQuery) {
+
+            List<Query> queries = ((MixedQuery)query).getQueries();
+
+            if (queries == null) {
+
+                return null;
+            }
+
+            Set<String> names = new HashSet<>();
+
+            for(Query q: queries) {
+
+                Set<String> referenced = q == null ? null : getReferencedPropertyNames(q);
+
+                if (referenced == null) {
+
+                    return null;
+                }
+
+                names.addAll(referenced);
+            }
+
+            return names;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return a necessary condition for the query to select an event, or null if none is known. A time query requires
+     * the timestamp to be in its interval; both bounds are included, whether the query includes them or not, so the
+     * condition holds for every event the query selects. A mixed query with a single query is equivalent to it.
+     *
+     * The predicate must never reject a line the query would select, so only the queries whose selection is implied by
+     * the predicate are pushed down. A field query is not pushed down, as its value matching (case, patterns, typed
+     * comparison) is not a plain equality of the raw token, and neither are the mixed queries with more than one
+     * query, as the way the queries are combined is not known.
+     */
+    static LinePredicate getLinePredicate(Query query) {
+
+        if (query instanceof LinePredicateSource) {
+
+            return ((LinePredicateSource)query).getLinePredicate();
+        }
+
+        if (query instanceof TimeQuery) {
+
+            Long from = ((TimeQuery)query).getFromTimestamp();
+            Long to = ((TimeQuery)query).getToTimestamp();
+
+            if (from == null && to == null) {
+
+                return null;
+            }
+
+            if (to != null) {
+
+                to = to == Long.MAX_VALUE ? null : to + 1;
+            }
+
+            if (from != null && to != null && from >= to) {
+
+                return null;
+            }
+
+            return LinePredicate.timeRange(from, to);
+        }
+
+        Query single = getSingleQuery(query);
+
+        return single == null ? null : getLinePredicate(single);
+    }
+
+    /**
+     * @return a keyword prefilter the lines must pass for the query to select their events, or null if none is known.
+     * A keyword query selects the events that have a property whose value contains its keyword. A mixed query that
+     * only consists of keyword queries requires at least one of the keywords, however the queries are combined. The
+     * prefilter ignores case, so it accepts the lines of the events the query selects whether the query ignores case
+     * or not.
+     *
+     * The raw line only contains the keyword if the values are rendered as they appear in the line, so the prefilter
+     * is only valid for the lines of formats whose columns are strings, apart from the timestamp, see
+     * isVerbatim(ConversionPlan). The keywords that could be found in the rendering of the line number or of the
+     * timestamp - only digits and minus signs - are not pushed down.
+     */
+    static KeywordPrefilter getKeywordPrefilter(Query query) {
+
+        List<? extends Query> queries = Collections.singletonList(query);
+
+        if (query instanceof MixedQuery) {
+
+            queries = ((MixedQuery)query).getQueries();
+
+            if (queries == null || queries.isEmpty()) {
+
+                return null;
+            }
+        }
+
+        List<String> keywords = new ArrayList<>();
+
+        for(Query q: queries) {
+
+            if (!(q instanceof KeywordQuery)) {
+
+                return null;
+            }
+
+            String keyword = ((KeywordQuery)q).getKeyword();
+
+            if (keyword == null || !isPushable(keyword)) {
+
+                return null;
+            }
+
+            keywords.add(keyword);
+        }
+
+        return new KeywordPrefilter(keywords, true);
+    }
+
+    /**
+     * @return true if all the columns of the plan, apart from the timestamp, are string columns, whose values are the
+     * raw tokens.
+     */
+    static boolean isVerbatim(ConversionPlan plan) {
+
+        CSVField[] fields = plan.getFields();
+
+        for(int i = 0; i < fields.length; i ++) {
+
+            if (i != plan.getTimestampIndex() && fields[i].getType() != String.class) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    private QueryAdapter() {
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return false for the empty keywords and for the keywords that only consist of digits and minus signs, which may
+     * be found in the rendering of a number that is not in the line.
+     */
+    private static boolean isPushable(String keyword) {
+
+        for(int i = 0; i < keyword.length(); i ++) {
+
+            char c = keyword.charAt(i);
+
+            if ((c < '0' || c > '9') && c != '-') {
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the only query of a mixed query, or null if the query is not a mixed query with a single query.
+     */
+    private static Query getSingleQuery(Query query) {
+
+        if (!(query instanceof MixedQuery)) {
+
+            return null;
+        }
+
+        List<Query> queries = ((MixedQuery)query).getQueries();
+
+        return queries == null || queries.size() != 1 ? null : queries.get(0);
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free, single producer single consumer FIFO queue, used to connect the stages of the pipelined parser.
+ * The producer and the consumer only synchronize through the ordered writes of their own index, and each of them caches
+ * the other's index, so in the common case an offer() or a poll() does not read a location written by the other thread.
+ *
+ * put() and take() wait by spinning, then yielding, then parking for short intervals, which keeps the handoff latency
+ * low while the queue is busy without burning a core while it is idle. close() ends the exchange in either direction:
+ * the consumer drains the elements already offered and then receives null, while a producer blocked in put() gives up.
+ *
+ * Exactly one thread may offer and exactly one thread may poll. It is only used by PipelinedCSVParser, and it is not
+ * involved in the command line's sequential parsing.
+ *
+ * @see PipelinedCSVParser
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+final class SpscRingBuffer<E> {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final int SPIN_LIMIT = 100;
+
+    private static final int YIELD_LIMIT = 200;
+
+    private static final long PARK_NANOS = 50_000L;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final Object[] elements;
+
+    private final int mask;
+
+    //
+    // the index of the next element to poll, written only by the consumer
+    //
+    private final AtomicLong head;
+
+    //
+    // the index of the next element to offer, written only by the producer
+    //
+    private final AtomicLong tail;
+
+    //
+    // the producer's view of head, and the consumer's view of tail
+    //
+    private long headCache;
+    private long tailCache;
+
+    private volatile boolean closed;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    /**
+     * @param capacity rounded up to the next power of two.
+     *
+     * @throws IllegalArgumentException on a non-positive or too large capacity.
+     */
+    SpscRingBuffer(int capacity) throws IllegalArgumentException {
+
+        if (capacity < 1 || capacity > (1 << 30)) {
+
+            throw new IllegalArgumentException("invalid capacity " + capacity);
+        }
+
+        int n = Integer.highestOneBit(capacity);
+
+        if (n < capacity) {
+
+            n <<= 1;
+        }
+
+        this.elements = new Object[n];
+        this.mask = n - 1;
+        this.head = new AtomicLong(0L);
+        this.tail = new AtomicLong(0L);
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    /**
+     * Producer only.
+     *
+     * @return false if the queue is full.
+     *
+     * @throws IllegalArgumentException on null element.
+     */
+    boolean offer(E e) {
+
+        if (e == null) {
+
+            throw new IllegalArgumentException("null element");
+        }
+
+        long t = tail.get();
+
+        if (t - headCache == elements.length) {
+
+            headCache = head.get();
+
+            if (t - headCache == elements.length) {
+
+                return false;
+            }
+        }
+
+        elements[(int)t & mask] = e;
+
+        tail.lazySet(t + 1);
+
+        return true;
+    }
+
+    /**
+     * Consumer only.
+     *
+     * @return the next element, or null if the queue is empty.
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+
+        long h = head.get();
+
+        if (h == tailCache) {
+
+            tailCache = tail.get();
+
+            if (h == tailCache) {
+
+                return null;
+            }
+        }
+
+        int i = (int)h & mask;
+
+        E e = (E)elements[i];
+
+        elements[i] = null;
+
+        head.lazySet(h + 1);
+
+        return e;
+    }
+
+    /**
+     * Producer only. Waits until there is space in the queue.
+     *
+     * @return false if the queue was closed before the element could be offered.
+     */
+    boolean put(E e) throws InterruptedException {
+
+        for(int idle = 0; ; idle ++) {
+
+            if (closed) {
+
+                return false;
+            }
+
+            if (offer(e)) {
+
+                return true;
+            }
+
+            idle(idle);
+        }
+    }
+
+    /**
+     * Consumer only. Waits until an element is available.
+     *
+     * @return the next element, or null if the queue was closed and all the elements offered before closing were
+     * consumed.
+     */
+    E take() throws InterruptedException {
+
+        for(int idle = 0; ; idle ++) {
+
+            E e = poll();
+
+            if (e != null) {
+
+                return e;
+            }
+
+            if (closed) {
+
+                //
+                // the elements offered before close() are visible once closed is
+                //
+
+                return poll();
+            }
+
+            idle(idle);
+        }
+    }
+
+    /**
+     * May be invoked by either side, and more than once.
+     */
+    void close() {
+
+        closed = true;
+    }
+
+    boolean isClosed() {
+
+        return closed;
+    }
+
+    /**
+     * @return the number of elements in the queue. Approximate if invoked while the queue is in use.
+     */
+    int size() {
+
+        return (int)(tail.get() - head.get());
+    }
+
+    /**
+     * @return the actual capacity, a power of two.
+     */
+    int getCapacity() {
+
+        return elements.length;
+    }
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static void idle(int iteration) throws InterruptedException {
+
+        if (iteration < SPIN_LIMIT) {
+
+            return;
+        }
+
+        if (iteration < YIELD_LIMIT) {
+
+            Thread.yield();
+            return;
+        }
+
+        LockSupport.parkNanos(PARK_NANOS);
+
+        if (Thread.interrupted()) {
+
+            throw new InterruptedException();
+        }
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.StringProperty;
+import io.novaordis.events.csv.event.field.FieldConverter;
+
+/**
+ * The converter of a string column that keeps a dictionary of the column's distinct values, so all the cells with the
+ * same content produce the same, canonical, String instance. Optionally, the cells with the same content also share
+ * the same StringProperty instance.
+ *
+ * The dictionary adapts to the column: as long as the number of distinct values does not exceed the maximum
+ * cardinality, the values are looked up without materializing the token, and only the first occurrence of each value
+ * allocates a String. When a new value would exceed the maximum cardinality, the column is considered a high
+ * cardinality column: the dictionary is discarded and the cells are converted as StringConverter converts them. Values
+ * longer than MAX_VALUE_LENGTH are never added to the dictionary. The table starts small and doubles when it becomes
+ * half full, so the memory used is proportional to the number of distinct values, not to the maximum cardinality,
+ * which cannot exceed MAX_CARDINALITY.
+ *
+ * The dictionary keys are the raw characters of the token, so Utf8Line tokens are looked up without being decoded.
+ *
+ * The shared properties are read-only: their setters throw UnsupportedOperationException, so modifying the property of
+ * one event cannot change the other events that share it. The instances are not thread safe, a dictionary is
+ * maintained per parser.
+ *
+ * @see CSVParser#setStringDictionaries(int, boolean)
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class StringDictionary implements FieldConverter {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    public static final int MAX_VALUE_LENGTH = 64;
+
+    public static final int MAX_CARDINALITY = 1 << 24;
+
+    static final int INITIAL_CAPACITY = 16;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final String name;
+
+    private final int maxCardinality;
+
+    private final boolean shareProperties;
+
+    //
+    // open addressing, the capacity is a power of two, at least twice the cardinality; all null once the dictionary
+    // overflows
+    //
+    private char[][] keys;
+    private int[] hashes;
+    private String[] values;
+    private StringProperty[] properties;
+
+    private int cardinality;
+
+    private boolean overflown;
+
+    private long hitCount;
+    private long missCount;
+
+    private StringProperty missing;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    /**
+     * @param name the name of the properties produced by this converter.
+     *
+     * @throws IllegalArgumentException on null name, or on a maximum cardinality that is not positive or that exceeds
+     * MAX_CARDINALITY.
+     */
+    public StringDictionary(String name, int maxCardinality, boolean shareProperties) throws IllegalArgumentException {
+
+        if (name == null) {
+
+            throw new IllegalArgumentException("null name");
+        }
+
+        if (maxCardinality <= 0 || maxCardinality > MAX_CARDINALITY) {
+
+            throw new IllegalArgumentException("invalid maximum cardinality " + maxCardinality);
+        }
+
+        this.name = name;
+        this.maxCardinality = maxCardinality;
+        this.shareProperties = shareProperties;
+
+        this.keys = new char[INITIAL_CAPACITY][];
+        this.hashes = new int[INITIAL_CAPACITY];
+        this.values = new String[INITIAL_CAPACITY];
+        this.properties = shareProperties ? new StringProperty[INITIAL_CAPACITY] : null;
+    }
+
+    // FieldConverter implementation -----------------------------------------------------------------------------------
+
+    @Override
+    public Property convert(CharSequence s, int start, int end) {
+
+        int length = end - start;
+
+        if (overflown || length > MAX_VALUE_LENGTH) {
+
+            return new StringProperty(name, s.subSequence(start, end).toString());
+        }
+
+        int hash = 0;
+
+        for(int i = start; i < end; i ++) {
+
+            hash = 31 * hash + s.charAt(i);
+        }
+
+        int mask = keys.length - 1;
+
+        int slot = firstSlot(hash, mask);
+
+        for(char[] key = keys[slot]; key != null; key = keys[slot]) {
+
+            if (hashes[slot] == hash && sameContent(key, s, start, end)) {
+
+                hitCount ++;
+
+                return shareProperties ? properties[slot] : new StringProperty(name, values[slot]);
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        missCount ++;
+
+        String value = s.subSequence(start, end).toString();
+
+        if (cardinality == maxCardinality) {
+
+            //
+            // high cardinality column, the dictionary does not pay off
+            //
+
+            overflown = true;
+            keys = null;
+            hashes = null;
+            values = null;
+            properties = null;
+
+            return new StringProperty(name, value);
+        }
+
+        if (2 * (cardinality + 1) > keys.length) {
+
+            grow();
+
+            slot = freeSlot(hash);
+        }
+
+        char[] key = new char[length];
+
+        for(int i = 0; i < length; i ++) {
+
+            key[i] = s.charAt(start + i);
+        }
+
+        keys[slot] = key;
+        hashes[slot] = hash;
+        values[slot] = value;
+        cardinality ++;
+
+        if (!shareProperties) {
+
+            return new StringProperty(name, value);
+        }
+
+        StringProperty p = new SharedStringProperty(name, value);
+
+        properties[slot] = p;
+
+        return p;
+    }
+
+    @Override
+    public Property convertMissing() {
+
+        if (!shareProperties) {
+
+            return new StringProperty(name, null);
+        }
+
+        if (missing == null) {
+
+            missing = new SharedStringProperty(name, null);
+        }
+
+        return missing;
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    public String getName() {
+
+        return name;
+    }
+
+    public int getMaxCardinality() {
+
+        return maxCardinality;
+    }
+
+    public boolean isShareProperties() {
+
+        return shareProperties;
+    }
+
+    /**
+     * @return the number of distinct values in the dictionary. Not maintained after the dictionary overflows.
+     */
+    public int getCardinality() {
+
+        return cardinality;
+    }
+
+    /**
+     * @return true if the column exceeded the maximum cardinality, so its cells are no longer looked up.
+     */
+    public boolean isOverflown() {
+
+        return overflown;
+    }
+
+    /**
+     * @return the number of cells whose value was found in the dictionary.
+     */
+    public long getHitCount() {
+
+        return hitCount;
+    }
+
+    /**
+     * @return the number of cells whose value was not found in the dictionary, including the one that caused the
+     * overflow. The cells converted after the overflow, or not looked up because of their length, are not counted.
+     */
+    public long getMissCount() {
+
+        return missCount;
+    }
+
+    @Override
+    public String toString() {
+
+        return "StringDictionary[" + name + ", " + (overflown ? "overflown" : cardinality + "/" + maxCardinality) + "]";
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static int firstSlot(int hash, int mask) {
+
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * @return the slot where a value with the given hash, which is not in the table, is stored.
+     */
+    private int freeSlot(int hash) {
+
+        int mask = keys.length - 1;
+
+        int slot = firstSlot(hash, mask);
+
+        while(keys[slot] != null) {
+
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Doubles the capacity of the table, keeping the values and, if shared, their properties.
+     */
+    private void grow() {
+
+        char[][] oldKeys = keys;
+        int[] oldHashes = hashes;
+        String[] oldValues = values;
+        StringProperty[] oldProperties = properties;
+
+        int capacity = oldKeys.length << 1;
+
+        keys = new char[capacity][];
+        hashes = new int[capacity];
+        values = new String[capacity];
+        properties = shareProperties ? new StringProperty[capacity] : null;
+
+        for(int i = 0; i < oldKeys.length; i ++) {
+
+            if (oldKeys[i] == null) {
+
+                continue;
+            }
+
+            int slot = freeSlot(oldHashes[i]);
+
+            keys[slot] = oldKeys[i];
+            hashes[slot] = oldHashes[i];
+            values[slot] = oldValues[i];
+
+            if (shareProperties) {
+
+                properties[slot] = oldProperties[i];
+            }
+        }
+    }
+
+    private static boolean sameContent(char[] key, CharSequence s, int start, int end) {
+
+        if (key.length != end - start) {
+
+            return false;
+        }
+
+        for(int i = 0; i < key.length; i ++) {
+
+            if (key[i] != s.charAt(start + i)) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    /**
+     * A StringProperty that is shared by several events, and that cannot be modified.
+     */
+    static final class SharedStringProperty extends StringProperty {
+
+        SharedStringProperty(String name, String value) {
+
+            super(name, value);
+        }
+
+        /**
+         * @exception UnsupportedOperationException always, the property is shared.
+         */
+        @Override
+        public void setName(String name) {
+
+            throw new UnsupportedOperationException(this + " is shared by several events and cannot be modified");
+        }
+
+        /**
+         * @exception UnsupportedOperationException always, the property is shared.
+         */
+        @Override
+        public void setValue(Object value) {
+
+            throw new UnsupportedOperationException(this + " is shared by several events and cannot be modified");
+        }
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * A thread safe, cached replacement for new SimpleDateFormat(pattern).format(time), which produces the same output,
+ * in the default time zone and locale, as they are when the method is invoked.
+ *
+ * The SimpleDateFormat instances are created once per thread, and not once per invocation. Additionally, for patterns
+ * that end with the seconds ("ss") and otherwise only contain year, month, day, hour and minute fields, like the default
+ * "MM/dd/yy HH:mm:ss", the formatted prefix of the last minute is cached and the subsequent timestamps from the same
+ * minute are rendered by appending the seconds, without using the SimpleDateFormat; the rendering of each second is
+ * cached as well. Only regular minutes, which do not contain a time zone offset transition, are cached.
+ *
+ * @see Constants#getDefaultTimestampFormat()
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class TimestampFormatter {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    private static final TimestampFormatter DEFAULT =
+            new TimestampFormatter(Constants.DEFAULT_TIMESTAMP_FORMAT_LITERAL);
+
+    /**
+     * @return the formatter for Constants.DEFAULT_TIMESTAMP_FORMAT_LITERAL.
+     */
+    public static TimestampFormatter getDefault() {
+
+        return DEFAULT;
+    }
+
+    /**
+     * @return true if the pattern ends with "ss" and the rest of it only contains fields that do not change within a
+     * minute.
+     */
+    static boolean isMinutePrefixCacheable(String pattern) {
+
+        int n = pattern.length();
+
+        if (n < 2 || !pattern.endsWith("ss") || (n > 2 && pattern.charAt(n - 3) == 's')) {
+
+            return false;
+        }
+
+        boolean quoted = false;
+
+        for(int i = 0; i < n - 2; i ++) {
+
+            char c = pattern.charAt(i);
+
+            if (c == '\'') {
+
+                quoted = !quoted;
+            }
+            else if (!quoted && ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) && "yMdHm".indexOf(c) == -1) {
+
+                return false;
+            }
+        }
+
+        return !quoted;
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final String pattern;
+
+    private final boolean minutePrefixCacheable;
+
+    private final ThreadLocal<ThreadFormat> threadFormat;
+
+    private volatile Minute lastMinute;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    /**
+     * @throws IllegalArgumentException if the pattern is not a valid SimpleDateFormat pattern.
+     */
+    public TimestampFormatter(String pattern) throws IllegalArgumentException {
+
+        //
+        // fail early on invalid patterns
+        //
+
+        new SimpleDateFormat(pattern);
+
+        this.pattern = pattern;
+        this.minutePrefixCacheable = isMinutePrefixCacheable(pattern);
+        this.threadFormat = new ThreadLocal<>();
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the same string as new SimpleDateFormat(pattern).format(time)
+     */
+    public String format(long time) {
+
+        TimeZone zone = TimeZone.getDefault();
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+
+        Minute m = lastMinute;
+
+        if (m != null && m.contains(time, zone, locale)) {
+
+            return m.format(time);
+        }
+
+        ThreadFormat f = threadFormat.get();
+
+        if (f == null || !f.isFor(zone, locale)) {
+
+            f = new ThreadFormat(pattern, zone, locale);
+            threadFormat.set(f);
+        }
+
+        String s = f.format.format(new Date(time));
+
+        if (minutePrefixCacheable && f.zeroDigit != 0) {
+
+            cacheMinute(time, zone, locale, f.zeroDigit, s);
+        }
+
+        return s;
+    }
+
+    public String getPattern() {
+
+        return pattern;
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private void cacheMinute(long time, TimeZone zone, Locale locale, char zeroDigit, String formatted) {
+
+        int offset = zone.getOffset(time);
+
+        long start = time - Math.floorMod(time + offset, 60000L);
+
+        if (zone.getOffset(start) != offset || zone.getOffset(start + 59999L) != offset) {
+
+            return;
+        }
+
+        String prefix = formatted.substring(0, formatted.length() - 2);
+
+        lastMinute = new Minute(zone.getID(), locale, start, prefix, zeroDigit);
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    /**
+     * A thread's SimpleDateFormat, created for a specific default time zone and locale.
+     */
+    private static final class ThreadFormat {
+
+        private final SimpleDateFormat format;
+        private final String zoneId;
+        private final Locale locale;
+
+        //
+        // the digit zero of the format's number format, or 0 if not known
+        //
+
+        private final char zeroDigit;
+
+        private ThreadFormat(String pattern, TimeZone zone, Locale locale) {
+
+            this.format = new SimpleDateFormat(pattern, locale);
+            this.format.setTimeZone(zone);
+            this.zoneId = zone.getID();
+            this.locale = locale;
+
+            NumberFormat nf = format.getNumberFormat();
+
+            this.zeroDigit =
+                    nf instanceof DecimalFormat ? ((DecimalFormat)nf).getDecimalFormatSymbols().getZeroDigit() : 0;
+        }
+
+        private boolean isFor(TimeZone zone, Locale locale) {
+
+            return zoneId.equals(zone.getID()) && this.locale.equals(locale);
+        }
+    }
+
+    /**
+     * The formatted prefix of a regular minute, and the renderings of its seconds, filled lazily. The rendering
+     * array is shared without synchronization, which is safe because Strings are immutable and the same value is
+     * always computed for the same slot.
+     */
+    private static final class Minute {
+
+        private final String zoneId;
+        private final Locale locale;
+        private final long start;
+        private final String prefix;
+        private final char zeroDigit;
+        private final String[] seconds;
+
+        private Minute(String zoneId, Locale locale, long start, String prefix, char zeroDigit) {
+
+            this.zoneId = zoneId;
+            this.locale = locale;
+            this.start = start;
+            this.prefix = prefix;
+            this.zeroDigit = zeroDigit;
+            this.seconds = new String[60];
+        }
+
+        private boolean contains(long time, TimeZone zone, Locale locale) {
+
+            return time >= start && time - start < 60000L &&
+                    zoneId.equals(zone.getID()) && this.locale.equals(locale);
+        }
+
+        private String format(long time) {
+
+            int second = (int)((time - start) / 1000L);
+
+            String s = seconds[second];
+
+            if (s == null) {
+
+                s = prefix + (char)(zeroDigit + second / 10) + (char)(zeroDigit + second % 10);
+                seconds[second] = s;
+            }
+
+            return s;
+        }
+    }
+
+}
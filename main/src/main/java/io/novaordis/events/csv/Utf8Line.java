@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A CharSequence view over a region of UTF-8 encoded bytes, which allows the CSV tokenizer and the field conversion
+ * logic to work directly on undecoded content.
+ *
+ * charAt() returns the unsigned value of the byte on the given position, and length() is the length in bytes. This
+ * is exact for ASCII content. For multi-byte UTF-8 sequences, the individual bytes are exposed as chars in the
+ * 0x80 - 0xFF range, which never collide with the separator, quote and blank characters the tokenizer is looking
+ * for, so the token boundaries are still correct. Content is decoded only when a String is requested, via toString()
+ * or toString(int, int), or via the toString() of a sub-sequence.
+ *
+ * The view does not copy the underlying bytes; the buffer's position and limit are not used or modified.
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class Utf8Line implements CharSequence {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    /**
+     * An empty line, to be associated with content with reset().
+     */
+    public Utf8Line() {
+
+        this(ByteBuffer.allocate(0), 0, 0);
+    }
+
+    public Utf8Line(byte[] bytes) {
+
+        this(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * @param offset absolute offset in the buffer.
+     */
+    public Utf8Line(ByteBuffer buffer, int offset, int length) {
+
+        reset(buffer, offset, length);
+    }
+
+    // CharSequence implementation -------------------------------------------------------------------------------------
+
+    @Override
+    public int length() {
+
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+
+        if (index < 0 || index >= length) {
+
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds, length " + length);
+        }
+
+        return (char)(buffer.get(offset + index) & 0xFF);
+    }
+
+    /**
+     * @return a view over the same bytes, without copying.
+     */
+    @Override
+    public Utf8Line subSequence(int start, int end) {
+
+        checkRange(start, end);
+
+        return new Utf8Line(buffer, offset + start, end - start);
+    }
+
+    /**
+     * @return the decoded content.
+     */
+    @Override
+    public String toString() {
+
+        return toString(0, length);
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Re-associates the view with a different region. Intended for reuse across lines.
+     *
+     * @param offset absolute offset in the buffer.
+     */
+    public void reset(ByteBuffer buffer, int offset, int length) {
+
+        if (buffer == null) {
+
+            throw new IllegalArgumentException("null buffer");
+        }
+
+        if (offset < 0 || length < 0 || offset + length > buffer.capacity()) {
+
+            throw new IllegalArgumentException(
+                    "invalid region " + offset + ", " + length + " for a buffer of capacity " + buffer.capacity());
+        }
+
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return the raw byte on the given position, relative to the beginning of this view.
+     */
+    public byte byteAt(int index) {
+
+        return (byte)charAt(index);
+    }
+
+    /**
+     * Decodes the bytes between start (inclusive) and end (exclusive), relative to the beginning of the view.
+     */
+    public String toString(int start, int end) {
+
+        checkRange(start, end);
+
+        int n = end - start;
+
+        if (n == 0) {
+
+            return "";
+        }
+
+        if (buffer.hasArray()) {
+
+            return new String(buffer.array(), buffer.arrayOffset() + offset + start, n, StandardCharsets.UTF_8);
+        }
+
+        byte[] bytes = new byte[n];
+
+        ByteBuffer b = buffer.duplicate();
+        b.clear();
+        b.position(offset + start);
+        b.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The equivalent of String.trim(): leading and trailing bytes with a value less than or equal to ' ' are excluded.
+     *
+     * @return this instance, if there is nothing to trim, or a narrower view over the same bytes.
+     */
+    public Utf8Line trim() {
+
+        int from = 0;
+        int to = length;
+
+        while(from < to && (buffer.get(offset + from) & 0xFF) <= ' ') {
+
+            from ++;
+        }
+
+        while(to > from && (buffer.get(offset + to - 1) & 0xFF) <= ' ') {
+
+            to --;
+        }
+
+        if (from == 0 && to == length) {
+
+            return this;
+        }
+
+        return new Utf8Line(buffer, offset + from, to - from);
+    }
+
+    /**
+     * @return a view over a private copy of this view's bytes, which is not affected by subsequent changes of the
+     * underlying buffer, or by the reset of this instance. The offsets relative to the beginning of the view are
+     * preserved.
+     */
+    public Utf8Line copy() {
+
+        byte[] bytes = new byte[length];
+
+        ByteBuffer b = buffer.duplicate();
+        b.clear();
+        b.position(offset);
+        b.get(bytes);
+
+        return new Utf8Line(bytes);
+    }
+
+    public ByteBuffer getBuffer() {
+
+        return buffer;
+    }
+
+    /**
+     * @return the absolute offset in the buffer.
+     */
+    public int getOffset() {
+
+        return offset;
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private void checkRange(int start, int end) {
+
+        if (start < 0 || end > length || start > end) {
+
+            throw new IndexOutOfBoundsException("invalid range [" + start + ", " + end + "), length " + length);
+        }
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -44,9 +44,11 @@ public class Main {
 
             StderrVerboseLogging.init();
 
+            CSVParser parser = new CSVParser();
+
             ApplicationSpecificBehavior b = new ApplicationSpecificBehavior(
-                    new CSVParser(),
-                    new CSVProcedureFactory(),
+                    parser,
+                    new CSVProcedureFactory(parser),
                     new CSVOutputFormatFactory(),
                     new CSVHeaderOutputStrategy());
 
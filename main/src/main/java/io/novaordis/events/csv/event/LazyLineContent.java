@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.LongProperty;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.TimestampProperty;
+import io.novaordis.events.csv.CSVTokenRanges;
+import io.novaordis.events.csv.event.field.FieldConverter;
+import io.novaordis.utilities.parsing.ParsingException;
+
+/**
+ * The raw content of a CSV line, shared by the lazy line events: the line, the token offsets and the field converters.
+ * A column is converted into a Property only when it is first requested, and the result is cached. The timestamp
+ * column, if any, is converted when the instance is created, so the event time is available without any further
+ * conversion, and an invalid timestamp still fails the line.
+ *
+ * The properties are listed in the same order as in the regular events: the timestamp, if any, the line number and
+ * then the columns in the line order.
+ *
+ * Like the regular events, the instances are not thread safe.
+ *
+ * @see LazyTimedCSVLine
+ * @see LazyNonTimedCSVLine
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class LazyLineContent {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final long lineNumber;
+
+    private final CharSequence line;
+
+    //
+    // start and end offsets, interleaved, -1 for missing values
+    //
+    private final int[] offsets;
+
+    private final String[] names;
+
+    private final FieldConverter[] converters;
+
+    private final int count;
+
+    private final int timestampIndex;
+
+    private final TimestampProperty timestamp;
+
+    //
+    // the columns converted so far, by index
+    //
+    private final Property[] columns;
+
+    private LongProperty lineNumberProperty;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    /**
+     * @param line the content the token offsets refer to. Must not change during the lifetime of the instance, so it
+     *             must not be a view over a reused buffer.
+     * @param tokens the tokens of the line. The offsets are copied, so the instance can be reused after the call.
+     * @param names the names of the properties produced by the converters, by column.
+     * @param converters the converters, by column. The array is not copied, and it must not be modified. The columns
+     *                   with a null converter are not projected: they are not converted and not exposed.
+     * @param timestampIndex the index of the column that carries the event timestamp, or -1 if the format has no
+     *                       timestamp column. The line is not timed if the timestamp column is not present.
+     *
+     * @throws ParsingException if the timestamp column cannot be converted.
+     */
+    public LazyLineContent(long lineNumber, CharSequence line, CSVTokenRanges tokens, String[] names,
+                           FieldConverter[] converters, int timestampIndex) throws ParsingException {
+
+        this.lineNumber = lineNumber;
+        this.line = line;
+        this.names = names;
+        this.converters = converters;
+        this.count = Math.min(converters.length, tokens.size());
+        this.offsets = new int[2 * count];
+
+        for(int i = 0; i < count; i ++) {
+
+            offsets[2 * i] = tokens.getStart(i);
+            offsets[2 * i + 1] = tokens.getEnd(i);
+        }
+
+        this.columns = new Property[count];
+
+        if (timestampIndex != -1 && timestampIndex < count) {
+
+            this.timestampIndex = timestampIndex;
+            this.timestamp = (TimestampProperty)convert(timestampIndex);
+            this.columns[timestampIndex] = timestamp;
+        }
+        else {
+
+            this.timestampIndex = -1;
+            this.timestamp = null;
+        }
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    public long getLineNumber() {
+
+        return lineNumber;
+    }
+
+    /**
+     * @return the timestamp property, or null if the line is not timed.
+     */
+    public TimestampProperty getTimestampProperty() {
+
+        return timestamp;
+    }
+
+    /**
+     * Converts the corresponding column, if not already converted.
+     *
+     * @throws IllegalArgumentException if the column cannot be converted to a property of the right type.
+     */
+    public Property getProperty(String name) {
+
+        if (Event.LINE_PROPERTY_NAME.equals(name)) {
+
+            return getLineNumberProperty();
+        }
+
+        if (timestamp != null && timestamp.getName().equals(name)) {
+
+            return timestamp;
+        }
+
+        for(int i = 0; i < count; i ++) {
+
+            if (i != timestampIndex && converters[i] != null && names[i].equals(name)) {
+
+                return getColumn(i);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Converts all columns that were not converted yet.
+     *
+     * @return a new list, in the same order as the regular events.
+     *
+     * @throws IllegalArgumentException if a column cannot be converted to a property of the right type.
+     */
+    public List<Property> getProperties() {
+
+        List<Property> result = new ArrayList<>(count + 1);
+
+        if (timestamp != null) {
+
+            result.add(timestamp);
+        }
+
+        result.add(getLineNumberProperty());
+
+        for(int i = 0; i < count; i ++) {
+
+            if (i != timestampIndex && converters[i] != null) {
+
+                result.add(getColumn(i));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the number of columns, including the timestamp column.
+     */
+    public int getColumnCount() {
+
+        return count;
+    }
+
+    /**
+     * @return true if the column on the given position was already converted.
+     *
+     * @exception IndexOutOfBoundsException
+     */
+    public boolean isConverted(int column) {
+
+        return columns[column] != null;
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private LongProperty getLineNumberProperty() {
+
+        if (lineNumberProperty == null) {
+
+            lineNumberProperty = new LongProperty(Event.LINE_PROPERTY_NAME, lineNumber);
+        }
+
+        return lineNumberProperty;
+    }
+
+    private Property getColumn(int i) {
+
+        Property p = columns[i];
+
+        if (p == null) {
+
+            try {
+
+                p = convert(i);
+            }
+            catch(ParsingException e) {
+
+                //
+                // only timestamp conversions throw ParsingException, and the event timestamp was converted already
+                //
+
+                throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage(), e);
+            }
+
+            columns[i] = p;
+        }
+
+        return p;
+    }
+
+    private Property convert(int i) throws ParsingException {
+
+        int start = offsets[2 * i];
+
+        if (start == -1) {
+
+            return converters[i].convertMissing();
+        }
+
+        return converters[i].convert(line, start, offsets[2 * i + 1]);
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
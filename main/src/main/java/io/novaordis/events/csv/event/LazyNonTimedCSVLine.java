@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event;
+
+import java.util.List;
+
+import io.novaordis.events.api.event.Property;
+
+/**
+ * A non-timed CSV line event whose columns are converted into properties on first access.
+ *
+ * @see LazyLineContent
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class LazyNonTimedCSVLine extends NonTimedCSVLine {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    //
+    // null after the content was copied into the superclass storage
+    //
+    private LazyLineContent content;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public LazyNonTimedCSVLine(LazyLineContent content) {
+
+        //
+        // the superclass storage is empty until the event is modified
+        //
+
+        this.content = content;
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Converts the corresponding column, if not already converted.
+     *
+     * @throws IllegalArgumentException if the column cannot be converted to a property of the right type.
+     */
+    @Override
+    public Property getProperty(String name) {
+
+        return content == null ? super.getProperty(name) : content.getProperty(name);
+    }
+
+    /**
+     * Converts all columns that were not converted yet.
+     *
+     * @throws IllegalArgumentException if a column cannot be converted to a property of the right type.
+     */
+    @Override
+    public List<Property> getProperties() {
+
+        return content == null ? super.getProperties() : content.getProperties();
+    }
+
+    @Override
+    public Long getLineNumber() {
+
+        return content == null ? super.getLineNumber() : content.getLineNumber();
+    }
+
+    /**
+     * Modifying the event converts all columns and copies them into the regular event storage.
+     */
+    @Override
+    public Property setProperty(Property p) {
+
+        if (content != null) {
+
+            List<Property> properties = content.getProperties();
+
+            content = null;
+
+            for(Property c: properties) {
+
+                super.setProperty(c);
+            }
+        }
+
+        return super.setProperty(p);
+    }
+
+    /**
+     * @return the raw content, or null if the event was modified, and the content was converted and copied into the
+     * regular event storage.
+     */
+    public LazyLineContent getContent() {
+
+        return content;
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
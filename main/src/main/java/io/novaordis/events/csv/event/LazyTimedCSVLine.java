@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.novaordis.events.api.event.Property;
+
+/**
+ * A timed CSV line event whose columns are converted into properties on first access.
+ *
+ * @see LazyLineContent
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class LazyTimedCSVLine extends TimedCSVLine {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    private static Property timestamp(LazyLineContent content) {
+
+        Property p = content.getTimestampProperty();
+
+        if (p == null) {
+
+            throw new IllegalArgumentException("line " + content.getLineNumber() + " is not timed");
+        }
+
+        return p;
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    //
+    // null after the content was copied into the superclass storage
+    //
+    private LazyLineContent content;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    /**
+     * @exception IllegalArgumentException if the content is not timed.
+     */
+    public LazyTimedCSVLine(LazyLineContent content) {
+
+        //
+        // the superclass storage only holds the timestamp until the event is modified
+        //
+
+        super(new ArrayList<>(Collections.<Property>singletonList(timestamp(content))));
+
+        this.content = content;
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Converts the corresponding column, if not already converted.
+     *
+     * @throws IllegalArgumentException if the column cannot be converted to a property of the right type.
+     */
+    @Override
+    public Property getProperty(String name) {
+
+        return content == null ? super.getProperty(name) : content.getProperty(name);
+    }
+
+    /**
+     * Converts all columns that were not converted yet.
+     *
+     * @throws IllegalArgumentException if a column cannot be converted to a property of the right type.
+     */
+    @Override
+    public List<Property> getProperties() {
+
+        return content == null ? super.getProperties() : content.getProperties();
+    }
+
+    @Override
+    public Long getLineNumber() {
+
+        return content == null ? super.getLineNumber() : content.getLineNumber();
+    }
+
+    /**
+     * Modifying the event converts all columns and copies them into the regular event storage.
+     */
+    @Override
+    public Property setProperty(Property p) {
+
+        if (content != null) {
+
+            List<Property> properties = content.getProperties();
+
+            content = null;
+
+            for(Property c: properties) {
+
+                super.setProperty(c);
+            }
+        }
+
+        return super.setProperty(p);
+    }
+
+    /**
+     * @return the raw content, or null if the event was modified, and the content was converted and copied into the
+     * regular event storage.
+     */
+    public LazyLineContent getContent() {
+
+        return content;
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
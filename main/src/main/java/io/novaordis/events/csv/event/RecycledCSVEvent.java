@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event;
+
+/**
+ * A CSV line event that is reused by the parser for the next line, when the parser runs with event reuse enabled.
+ *
+ * The event is valid only until the parser processes the next line, when its content is replaced. Procedures that
+ * only inspect or forward events as they receive them do not have to do anything special. Procedures that keep
+ * references to events past the current invocation, or hand them over to other threads, must keep a copy() instead.
+ * Recycled events are read-only: their mutators throw UnsupportedOperationException. Their properties may be shared
+ * with the events of the following lines and with the copies, so they must not be modified either.
+ *
+ * @see io.novaordis.events.csv.CSVParser#setReuseEvents(boolean)
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public interface RecycledCSVEvent extends CSVEvent {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return an independent, regular (TimedCSVLine or NonTimedCSVLine) event with the current content. Properties can
+     * be added to, replaced in or removed from the copy, but the properties themselves are shared with the recycled
+     * event, and must not be modified.
+     */
+    CSVEvent copy();
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.LongProperty;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.TimestampProperty;
+
+/**
+ * The content of the current line, shared by the parser's recycled events, and filled by the parser for each line.
+ * The property list view and the column array are reused, and the line number property is only created if requested.
+ *
+ * The properties are listed in the same order as in the regular events: the timestamp, if any, the line number and
+ * then the columns in the line order.
+ *
+ * @see RecycledCSVEvent
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class RecycledLineContent {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private long lineNumber;
+
+    private LongProperty lineNumberProperty;
+
+    private Property[] columns;
+
+    private int count;
+
+    private int timestampIndex;
+
+    private final List<Property> view;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public RecycledLineContent() {
+
+        this.columns = new Property[16];
+        this.timestampIndex = -1;
+        this.view = new PropertyView();
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Discards the current content and starts a new line.
+     */
+    public void reset(long lineNumber) {
+
+        this.lineNumber = lineNumber;
+        this.lineNumberProperty = null;
+        this.timestampIndex = -1;
+
+        //
+        // release the previous line's properties
+        //
+
+        Arrays.fill(columns, 0, count, null);
+        this.count = 0;
+    }
+
+    /**
+     * Appends the property of the next column.
+     */
+    public void add(Property p) {
+
+        if (count == columns.length) {
+
+            columns = Arrays.copyOf(columns, count * 2);
+        }
+
+        columns[count ++] = p;
+    }
+
+    /**
+     * @param index the index of the column that carries the timestamp, which must be a TimestampProperty, or -1 if
+     *              the line is not timed.
+     */
+    public void setTimestampIndex(int index) {
+
+        if (index != -1 && !(columns[index] instanceof TimestampProperty)) {
+
+            throw new IllegalArgumentException("column " + index + " is not a timestamp: " + columns[index]);
+        }
+
+        this.timestampIndex = index;
+    }
+
+    /**
+     * @return the number of columns added since the last reset.
+     */
+    public int size() {
+
+        return count;
+    }
+
+    public long getLineNumber() {
+
+        return lineNumber;
+    }
+
+    /**
+     * @return the timestamp property, or null if the line is not timed.
+     */
+    public TimestampProperty getTimestampProperty() {
+
+        return timestampIndex == -1 ? null : (TimestampProperty)columns[timestampIndex];
+    }
+
+    public Property getProperty(String name) {
+
+        if (Event.LINE_PROPERTY_NAME.equals(name)) {
+
+            return getLineNumberProperty();
+        }
+
+        for(int i = 0; i < count; i ++) {
+
+            if (columns[i].getName().equals(name)) {
+
+                return columns[i];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return a read-only view, which reflects the current line, and which is reused for the next lines.
+     */
+    public List<Property> getProperties() {
+
+        return view;
+    }
+
+    /**
+     * @return an independent copy of the current properties, in order.
+     */
+    public List<Property> copyProperties() {
+
+        return new ArrayList<>(view);
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private LongProperty getLineNumberProperty() {
+
+        if (lineNumberProperty == null) {
+
+            lineNumberProperty = new LongProperty(Event.LINE_PROPERTY_NAME, lineNumber);
+        }
+
+        return lineNumberProperty;
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    private final class PropertyView extends AbstractList<Property> {
+
+        @Override
+        public Property get(int index) {
+
+            if (index < 0 || index >= size()) {
+
+                throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+            }
+
+            if (timestampIndex == -1) {
+
+                return index == 0 ? getLineNumberProperty() : columns[index - 1];
+            }
+
+            if (index == 0) {
+
+                return columns[timestampIndex];
+            }
+
+            if (index == 1) {
+
+                return getLineNumberProperty();
+            }
+
+            //
+            // the columns, without the timestamp
+            //
+
+            int column = index - 2;
+
+            return columns[column < timestampIndex ? column : column + 1];
+        }
+
+        @Override
+        public int size() {
+
+            return count + 1;
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event;
+
+import java.util.List;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.EventProperty;
+import io.novaordis.events.api.event.FloatProperty;
+import io.novaordis.events.api.event.IntegerProperty;
+import io.novaordis.events.api.event.LongProperty;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.StringProperty;
+
+/**
+ * The non-timed line event reused by the parser when event reuse is enabled. The content is a view of the parser's
+ * current line.
+ *
+ * @see RecycledCSVEvent
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class RecycledNonTimedCSVLine extends NonTimedCSVLine implements RecycledCSVEvent {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final RecycledLineContent content;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public RecycledNonTimedCSVLine(RecycledLineContent content) {
+
+        this.content = content;
+    }
+
+    // RecycledCSVEvent implementation ---------------------------------------------------------------------------------
+
+    @Override
+    public NonTimedCSVLine copy() {
+
+        return new NonTimedCSVLine(content.copyProperties());
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Override
+    public Property getProperty(String name) {
+
+        return content.getProperty(name);
+    }
+
+    @Override
+    public List<Property> getProperties() {
+
+        return content.getProperties();
+    }
+
+    @Override
+    public Long getLineNumber() {
+
+        return content.getLineNumber();
+    }
+
+    @Override
+    public EventProperty getEventProperty(String name) {
+
+        Property p = content.getProperty(name);
+        return p instanceof EventProperty ? (EventProperty)p : null;
+    }
+
+    @Override
+    public LongProperty getLongProperty(String name) {
+
+        Property p = content.getProperty(name);
+        return p instanceof LongProperty ? (LongProperty)p : null;
+    }
+
+    @Override
+    public StringProperty getStringProperty(String name) {
+
+        Property p = content.getProperty(name);
+        return p instanceof StringProperty ? (StringProperty)p : null;
+    }
+
+    @Override
+    public IntegerProperty getIntegerProperty(String name) {
+
+        Property p = content.getProperty(name);
+        return p instanceof IntegerProperty ? (IntegerProperty)p : null;
+    }
+
+    @Override
+    public FloatProperty getFloatProperty(String name) {
+
+        Property p = content.getProperty(name);
+        return p instanceof FloatProperty ? (FloatProperty)p : null;
+    }
+
+    /**
+     * @exception UnsupportedOperationException always, recycled events are read-only.
+     */
+    @Override
+    public void setLineNumber(Long lineNumber) {
+
+        throw readOnly();
+    }
+
+    /**
+     * @exception UnsupportedOperationException always, recycled events are read-only.
+     */
+    @Override
+    public Property setProperty(Property property) {
+
+        if (content == null) {
+
+            //
+            // invoked by the superclass constructor, before the content is installed
+            //
+
+            return super.setProperty(property);
+        }
+
+        throw readOnly();
+    }
+
+    /**
+     * @exception UnsupportedOperationException always, recycled events are read-only.
+     */
+    @Override
+    public Property setLongProperty(String name, Long value) {
+
+        throw readOnly();
+    }
+
+    /**
+     * @exception UnsupportedOperationException always, recycled events are read-only.
+     */
+    @Override
+    public Property setStringProperty(String name, String value) {
+
+        throw readOnly();
+    }
+
+    /**
+     * @exception UnsupportedOperationException always, recycled events are read-only.
+     */
+    @Override
+    public Property setIntegerProperty(String name, Integer value) {
+
+        throw readOnly();
+    }
+
+    /**
+     * @exception UnsupportedOperationException always, recycled events are read-only.
+     */
+    @Override
+    public Property setFloatProperty(String name, Float value) {
+
+        throw readOnly();
+    }
+
+    /**
+     * @exception UnsupportedOperationException always, recycled events are read-only.
+     */
+    @Override
+    public Property setBooleanProperty(String name, Boolean value) {
+
+        throw readOnly();
+    }
+
+    /**
+     * @exception UnsupportedOperationException always, recycled events are read-only.
+     */
+    @Override
+    public Property setEventProperty(String name, Event value) {
+
+        throw readOnly();
+    }
+
+    @Override
+    public String toString() {
+
+        return "RecycledNonTimedCSVLine[line " + content.getLineNumber() + "]";
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private UnsupportedOperationException readOnly() {
+
+        return new UnsupportedOperationException(this + " is read-only, modify a copy() instead");
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
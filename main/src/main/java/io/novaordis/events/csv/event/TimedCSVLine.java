@@ -22,7 +22,9 @@ import java.util.List;
 import io.novaordis.events.api.event.GenericTimedEvent;
 import io.novaordis.events.api.event.Property;
 import io.novaordis.events.api.event.TimedEvent;
+import io.novaordis.events.csv.CSVFormatter;
 import io.novaordis.events.csv.Constants;
+import io.novaordis.events.csv.TimestampFormatter;
 import io.novaordis.events.csv.event.field.CSVFieldImpl;
 
 /**
@@ -61,12 +63,17 @@ public class TimedCSVLine extends GenericTimedEvent implements CSVEvent {
 
     /**
      * Display the value corresponding to all properties (including the line number, if available), in order they are
-     * stored in the event representation. The line always starts with the timestamp.
+     * stored in the event representation. The line always starts with the timestamp. A missing timestamp is rendered
+     * the way CSVFormatter renders it.
+     *
+     * @see CSVFormatter#NULL_EXTERNALIZATION
      */
     @Override
     public String getPreferredRepresentation(String fieldSeparator) {
 
-        String s = Constants.getDefaultTimestampFormat().format(getTime());
+        Long time = getTime();
+
+        String s = time == null ? CSVFormatter.NULL_EXTERNALIZATION : TimestampFormatter.getDefault().format(time);
 
         boolean first = true;
 
@@ -54,6 +54,33 @@ public interface CSVField {
      */
     Property toProperty(String s) throws IllegalArgumentException;
 
+    /**
+     * Range-based variant of toProperty(String): converts the characters between start (inclusive) and end
+     * (exclusive) of the given sequence. The default implementation materializes the token as a String, implementations
+     * that can convert directly from the character range should override it.
+     *
+     * @param s the original (non-null) character sequence, usually a whole CSV line.
+     *
+     * @throws IllegalArgumentException if the argument cannot be converted to a property of the right type.
+     *
+     * @see CSVField#toProperty(String)
+     */
+    default Property toProperty(CharSequence s, int start, int end) throws IllegalArgumentException {
+
+        return toProperty(s.subSequence(start, end).toString());
+    }
+
+    /**
+     * The converter used by the parser for the cells of this field's column. The default implementation delegates to
+     * the toProperty() methods, implementations whose type is known should return a specialized converter.
+     *
+     * @see FieldConverter
+     */
+    default FieldConverter getConverter() {
+
+        return new DelegatingConverter(this);
+    }
+
     /**
      * Timestamp fields are handled differently, so we need a type-level designator for it, we don't want to rely
      * on the name heuristics.
@@ -17,18 +17,12 @@
 package io.novaordis.events.csv.event.field;
 
 
-import java.text.DateFormat;
 import java.text.Format;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import io.novaordis.events.api.event.DateProperty;
-import io.novaordis.events.api.event.DoubleProperty;
-import io.novaordis.events.api.event.FloatProperty;
-import io.novaordis.events.api.event.IntegerProperty;
-import io.novaordis.events.api.event.LongProperty;
 import io.novaordis.events.api.event.Property;
-import io.novaordis.events.api.event.StringProperty;
 import io.novaordis.events.api.event.TimedEvent;
 
 /**
@@ -47,6 +41,21 @@ public class CSVFieldImpl implements CSVField {
 
     // Static ----------------------------------------------------------------------------------------------------------
 
+    //
+    // counts the changes of name or format of all fields
+    //
+    private static final AtomicInteger modificationCount = new AtomicInteger(0);
+
+    /**
+     * @return a counter incremented every time the name or the format of any CSVFieldImpl changes, so the structures
+     * compiled from fields (such as the parser's conversion plans) can detect that they are stale without walking
+     * the fields.
+     */
+    public static int getModificationCount() {
+
+        return modificationCount.get();
+    }
+
     public static String typeToCommandLineLiteral(Class type, Format format) {
 
         String s = "(";
@@ -115,6 +124,8 @@ public class CSVFieldImpl implements CSVField {
     private Class type;
     private Format format;
 
+    private volatile TypedConverter converter;
+
     // Constructors ----------------------------------------------------------------------------------------------------
 
     public CSVFieldImpl(String name, Class type) {
@@ -162,102 +173,30 @@ public class CSVFieldImpl implements CSVField {
     @Override
     public Property toProperty(String s) throws IllegalArgumentException {
 
-        if (String.class.equals(getType())) {
-
-            return new StringProperty(getName(), s);
-        }
-        else if (Integer.class.equals(getType())) {
-
-            Integer i = null;
-
-            if (s != null) {
-
-                try {
-
-                    i = Integer.parseInt(s);
-                }
-                catch (Exception e) {
-
-                    throw new IllegalArgumentException("invalid int value \"" + s + "\"", e);
-                }
-            }
-
-            return new IntegerProperty(getName(), i);
-        }
-        else if (Long.class.equals(getType())) {
-
-            Long l = null;
-
-            if (s != null) {
-
-                try {
-
-                    l = Long.parseLong(s);
-                }
-                catch (Exception e) {
-
-                    throw new IllegalArgumentException("invalid long value \"" + s + "\"", e);
-                }
-            }
-
-            return new LongProperty(getName(), l);
-        }
-        else if (Float.class.equals(getType())) {
-
-            Float f = null;
-
-            if (s != null) {
-
-                try {
-
-                    f = Float.parseFloat(s);
-                }
-                catch (Exception e) {
-
-                    throw new IllegalArgumentException("invalid float value \"" + s + "\"", e);
-                }
-            }
-
-            return new FloatProperty(getName(), f);
-        }
-        else if (Double.class.equals(getType())) {
-
-            Double d = null;
-
-            if (s != null) {
-
-                try {
-
-                    d = Double.parseDouble(s);
-                }
-                catch (Exception e) {
-
-                    throw new IllegalArgumentException("invalid double value \"" + s + "\"", e);
-                }
-            }
-
-            return new DoubleProperty(getName(), d);
-        }
-        else if (Date.class.equals(getType())) {
+        return getConverter().convert(s);
+    }
 
-            Date date = null;
+    @Override
+    public Property toProperty(CharSequence s, int start, int end) throws IllegalArgumentException {
 
-            if (s != null) {
+        return getConverter().convert(s, start, end);
+    }
 
-                try {
+    /**
+     * The converter is created on first access, and discarded when the name or the format change.
+     */
+    @Override
+    public TypedConverter getConverter() {
 
-                    date = ((DateFormat) getFormat()).parse(s);
-                }
-                catch (Exception e) {
+        TypedConverter c = converter;
 
-                    throw new IllegalArgumentException("invalid time value \"" + s + "\"", e);
-                }
-            }
+        if (c == null) {
 
-            return new DateProperty(getName(), date);
+            c = createConverter();
+            converter = c;
         }
 
-        throw new RuntimeException("toProperty() does not know how to handle " + getType());
+        return c;
     }
 
     @Override
@@ -281,10 +220,14 @@ public class CSVFieldImpl implements CSVField {
     public void setName(String name) {
 
         this.name = name;
+        this.converter = null;
+        modificationCount.incrementAndGet();
     }
 
     public void setFormat(Format format) {
         this.format = format;
+        this.converter = null;
+        modificationCount.incrementAndGet();
     }
 
     @Override
@@ -299,6 +242,38 @@ public class CSVFieldImpl implements CSVField {
 
     // Private ---------------------------------------------------------------------------------------------------------
 
+    private TypedConverter createConverter() {
+
+        Class type = getType();
+
+        if (String.class.equals(type)) {
+
+            return new StringConverter(getName());
+        }
+        else if (Integer.class.equals(type)) {
+
+            return new IntegerConverter(getName());
+        }
+        else if (Long.class.equals(type)) {
+
+            return new LongConverter(getName());
+        }
+        else if (Float.class.equals(type)) {
+
+            return new FloatConverter(getName());
+        }
+        else if (Double.class.equals(type)) {
+
+            return new DoubleConverter(getName());
+        }
+        else if (Date.class.equals(type)) {
+
+            return new DateConverter(getName(), getFormat());
+        }
+
+        return new UnsupportedTypeConverter(getName(), type);
+    }
+
     /**
      * We want to enforce using a specialized type for timestamps, so we check the name against known labels.
      *
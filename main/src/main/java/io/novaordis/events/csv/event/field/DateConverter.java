@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import java.text.DateFormat;
+import java.text.Format;
+import java.util.Date;
+
+import io.novaordis.events.api.event.DateProperty;
+import io.novaordis.events.api.event.Property;
+
+/**
+ * Converts cells into DateProperty instances, using the field's format, which must be a DateFormat.
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class DateConverter extends TypedConverter {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final Format format;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public DateConverter(String name, Format format) {
+
+        super(name);
+
+        this.format = format;
+    }
+
+    // TypedConverter overrides ----------------------------------------------------------------------------------------
+
+    @Override
+    public Property convert(CharSequence s, int start, int end) throws IllegalArgumentException {
+
+        String token = s.subSequence(start, end).toString();
+
+        Date date;
+
+        try {
+
+            date = ((DateFormat)format).parse(token);
+        }
+        catch (Exception e) {
+
+            throw new IllegalArgumentException("invalid time value \"" + token + "\"", e);
+        }
+
+        return new DateProperty(getName(), date);
+    }
+
+    @Override
+    public Property convertMissing() throws IllegalArgumentException {
+
+        return new DateProperty(getName(), null);
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import io.novaordis.events.api.event.Property;
+
+/**
+ * The converter of the fields that do not provide a specialized one: it delegates to the field's toProperty()
+ * methods.
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class DelegatingConverter implements FieldConverter {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final CSVField field;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public DelegatingConverter(CSVField field) {
+
+        this.field = field;
+    }
+
+    // FieldConverter implementation -----------------------------------------------------------------------------------
+
+    @Override
+    public Property convert(CharSequence s, int start, int end) throws IllegalArgumentException {
+
+        return field.toProperty(s, start, end);
+    }
+
+    @Override
+    public Property convertMissing() throws IllegalArgumentException {
+
+        return field.toProperty(null);
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    public CSVField getField() {
+
+        return field;
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
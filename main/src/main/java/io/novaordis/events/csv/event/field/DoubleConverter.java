@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import io.novaordis.events.api.event.DoubleProperty;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.csv.NumberParser;
+
+/**
+ * Converts cells into DoubleProperty instances, directly from the character range.
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class DoubleConverter extends TypedConverter {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public DoubleConverter(String name) {
+
+        super(name);
+    }
+
+    // TypedConverter overrides ----------------------------------------------------------------------------------------
+
+    @Override
+    public Property convert(CharSequence s, int start, int end) throws IllegalArgumentException {
+
+        NumberParser parser = NumberParser.getInstance();
+
+        if (parser.parseDouble(s, start, end) != NumberParser.Status.OK) {
+
+            throw new IllegalArgumentException("invalid double value \"" + s.subSequence(start, end) + "\"");
+        }
+
+        return new DoubleProperty(getName(), parser.getDouble());
+    }
+
+    @Override
+    public Property convertMissing() throws IllegalArgumentException {
+
+        return new DoubleProperty(getName(), null);
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import io.novaordis.events.api.event.Property;
+import io.novaordis.utilities.parsing.ParsingException;
+
+/**
+ * Converts the content of a CSV cell into a property. A converter is created once per field, and it is invoked for
+ * every cell of the field's column, so the implementations are specialized by type and make no type decision on the
+ * conversion path.
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public interface FieldConverter {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Converts the characters between start (inclusive) and end (exclusive) of the given sequence.
+     *
+     * @param s the original (non-null) character sequence, usually a whole CSV line.
+     *
+     * @throws IllegalArgumentException if the token cannot be converted to a property of the right type.
+     * @throws ParsingException if the token cannot be converted into a timestamp.
+     */
+    Property convert(CharSequence s, int start, int end) throws IllegalArgumentException, ParsingException;
+
+    /**
+     * Converts a missing value (an empty cell).
+     *
+     * @throws IllegalArgumentException if the converter's type does not accept missing values.
+     * @throws ParsingException if the converter's type does not accept missing values.
+     */
+    Property convertMissing() throws IllegalArgumentException, ParsingException;
+}
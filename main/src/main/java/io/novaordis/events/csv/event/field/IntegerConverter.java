@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import io.novaordis.events.api.event.IntegerProperty;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.csv.NumberParser;
+
+/**
+ * Converts cells into IntegerProperty instances, directly from the character range.
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class IntegerConverter extends TypedConverter {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public IntegerConverter(String name) {
+
+        super(name);
+    }
+
+    // TypedConverter overrides ----------------------------------------------------------------------------------------
+
+    @Override
+    public Property convert(CharSequence s, int start, int end) throws IllegalArgumentException {
+
+        NumberParser parser = NumberParser.getInstance();
+
+        if (parser.parseInt(s, start, end) != NumberParser.Status.OK) {
+
+            throw new IllegalArgumentException("invalid int value \"" + s.subSequence(start, end) + "\"");
+        }
+
+        return new IntegerProperty(getName(), parser.getInt());
+    }
+
+    @Override
+    public Property convertMissing() throws IllegalArgumentException {
+
+        return new IntegerProperty(getName(), null);
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -17,6 +17,7 @@
 package io.novaordis.events.csv.event.field;
 
 import java.text.DateFormat;
+import java.text.Format;
 import java.util.Date;
 
 import io.novaordis.events.api.event.TimedEvent;
@@ -40,6 +41,8 @@ public class TimestampCSVField extends CSVFieldImpl {
 
     // Attributes ------------------------------------------------------------------------------------------------------
 
+    private volatile TimestampConverter timestampConverter;
+
     // Constructors ----------------------------------------------------------------------------------------------------
 
     public TimestampCSVField() {
@@ -76,6 +79,13 @@ public class TimestampCSVField extends CSVFieldImpl {
         return (DateFormat)super.getFormat();
     }
 
+    @Override
+    public void setFormat(Format format) {
+
+        super.setFormat(format);
+        this.timestampConverter = null;
+    }
+
     @Override
     public String getSpecification() {
 
@@ -90,6 +100,25 @@ public class TimestampCSVField extends CSVFieldImpl {
 
     // Public ----------------------------------------------------------------------------------------------------------
 
+    /**
+     * The converter that produces the event timestamp from this field's values. The format is compiled on first
+     * access, and compiled again if the format changes.
+     *
+     * @see TimestampParser
+     */
+    public TimestampConverter getTimestampConverter() {
+
+        TimestampConverter c = timestampConverter;
+
+        if (c == null) {
+
+            c = new TimestampConverter(getFormat());
+            timestampConverter = c;
+        }
+
+        return c;
+    }
+
     // Package protected -----------------------------------------------------------------------------------------------
 
     // Protected -------------------------------------------------------------------------------------------------------
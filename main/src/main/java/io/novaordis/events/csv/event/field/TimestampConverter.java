@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import java.text.Format;
+
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.TimestampProperty;
+import io.novaordis.utilities.parsing.ParsingException;
+
+/**
+ * Converts the cells of the column that carries the event timestamp into TimestampProperty instances. The format is
+ * the timestamp field's format, compiled into a TimestampParser.
+ *
+ * @see TimestampParser
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class TimestampConverter implements FieldConverter {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the converter for the given timestamp field. TimestampCSVField instances cache their converter, so the
+     * format is compiled only once per field.
+     */
+    public static TimestampConverter forField(CSVField field) {
+
+        if (field instanceof TimestampCSVField) {
+
+            return ((TimestampCSVField)field).getTimestampConverter();
+        }
+
+        return new TimestampConverter(field.getFormat());
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final TimestampParser parser;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public TimestampConverter(Format format) {
+
+        this.parser = TimestampParser.compile(format);
+    }
+
+    // FieldConverter implementation -----------------------------------------------------------------------------------
+
+    @Override
+    public Property convert(CharSequence s, int start, int end) throws ParsingException {
+
+        try {
+
+            return new TimestampProperty(parser.parse(s, start, end));
+        }
+        catch(IllegalArgumentException e) {
+
+            throw invalidTimestamp(s.subSequence(start, end).toString(), e);
+        }
+    }
+
+    @Override
+    public Property convertMissing() throws ParsingException {
+
+        return convert(null);
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @throws ParsingException if the argument does not match the timestamp format.
+     */
+    public Property convert(String s) throws ParsingException {
+
+        try {
+
+            return new TimestampProperty(parser.parse(s));
+        }
+        catch(IllegalArgumentException e) {
+
+            throw invalidTimestamp(s, e);
+        }
+    }
+
+    public Format getFormat() {
+
+        return parser.getFormat();
+    }
+
+    public TimestampParser getParser() {
+
+        return parser;
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * The cause is the format's exception, if available.
+     */
+    private static ParsingException invalidTimestamp(String s, IllegalArgumentException e) {
+
+        return new ParsingException(
+                "invalid timestamp value \"" + s + "\", does not match the required timestamp format",
+                e.getCause() == null ? e : e.getCause());
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
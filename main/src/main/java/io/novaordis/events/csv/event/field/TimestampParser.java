@@ -0,0 +1,683 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import java.text.DateFormat;
+import java.text.DecimalFormat;
+import java.text.Format;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import io.novaordis.events.csv.NumberParser;
+import io.novaordis.utilities.time.TimestampImpl;
+
+/**
+ * A timestamp parser compiled from a DateFormat. SimpleDateFormat patterns that consist only of fixed width numeric
+ * fields (yyyy, yy, MM, dd, HH, mm, ss, SSS) and literals, such as the default "MM/dd/yy HH:mm:ss", are compiled into a
+ * fixed layout: the fields are read from their positions without allocating, and the time is computed with a per-thread
+ * copy of the format's calendar, so the result is the same as the one produced by the format. UTC milliseconds formats
+ * are parsed as longs.
+ *
+ * Consecutive timestamps usually share their date, hour and minute, so the compiled layouts that have a minute field
+ * remember the last parsed prefix (all fields but the seconds and the milliseconds) together with the UTC milliseconds
+ * of the beginning of its minute. Timestamps with the same prefix are computed by adding the seconds and the
+ * milliseconds to that base, without using the calendar.
+ *
+ * Input that does not match the layout (different length, unexpected literals, non-ASCII digits, the ambiguous two-digit
+ * year), and all other formats, are parsed with the DateFormat. The parsing is thread safe: SimpleDateFormat instances,
+ * which are not, are cloned per thread, other formats are used under their own lock.
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public final class TimestampParser {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    //
+    // layout field codes
+    //
+
+    private static final int YEAR = 0;
+    private static final int TWO_DIGIT_YEAR = 1;
+    private static final int MONTH = 2;
+    private static final int DAY = 3;
+    private static final int HOUR = 4;
+    private static final int MINUTE = 5;
+    private static final int SECOND = 6;
+    private static final int MILLISECOND = 7;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @param format the timestamp format. May be null, in which case the parser will fail on every input, as the
+     *               format would.
+     */
+    public static TimestampParser compile(Format format) {
+
+        return new TimestampParser(format);
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final Format format;
+
+    private final boolean utcMilliseconds;
+
+    //
+    // the fixed layout, null if the format could not be compiled into one
+    //
+
+    private final int[] fieldCodes;
+    private final int[] fieldOffsets;
+    private final int[] fieldWidths;
+
+    private final int[] literalOffsets;
+    private final char[] literals;
+
+    private final int length;
+
+    //
+    // the positions of the prefix (date, hour, minute) digits, null if the layout does not support the minute base
+    // cache; and the positions of the seconds and milliseconds fields, -1 if absent
+    //
+
+    private final int[] prefixOffsets;
+    private final int secondOffset;
+    private final int millisecondOffset;
+
+    private volatile MinuteBase minuteBase;
+
+    //
+    // SimpleDateFormat's two-digit year resolution
+    //
+
+    private final int defaultCenturyStartYear;
+
+    private final ThreadLocal<DateFormat> threadFormat;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    private TimestampParser(Format format) {
+
+        this.format = format;
+        this.utcMilliseconds = format instanceof UTCMillisecondsLongTimestampFormat;
+
+        List<int[]> fields = new ArrayList<>();
+        StringBuilder literalChars = new StringBuilder();
+        List<Integer> literalPositions = new ArrayList<>();
+
+        int length = -1;
+
+        if (isCompilable(format)) {
+
+            length = compile(((SimpleDateFormat)format).toPattern(), fields, literalChars, literalPositions);
+        }
+
+        if (length < 0) {
+
+            this.fieldCodes = null;
+            this.fieldOffsets = null;
+            this.fieldWidths = null;
+            this.literalOffsets = null;
+            this.literals = null;
+            this.length = -1;
+            this.defaultCenturyStartYear = 0;
+            this.prefixOffsets = null;
+            this.secondOffset = -1;
+            this.millisecondOffset = -1;
+        }
+        else {
+
+            this.fieldCodes = new int[fields.size()];
+            this.fieldOffsets = new int[fields.size()];
+            this.fieldWidths = new int[fields.size()];
+
+            for(int i = 0; i < fields.size(); i ++) {
+
+                int[] f = fields.get(i);
+                fieldCodes[i] = f[0];
+                fieldOffsets[i] = f[1];
+                fieldWidths[i] = f[2];
+            }
+
+            this.literalOffsets = new int[literalPositions.size()];
+
+            for(int i = 0; i < literalOffsets.length; i ++) {
+
+                literalOffsets[i] = literalPositions.get(i);
+            }
+
+            this.literals = literalChars.toString().toCharArray();
+            this.length = length;
+
+            List<Integer> prefix = new ArrayList<>();
+            int secondOffset = -1;
+            int millisecondOffset = -1;
+            boolean minute = false;
+
+            for(int[] f: fields) {
+
+                if (f[0] == SECOND) {
+
+                    secondOffset = f[1];
+                }
+                else if (f[0] == MILLISECOND) {
+
+                    millisecondOffset = f[1];
+                }
+                else {
+
+                    minute |= f[0] == MINUTE;
+
+                    for(int i = 0; i < f[2]; i ++) {
+
+                        prefix.add(f[1] + i);
+                    }
+                }
+            }
+
+            if (minute) {
+
+                this.prefixOffsets = new int[prefix.size()];
+
+                for(int i = 0; i < prefixOffsets.length; i ++) {
+
+                    prefixOffsets[i] = prefix.get(i);
+                }
+            }
+            else {
+
+                this.prefixOffsets = null;
+            }
+
+            this.secondOffset = secondOffset;
+            this.millisecondOffset = millisecondOffset;
+
+            SimpleDateFormat sdf = (SimpleDateFormat)format;
+            Calendar c = (Calendar)sdf.getCalendar().clone();
+            c.setTime(sdf.get2DigitYearStart());
+            this.defaultCenturyStartYear = c.get(Calendar.YEAR);
+        }
+
+        if (format instanceof SimpleDateFormat) {
+
+            //
+            // SimpleDateFormat is not thread safe, each thread gets its own copy, whose calendar is also used by the
+            // compiled layout
+            //
+
+            final SimpleDateFormat prototype = (SimpleDateFormat)((SimpleDateFormat)format).clone();
+            this.threadFormat = ThreadLocal.withInitial(() -> (DateFormat)prototype.clone());
+        }
+        else {
+
+            this.threadFormat = null;
+        }
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Parses the characters between start (inclusive) and end (exclusive).
+     *
+     * @param s may be null, in which case the behavior is the format's.
+     *
+     * @return the UTC milliseconds corresponding to the timestamp.
+     *
+     * @throws IllegalArgumentException if the characters do not represent a timestamp in the parser's format. The
+     * underlying cause, if any, is the format's exception.
+     */
+    public long parse(CharSequence s, int start, int end) throws IllegalArgumentException {
+
+        if (s != null) {
+
+            if (utcMilliseconds) {
+
+                NumberParser p = NumberParser.getInstance();
+
+                if (p.parseLong(s, start, end) == NumberParser.Status.OK) {
+
+                    return p.getLong();
+                }
+            }
+            else if (fieldCodes != null && end - start == length) {
+
+                long time = parseLayout(s, start);
+
+                if (time != Long.MIN_VALUE) {
+
+                    return time;
+                }
+            }
+        }
+
+        return parseWithFormat(s == null ? null : s.subSequence(start, end).toString());
+    }
+
+    /**
+     * @see TimestampParser#parse(CharSequence, int, int)
+     */
+    public long parse(String s) throws IllegalArgumentException {
+
+        return s == null ? parseWithFormat(null) : parse(s, 0, s.length());
+    }
+
+    /**
+     * @return true if the format was compiled into a fixed layout or into a long parser, false if every input is
+     * parsed with the DateFormat.
+     */
+    public boolean isCompiled() {
+
+        return utcMilliseconds || fieldCodes != null;
+    }
+
+    public Format getFormat() {
+
+        return format;
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static boolean isCompilable(Format format) {
+
+        if (!(format instanceof SimpleDateFormat)) {
+
+            return false;
+        }
+
+        SimpleDateFormat sdf = (SimpleDateFormat)format;
+
+        //
+        // we only handle the Gregorian calendar and ASCII digits
+        //
+
+        if (sdf.getCalendar() == null || !GregorianCalendar.class.equals(sdf.getCalendar().getClass())) {
+
+            return false;
+        }
+
+        NumberFormat nf = sdf.getNumberFormat();
+
+        return nf instanceof DecimalFormat && ((DecimalFormat)nf).getDecimalFormatSymbols().getZeroDigit() == '0';
+    }
+
+    /**
+     * Compiles the pattern into a list of {code, offset, width} fields and a list of literals.
+     *
+     * @return the length of the layout, or -1 if the pattern contains elements that cannot be handled by a fixed
+     * layout.
+     */
+    private static int compile(String pattern, List<int[]> fields, StringBuilder literals, List<Integer> offsets) {
+
+        int offset = 0;
+
+        for(int i = 0; i < pattern.length(); ) {
+
+            char c = pattern.charAt(i);
+
+            if (c == '\'') {
+
+                //
+                // quoted literal, '' is a single quote, inside or outside quoted text
+                //
+
+                i ++;
+
+                if (i < pattern.length() && pattern.charAt(i) == '\'') {
+
+                    literals.append('\'');
+                    offsets.add(offset ++);
+                    i ++;
+                    continue;
+                }
+
+                for(;;) {
+
+                    if (i >= pattern.length()) {
+
+                        return -1;
+                    }
+
+                    char q = pattern.charAt(i ++);
+
+                    if (q == '\'') {
+
+                        if (i < pattern.length() && pattern.charAt(i) == '\'') {
+
+                            literals.append('\'');
+                            offsets.add(offset ++);
+                            i ++;
+                            continue;
+                        }
+
+                        break;
+                    }
+
+                    if (q >= '0' && q <= '9') {
+
+                        return -1;
+                    }
+
+                    literals.append(q);
+                    offsets.add(offset ++);
+                }
+
+                continue;
+            }
+
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+
+                int count = 1;
+
+                while(i + count < pattern.length() && pattern.charAt(i + count) == c) {
+
+                    count ++;
+                }
+
+                int code;
+
+                if (c == 'y' && count == 4) {
+
+                    code = YEAR;
+                }
+                else if (c == 'y' && count == 2) {
+
+                    code = TWO_DIGIT_YEAR;
+                }
+                else if (c == 'M' && count == 2) {
+
+                    code = MONTH;
+                }
+                else if (c == 'd' && count == 2) {
+
+                    code = DAY;
+                }
+                else if (c == 'H' && count == 2) {
+
+                    code = HOUR;
+                }
+                else if (c == 'm' && count == 2) {
+
+                    code = MINUTE;
+                }
+                else if (c == 's' && count == 2) {
+
+                    code = SECOND;
+                }
+                else if (c == 'S' && count == 3) {
+
+                    code = MILLISECOND;
+                }
+                else {
+
+                    return -1;
+                }
+
+                fields.add(new int[] { code, offset, count });
+                offset += count;
+                i += count;
+                continue;
+            }
+
+            //
+            // digit literals would be consumed by the preceding numeric field
+            //
+
+            if (c >= '0' && c <= '9') {
+
+                return -1;
+            }
+
+            literals.append(c);
+            offsets.add(offset ++);
+            i ++;
+        }
+
+        return offset;
+    }
+
+    /**
+     * @return the time, or Long.MIN_VALUE if the input must be handled by the DateFormat.
+     */
+    private long parseLayout(CharSequence s, int start) {
+
+        for(int i = 0; i < literalOffsets.length; i ++) {
+
+            if (s.charAt(start + literalOffsets[i]) != literals[i]) {
+
+                return Long.MIN_VALUE;
+            }
+        }
+
+        int second = secondOffset < 0 ? 0 : digits(s, start + secondOffset, 2);
+        int millisecond = millisecondOffset < 0 ? 0 : digits(s, start + millisecondOffset, 3);
+
+        boolean inMinute = second >= 0 && second <= 59 && millisecond >= 0;
+
+        MinuteBase cached = minuteBase;
+
+        if (inMinute && cached != null && cached.matches(s, start, prefixOffsets)) {
+
+            return cached.base + second * 1000L + millisecond;
+        }
+
+        Calendar calendar = threadFormat.get().getCalendar();
+
+        calendar.clear();
+
+        for(int i = 0; i < fieldCodes.length; i ++) {
+
+            int value = digits(s, start + fieldOffsets[i], fieldWidths[i]);
+
+            if (value < 0) {
+
+                return Long.MIN_VALUE;
+            }
+
+            switch (fieldCodes[i]) {
+
+                case YEAR:
+                    calendar.set(Calendar.YEAR, value);
+                    break;
+
+                case TWO_DIGIT_YEAR:
+
+                    //
+                    // the same resolution as SimpleDateFormat's, which does additional work for the ambiguous year
+                    //
+
+                    int ambiguousTwoDigitYear = defaultCenturyStartYear % 100;
+
+                    if (value == ambiguousTwoDigitYear) {
+
+                        return Long.MIN_VALUE;
+                    }
+
+                    value += (defaultCenturyStartYear / 100) * 100 + (value < ambiguousTwoDigitYear ? 100 : 0);
+                    calendar.set(Calendar.YEAR, value);
+                    break;
+
+                case MONTH:
+                    calendar.set(Calendar.MONTH, value - 1);
+                    break;
+
+                case DAY:
+                    calendar.set(Calendar.DAY_OF_MONTH, value);
+                    break;
+
+                case HOUR:
+                    calendar.set(Calendar.HOUR_OF_DAY, value);
+                    break;
+
+                case MINUTE:
+                    calendar.set(Calendar.MINUTE, value);
+                    break;
+
+                case SECOND:
+                    calendar.set(Calendar.SECOND, value);
+                    break;
+
+                default:
+                    calendar.set(Calendar.MILLISECOND, value);
+            }
+        }
+
+        try {
+
+            if (prefixOffsets == null || !inMinute) {
+
+                return calendar.getTimeInMillis();
+            }
+
+            //
+            // compute the beginning and the end of the minute instead; if the minute is regular - the calendar maps all
+            // its seconds linearly, which is not the case for the minutes that contain a time zone offset transition -
+            // the time is derived from its beginning, which is cached for the subsequent timestamps
+            //
+
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+
+            long base = calendar.getTimeInMillis();
+
+            calendar.set(Calendar.SECOND, 59);
+            calendar.set(Calendar.MILLISECOND, 999);
+
+            if (calendar.getTimeInMillis() == base + 59999L) {
+
+                cacheMinuteBase(s, start, base);
+
+                return base + second * 1000L + millisecond;
+            }
+
+            calendar.set(Calendar.SECOND, second);
+            calendar.set(Calendar.MILLISECOND, millisecond);
+
+            return calendar.getTimeInMillis();
+        }
+        catch(IllegalArgumentException e) {
+
+            //
+            // out of range values with a non-lenient calendar, the format reports the error
+            //
+
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private void cacheMinuteBase(CharSequence s, int start, long base) {
+
+        char[] prefix = new char[prefixOffsets.length];
+
+        for(int i = 0; i < prefix.length; i ++) {
+
+            prefix[i] = s.charAt(start + prefixOffsets[i]);
+        }
+
+        minuteBase = new MinuteBase(prefix, base);
+    }
+
+    /**
+     * @return the value of the ASCII decimal of the given width, or -1 if a character is not a digit.
+     */
+    private static int digits(CharSequence s, int from, int width) {
+
+        int value = 0;
+
+        for(int i = from, to = from + width; i < to; i ++) {
+
+            int digit = s.charAt(i) - '0';
+
+            if (digit < 0 || digit > 9) {
+
+                return -1;
+            }
+
+            value = value * 10 + digit;
+        }
+
+        return value;
+    }
+
+    private long parseWithFormat(String s) throws IllegalArgumentException {
+
+        try {
+
+            if (threadFormat != null) {
+
+                return new TimestampImpl(s, threadFormat.get()).getTime();
+            }
+
+            DateFormat f = (DateFormat)format;
+
+            if (f == null) {
+
+                return new TimestampImpl(s, f).getTime();
+            }
+
+            synchronized (f) {
+
+                return new TimestampImpl(s, f).getTime();
+            }
+        }
+        catch(Exception e) {
+
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    /**
+     * The last parsed date, hour and minute prefix and the UTC milliseconds of the beginning of its minute. Immutable,
+     * so it can be shared between threads via a volatile reference.
+     */
+    private static final class MinuteBase {
+
+        private final char[] prefix;
+        private final long base;
+
+        private MinuteBase(char[] prefix, long base) {
+
+            this.prefix = prefix;
+            this.base = base;
+        }
+
+        private boolean matches(CharSequence s, int start, int[] offsets) {
+
+            for(int i = 0; i < prefix.length; i ++) {
+
+                if (s.charAt(start + offsets[i]) != prefix[i]) {
+
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+}
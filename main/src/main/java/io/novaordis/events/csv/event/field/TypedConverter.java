@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import io.novaordis.events.api.event.Property;
+
+/**
+ * Base class for the converters of fields with a known type. The conversions do not throw ParsingException, the values
+ * that cannot be converted are reported with IllegalArgumentException, like CSVField#toProperty(String) does.
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public abstract class TypedConverter implements FieldConverter {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private final String name;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    protected TypedConverter(String name) {
+
+        this.name = name;
+    }
+
+    // FieldConverter implementation -----------------------------------------------------------------------------------
+
+    @Override
+    public abstract Property convert(CharSequence s, int start, int end) throws IllegalArgumentException;
+
+    @Override
+    public abstract Property convertMissing() throws IllegalArgumentException;
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Converts a whole string, null being handled as a missing value.
+     *
+     * @throws IllegalArgumentException if the argument cannot be converted to a property of the right type.
+     */
+    public Property convert(String s) throws IllegalArgumentException {
+
+        if (s == null) {
+
+            return convertMissing();
+        }
+
+        return convert(s, 0, s.length());
+    }
+
+    /**
+     * The name of the properties produced by this converter.
+     */
+    public String getName() {
+
+        return name;
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
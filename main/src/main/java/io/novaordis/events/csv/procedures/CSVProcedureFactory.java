@@ -16,6 +16,8 @@
 
 package io.novaordis.events.csv.procedures;
 
+import io.novaordis.events.csv.CSVParser;
+import io.novaordis.events.csv.ReferencedProperties;
 import io.novaordis.events.csv.procedures.headers.Headers;
 import io.novaordis.events.processing.Procedure;
 import io.novaordis.events.processing.ProcedureFactory;
@@ -40,8 +42,26 @@ public class CSVProcedureFactory implements ProcedureFactory {
 
     // Attributes ------------------------------------------------------------------------------------------------------
 
+    private CSVParser parser;
+
     // Constructors ----------------------------------------------------------------------------------------------------
 
+    public CSVProcedureFactory() {
+
+        this(null);
+    }
+
+    /**
+     * @param parser the parser that feeds the procedures created by this factory. If the procedure declares the
+     *               properties it references, they are installed as the parser's projection. May be null.
+     *
+     * @see ReferencedProperties
+     */
+    public CSVProcedureFactory(CSVParser parser) {
+
+        this.parser = parser;
+    }
+
     // ProcedureFactory implementation ---------------------------------------------------------------------------------
 
     @Override
@@ -49,7 +69,7 @@ public class CSVProcedureFactory implements ProcedureFactory {
 
         if (Arrays.asList(Headers.COMMAND_LINE_LABELS).contains(commandLineLabel)) {
 
-            return new Headers(from, arguments, System.out);
+            return project(new Headers(from, arguments, System.out));
         }
         else {
 
@@ -66,6 +86,16 @@ public class CSVProcedureFactory implements ProcedureFactory {
 
     // Private ---------------------------------------------------------------------------------------------------------
 
+    private Procedure project(Procedure p) {
+
+        if (parser != null && p instanceof ReferencedProperties) {
+
+            parser.setProjection(((ReferencedProperties)p).getReferencedPropertyNames());
+        }
+
+        return p;
+    }
+
     // Inner classes ---------------------------------------------------------------------------------------------------
 
 }
@@ -20,7 +20,9 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -32,7 +34,8 @@ import io.novaordis.events.api.event.EndOfStreamEvent;
 import io.novaordis.events.api.event.Event;
 import io.novaordis.events.api.event.Property;
 import io.novaordis.events.api.event.TimedEvent;
-import io.novaordis.events.csv.Constants;
+import io.novaordis.events.csv.ReferencedProperties;
+import io.novaordis.events.csv.TimestampFormatter;
 import io.novaordis.events.csv.event.CSVHeaders;
 import io.novaordis.events.processing.EventProcessingException;
 import io.novaordis.events.processing.TextOutputProcedure;
@@ -44,7 +47,7 @@ import io.novaordis.utilities.UserErrorException;
  * @author Ovidiu Feodorov <ovidiu@novaordis.com>
  * @since 8/7/17
  */
-public class Headers extends TextOutputProcedure {
+public class Headers extends TextOutputProcedure implements ReferencedProperties {
 
     // Constants -------------------------------------------------------------------------------------------------------
 
@@ -117,6 +120,17 @@ public class Headers extends TextOutputProcedure {
         return Arrays.asList(COMMAND_LINE_LABELS);
     }
 
+    // ReferencedProperties implementation -----------------------------------------------------------------------------
+
+    /**
+     * The procedure only looks at the header events, so none of the data line properties is needed.
+     */
+    @Override
+    public Set<String> getReferencedPropertyNames() {
+
+        return Collections.emptySet();
+    }
+
     // ProcedureBase overrides -----------------------------------------------------------------------------------------
 
     @Override
@@ -437,7 +451,7 @@ public class Headers extends TextOutputProcedure {
 
                 prefixLine +=
                         ", applies to events recorded on " +
-                                Constants.getDefaultTimestampFormat().format(nextTimedEventTimestamp) +
+                                TimestampFormatter.getDefault().format(nextTimedEventTimestamp) +
                                 " and after:";
             }
             else {
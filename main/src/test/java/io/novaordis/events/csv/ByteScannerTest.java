@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class ByteScannerTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void zeroBytes() throws Exception {
+
+        assertEquals(0L, ByteScanner.zeroBytes(0x0101010101010101L));
+        assertEquals(0x8080808080808080L, ByteScanner.zeroBytes(0L));
+        assertEquals(0x0000000000000080L, ByteScanner.zeroBytes(0x0101010101010100L));
+
+        //
+        // the exact variant: no false positive in the byte adjacent to a zero byte
+        //
+        assertEquals(0x0000000000008000L, ByteScanner.zeroBytes(0x0101010101010001L));
+        assertEquals(0x0080000000000000L, ByteScanner.zeroBytes(0x8000808080808080L));
+    }
+
+    @Test
+    public void indexOf_NotFound() throws Exception {
+
+        ByteBuffer b = bytes("abcdefghijklmnopqrstuvwxyz");
+
+        assertEquals(26, ByteScanner.indexOf(b, 0, 26, (byte)',', (byte)'"'));
+        assertEquals(26, ByteScanner.indexOf(b, 0, 26, (byte)'"'));
+    }
+
+    @Test
+    public void indexOf_WithinFirstWord() throws Exception {
+
+        ByteBuffer b = bytes("ab,d\"fghijk");
+
+        assertEquals(2, ByteScanner.indexOf(b, 0, b.capacity(), (byte)',', (byte)'"'));
+        assertEquals(4, ByteScanner.indexOf(b, 0, b.capacity(), (byte)'"'));
+        assertEquals(4, ByteScanner.indexOf(b, 3, b.capacity(), (byte)',', (byte)'"'));
+    }
+
+    @Test
+    public void indexOf_InRemainder() throws Exception {
+
+        ByteBuffer b = bytes("0123456789,");
+
+        assertEquals(10, ByteScanner.indexOf(b, 0, 11, (byte)',', (byte)'"'));
+    }
+
+    @Test
+    public void indexOf_DoesNotLookBeyondInterval() throws Exception {
+
+        ByteBuffer b = bytes("0123456789,,,,,,,");
+
+        assertEquals(9, ByteScanner.indexOf(b, 1, 9, (byte)',', (byte)'"'));
+        assertEquals(9, ByteScanner.indexOf(b, 1, 9, (byte)','));
+    }
+
+    @Test
+    public void indexOf_MultiByteContent() throws Exception {
+
+        //
+        // UTF-8 continuation bytes have the high bit set, they must not be mistaken for matches
+        //
+
+        ByteBuffer b = bytes("\u00e9\u00fc\u00e9\u00fc\u00e9\u00fc,");
+
+        assertEquals(12, ByteScanner.indexOf(b, 0, b.capacity(), (byte)',', (byte)'"'));
+    }
+
+    @Test
+    public void indexOf_ConsistentWithByteByByteScan() throws Exception {
+
+        Random r = new Random(0);
+
+        byte[] alphabet = { ',', '"', 'a', '1', ' ', (byte)0xC3, (byte)0xA9, 0, (byte)0x80, (byte)0xFF, 0x2B, 0x2D };
+
+        for(int k = 0; k < 2000; k ++) {
+
+            byte[] content = new byte[r.nextInt(40)];
+
+            for(int i = 0; i < content.length; i ++) {
+
+                content[i] = alphabet[r.nextInt(r.nextBoolean() ? 2 : alphabet.length)];
+            }
+
+            for(ByteBuffer b: new ByteBuffer[] {
+                    ByteBuffer.wrap(content),
+                    ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN),
+                    ByteBuffer.allocateDirect(content.length).put(content) }) {
+
+                int from = content.length == 0 ? 0 : r.nextInt(content.length);
+
+                assertEquals(scan(content, from, (byte)',', (byte)'"'),
+                        ByteScanner.indexOf(b, from, content.length, (byte)',', (byte)'"'));
+
+                assertEquals(scan(content, from, (byte)'"', (byte)'"'),
+                        ByteScanner.indexOf(b, from, content.length, (byte)'"'));
+            }
+        }
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static ByteBuffer bytes(String s) {
+
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int scan(byte[] content, int from, byte a, byte b) {
+
+        for(int i = from; i < content.length; i ++) {
+
+            if (content[i] == a || content[i] == b) {
+
+                return i;
+            }
+        }
+
+        return content.length;
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
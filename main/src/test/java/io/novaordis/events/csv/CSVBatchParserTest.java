@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import io.novaordis.utilities.parsing.ParsingException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVBatchParserTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor_InvalidBatchSize() throws Exception {
+
+        try {
+
+            new CSVBatchParser("a", 0);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid batch size 0", msg);
+        }
+    }
+
+    @Test
+    public void constructor_Defaults() throws Exception {
+
+        CSVBatchParser p = new CSVBatchParser(null);
+
+        assertEquals(CSVBatch.DEFAULT_CAPACITY, p.getBatchSize());
+        assertNull(p.getFormat());
+    }
+
+    @Test
+    public void parse_NoFormat() throws Exception {
+
+        CSVBatchParser p = new CSVBatchParser(null);
+
+        try {
+
+            p.parse(3L, "a, b");
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            assertEquals(3L, e.getLineNumber().longValue());
+        }
+    }
+
+    @Test
+    public void parse() throws Exception {
+
+        CSVBatchParser p = new CSVBatchParser("a, b(int)", 2);
+
+        assertNull(p.parse(1L, null));
+        assertNull(p.parse(2L, "   "));
+        assertNull(p.parse(3L, " x, 1 "));
+
+        CSVBatch b = p.parse(4L, "y, 2");
+
+        assertEquals(2, b.size());
+        assertEquals(3L, b.getLineNumbers()[0]);
+        assertEquals("x", b.getString(0, 0));
+        assertEquals(2, b.getInts(1)[1]);
+
+        assertNull(p.parse(5L, "z, 3"));
+
+        CSVBatch b2 = p.flush();
+
+        assertEquals(1, b2.size());
+        assertEquals("z", b2.getString(0, 0));
+
+        assertNull(p.flush());
+    }
+
+    @Test
+    public void parse_HeaderCompletesTheBatch() throws Exception {
+
+        CSVBatchParser p = new CSVBatchParser(null, 10);
+
+        assertNull(p.parse(1L, "# a, b(int)"));
+        assertNull(p.parse(2L, "x, 1"));
+
+        CSVFormat f = p.getFormat();
+
+        CSVBatch b = p.parse(3L, "# time(MM/dd/yy HH:mm:ss), c(double)");
+
+        assertEquals(1, b.size());
+        assertTrue(f == b.getFormat());
+
+        //
+        // consecutive headers do not produce empty batches
+        //
+
+        assertNull(p.parse(4L, "# time(MM/dd/yy HH:mm:ss), c(double)"));
+
+        assertNull(p.parse(5L, "12/25/16 13:00:00, 1.5"));
+
+        CSVBatch b2 = p.flush();
+
+        assertEquals(CSVBatch.ColumnType.TIMESTAMP, b2.getColumnType(0));
+        assertEquals(1.5, b2.getDoubles(1)[0], 0.0);
+        assertEquals(5L, b2.getLineNumbers()[0]);
+    }
+
+    @Test
+    public void parse_InvalidHeader() throws Exception {
+
+        CSVBatchParser p = new CSVBatchParser(null);
+
+        try {
+
+            p.parse(1L, "# a(no-such-type)");
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            assertEquals(1L, e.getLineNumber().longValue());
+        }
+    }
+
+    @Test
+    public void parse_Utf8Line() throws Exception {
+
+        CSVBatchParser p = new CSVBatchParser("city, n(int)");
+
+        byte[] bytes = "Z\u00fcrich, 1".getBytes(StandardCharsets.UTF_8);
+
+        p.parse(1L, new Utf8Line(bytes));
+
+        //
+        // the batch does not depend on the line's buffer
+        //
+
+        bytes[0] = 'X';
+
+        p.parse(2L, new Utf8Line("Z\u00fcrich, 2".getBytes(StandardCharsets.UTF_8)));
+
+        CSVBatch b = p.flush();
+
+        assertEquals(1, b.getDictionary(0).size());
+        assertEquals("Z\u00fcrich", b.getString(0, 0));
+        assertEquals(0, b.getCodes(0)[1]);
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
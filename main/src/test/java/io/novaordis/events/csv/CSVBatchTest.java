@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.TimedEvent;
+import io.novaordis.events.csv.event.NonTimedCSVLine;
+import io.novaordis.events.csv.event.TimedCSVLine;
+import io.novaordis.utilities.parsing.ParsingException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVBatchTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor_NullFormat() throws Exception {
+
+        try {
+
+            new CSVBatch(null, 1);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("null format", msg);
+        }
+    }
+
+    @Test
+    public void constructor_InvalidCapacity() throws Exception {
+
+        try {
+
+            new CSVBatch(new CSVFormat("a"), 0);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid capacity 0", msg);
+        }
+    }
+
+    @Test
+    public void columns() throws Exception {
+
+        CSVBatch b = new CSVBatch(
+                new CSVFormat("a(int), time(MM/dd/yy HH:mm:ss), b(long), c(float), d(double), e, f(yyyy)"), 10);
+
+        assertEquals(7, b.getColumnCount());
+        assertEquals(1, b.getTimestampIndex());
+        assertEquals(0, b.size());
+        assertTrue(b.isEmpty());
+        assertEquals(10, b.getCapacity());
+
+        assertEquals(CSVBatch.ColumnType.INT, b.getColumnType(0));
+        assertEquals(CSVBatch.ColumnType.TIMESTAMP, b.getColumnType(1));
+        assertEquals(CSVBatch.ColumnType.LONG, b.getColumnType(2));
+        assertEquals(CSVBatch.ColumnType.FLOAT, b.getColumnType(3));
+        assertEquals(CSVBatch.ColumnType.DOUBLE, b.getColumnType(4));
+        assertEquals(CSVBatch.ColumnType.STRING, b.getColumnType(5));
+        assertEquals(CSVBatch.ColumnType.OTHER, b.getColumnType(6));
+
+        assertEquals("time", b.getColumnName(1));
+        assertEquals(5, b.getColumnIndex("e"));
+        assertEquals(-1, b.getColumnIndex("no-such-column"));
+
+        try {
+
+            b.getInts(2);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("column 2 (b) is a LONG column", msg);
+        }
+    }
+
+    @Test
+    public void add() throws Exception {
+
+        SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yy HH:mm:ss");
+
+        CSVBatch b = new CSVBatch(new CSVFormat("time(MM/dd/yy HH:mm:ss), a(int), b(long), c(double), d"), 3);
+
+        add(b, 1L, "12/25/16 13:00:00, 1, 10000000000, 1.5, red");
+        add(b, 2L, "12/25/16 13:00:01, , 20, 2.5, blue");
+        add(b, 5L, "12/25/16 13:00:02, 3, 30, , red");
+
+        assertEquals(3, b.size());
+        assertTrue(b.isFull());
+
+        assertEquals(5L, b.getLineNumbers()[2]);
+
+        long[] timestamps = b.getTimestamps();
+        assertEquals(sdf.parse("12/25/16 13:00:01").getTime(), timestamps[1]);
+        assertTrue(timestamps == b.getLongs(0));
+
+        assertEquals(1, b.getInts(1)[0]);
+        assertTrue(b.isNull(1, 1));
+        assertFalse(b.isNull(1, 2));
+        assertEquals(3, b.getInts(1)[2]);
+
+        assertEquals(10000000000L, b.getLongs(2)[0]);
+
+        assertEquals(2.5, b.getDoubles(3)[1], 0.0);
+        assertTrue(b.isNull(3, 2));
+
+        assertEquals(Arrays.asList("red", "blue"), b.getDictionary(4));
+        int[] codes = b.getCodes(4);
+        assertEquals(0, codes[0]);
+        assertEquals(1, codes[1]);
+        assertEquals(0, codes[2]);
+        assertEquals("blue", b.getString(4, 1));
+
+        try {
+
+            add(b, 6L, "12/25/16 13:00:03, 4, 40, 4.5, red");
+            fail("should have thrown exception");
+        }
+        catch(IllegalStateException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("is full"));
+        }
+    }
+
+    @Test
+    public void add_ShortAndLongLines() throws Exception {
+
+        CSVBatch b = new CSVBatch(new CSVFormat("a, time(MM/dd/yy HH:mm:ss), b(int)"), 10);
+
+        add(b, 1L, "x");
+        add(b, 2L, "y, 12/25/16 13:00:00, 1, extra");
+
+        assertTrue(b.isNull(1, 0));
+        assertTrue(b.isNull(2, 0));
+        assertEquals("y", b.getString(0, 1));
+        assertFalse(b.isNull(2, 1));
+
+        List<Event> events = b.toEvents();
+
+        assertTrue(events.get(0) instanceof NonTimedCSVLine);
+        assertEquals(2, events.get(0).getProperties().size());
+        assertTrue(events.get(1) instanceof TimedCSVLine);
+    }
+
+    @Test
+    public void add_InvalidValue_RowIsNotAdded() throws Exception {
+
+        CSVBatch b = new CSVBatch(new CSVFormat("a, b(int)"), 10);
+
+        add(b, 1L, "x, 1");
+
+        try {
+
+            add(b, 2L, "y, not-an-int");
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            assertEquals(2L, e.getLineNumber().longValue());
+            assertTrue(e.getMessage().contains("not-an-int"));
+        }
+
+        assertEquals(1, b.size());
+
+        add(b, 3L, "z, 3");
+
+        assertEquals(2, b.size());
+        assertEquals(3, b.getInts(1)[1]);
+        assertEquals("z", b.getString(0, 1));
+    }
+
+    @Test
+    public void add_InvalidTimestamp() throws Exception {
+
+        CSVBatch b = new CSVBatch(new CSVFormat("time(MM/dd/yy HH:mm:ss), a"), 10);
+
+        try {
+
+            add(b, 7L, "blah, x");
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            assertEquals(7L, e.getLineNumber().longValue());
+            assertTrue(e.getMessage().contains("blah"));
+        }
+
+        assertEquals(0, b.size());
+    }
+
+    @Test
+    public void toEvents_SameAsCSVParser() throws Exception {
+
+        String format = "a(int), time(MM/dd/yy HH:mm:ss), b(long), c(float), d(double), e, f(yyyy)";
+
+        String[] lines = {
+
+                "1, 12/25/16 13:00:00, 10, 1.1, 2.2, red, 2016",
+                ", 12/25/16 13:00:01, , , , , ",
+                "3",
+                "4, 12/25/16 13:00:03, 40, 4.4, 5.5, blue",
+                "5, 12/25/16 13:00:04, 50, 5.5, 6.6, red, 2017, extra",
+        };
+
+        CSVParser parser = new CSVParser(format);
+        CSVBatch b = new CSVBatch(new CSVFormat(format), lines.length);
+
+        for(int i = 0; i < lines.length; i ++) {
+
+            add(b, i + 1, lines[i]);
+        }
+
+        List<Event> events = b.toEvents();
+
+        assertEquals(lines.length, events.size());
+
+        for(int i = 0; i < lines.length; i ++) {
+
+            Event expected = parser.parse(i + 1, lines[i], null).get(0);
+            Event actual = events.get(i);
+
+            assertEquals(expected.getClass(), actual.getClass());
+
+            if (expected instanceof TimedEvent) {
+
+                assertEquals(((TimedEvent)expected).getTime(), ((TimedEvent)actual).getTime());
+            }
+
+            List<Property> ep = expected.getProperties();
+            List<Property> ap = actual.getProperties();
+
+            assertEquals(ep.size(), ap.size());
+
+            for(int j = 0; j < ep.size(); j ++) {
+
+                assertEquals(ep.get(j).getClass(), ap.get(j).getClass());
+                assertEquals(ep.get(j).getName(), ap.get(j).getName());
+                assertEquals(ep.get(j).getValue(), ap.get(j).getValue());
+            }
+        }
+    }
+
+    @Test
+    public void clear() throws Exception {
+
+        CSVBatch b = new CSVBatch(new CSVFormat("a, b(int)"), 2);
+
+        add(b, 1L, "x, 1");
+        add(b, 2L, ", 2");
+
+        b.clear();
+
+        assertEquals(0, b.size());
+        assertTrue(b.getDictionary(0).isEmpty());
+
+        add(b, 3L, "y, 3");
+
+        assertEquals(Arrays.asList("y"), b.getDictionary(0));
+        assertFalse(b.isNull(0, 0));
+
+        try {
+
+            b.isNull(0, 1);
+            fail("should have thrown exception");
+        }
+        catch(IndexOutOfBoundsException e) {
+
+            // expected
+        }
+    }
+
+    @Test
+    public void add_ManyDistinctValues() throws Exception {
+
+        CSVBatch b = new CSVBatch(new CSVFormat("a"), 1000);
+
+        for(int i = 0; i < 1000; i ++) {
+
+            add(b, i, "v" + (i % 300));
+        }
+
+        assertEquals(300, b.getDictionary(0).size());
+
+        for(int i = 0; i < 1000; i ++) {
+
+            assertEquals("v" + (i % 300), b.getString(0, i));
+        }
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static void add(CSVBatch b, long lineNumber, String line) throws Exception {
+
+        CSVTokenRanges tokens = new CSVTokenRanges();
+
+        CSVTokenizer.split(lineNumber, line, CSVParser.SEPARATOR, tokens);
+
+        b.add(lineNumber, tokens);
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.csv.event.CSVHeaders;
+import io.novaordis.events.csv.event.NonTimedCSVLine;
+import io.novaordis.events.csv.event.TimedCSVLine;
+import io.novaordis.utilities.parsing.ParsingException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVByteBufferParserTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor_NullParser() throws Exception {
+
+        try {
+
+            new CSVByteBufferParser(null);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("null parser"));
+        }
+    }
+
+    @Test
+    public void parse_WholeLines() throws Exception {
+
+        CSVByteBufferParser p = new CSVByteBufferParser(new CSVParser("name, size(int), weight(long)"));
+
+        List<Event> events = p.parse(bytes("a, 1, 10\n\"Z\u00fcrich, CH\", 2, 20\n"));
+
+        assertEquals(2, events.size());
+        assertEquals(2L, p.getLineNumber());
+
+        NonTimedCSVLine e = (NonTimedCSVLine)events.get(0);
+        assertEquals("a", e.getStringProperty("name").getString());
+        assertEquals(1, e.getIntegerProperty("size").getInteger().intValue());
+        assertEquals(10L, e.getLongProperty("weight").getLong().longValue());
+        assertEquals(1L, e.getLineNumber().longValue());
+
+        NonTimedCSVLine e2 = (NonTimedCSVLine)events.get(1);
+        assertEquals("Z\u00fcrich, CH", e2.getStringProperty("name").getString());
+        assertEquals(2, e2.getIntegerProperty("size").getInteger().intValue());
+        assertEquals(20L, e2.getLongProperty("weight").getLong().longValue());
+        assertEquals(2L, e2.getLineNumber().longValue());
+
+        assertTrue(p.close().isEmpty());
+    }
+
+    @Test
+    public void parse_LineSpansBuffers() throws Exception {
+
+        CSVByteBufferParser p = new CSVByteBufferParser(new CSVParser("name, size(int)"));
+
+        byte[] content = "alpha, 1\nZ\u00fcrich, 22\r\n\nomega, 3".getBytes(StandardCharsets.UTF_8);
+
+        //
+        // feed the content one byte at a time, splitting every line and every multi-byte sequence
+        //
+
+        List<Event> events = new ArrayList<>();
+
+        for(byte b: content) {
+
+            events.addAll(p.parse(ByteBuffer.wrap(new byte[] { b })));
+        }
+
+        assertEquals(2, events.size());
+
+        events.addAll(p.close());
+
+        assertEquals(3, events.size());
+        assertEquals(4L, p.getLineNumber());
+
+        assertEquals("alpha", ((NonTimedCSVLine)events.get(0)).getStringProperty("name").getString());
+        assertEquals("Z\u00fcrich", ((NonTimedCSVLine)events.get(1)).getStringProperty("name").getString());
+        assertEquals(22, ((NonTimedCSVLine)events.get(1)).getIntegerProperty("size").getInteger().intValue());
+        assertEquals("omega", ((NonTimedCSVLine)events.get(2)).getStringProperty("name").getString());
+        assertEquals(4L, events.get(2).getLineNumber().longValue());
+    }
+
+    @Test
+    public void parse_BufferPositionAndLimit() throws Exception {
+
+        CSVByteBufferParser p = new CSVByteBufferParser(new CSVParser("name"));
+
+        ByteBuffer buffer = ByteBuffer.wrap("xxxa\nb\nyyy".getBytes(StandardCharsets.UTF_8));
+        buffer.position(3);
+        buffer.limit(7);
+
+        List<Event> events = p.parse(buffer);
+
+        assertEquals(7, buffer.position());
+        assertEquals(2, events.size());
+        assertEquals("a", ((NonTimedCSVLine)events.get(0)).getStringProperty("name").getString());
+        assertEquals("b", ((NonTimedCSVLine)events.get(1)).getStringProperty("name").getString());
+    }
+
+    @Test
+    public void parse_InputStream_Headers() throws Exception {
+
+        String content =
+                "# time(MM/dd/yy HH:mm:ss), color, size(int)\n" +
+                "12/25/16 13:00:00, blue, 10\n" +
+                "12/25/16 13:00:01, red, 11\n" +
+                "# name\n";
+
+        CSVByteBufferParser p = new CSVByteBufferParser(new CSVParser());
+
+        List<Event> events = p.parse(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(4, events.size());
+
+        assertTrue(events.get(0) instanceof CSVHeaders);
+
+        TimedCSVLine e = (TimedCSVLine)events.get(1);
+        assertEquals(
+                Constants.getDefaultTimestampFormat().parse("12/25/16 13:00:00").getTime(), e.getTime().longValue());
+        assertEquals("blue", e.getStringProperty("color").getString());
+
+        TimedCSVLine e2 = (TimedCSVLine)events.get(2);
+        assertEquals(11, e2.getIntegerProperty("size").getInteger().intValue());
+
+        //
+        // the header not followed by data is flushed on close
+        //
+        assertTrue(events.get(3) instanceof CSVHeaders);
+    }
+
+    @Test
+    public void parse_Failure_PrecedingEventsAreInTheList() throws Exception {
+
+        CSVByteBufferParser p = new CSVByteBufferParser(new CSVParser("name"));
+
+        List<Event> events = new ArrayList<>();
+
+        try {
+
+            p.parse(bytes("a\nb\n\"unbalanced\nc\n"), events);
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            assertEquals(3L, e.getLineNumber().longValue());
+        }
+
+        assertEquals(2, events.size());
+        assertEquals("a", ((NonTimedCSVLine)events.get(0)).getStringProperty("name").getString());
+        assertEquals("b", ((NonTimedCSVLine)events.get(1)).getStringProperty("name").getString());
+    }
+
+    @Test
+    public void parse_AfterClose() throws Exception {
+
+        CSVByteBufferParser p = new CSVByteBufferParser(new CSVParser());
+
+        p.close();
+
+        try {
+
+            p.parse(bytes("a\n"));
+            fail("should have thrown exception");
+        }
+        catch(IllegalStateException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("closed"));
+        }
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static ByteBuffer bytes(String s) {
+
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
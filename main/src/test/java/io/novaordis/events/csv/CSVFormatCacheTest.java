@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVFormatCacheTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor_InvalidCapacity() throws Exception {
+
+        try {
+
+            new CSVFormatCache(0);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid capacity 0", msg);
+        }
+    }
+
+    @Test
+    public void constructor_Default() throws Exception {
+
+        CSVFormatCache c = new CSVFormatCache();
+
+        assertEquals(CSVFormatCache.DEFAULT_CAPACITY, c.getCapacity());
+        assertEquals(0, c.size());
+        assertEquals(0L, c.getHitCount());
+        assertEquals(0L, c.getMissCount());
+    }
+
+    @Test
+    public void get_NullSpecification() throws Exception {
+
+        try {
+
+            new CSVFormatCache().get(null);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("null format specification", msg);
+        }
+    }
+
+    @Test
+    public void get() throws Exception {
+
+        CSVFormatCache c = new CSVFormatCache(2);
+
+        CSVFormat f = c.get("time(MM/dd/yy HH:mm:ss), a, b(int)");
+
+        assertEquals(3, f.getFields().size());
+        assertEquals(0L, c.getHitCount());
+        assertEquals(1L, c.getMissCount());
+
+        CSVFormat f2 = c.get("time(MM/dd/yy HH:mm:ss), a, b(int)");
+
+        assertTrue(f == f2);
+        assertEquals(1L, c.getHitCount());
+        assertEquals(1L, c.getMissCount());
+
+        CSVFormat f3 = c.get("a, b");
+
+        assertFalse(f == f3);
+        assertEquals(2, f3.getFields().size());
+        assertEquals(1L, c.getHitCount());
+        assertEquals(2L, c.getMissCount());
+        assertEquals(2, c.size());
+    }
+
+    @Test
+    public void get_LeastRecentlyUsedIsEvicted() throws Exception {
+
+        CSVFormatCache c = new CSVFormatCache(2);
+
+        CSVFormat a = c.get("a");
+        CSVFormat b = c.get("b");
+
+        //
+        // "a" becomes the most recently used
+        //
+
+        assertTrue(a == c.get("a"));
+
+        c.get("c");
+
+        assertEquals(2, c.size());
+
+        assertTrue(a == c.get("a"));
+        assertFalse(b == c.get("b"));
+
+        assertEquals(2L, c.getHitCount());
+        assertEquals(4L, c.getMissCount());
+    }
+
+    @Test
+    public void get_InvalidSpecificationIsNotCached() throws Exception {
+
+        CSVFormatCache c = new CSVFormatCache();
+
+        for(int i = 0; i < 2; i ++) {
+
+            try {
+
+                c.get("a, b(no-such-type)");
+                fail("should have thrown exception");
+            }
+            catch(CSVFormatException e) {
+
+                // expected
+            }
+        }
+
+        assertEquals(0, c.size());
+        assertEquals(0L, c.getHitCount());
+        assertEquals(2L, c.getMissCount());
+    }
+
+    @Test
+    public void clear() throws Exception {
+
+        CSVFormatCache c = new CSVFormatCache();
+
+        CSVFormat f = c.get("a");
+
+        c.clear();
+
+        assertEquals(0, c.size());
+        assertFalse(f == c.get("a"));
+        assertEquals(2L, c.getMissCount());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -16,6 +16,7 @@
 
 package io.novaordis.events.csv;
 
+import java.text.SimpleDateFormat;
 import java.util.List;
 
 import org.junit.Test;
@@ -459,6 +460,99 @@ public class CSVFormatTest {
         assertEquals("time(time:MM/dd/yy HH:mm:ss), something(string), counter(int)", f.toPattern());
     }
 
+    // copy() ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void copy() throws Exception {
+
+        CSVFormat f = new CSVFormat("a, time(MM/dd/yy HH:mm:ss), b(int)");
+
+        CSVFormat copy = f.copy();
+
+        assertFalse(f == copy);
+        assertEquals(f.toPattern(), copy.toPattern());
+
+        copy.addField("c(long)");
+        ((CSVFieldImpl)copy.getFields().get(0)).setName("x");
+
+        assertEquals("a(string), time(time:MM/dd/yy HH:mm:ss), b(int)", f.toPattern());
+        assertEquals(3, f.getConversionPlan().getFields().length);
+    }
+
+    // getConversionPlan() ---------------------------------------------------------------------------------------------
+
+    @Test
+    public void getConversionPlan_CompiledOnce() throws Exception {
+
+        CSVFormat f = new CSVFormat("a, b(int)");
+
+        ConversionPlan p = f.getConversionPlan();
+
+        assertTrue(p == f.getConversionPlan());
+    }
+
+    @Test
+    public void getConversionPlan_AddFieldInvalidatesThePlan() throws Exception {
+
+        CSVFormat f = new CSVFormat("a, b(int)");
+
+        ConversionPlan p = f.getConversionPlan();
+
+        f.addField("c(long)");
+
+        ConversionPlan p2 = f.getConversionPlan();
+
+        assertFalse(p == p2);
+        assertEquals(3, p2.getFields().length);
+        assertTrue(p2 == f.getConversionPlan());
+    }
+
+    @Test
+    public void getConversionPlan_StorageChangesInvalidateThePlan() throws Exception {
+
+        CSVFormat f = new CSVFormat("a, b(int)");
+
+        ConversionPlan p = f.getConversionPlan();
+
+        f.getFields().set(1, new CSVFieldImpl("c", Long.class));
+
+        ConversionPlan p2 = f.getConversionPlan();
+
+        assertFalse(p == p2);
+        assertEquals("c", p2.getFields()[1].getName());
+
+        f.getFields().remove(0);
+
+        ConversionPlan p3 = f.getConversionPlan();
+
+        assertFalse(p2 == p3);
+        assertEquals(1, p3.getFields().length);
+    }
+
+    @Test
+    public void getConversionPlan_FieldChangesInvalidateThePlan() throws Exception {
+
+        CSVFormat f = new CSVFormat("time(MM/dd/yy HH:mm:ss), b(int)");
+
+        ConversionPlan p = f.getConversionPlan();
+
+        ((CSVFieldImpl)f.getFields().get(1)).setName("c");
+
+        ConversionPlan p2 = f.getConversionPlan();
+
+        assertFalse(p == p2);
+        assertEquals("c", p2.getNames()[1]);
+        assertEquals("c", p2.getConverters()[1].convert("1", 0, 1).getName());
+
+        ((TimestampCSVField)f.getFields().get(0)).setFormat(new SimpleDateFormat("yyyy/MM/dd"));
+
+        ConversionPlan p3 = f.getConversionPlan();
+
+        assertFalse(p2 == p3);
+        assertFalse(p2.getConverters()[0] == p3.getConverters()[0]);
+        assertTrue(p3 == f.getConversionPlan());
+    }
+
     // Package protected -----------------------------------------------------------------------------------------------
 
     // Protected -------------------------------------------------------------------------------------------------------
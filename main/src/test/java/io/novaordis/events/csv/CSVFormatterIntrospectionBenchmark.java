@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.novaordis.events.api.event.GenericTimedEvent;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.TimestampProperty;
+
+/**
+ * Per-event cost of rendering events without an output format, with 10, 100 and 1000 properties: the property order
+ * computed for each event by copying and sorting the property list, as the formatter used to do, the cached
+ * IntrospectionOrder, and the complete CSVFormatter.format() call.
+ *
+ * @see MicroBenchmark
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVFormatterIntrospectionBenchmark {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final int EVENTS = 1000;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    public static void main(String[] args) throws Exception {
+
+        for(int properties: new int[] { 10, 100, 1000 }) {
+
+            run(properties);
+        }
+    }
+
+    private static void run(int propertyCount) throws Exception {
+
+        //
+        // the events of a stream share the property name instances, which come from the format's fields
+        //
+
+        String[] names = new String[propertyCount];
+
+        for(int j = 0; j < propertyCount; j ++) {
+
+            names[j] = "property-" + j;
+        }
+
+        final List<GenericTimedEvent> events = new ArrayList<>();
+
+        for(int i = 0; i < EVENTS; i ++) {
+
+            GenericTimedEvent e = new GenericTimedEvent(1482699600000L + i * 1000L);
+
+            //
+            // the event order is not the sort order
+            //
+
+            for(int j = propertyCount - 1; j >= 0; j --) {
+
+                e.setLongProperty(names[j], (long)(i + j));
+            }
+
+            events.add(e);
+        }
+
+        int rounds = Math.max(2, 200 / propertyCount);
+
+        MicroBenchmark b = new MicroBenchmark(5 * rounds, rounds);
+
+        b.run("copy and Collections.sort(), " + propertyCount + " properties", EVENTS, () -> {
+
+            long sum = 0;
+
+            for(GenericTimedEvent e: events) {
+
+                List<Property> ordered = new ArrayList<>();
+
+                for(Property p: e.getProperties()) {
+
+                    if (!(p instanceof TimestampProperty)) {
+
+                        ordered.add(p);
+                    }
+                }
+
+                Collections.sort(ordered);
+                sum += ordered.size();
+            }
+
+            MicroBenchmark.blackHole = sum;
+        });
+
+        b.run("cached IntrospectionOrder, " + propertyCount + " properties", EVENTS, () -> {
+
+            long sum = 0;
+
+            IntrospectionOrder order = null;
+
+            for(GenericTimedEvent e: events) {
+
+                List<Property> properties = e.getProperties();
+
+                if (order == null || !order.appliesTo(properties)) {
+
+                    order = IntrospectionOrder.compute(properties);
+                }
+
+                sum += order.getOrder().length;
+            }
+
+            MicroBenchmark.blackHole = sum;
+        });
+
+        final CSVFormatter formatter = new CSVFormatter();
+        final StringBuilder sb = new StringBuilder();
+
+        b.run("CSVFormatter.format(), " + propertyCount + " properties", EVENTS, () -> {
+
+            for(GenericTimedEvent e: events) {
+
+                sb.setLength(0);
+                formatter.format(e, sb);
+            }
+
+            MicroBenchmark.blackHole = sb;
+        });
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
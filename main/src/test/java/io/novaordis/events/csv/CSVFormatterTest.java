@@ -16,6 +16,9 @@
 
 package io.novaordis.events.csv;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -35,12 +38,10 @@ import io.novaordis.events.api.event.PropertyFactory;
 import io.novaordis.events.api.metric.MockAddress;
 import io.novaordis.events.csv.event.field.CSVField;
 import io.novaordis.events.csv.event.field.CSVFieldFactory;
-import io.novaordis.events.csv.event.field.MetricDefinitionBasedCSVField;
-import io.novaordis.utilities.address.Address;
-import io.novaordis.utilities.address.AddressImpl;
 import io.novaordis.utilities.time.Timestamp;
 import io.novaordis.utilities.time.TimestampImpl;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -240,6 +241,131 @@ public class CSVFormatterTest {
         assertEquals("1000\n", s);
     }
 
+    // format(Event, Appendable) --------------------------------------------------------------------------------------
+
+    @Test
+    public void formatAppendable_SameAsString() throws Exception {
+
+        CSVFormat format = new CSVFormat();
+        format.addField("B");
+        format.addTimestampField();
+        format.addField("no-such-property");
+
+        GenericTimedEvent me = new GenericTimedEvent(System.currentTimeMillis());
+        me.setProperty(new MockProperty("A", "A value", 3));
+        me.setProperty(new MockProperty("B", "B value", 2));
+
+        for(CSVFormat f: new CSVFormat[] { format, null }) {
+
+            CSVFormatter c = new CSVFormatter();
+            c.setFormat(f);
+            c.setHeaderOn();
+
+            CSVFormatter c2 = new CSVFormatter();
+            c2.setFormat(f);
+            c2.setHeaderOn();
+
+            StringBuilder sb = new StringBuilder("existing content\n");
+
+            assertTrue(c.format(me, sb));
+            assertTrue(c.format(me, sb));
+
+            assertEquals("existing content\n" + c2.format(me) + c2.format(me), sb.toString());
+            assertFalse(c.isHeaderOn());
+        }
+    }
+
+    @Test
+    public void formatAppendable_IgnoredFault() throws Exception {
+
+        CSVFormatter c = new CSVFormatter();
+        c.setIgnoreFaults(true);
+        c.setHeaderOn();
+
+        StringBuilder sb = new StringBuilder();
+
+        assertFalse(c.format(new FaultEvent("test message", new RuntimeException("SYNTHETIC")), sb));
+
+        assertEquals(0, sb.length());
+        assertFalse(c.isHeaderOn());
+
+        assertNull(c.format(new FaultEvent("test message", new RuntimeException("SYNTHETIC"))));
+    }
+
+    // format(Event, ByteBuffer) ---------------------------------------------------------------------------------------
+
+    @Test
+    public void formatByteBuffer() throws Exception {
+
+        CSVFormatter c = new CSVFormatter();
+
+        CSVFormat format = new CSVFormat();
+        format.addField("A");
+        format.addField("B");
+        c.setFormat(format);
+        c.setHeaderOn();
+
+        GenericEvent me = new GenericEvent();
+        me.setStringProperty("A", "Z\u00fcrich \u20ac \ud83d\ude00");
+        me.setStringProperty("B", "unpaired \ud83d, \ude00");
+
+        CSVFormatter c2 = new CSVFormatter();
+        c2.setFormat(format);
+        c2.setHeaderOn();
+        byte[] expected = c2.format(me).getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        buffer.put((byte)'x');
+
+        assertTrue(c.format(me, buffer));
+
+        assertEquals(1 + expected.length, buffer.position());
+
+        byte[] actual = new byte[expected.length];
+        buffer.flip();
+        buffer.get();
+        buffer.get(actual);
+
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void formatByteBuffer_Overflow_StateUnchanged() throws Exception {
+
+        CSVFormatter c = new CSVFormatter();
+
+        CSVFormat format = new CSVFormat();
+        format.addField("A");
+        c.setFormat(format);
+        c.setHeaderOn();
+
+        GenericEvent me = new GenericEvent();
+        me.setStringProperty("A", "some value");
+
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.put((byte)'x');
+
+        try {
+
+            c.format(me, buffer);
+            fail("should have thrown exception");
+        }
+        catch(BufferOverflowException e) {
+
+            // expected
+        }
+
+        assertEquals(1, buffer.position());
+        assertTrue(c.isHeaderOn());
+
+        buffer = ByteBuffer.allocate(100);
+
+        assertTrue(c.format(me, buffer));
+
+        assertEquals("# A\nsome value\n", new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+        assertFalse(c.isHeaderOn());
+    }
+
     // toString(Event) -------------------------------------------------------------------------------------------------
 
     @Test
@@ -582,194 +708,86 @@ public class CSVFormatterTest {
         assertEquals("# A, \"this.field.contains.dots.in.its.name\"", header);
     }
 
-    // extractValueForMetricDefinitionBasedCSVField() ------------------------------------------------------------------
-
-    @Test
-    public void extractValueForMetricDefinitionBasedCSVField_NullEvent() throws Exception {
-
-        PropertyFactory pf = new PropertyFactory();
-
-        MetricDefinitionBasedCSVField f =
-                new MetricDefinitionBasedCSVField(new MockMetricDefinition(pf, new AddressImpl("test")));
-
-        try {
-
-            CSVFormatter.extractValueForMetricDefinitionBasedCSVField(null, f);
-            fail("should have thrown exception");
-        }
-        catch(IllegalArgumentException e) {
-
-            String msg = e.getMessage();
-            assertTrue(msg.contains("null event"));
-        }
-    }
+    // setIgnoreFaults() -----------------------------------------------------------------------------------------------
 
     @Test
-    public void extractValueForMetricDefinitionBasedCSVField_NullField() throws Exception {
+    public void setIgnoreFaults() throws Exception {
 
-        GenericTimedEvent e = new GenericTimedEvent();
+        CSVFormatter f = new CSVFormatter();
 
-        try {
+        assertFalse(f.isIgnoreFaults());
 
-            CSVFormatter.extractValueForMetricDefinitionBasedCSVField(e, null);
-            fail("should have thrown exception");
-        }
-        catch(IllegalArgumentException iae) {
+        f.setIgnoreFaults(true);
 
-            String msg = iae.getMessage();
-            assertTrue(msg.contains("null CSV field"));
-        }
+        assertTrue(f.isIgnoreFaults());
     }
 
-    @Test
-    public void extractValueForMetricDefinitionBasedCSVField_NoEventPropertyForAddress() throws Exception {
-
-        PropertyFactory pf = new PropertyFactory();
-
-        Address a = new AddressImpl("address-1");
-        MockMetricDefinition mmd = new MockMetricDefinition(pf, a, "does-not-matter");
-        MetricDefinitionBasedCSVField f = new MetricDefinitionBasedCSVField(mmd);
-
-        GenericTimedEvent e = new GenericTimedEvent();
-
-        //
-        // no event property corresponding to "address-1"
-        //
-
-        String addressLiteral = a.getLiteral();
-        assertNull(e.getProperty(addressLiteral));
-
-        String result = CSVFormatter.extractValueForMetricDefinitionBasedCSVField(e, f);
-        assertNull(result);
-    }
+    // legacy hooks ----------------------------------------------------------------------------------------------------
 
     @Test
-    public void extractValueForMetricDefinitionBasedCSVField_NoSecondLevelPropertyForMetricID() throws Exception {
+    public void format_OverriddenToStringAndGetHeaderAreUsed() throws Exception {
 
-        PropertyFactory pf = new PropertyFactory();
+        CSVFormatter f = new LegacyFormatter();
 
-        Address a = new AddressImpl("address-1");
-        MockMetricDefinition mmd = new MockMetricDefinition(pf, a, "no-such-metric-id");
-        MetricDefinitionBasedCSVField f = new MetricDefinitionBasedCSVField(mmd);
+        f.setHeaderOn();
 
-        GenericTimedEvent topLevelEvent = new GenericTimedEvent(1L);
+        GenericEvent e = new GenericEvent();
+        e.setStringProperty("a", "b");
 
-        //
-        // we load the top-level event with an event property that carries a second-level event. However, the
-        // second-level event has a property for "metric-1", but not "metric-2"
-        //
-
-        GenericTimedEvent secondLevelEvent = new GenericTimedEvent(2L);
-        secondLevelEvent.setStringProperty("metric-1", "something");
+        assertEquals("custom header\ncustom line\n", f.format(e));
 
-        String addressLiteral = a.getLiteral();
+        f.setHeaderOn();
 
-        topLevelEvent.setEventProperty(addressLiteral, secondLevelEvent);
+        ByteBuffer buffer = ByteBuffer.allocate(100);
 
-        String result = CSVFormatter.extractValueForMetricDefinitionBasedCSVField(topLevelEvent, f);
+        assertTrue(f.format(e, buffer));
 
-        assertNull(result);
+        assertEquals("custom header\ncustom line\n",
+                new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
     }
 
     @Test
-    public void extractValueForMetricDefinitionBasedCSVField() throws Exception {
-
-        PropertyFactory pf = new PropertyFactory();
-
-        Address a = new AddressImpl("address-1");
-        MockMetricDefinition mmd = new MockMetricDefinition(pf, a, "metric-1");
-        MetricDefinitionBasedCSVField f = new MetricDefinitionBasedCSVField(mmd);
+    public void format_OverriddenGetHeaderReturnsNull() throws Exception {
 
-        GenericTimedEvent topLevelEvent = new GenericTimedEvent(1L);
+        CSVFormatter f = new LegacyFormatter() {
 
-        GenericTimedEvent secondLevelEvent = new GenericTimedEvent(2L);
-        secondLevelEvent.setStringProperty("metric-1", "something");
+            @Override
+            protected String getHeader(Event event) {
 
-        String addressLiteral = a.getLiteral();
+                return null;
+            }
+        };
 
-        topLevelEvent.setEventProperty(addressLiteral, secondLevelEvent);
+        f.setHeaderOn();
 
-        String result = CSVFormatter.extractValueForMetricDefinitionBasedCSVField(topLevelEvent, f);
+        GenericEvent e = new GenericEvent();
+        e.setStringProperty("a", "b");
 
-        assertEquals("something", result);
+        assertEquals("custom line\n", f.format(e));
+        assertFalse(f.isHeaderOn());
     }
 
-    // extractValueForPropertyWithGivenName() --------------------------------------------------------------------------
-
-    @Test
-    public void extractValueForPropertyWithGivenName_NullEvent() throws Exception {
-
-        try {
-
-            CSVFormatter.extractValueForPropertyWithGivenName(null, "something");
-            fail("should have thrown exception");
-        }
-        catch(IllegalArgumentException e) {
+    // Package protected -----------------------------------------------------------------------------------------------
 
-            String msg = e.getMessage();
-            assertTrue(msg.contains("null event"));
-        }
-    }
+    // Protected -------------------------------------------------------------------------------------------------------
 
-    @Test
-    public void extractValueForPropertyWithGivenName_NullName() throws Exception {
+    // Private ---------------------------------------------------------------------------------------------------------
 
-        GenericTimedEvent e = new GenericTimedEvent();
+    // Inner classes ---------------------------------------------------------------------------------------------------
 
-        try {
+    private static class LegacyFormatter extends CSVFormatter {
 
-            CSVFormatter.extractValueForPropertyWithGivenName(e, null);
-            fail("should have thrown exception");
-        }
-        catch(IllegalArgumentException iae) {
+        @Override
+        protected String toString(Event event) {
 
-            String msg = iae.getMessage();
-            assertTrue(msg.contains("null property name"));
+            return "custom line";
         }
-    }
-
-    @Test
-    public void extractValueForPropertyWithGivenName_NoPropertyWithSuchName() throws Exception {
-
-        GenericTimedEvent e = new GenericTimedEvent();
 
-        String result = CSVFormatter.extractValueForPropertyWithGivenName(e, "no-such-name");
+        @Override
+        protected String getHeader(Event event) {
 
-        assertNull(result);
-    }
-
-    @Test
-    public void extractValueForPropertyWithGivenName() throws Exception {
-
-        GenericTimedEvent e = new GenericTimedEvent(1L);
-
-        e.setStringProperty("property-name-1", "something");
-
-        String result = CSVFormatter.extractValueForPropertyWithGivenName(e, "property-name-1");
-
-        assertEquals("something", result);
-    }
-
-    // setIgnoreFaults() -----------------------------------------------------------------------------------------------
-
-    @Test
-    public void setIgnoreFaults() throws Exception {
-
-        CSVFormatter f = new CSVFormatter();
-
-        assertFalse(f.isIgnoreFaults());
-
-        f.setIgnoreFaults(true);
-
-        assertTrue(f.isIgnoreFaults());
+            return "custom header";
+        }
     }
 
-    // Package protected -----------------------------------------------------------------------------------------------
-
-    // Protected -------------------------------------------------------------------------------------------------------
-
-    // Private ---------------------------------------------------------------------------------------------------------
-
-    // Inner classes ---------------------------------------------------------------------------------------------------
-
 }
@@ -16,12 +16,16 @@
 
 package io.novaordis.events.csv;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -40,18 +44,29 @@ import io.novaordis.events.api.event.TimestampProperty;
 import io.novaordis.events.api.event.UndefinedTypeProperty;
 import io.novaordis.events.csv.event.CSVEvent;
 import io.novaordis.events.csv.event.CSVHeaders;
+import io.novaordis.events.csv.event.LazyLineContent;
+import io.novaordis.events.csv.event.LazyNonTimedCSVLine;
+import io.novaordis.events.csv.event.LazyTimedCSVLine;
 import io.novaordis.events.csv.event.NonTimedCSVLine;
+import io.novaordis.events.csv.event.RecycledCSVEvent;
 import io.novaordis.events.csv.event.TimedCSVLine;
 import io.novaordis.events.csv.event.field.CSVField;
 import io.novaordis.events.csv.event.field.CSVFieldImpl;
 import io.novaordis.events.csv.event.field.TimestampCSVField;
 import io.novaordis.events.csv.event.field.UTCMillisecondsLongTimestampFormat;
+import io.novaordis.events.query.FieldQuery;
+import io.novaordis.events.query.KeywordQuery;
+import io.novaordis.events.query.MixedQuery;
+import io.novaordis.events.query.Query;
+import io.novaordis.events.query.TimeQuery;
 import io.novaordis.utilities.parsing.ParsingException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -1435,6 +1450,1303 @@ public class CSVParserTest {
         assertEquals(value, tp.getValue());
     }
 
+    // buildAndStorePropertyFromTokenRange() ---------------------------------------------------------------------------
+
+    @Test
+    public void buildAndStorePropertyFromTokenRange_TypedHeader() throws Exception {
+
+        List<Property> properties = new ArrayList<>();
+
+        CSVTokenRanges tokens = new CSVTokenRanges();
+        CSVTokenizer.split(1L, "a, 10, c", ',', tokens);
+
+        CSVField field = new CSVFieldImpl("something", Integer.class);
+
+        CSVParser.buildAndStorePropertyFromTokenRange(
+                new PropertyFactory(), tokens, 1, field, new MutableBoolean(false), properties);
+
+        assertEquals(1, properties.size());
+
+        IntegerProperty p = (IntegerProperty)properties.get(0);
+        assertEquals("something", p.getName());
+        assertEquals(10, p.getValue());
+    }
+
+    @Test
+    public void buildAndStorePropertyFromTokenRange_NullMissingValue_TypedHeader() throws Exception {
+
+        List<Property> properties = new ArrayList<>();
+
+        CSVTokenRanges tokens = new CSVTokenRanges();
+        CSVTokenizer.split(1L, "a,,c", ',', tokens);
+
+        CSVField field = new CSVFieldImpl("something", String.class);
+
+        CSVParser.buildAndStorePropertyFromTokenRange(
+                new PropertyFactory(), tokens, 1, field, new MutableBoolean(false), properties);
+
+        assertEquals(1, properties.size());
+
+        StringProperty p = (StringProperty)properties.get(0);
+        assertEquals("something", p.getName());
+        assertNull(p.getValue());
+    }
+
+    @Test
+    public void buildAndStorePropertyFromTokenRange_Timestamp() throws Exception {
+
+        List<Property> properties = new ArrayList<>();
+
+        CSVTokenRanges tokens = new CSVTokenRanges();
+        CSVTokenizer.split(1L, "1503522092, b", ',', tokens);
+
+        CSVField header = new TimestampCSVField("time", new UTCMillisecondsLongTimestampFormat());
+
+        MutableBoolean mb = new MutableBoolean(false);
+
+        CSVParser.buildAndStorePropertyFromTokenRange(new PropertyFactory(), tokens, 0, header, mb, properties);
+
+        assertTrue(mb.isTrue());
+        assertEquals(1, properties.size());
+
+        TimestampProperty tp = (TimestampProperty)properties.get(0);
+        assertEquals(TimedEvent.TIME_PROPERTY_NAME, tp.getName());
+        assertEquals(1503522092L, tp.getValue());
+    }
+
+    // convert() -------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void convert() throws Exception {
+
+        CSVFormat format = new CSVFormat("time(MM/dd/yy HH:mm:ss), color, size(int)");
+
+        CSVTokenRanges tokens = new CSVTokenRanges();
+        CSVTokenizer.split(1L, "12/25/16 13:00:00, , 10, extra", ',', tokens);
+
+        List<Property> properties = new ArrayList<>();
+
+        assertTrue(CSVParser.convert(format.getConversionPlan(), tokens, properties));
+
+        assertEquals(3, properties.size());
+
+        TimestampProperty tp = (TimestampProperty)properties.get(0);
+        assertEquals(new SimpleDateFormat("MM/dd/yy HH:mm:ss").parse("12/25/16 13:00:00").getTime(), tp.getValue());
+
+        StringProperty sp = (StringProperty)properties.get(1);
+        assertEquals("color", sp.getName());
+        assertNull(sp.getValue());
+
+        IntegerProperty ip = (IntegerProperty)properties.get(2);
+        assertEquals("size", ip.getName());
+        assertEquals(10, ip.getValue());
+    }
+
+    @Test
+    public void convert_LineShorterThanFormat_TimestampColumnMissing() throws Exception {
+
+        CSVFormat format = new CSVFormat("color, time(MM/dd/yy HH:mm:ss)");
+
+        CSVTokenRanges tokens = new CSVTokenRanges();
+        CSVTokenizer.split(1L, "blue", ',', tokens);
+
+        List<Property> properties = new ArrayList<>();
+
+        assertFalse(CSVParser.convert(format.getConversionPlan(), tokens, properties));
+
+        assertEquals(1, properties.size());
+        assertEquals("blue", properties.get(0).getValue());
+    }
+
+    // trim() ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void trim_NothingToTrim() throws Exception {
+
+        String s = "a, b";
+        assertTrue(s == CSVParser.trim(s));
+    }
+
+    @Test
+    public void trim() throws Exception {
+
+        assertEquals("a, b", CSVParser.trim(" \t a, b  ").toString());
+        assertEquals("", CSVParser.trim("   ").toString());
+    }
+
+    @Test
+    public void trim_Utf8Line() throws Exception {
+
+        Utf8Line line = new Utf8Line("  a, b ".getBytes("UTF-8"));
+
+        CharSequence s = CSVParser.trim(line);
+
+        assertTrue(s instanceof Utf8Line);
+        assertEquals("a, b", s.toString());
+    }
+
+    // setReuseEvents() ------------------------------------------------------------------------------------------------
+
+    @Test
+    public void setReuseEvents() throws Exception {
+
+        CSVParser p = new CSVParser();
+
+        assertFalse(p.isReuseEvents());
+
+        p.setReuseEvents(true);
+        assertTrue(p.isReuseEvents());
+
+        p.setReuseEvents(false);
+        assertFalse(p.isReuseEvents());
+    }
+
+    @Test
+    public void parse_ReuseEvents_SameContentAsRegularEvents() throws Exception {
+
+        String[] content = new String[] {
+
+                "a, 1",
+                "# time(MM/dd/yy HH:mm:ss), color, size(int), city",
+                "12/25/16 13:00:00, blue, 10, Paris",
+                "12/25/16 13:00:01, blue, 10, London",
+                "12/25/16 13:00:02, , 11, London",
+                "12/25/16 13:00:03, , 11",
+                "# name, weight(long)",
+                "x, 1",
+                "x, 1",
+                "y",
+        };
+
+        CSVParser regular = new CSVParser();
+        CSVParser recycling = new CSVParser();
+        recycling.setReuseEvents(true);
+
+        Event previousTimed = null;
+        Event previousNonTimed = null;
+
+        for(int i = 0; i < content.length; i ++) {
+
+            List<Event> expected = regular.parse(i + 1, content[i], null);
+            List<Event> actual = recycling.parse(i + 1, content[i], null);
+
+            assertEquals(expected.size(), actual.size());
+
+            for(int j = 0; j < expected.size(); j ++) {
+
+                Event e = expected.get(j);
+                Event a = actual.get(j);
+
+                assertEquals(e.isTimed(), a.isTimed());
+                assertEquals(e.getLineNumber(), a.getLineNumber());
+                assertEquals(e.getProperties().toString(), a.getProperties().toString());
+
+                if (e instanceof TimedEvent) {
+
+                    assertEquals(((TimedEvent)e).getTime(), ((TimedEvent)a).getTime());
+                }
+
+                if (a instanceof RecycledCSVEvent) {
+
+                    if (a.isTimed()) {
+
+                        assertTrue(previousTimed == null || previousTimed == a);
+                        previousTimed = a;
+                    }
+                    else {
+
+                        assertTrue(previousNonTimed == null || previousNonTimed == a);
+                        previousNonTimed = a;
+                    }
+
+                    CSVEvent copy = ((RecycledCSVEvent)a).copy();
+
+                    assertFalse(copy instanceof RecycledCSVEvent);
+                    assertEquals(e.getProperties().toString(), copy.getProperties().toString());
+                }
+            }
+        }
+
+        assertNotNull(previousTimed);
+        assertNotNull(previousNonTimed);
+    }
+
+    @Test
+    public void parse_ReuseEvents_IntrospectionLinesAndHeadersAreRegularEvents() throws Exception {
+
+        CSVParser p = new CSVParser();
+        p.setReuseEvents(true);
+
+        List<Event> events = p.parse(1L, "a, 1", null);
+
+        assertEquals(1, events.size());
+        assertFalse(events.get(0) instanceof RecycledCSVEvent);
+
+        assertTrue(p.parse(2L, "# name", null).isEmpty());
+
+        events = p.parse(3L, "b", null);
+
+        assertEquals(2, events.size());
+        assertTrue(events.get(0) instanceof CSVHeaders);
+        assertTrue(events.get(1) instanceof RecycledCSVEvent);
+    }
+
+    @Test
+    public void parse_ReuseEvents_UnchangedTokensReuseTheProperty() throws Exception {
+
+        CSVParser p = new CSVParser("name, size(int)");
+        p.setReuseEvents(true);
+
+        Event e = p.parse(1L, "a, 10", null).get(0);
+        Property name = e.getProperty("name");
+        Property size = e.getProperty("size");
+
+        e = p.parse(2L, "a, 11", null).get(0);
+
+        assertTrue(name == e.getProperty("name"));
+        assertFalse(size == e.getProperty("size"));
+        assertEquals(11, e.getProperty("size").getValue());
+        assertEquals(2L, e.getLineNumber().longValue());
+    }
+
+    // parseLine() -----------------------------------------------------------------------------------------------------
+
+    @Test
+    public void parseLine_Utf8Line_SameResultAsString() throws Exception {
+
+        String[] content = new String[] {
+
+                "# time(MM/dd/yy HH:mm:ss), color, size(int), city",
+                "12/25/16 13:00:00, blue, 10, \"Z\u00fcrich, CH\"",
+        };
+
+        CSVParser stringParser = new CSVParser();
+        CSVParser byteParser = new CSVParser();
+
+        List<Event> expected = new ArrayList<>();
+        List<Event> actual = new ArrayList<>();
+
+        for(int i = 0; i < content.length; i ++) {
+
+            expected.addAll(stringParser.parse(i + 1, content[i], null));
+            actual.addAll(byteParser.parseLine(i + 1, new Utf8Line(content[i].getBytes("UTF-8")), null));
+        }
+
+        assertEquals(2, actual.size());
+        assertEquals(expected.size(), actual.size());
+
+        TimedCSVLine e = (TimedCSVLine)expected.get(1);
+        TimedCSVLine e2 = (TimedCSVLine)actual.get(1);
+
+        assertEquals(e.getTime(), e2.getTime());
+        assertEquals(2L, e2.getLongProperty(Event.LINE_PROPERTY_NAME).getLong().longValue());
+        assertEquals("blue", e2.getStringProperty("color").getString());
+        assertEquals(10, e2.getIntegerProperty("size").getInteger().intValue());
+        assertEquals("Z\u00fcrich, CH", e2.getStringProperty("city").getString());
+        assertEquals(e.getProperties().size(), e2.getProperties().size());
+    }
+
+    // setLazyProperties() ---------------------------------------------------------------------------------------------
+
+    @Test
+    public void setLazyProperties() throws Exception {
+
+        CSVParser p = new CSVParser();
+
+        assertFalse(p.isLazyProperties());
+
+        p.setLazyProperties(true);
+        assertTrue(p.isLazyProperties());
+
+        p.setLazyProperties(false);
+        assertFalse(p.isLazyProperties());
+    }
+
+    @Test
+    public void parse_LazyProperties_SameContentAsRegularEvents() throws Exception {
+
+        String[] content = new String[] {
+
+                "a, 1",
+                "# time(MM/dd/yy HH:mm:ss), color, size(int), city",
+                "12/25/16 13:00:00, blue, 10, Paris",
+                "12/25/16 13:00:02, , 11, London",
+                "12/25/16 13:00:03, , 11",
+                "12/25/16 13:00:04, red, 12, Rome, extra",
+                "# name, weight(long)",
+                "x, 1",
+                "y",
+        };
+
+        CSVParser regular = new CSVParser();
+        CSVParser lazy = new CSVParser();
+        lazy.setLazyProperties(true);
+
+        int lazyEvents = 0;
+
+        for(int i = 0; i < content.length; i ++) {
+
+            List<Event> expected = regular.parse(i + 1, content[i], null);
+            List<Event> actual = lazy.parse(i + 1, content[i], null);
+
+            assertEquals(expected.size(), actual.size());
+
+            for(int j = 0; j < expected.size(); j ++) {
+
+                Event e = expected.get(j);
+                Event a = actual.get(j);
+
+                Class<?> c = a.getClass();
+
+                if (a instanceof LazyTimedCSVLine || a instanceof LazyNonTimedCSVLine) {
+
+                    lazyEvents ++;
+                    c = c.getSuperclass();
+                }
+
+                assertEquals(e.getClass(), c);
+                assertEquals(e.isTimed(), a.isTimed());
+                assertEquals(e.getLineNumber(), a.getLineNumber());
+
+                if (e instanceof TimedEvent) {
+
+                    assertEquals(((TimedEvent)e).getTime(), ((TimedEvent)a).getTime());
+                }
+
+                if (e instanceof CSVHeaders) {
+
+                    assertEquals(((CSVHeaders)e).getNextTimedEventTimestamp(),
+                            ((CSVHeaders)a).getNextTimedEventTimestamp());
+                }
+
+                for(Property p: e.getProperties()) {
+
+                    assertEquals(p.toString(), String.valueOf(a.getProperty(p.getName())));
+                }
+
+                assertEquals(e.getProperties().toString(), a.getProperties().toString());
+            }
+        }
+
+        assertEquals(6, lazyEvents);
+    }
+
+    @Test
+    public void parse_LazyProperties_OnlyTheAccessedColumnsAreConverted() throws Exception {
+
+        CSVParser p = new CSVParser("time(MM/dd/yy HH:mm:ss), a, b(int), c(long)");
+        p.setLazyProperties(true);
+
+        List<Event> events = p.parse(1L, "12/25/16 13:00:00, x, 1, 2", null);
+
+        assertEquals(1, events.size());
+
+        LazyTimedCSVLine e = (LazyTimedCSVLine)events.get(0);
+
+        LazyLineContent c = e.getContent();
+
+        assertEquals(4, c.getColumnCount());
+        assertTrue(c.isConverted(0));
+        assertFalse(c.isConverted(1));
+        assertFalse(c.isConverted(2));
+        assertFalse(c.isConverted(3));
+
+        assertEquals(1, e.getProperty("b").getValue());
+
+        assertFalse(c.isConverted(1));
+        assertTrue(c.isConverted(2));
+        assertFalse(c.isConverted(3));
+
+        //
+        // cached
+        //
+
+        assertTrue(e.getProperty("b") == e.getProperty("b"));
+
+        assertEquals(5, e.getProperties().size());
+        assertTrue(c.isConverted(1));
+        assertTrue(c.isConverted(3));
+    }
+
+    @Test
+    public void parse_LazyProperties_InvalidTimestampFailsTheLine() throws Exception {
+
+        CSVParser p = new CSVParser("time(MM/dd/yy HH:mm:ss), b(int)");
+        p.setLazyProperties(true);
+
+        try {
+
+            p.parse(1L, "not a timestamp, 1", null);
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("not a timestamp"));
+        }
+    }
+
+    @Test
+    public void parse_LazyProperties_InvalidValueFailsOnAccess() throws Exception {
+
+        CSVParser p = new CSVParser("a, b(int)");
+        p.setLazyProperties(true);
+
+        List<Event> events = p.parse(1L, "x, not-an-int", null);
+
+        Event e = events.get(0);
+
+        assertEquals("x", e.getProperty("a").getValue());
+
+        try {
+
+            e.getProperty("b");
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException ex) {
+
+            String msg = ex.getMessage();
+            assertTrue(msg.contains("not-an-int"));
+        }
+    }
+
+    @Test
+    public void parse_LazyProperties_Utf8LineContentIsDetached() throws Exception {
+
+        CSVParser p = new CSVParser("a, b");
+        p.setLazyProperties(true);
+
+        byte[] bytes = "x1, y1".getBytes(StandardCharsets.UTF_8);
+
+        Utf8Line line = new Utf8Line(bytes);
+
+        Event e = p.parseLine(1L, line, null).get(0);
+
+        bytes[1] = '2';
+        line.reset(ByteBuffer.wrap("zz, zz".getBytes(StandardCharsets.UTF_8)), 0, 6);
+
+        assertEquals("x1", e.getProperty("a").getValue());
+        assertEquals("y1", e.getProperty("b").getValue());
+    }
+
+    @Test
+    public void parse_LazyProperties_SetPropertyMaterializesTheEvent() throws Exception {
+
+        CSVParser p = new CSVParser("a, b(int)");
+        p.setLazyProperties(true);
+
+        LazyNonTimedCSVLine e = (LazyNonTimedCSVLine)p.parse(7L, "x, 1", null).get(0);
+
+        e.setProperty(new StringProperty("c", "z"));
+
+        assertNull(e.getContent());
+        assertEquals(7L, e.getLineNumber().longValue());
+        assertEquals("x", e.getProperty("a").getValue());
+        assertEquals(1, e.getProperty("b").getValue());
+        assertEquals("z", e.getProperty("c").getValue());
+        assertEquals(4, e.getProperties().size());
+    }
+
+    // setProjection() -------------------------------------------------------------------------------------------------
+
+    @Test
+    public void setProjection() throws Exception {
+
+        CSVParser p = new CSVParser();
+
+        assertNull(p.getProjection());
+
+        Set<String> names = new HashSet<>(Arrays.asList("a", "b"));
+
+        p.setProjection(names);
+
+        names.add("c");
+
+        Set<String> projection = p.getProjection();
+        assertEquals(2, projection.size());
+        assertTrue(projection.contains("a"));
+        assertTrue(projection.contains("b"));
+
+        p.setProjection(null);
+        assertNull(p.getProjection());
+    }
+
+    @Test
+    public void parse_Projection() throws Exception {
+
+        CSVParser p = new CSVParser("a, time(MM/dd/yy HH:mm:ss), b(int), c(long)");
+        p.setProjection(Collections.singleton("b"));
+
+        List<Event> events = p.parse(1L, "x, 12/25/16 13:00:00, 1, not-a-long", null);
+
+        assertEquals(1, events.size());
+
+        TimedCSVLine e = (TimedCSVLine)events.get(0);
+
+        List<Property> properties = e.getProperties();
+
+        assertEquals(3, properties.size());
+        assertTrue(properties.get(0) instanceof TimestampProperty);
+        assertEquals(1L, e.getLineNumber().longValue());
+        assertEquals(1, e.getProperty("b").getValue());
+        assertNull(e.getProperty("a"));
+        assertNull(e.getProperty("c"));
+    }
+
+    @Test
+    public void parse_Projection_EmptyProjection() throws Exception {
+
+        CSVParser p = new CSVParser("a, b(int)");
+        p.setProjection(Collections.<String>emptySet());
+
+        Event e = p.parse(7L, "x, 1", null).get(0);
+
+        assertFalse(e.isTimed());
+        assertEquals(1, e.getProperties().size());
+        assertEquals(7L, e.getLineNumber().longValue());
+    }
+
+    @Test
+    public void parse_Projection_HeadersAndIntrospectionAreNotAffected() throws Exception {
+
+        CSVParser p = new CSVParser();
+        p.setProjection(Collections.singleton("b"));
+
+        Event e = p.parse(1L, "x, 1", null).get(0);
+
+        assertEquals(3, e.getProperties().size());
+
+        assertTrue(p.parse(2L, "# a, b(int)", null).isEmpty());
+
+        List<Event> events = p.parse(3L, "x, 1", null);
+
+        assertEquals(2, events.size());
+
+        CSVHeaders h = (CSVHeaders)events.get(0);
+        assertEquals(2, h.getFields().size());
+
+        e = events.get(1);
+
+        assertEquals(2, e.getProperties().size());
+        assertEquals(1, e.getProperty("b").getValue());
+
+        //
+        // a new format, the projection applies to the new columns
+        //
+
+        p.parse(4L, "# b(long), d", null);
+
+        e = p.parse(5L, "2, y", null).get(1);
+
+        assertEquals(2, e.getProperties().size());
+        assertEquals(2L, e.getProperty("b").getValue());
+    }
+
+    @Test
+    public void parse_Projection_ReuseEventsAndLazyProperties() throws Exception {
+
+        String format = "a, time(MM/dd/yy HH:mm:ss), b(int), c";
+        String line = "x, 12/25/16 13:00:00, 1, z";
+
+        CSVParser regular = new CSVParser(format);
+        regular.setProjection(new HashSet<>(Arrays.asList("b", "c")));
+
+        CSVParser recycling = new CSVParser(format);
+        recycling.setReuseEvents(true);
+        recycling.setProjection(new HashSet<>(Arrays.asList("b", "c")));
+
+        CSVParser lazy = new CSVParser(format);
+        lazy.setLazyProperties(true);
+        lazy.setProjection(new HashSet<>(Arrays.asList("b", "c")));
+
+        Event expected = regular.parse(1L, line, null).get(0);
+        Event recycled = recycling.parse(1L, line, null).get(0);
+        Event lazyEvent = lazy.parse(1L, line, null).get(0);
+
+        assertEquals(4, expected.getProperties().size());
+
+        assertTrue(recycled.isTimed());
+        assertEquals(((TimedEvent)expected).getTime(), ((TimedEvent)recycled).getTime());
+        assertEquals(expected.getProperties().toString(), recycled.getProperties().toString());
+        assertNull(recycled.getProperty("a"));
+
+        assertTrue(lazyEvent.isTimed());
+        assertEquals(((TimedEvent)expected).getTime(), ((TimedEvent)lazyEvent).getTime());
+        assertEquals(expected.getProperties().toString(), lazyEvent.getProperties().toString());
+        assertNull(lazyEvent.getProperty("a"));
+    }
+
+    @Test
+    public void parse_Projection_FieldAndTimeQueries() throws Exception {
+
+        CSVParser p = new CSVParser("a, time(MM/dd/yy HH:mm:ss), b(int), c(long)");
+        p.setProjection(Collections.singleton("b"));
+
+        //
+        // the field query references "a", which is converted in addition to the projection, "c" is not
+        //
+
+        MixedQuery q = new MixedQuery();
+        q.addQuery(new FieldQuery("a", "x"));
+        q.addQuery(new TimeQuery(null, null));
+
+        List<Event> events = p.parse(1L, "x, 12/25/16 13:00:00, 1, not-a-long", q);
+
+        TimedCSVLine e = (TimedCSVLine)events.get(0);
+
+        assertTrue(q.selects(e));
+        assertEquals(4, e.getProperties().size());
+        assertEquals("x", e.getProperty("a").getValue());
+        assertEquals(1, e.getProperty("b").getValue());
+        assertNull(e.getProperty("c"));
+    }
+
+    @Test
+    public void parse_Projection_KeywordQueryDisablesTheProjection() throws Exception {
+
+        CSVParser p = new CSVParser("a, b(int)");
+        p.setProjection(Collections.singleton("b"));
+
+        Query q = new KeywordQuery("x");
+
+        Event e = p.parse(1L, "x, 1", q).get(0);
+
+        assertTrue(q.selects(e));
+        assertEquals(3, e.getProperties().size());
+        assertEquals("x", e.getProperty("a").getValue());
+    }
+
+    // setLinePredicate() ----------------------------------------------------------------------------------------------
+
+    @Test
+    public void setLinePredicate() throws Exception {
+
+        CSVParser p = new CSVParser();
+
+        assertNull(p.getLinePredicate());
+
+        LinePredicate lp = LinePredicate.equalTo("a", "x");
+
+        p.setLinePredicate(lp);
+        assertTrue(lp == p.getLinePredicate());
+
+        p.setLinePredicate(null);
+        assertNull(p.getLinePredicate());
+    }
+
+    @Test
+    public void parse_LinePredicate() throws Exception {
+
+        String[] content = new String[] {
+
+                "a, 1",
+                "# time(MM/dd/yy HH:mm:ss), color, size(int)",
+                "12/25/16 13:00:00, red, 10",
+                "12/25/16 13:00:01, blue, 10",
+                "12/25/16 13:00:02, red, 11",
+                "12/25/16 13:00:03, blue, 12",
+                "12/25/16 13:00:04, blue, 9",
+        };
+
+        for(int mode = 0; mode < 3; mode ++) {
+
+            CSVParser p = new CSVParser();
+            p.setReuseEvents(mode == 1);
+            p.setLazyProperties(mode == 2);
+            p.setLinePredicate(LinePredicate.and(
+                    LinePredicate.equalTo("color", "blue"),
+                    LinePredicate.compare("size", LinePredicate.Comparison.GE, 10)));
+
+            List<Long> lines = new ArrayList<>();
+
+            for(int i = 0; i < content.length; i ++) {
+
+                for(Event e: p.parse(i + 1, content[i], null)) {
+
+                    if (!(e instanceof CSVHeaders)) {
+
+                        lines.add(e.getLineNumber());
+                    }
+                }
+            }
+
+            //
+            // the introspected line and the line that follows the header are not filtered
+            //
+
+            assertEquals(Arrays.asList(1L, 3L, 4L, 6L), lines);
+            assertEquals(2L, p.getFilteredLineCount());
+        }
+    }
+
+    @Test
+    public void parse_LinePredicate_HeaderStillGetsTheNextTimestamp() throws Exception {
+
+        CSVParser p = new CSVParser();
+        p.setLinePredicate(LinePredicate.equalTo("color", "blue"));
+
+        assertTrue(p.parse(1L, "# time(MM/dd/yy HH:mm:ss), color", null).isEmpty());
+
+        List<Event> events = p.parse(2L, "12/25/16 13:00:00, red", null);
+
+        assertEquals(2, events.size());
+
+        CSVHeaders h = (CSVHeaders)events.get(0);
+        TimedEvent e = (TimedEvent)events.get(1);
+
+        assertEquals(e.getTime(), h.getNextTimedEventTimestamp());
+
+        assertTrue(p.parse(3L, "12/25/16 13:00:01, red", null).isEmpty());
+        assertEquals(1, p.parse(4L, "12/25/16 13:00:02, blue", null).size());
+    }
+
+    @Test
+    public void parse_LinePredicate_TimeRange() throws Exception {
+
+        SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yy HH:mm:ss");
+
+        CSVParser p = new CSVParser("time(MM/dd/yy HH:mm:ss), value(int)");
+        p.setLinePredicate(LinePredicate.timeRange(
+                sdf.parse("12/25/16 13:00:01").getTime(), sdf.parse("12/25/16 13:00:03").getTime()));
+
+        assertTrue(p.parse(1L, "12/25/16 13:00:00, 1", null).isEmpty());
+        assertEquals(1, p.parse(2L, "12/25/16 13:00:01, 2", null).size());
+        assertEquals(1, p.parse(3L, "12/25/16 13:00:02, 3", null).size());
+        assertTrue(p.parse(4L, "12/25/16 13:00:03, 4", null).isEmpty());
+    }
+
+    @Test
+    public void parse_LinePredicate_UndecidableLinesAreConverted() throws Exception {
+
+        CSVParser p = new CSVParser("a, b(int)");
+        p.setLinePredicate(LinePredicate.compare("b", LinePredicate.Comparison.GT, 5));
+
+        try {
+
+            p.parse(1L, "x, not-an-int", null);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("not-an-int"));
+        }
+
+        assertEquals(1, p.parse(2L, "x", null).size());
+        assertEquals(0L, p.getFilteredLineCount());
+    }
+
+    // setKeywordPrefilter() -------------------------------------------------------------------------------------------
+
+    @Test
+    public void parse_LinePredicate_FieldAndTimeQueries() throws Exception {
+
+        CSVParser p = new CSVParser("time(MM/dd/yy HH:mm:ss), a, b(int)");
+
+        //
+        // field queries are not pushed down, the lines are left to the query
+        //
+
+        Query q = new FieldQuery("b", "2");
+
+        assertEquals(1, p.parse(1L, "12/25/16 13:00:00, x, 1", q).size());
+
+        Event e = p.parse(2L, "12/25/16 13:00:01, x, 2", q).get(0);
+
+        assertTrue(q.selects(e));
+        assertEquals(0, p.getFilteredLineCount());
+
+        SimpleDateFormat f = new SimpleDateFormat("MM/dd/yy HH:mm:ss");
+        long t = f.parse("12/25/16 13:00:10").getTime();
+
+        q = new TimeQuery(null, t);
+
+        //
+        // the upper bound is included
+        //
+
+        e = p.parse(3L, "12/25/16 13:00:10, x, 1", q).get(0);
+        assertTrue(q.selects(e));
+
+        assertTrue(p.parse(4L, "12/25/16 13:00:11, x, 1", q).isEmpty());
+        assertEquals(1, p.getFilteredLineCount());
+    }
+
+    @Test
+    public void setKeywordPrefilter() throws Exception {
+
+        CSVParser p = new CSVParser();
+
+        assertNull(p.getKeywordPrefilter());
+
+        KeywordPrefilter kp = new KeywordPrefilter(false, "x");
+
+        p.setKeywordPrefilter(kp);
+        assertTrue(kp == p.getKeywordPrefilter());
+
+        p.setKeywordPrefilter(null);
+        assertNull(p.getKeywordPrefilter());
+    }
+
+    @Test
+    public void parse_KeywordPrefilter() throws Exception {
+
+        String[] content = new String[] {
+
+                "a, 1",
+                "b, 2",
+                "# time(MM/dd/yy HH:mm:ss), color, size(int)",
+                "12/25/16 13:00:00, red, 10",
+                "12/25/16 13:00:01, blue, 10",
+                "12/25/16 13:00:02, red, 11",
+                "12/25/16 13:00:03, BLUE, 12",
+        };
+
+        for(int mode = 0; mode < 3; mode ++) {
+
+            CSVParser p = new CSVParser();
+            p.setReuseEvents(mode == 1);
+            p.setLazyProperties(mode == 2);
+            p.setKeywordPrefilter(new KeywordPrefilter(true, "blue", "a"));
+
+            List<Long> lines = new ArrayList<>();
+
+            for(int i = 0; i < content.length; i ++) {
+
+                for(Event e: p.parse(i + 1, content[i], null)) {
+
+                    if (!(e instanceof CSVHeaders)) {
+
+                        lines.add(e.getLineNumber());
+                    }
+                }
+            }
+
+            //
+            // the header is not filtered, and neither is the line that follows it
+            //
+
+            assertEquals(Arrays.asList(1L, 4L, 5L, 7L), lines);
+            assertEquals(2L, p.getFilteredLineCount());
+        }
+    }
+
+    @Test
+    public void parse_KeywordPrefilter_Utf8Line() throws Exception {
+
+        CSVParser p = new CSVParser("a, b(int)");
+        p.setKeywordPrefilter(new KeywordPrefilter(false, "Z\u00fcrich"));
+
+        assertTrue(p.parseLine(1L, new Utf8Line("Zurich, 1".getBytes(StandardCharsets.UTF_8)), null).isEmpty());
+
+        List<Event> events = p.parseLine(2L, new Utf8Line("Z\u00fcrich, 2".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals(1, events.size());
+        assertEquals("Z\u00fcrich", events.get(0).getProperty("a").getValue());
+    }
+
+    @Test
+    public void parse_KeywordPrefilter_KeywordQuery() throws Exception {
+
+        CSVParser p = new CSVParser("time(MM/dd/yy HH:mm:ss), a, b");
+
+        Query q = new KeywordQuery("blue");
+
+        assertTrue(p.parse(1L, "12/25/16 13:00:00, red, green", q).isEmpty());
+
+        Event e = p.parse(2L, "12/25/16 13:00:01, red, BLUE", q).get(0);
+
+        assertTrue(q.selects(e));
+        assertEquals(1, p.getFilteredLineCount());
+    }
+
+    @Test
+    public void parse_KeywordPrefilter_KeywordQuery_RenderedValuesAreNotPrefiltered() throws Exception {
+
+        //
+        // the keyword is found in the rendering of the float value, but not in the line
+        //
+
+        CSVParser p = new CSVParser("a, b(float)");
+
+        Query q = new KeywordQuery("E10");
+
+        Event e = p.parse(1L, "x, 10000000000", q).get(0);
+
+        assertTrue(q.selects(e));
+
+        //
+        // the keyword is found in the line number, but not in the line
+        //
+
+        p = new CSVParser("a, b");
+
+        q = new KeywordQuery("7");
+
+        e = p.parse(7L, "x, y", q).get(0);
+
+        assertTrue(q.selects(e));
+
+        assertEquals(0, p.getFilteredLineCount());
+    }
+
+    // setFormatCacheCapacity() ----------------------------------------------------------------------------------------
+
+    @Test
+    public void setFormatCacheCapacity() throws Exception {
+
+        CSVParser p = new CSVParser();
+
+        CSVFormatCache c = p.getFormatCache();
+        assertEquals(CSVFormatCache.DEFAULT_CAPACITY, c.getCapacity());
+
+        p.setFormatCacheCapacity(3);
+        assertEquals(3, p.getFormatCache().getCapacity());
+
+        p.setFormatCacheCapacity(0);
+        assertNull(p.getFormatCache());
+
+        try {
+
+            p.setFormatCacheCapacity(-1);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid format cache capacity -1", msg);
+        }
+    }
+
+    @Test
+    public void parse_RepeatedHeader_FormatIsReused() throws Exception {
+
+        CSVParser p = new CSVParser();
+
+        p.parse(1L, "# time(MM/dd/yy HH:mm:ss), a, b(int)", null);
+
+        CSVFormat f = p.getFormat();
+
+        assertEquals(2, p.parse(2L, "12/25/16 13:00:00, x, 1", null).size());
+
+        p.parse(3L, "# c, d", null);
+
+        CSVFormat f2 = p.getFormat();
+        assertFalse(f == f2);
+
+        assertEquals(2, p.parse(4L, "y, z", null).size());
+
+        p.parse(5L, "#time(MM/dd/yy HH:mm:ss), a, b(int)", null);
+
+        //
+        // the header text is the content that follows the leader, the difference in blank space makes it distinct
+        //
+
+        assertFalse(f == p.getFormat());
+
+        p.parse(6L, "# time(MM/dd/yy HH:mm:ss), a, b(int)", null);
+
+        //
+        // the cached format is reused
+        //
+
+        assertTrue(f == p.getFormat());
+
+        List<Event> events = p.parse(7L, "12/25/16 13:00:01, x, 2", null);
+
+        assertEquals(2, events.size());
+        TimedCSVLine e = (TimedCSVLine)events.get(1);
+        assertEquals(2, e.getIntegerProperty("b").getInteger().intValue());
+
+        CSVFormatCache c = p.getFormatCache();
+
+        assertEquals(1L, c.getHitCount());
+        assertEquals(3L, c.getMissCount());
+    }
+
+    @Test
+    public void parse_RepeatedHeader_ModifyingTheFormatDoesNotAffectTheCache() throws Exception {
+
+        CSVParser p = new CSVParser();
+
+        p.parse(1L, "# a, b(int)", null);
+
+        CSVFormat f = p.getFormat();
+
+        //
+        // the returned format is the cache's instance, the modifications are made on a copy
+        //
+
+        CSVFormat copy = f.copy();
+        assertFalse(f == copy);
+        assertEquals(f.toPattern(), copy.toPattern());
+
+        copy.addField("c(long)");
+        p.setFormat(copy);
+
+        assertTrue(copy == p.getFormat());
+
+        Event e = p.parse(2L, "x, 1, 2", null).get(1);
+        assertEquals(2L, e.getLongProperty("c").getLong().longValue());
+
+        p.parse(3L, "# d", null);
+        p.parse(4L, "# a, b(int)", null);
+
+        assertEquals(1L, p.getFormatCache().getHitCount());
+        assertTrue(f == p.getFormat());
+        assertEquals(2, p.getFormat().getFields().size());
+
+        e = p.parse(5L, "x, 1, 2", null).get(1);
+        assertNull(e.getProperty("c"));
+    }
+
+    @Test
+    public void parse_RepeatedHeader_CacheDisabled() throws Exception {
+
+        CSVParser p = new CSVParser();
+        p.setFormatCacheCapacity(0);
+
+        p.parse(1L, "# a, b(int)", null);
+
+        CSVFormat f = p.getFormat();
+
+        p.parse(2L, "# a, b(int)", null);
+
+        assertFalse(f == p.getFormat());
+        assertEquals(f.toPattern(), p.getFormat().toPattern());
+    }
+
+    // setInferenceWindow() --------------------------------------------------------------------------------------------
+
+    @Test
+    public void setInferenceWindow() throws Exception {
+
+        CSVParser p = new CSVParser();
+
+        assertEquals(0, p.getInferenceWindow());
+        assertNull(p.getInferredFormat());
+
+        p.setInferenceWindow(10);
+        assertEquals(10, p.getInferenceWindow());
+
+        try {
+
+            p.setInferenceWindow(-1);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid inference window -1", msg);
+        }
+    }
+
+    @Test
+    public void parse_InferenceWindow() throws Exception {
+
+        for(int mode = 0; mode < 3; mode ++) {
+
+            CSVParser p = new CSVParser();
+            p.setReuseEvents(mode == 1);
+            p.setLazyProperties(mode == 2);
+            p.setInferenceWindow(2);
+
+            assertEquals(1, p.parse(1L, "12/25/16 13:00:00, a, 1", null).size());
+            assertNull(p.getFormat());
+
+            assertEquals(1, p.parse(2L, "12/25/16 13:00:01, b, 2", null).size());
+
+            CSVFormat f = p.getInferredFormat();
+            assertTrue(f == p.getFormat());
+            assertEquals("time(time:MM/dd/yy HH:mm:ss), field_1(string), field_2(int)", f.toPattern());
+
+            List<Event> events = p.parse(3L, "12/25/16 13:00:02, c, 3", null);
+
+            assertEquals(1, events.size());
+            TimedEvent e = (TimedEvent)events.get(0);
+            assertEquals(new SimpleDateFormat("MM/dd/yy HH:mm:ss").parse("12/25/16 13:00:02").getTime(),
+                    e.getTime().longValue());
+            assertEquals("c", e.getProperty("field_1").getValue());
+            assertEquals(3, e.getProperty("field_2").getValue());
+            assertEquals(3L, e.getLineNumber().longValue());
+            assertEquals(0L, p.getNonConformingLineCount());
+        }
+    }
+
+    @Test
+    public void parse_InferenceWindow_NonConformingLinesAreIntrospected() throws Exception {
+
+        CSVParser p = new CSVParser();
+        p.setInferenceWindow(1);
+
+        p.parse(1L, "a, 1", null);
+
+        assertEquals("field_0(string), field_1(int)", p.getInferredFormat().toPattern());
+
+        //
+        // invalid int
+        //
+
+        List<Event> events = p.parse(2L, "b, c", null);
+
+        assertEquals(1, events.size());
+        assertEquals("c", events.get(0).getProperty("field_1").getValue());
+
+        //
+        // more columns than the inferred format
+        //
+
+        events = p.parse(3L, "d, 2, e", null);
+
+        assertEquals(1, events.size());
+        assertEquals("e", events.get(0).getProperty("field_2").getValue());
+
+        //
+        // fewer columns conform
+        //
+
+        events = p.parse(4L, "f", null);
+
+        assertEquals(1, events.size());
+        assertEquals("f", events.get(0).getProperty("field_0").getValue());
+
+        assertEquals(2L, p.getNonConformingLineCount());
+
+        //
+        // the inferred format stays installed
+        //
+
+        assertTrue(p.getInferredFormat() == p.getFormat());
+    }
+
+    @Test
+    public void parse_InferenceWindow_HeaderTakesPrecedence() throws Exception {
+
+        CSVParser p = new CSVParser();
+        p.setInferenceWindow(2);
+
+        p.parse(1L, "a, 1", null);
+        p.parse(2L, "# x, y", null);
+
+        List<Event> events = p.parse(3L, "b, 2", null);
+
+        assertEquals(2, events.size());
+        assertEquals("b", events.get(1).getProperty("x").getValue());
+
+        p.parse(4L, "c, 3", null);
+
+        assertNull(p.getInferredFormat());
+        assertEquals("x(string), y(string)", p.getFormat().toPattern());
+    }
+
+    @Test
+    public void parse_InferenceWindow_ExplicitFormat() throws Exception {
+
+        CSVParser p = new CSVParser("a, b");
+        p.setInferenceWindow(1);
+
+        p.parse(1L, "x, 1", null);
+        p.parse(2L, "y, 2", null);
+
+        assertNull(p.getInferredFormat());
+        assertEquals(0L, p.getNonConformingLineCount());
+    }
+
+    // setStringDictionaries() -----------------------------------------------------------------------------------------
+
+    @Test
+    public void setStringDictionaries_InvalidMaxCardinality() throws Exception {
+
+        CSVParser p = new CSVParser();
+
+        try {
+
+            p.setStringDictionaries(-1, false);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid maximum cardinality -1", msg);
+        }
+
+        try {
+
+            p.setStringDictionaries(StringDictionary.MAX_CARDINALITY + 1, false);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid maximum cardinality " + (StringDictionary.MAX_CARDINALITY + 1), msg);
+        }
+    }
+
+    @Test
+    public void parse_StringDictionaries() throws Exception {
+
+        for(int mode = 0; mode < 2; mode ++) {
+
+            CSVParser p = new CSVParser("time(MM/dd/yy HH:mm:ss), color, id, size(int)");
+            p.setLazyProperties(mode == 1);
+            p.setStringDictionaries(2, true);
+
+            assertNull(p.getStringDictionary("color"));
+
+            Event e = p.parse(1L, "12/25/16 13:00:00, red, a, 1", null).get(0);
+            Event e2 = p.parse(2L, "12/25/16 13:00:01, red, b, 2", null).get(0);
+            Event e3 = p.parse(3L, "12/25/16 13:00:02, blue, c, 3", null).get(0);
+            Event e4 = p.parse(4L, "12/25/16 13:00:03, blue, a, 4", null).get(0);
+
+            assertSame(e.getProperty("color"), e2.getProperty("color"));
+            assertSame(e3.getProperty("color"), e4.getProperty("color"));
+            assertEquals("blue", e4.getProperty("color").getValue());
+
+            //
+            // high cardinality column; lazy properties are converted on access, so access them in line order
+            //
+
+            Property id = e.getProperty("id");
+            e2.getProperty("id");
+            e3.getProperty("id");
+            Property id4 = e4.getProperty("id");
+
+            assertNotSame(id, id4);
+            assertEquals("a", id4.getValue());
+
+            StringDictionary color = p.getStringDictionary("color");
+            assertEquals(2, color.getCardinality());
+            assertFalse(color.isOverflown());
+
+            assertTrue(p.getStringDictionary("id").isOverflown());
+            assertNull(p.getStringDictionary("size"));
+            assertNull(p.getStringDictionary("no-such-column"));
+        }
+    }
+
+    @Test
+    public void parse_StringDictionaries_FormatChange() throws Exception {
+
+        CSVParser p = new CSVParser();
+        p.setStringDictionaries(10, false);
+
+        p.parse(1L, "# color", null);
+        Event e = p.parse(2L, "red", null).get(1);
+
+        StringDictionary d = p.getStringDictionary("color");
+        assertEquals(1, d.getCardinality());
+
+        p.parse(3L, "# color, size(int)", null);
+        Event e2 = p.parse(4L, "red, 1", null).get(1);
+
+        StringDictionary d2 = p.getStringDictionary("color");
+        assertNotSame(d, d2);
+        assertEquals(1, d2.getCardinality());
+
+        assertNotSame(e.getProperty("color"), e2.getProperty("color"));
+        assertEquals("red", e2.getProperty("color").getValue());
+    }
+
     // Package protected -----------------------------------------------------------------------------------------------
 
     // Protected -------------------------------------------------------------------------------------------------------
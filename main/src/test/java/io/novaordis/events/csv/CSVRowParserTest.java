@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.novaordis.utilities.parsing.ParsingException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVRowParserTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor_NoFormat() throws Exception {
+
+        CSVRowParser p = new CSVRowParser(null);
+
+        assertNull(p.getFormat());
+    }
+
+    @Test
+    public void parse_NullVisitor() throws Exception {
+
+        CSVRowParser p = new CSVRowParser("a");
+
+        try {
+
+            p.parse(1L, "x", null);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("null visitor", msg);
+        }
+    }
+
+    @Test
+    public void parse() throws Exception {
+
+        CSVRowParser p = new CSVRowParser("a, b(int)");
+
+        RecordingVisitor v = new RecordingVisitor();
+
+        p.parse(1L, null, v);
+        p.parse(2L, "   ", v);
+        p.parse(3L, " x, 1 ", v);
+        p.parse(4L, "y, 2", v);
+
+        assertEquals(2, v.records.size());
+        assertEquals("row 3: x 1", v.records.get(0));
+        assertEquals("row 4: y 2", v.records.get(1));
+
+        //
+        // the same instance is passed for every row
+        //
+
+        assertEquals(1, v.distinctRows);
+    }
+
+    @Test
+    public void parse_HeaderChangesTheFormat() throws Exception {
+
+        CSVRowParser p = new CSVRowParser(null);
+
+        RecordingVisitor v = new RecordingVisitor();
+
+        p.parse(1L, "m, 5", v);
+        p.parse(2L, "# name, value(int)", v);
+        p.parse(3L, "n, 6", v);
+
+        assertEquals(3, v.records.size());
+        assertEquals("row 1 (no format): m", v.records.get(0));
+        assertEquals("header: name(string), value(int)", v.records.get(1));
+        assertEquals("row 3: n 6", v.records.get(2));
+
+        assertTrue(p.getFormat() == v.lastRow.getFormat());
+    }
+
+    @Test
+    public void parse_InvalidHeader_ParsingContinues() throws Exception {
+
+        CSVRowParser p = new CSVRowParser("a, b(int)");
+
+        RecordingVisitor v = new RecordingVisitor();
+
+        p.parse(1L, "# a(no-such-type)", v);
+        p.parse(2L, "x, 1", v);
+
+        assertEquals(2, v.records.size());
+        assertEquals("error 1", v.records.get(0));
+        assertEquals("row 2: x 1", v.records.get(1));
+    }
+
+    @Test
+    public void parse_TokenizingError_ParsingContinues() throws Exception {
+
+        CSVRowParser p = new CSVRowParser("a, b(int)");
+
+        RecordingVisitor v = new RecordingVisitor();
+
+        p.parse(1L, "\"x, 1", v);
+        p.parse(2L, "y, 2", v);
+
+        assertEquals(2, v.records.size());
+        assertEquals("error 1", v.records.get(0));
+        assertEquals("row 2: y 2", v.records.get(1));
+    }
+
+    @Test
+    public void parse_Utf8Line() throws Exception {
+
+        CSVRowParser p = new CSVRowParser("city, n(int)");
+
+        RecordingVisitor v = new RecordingVisitor();
+
+        p.parse(1L, new Utf8Line("  Z\u00fcrich, 1 ".getBytes(StandardCharsets.UTF_8)), v);
+
+        assertEquals(1, v.records.size());
+        assertEquals("row 1: Z\u00fcrich 1", v.records.get(0));
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    private static class RecordingVisitor implements CSVRowVisitor {
+
+        private final List<String> records = new ArrayList<>();
+
+        private CSVRow lastRow;
+
+        private int distinctRows;
+
+        @Override
+        public void onHeader(CSVFormat format) {
+
+            records.add("header: " + format.toPattern());
+        }
+
+        @Override
+        public void onRow(long lineNumber, CSVRow row) {
+
+            if (row != lastRow) {
+
+                distinctRows ++;
+                lastRow = row;
+            }
+
+            if (row.getFormat() == null) {
+
+                records.add("row " + lineNumber + " (no format): " + row.getString(0));
+            }
+            else {
+
+                records.add("row " + lineNumber + ": " + row.getString(0) + " " + row.getInt(1));
+            }
+        }
+
+        @Override
+        public void onError(ParsingException e) {
+
+            records.add("error " + e.getLineNumber());
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.text.SimpleDateFormat;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVRowTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void noFormat() throws Exception {
+
+        CSVRow r = row(null, 7L, "a, 1, , 2.5");
+
+        assertNull(r.getFormat());
+        assertEquals(7L, r.getLineNumber());
+        assertEquals(4, r.size());
+        assertEquals(-1, r.getColumnIndex("a"));
+        assertFalse(r.hasTimestamp());
+
+        assertEquals("a", r.getString(0));
+        assertEquals(1, r.getInt(1));
+        assertEquals(1L, r.getLong(1));
+        assertEquals(1.0, r.getDouble(1), 0.0);
+        assertTrue(r.isNull(2));
+        assertNull(r.getString(2));
+        assertEquals(2.5, r.getDouble(3), 0.0);
+    }
+
+    @Test
+    public void columnIndex() throws Exception {
+
+        CSVRow r = row(new CSVFormat("a, b(int), c(long)"), 1L, "x, 1, 2");
+
+        assertEquals(0, r.getColumnIndex("a"));
+        assertEquals(2, r.getColumnIndex("c"));
+        assertEquals(-1, r.getColumnIndex("d"));
+    }
+
+    @Test
+    public void typedAccess_IndependentOfTheDeclaredType() throws Exception {
+
+        CSVRow r = row(new CSVFormat("a, b(int)"), 1L, "10, 20");
+
+        assertEquals(10, r.getInt(0));
+        assertEquals("20", r.getString(1));
+        assertEquals(20.0, r.getDouble(1), 0.0);
+    }
+
+    @Test
+    public void typedAccess_InvalidValue() throws Exception {
+
+        CSVRow r = row(new CSVFormat("a, b(long)"), 3L, "x, 1");
+
+        try {
+
+            r.getLong(0);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid long value \"x\" in column 0 of line 3", msg);
+        }
+    }
+
+    @Test
+    public void typedAccess_NullCell() throws Exception {
+
+        CSVRow r = row(null, 3L, "1, , 2");
+
+        try {
+
+            r.getInt(1);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid int value \"\" in column 1 of line 3", msg);
+        }
+    }
+
+    @Test
+    public void noSuchColumn() throws Exception {
+
+        CSVRow r = row(null, 3L, "1, 2");
+
+        try {
+
+            r.getInt(2);
+            fail("should have thrown exception");
+        }
+        catch(IndexOutOfBoundsException e) {
+
+            String msg = e.getMessage();
+            assertEquals("line 3 has no column 2, it has 2 column(s)", msg);
+        }
+    }
+
+    @Test
+    public void timestamp() throws Exception {
+
+        CSVRow r = row(new CSVFormat("time(MM/dd/yy HH:mm:ss), a(int)"), 1L, "12/25/16 13:00:00, 1");
+
+        assertTrue(r.hasTimestamp());
+
+        long expected = new SimpleDateFormat("MM/dd/yy HH:mm:ss").parse("12/25/16 13:00:00").getTime();
+
+        assertEquals(expected, r.getTimestamp());
+    }
+
+    @Test
+    public void timestamp_Missing() throws Exception {
+
+        CSVRow r = row(new CSVFormat("time(MM/dd/yy HH:mm:ss), a(int)"), 5L, ", 1");
+
+        assertFalse(r.hasTimestamp());
+
+        try {
+
+            r.getTimestamp();
+            fail("should have thrown exception");
+        }
+        catch(IllegalStateException e) {
+
+            String msg = e.getMessage();
+            assertEquals("line 5 has no timestamp", msg);
+        }
+    }
+
+    @Test
+    public void timestamp_Invalid() throws Exception {
+
+        CSVRow r = row(new CSVFormat("time(MM/dd/yy HH:mm:ss), a(int)"), 5L, "blah, 1");
+
+        assertTrue(r.hasTimestamp());
+
+        try {
+
+            r.getTimestamp();
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            // expected
+        }
+    }
+
+    @Test
+    public void zeroCopyAccess() throws Exception {
+
+        CSVRow r = row(null, 1L, "abc, \"d, e\"");
+
+        CharSequence line = r.getLine();
+
+        assertEquals("abc", line.subSequence(r.getStart(0), r.getEnd(0)).toString());
+        assertEquals("d, e", line.subSequence(r.getStart(1), r.getEnd(1)).toString());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static CSVRow row(CSVFormat format, long lineNumber, String line) throws Exception {
+
+        CSVTokenRanges tokens = new CSVTokenRanges();
+
+        CSVTokenizer.split(lineNumber, line, CSVParser.SEPARATOR, tokens);
+
+        CSVRow r = new CSVRow();
+        r.setFormat(format);
+        r.reset(lineNumber, tokens);
+
+        return r;
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVTokenRangesTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Tests -----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void newInstance() throws Exception {
+
+        CSVTokenRanges r = new CSVTokenRanges();
+
+        assertNull(r.getLine());
+        assertEquals(0, r.size());
+    }
+
+    @Test
+    public void outOfBounds() throws Exception {
+
+        CSVTokenRanges r = new CSVTokenRanges();
+
+        r.reset("a");
+        r.add(0, 1);
+
+        try {
+
+            r.getStart(1);
+            fail("should have thrown exception");
+        }
+        catch(IndexOutOfBoundsException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("token index 1 out of bounds"));
+        }
+    }
+
+    @Test
+    public void growth() throws Exception {
+
+        CSVTokenRanges r = new CSVTokenRanges();
+
+        StringBuilder sb = new StringBuilder();
+
+        for(int i = 0; i < 1000; i ++) {
+
+            sb.append((char)('a' + i % 26));
+        }
+
+        r.reset(sb);
+
+        for(int i = 0; i < 1000; i ++) {
+
+            if (i % 2 == 0) {
+
+                r.add(i, i + 1);
+            }
+            else {
+
+                r.addNull();
+            }
+        }
+
+        assertEquals(1000, r.size());
+
+        for(int i = 0; i < 1000; i ++) {
+
+            if (i % 2 == 0) {
+
+                assertFalse(r.isNull(i));
+                assertEquals(String.valueOf((char)('a' + i % 26)), r.toString(i));
+            }
+            else {
+
+                assertTrue(r.isNull(i));
+                assertNull(r.toString(i));
+            }
+        }
+    }
+
+    @Test
+    public void reset() throws Exception {
+
+        CSVTokenRanges r = new CSVTokenRanges();
+
+        r.reset("abc");
+        r.add(0, 3);
+        assertEquals(1, r.size());
+
+        r.reset("xy");
+        assertEquals(0, r.size());
+        assertEquals("xy", r.getLine());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Side-by-side comparison of the list-based CSVTokenizer.split() and the offset-based tokenization, over String
+ * lines and over undecoded UTF-8 lines, which are scanned a word at a time.
+ *
+ * @see MicroBenchmark
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class CSVTokenizerBenchmark {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final int LINES = 10000;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    public static void main(String[] args) throws Exception {
+
+        for(int columns: new int[] { 10, 200 }) {
+
+            final String[] lines = generateLines(columns);
+
+            MicroBenchmark b = new MicroBenchmark(20, 10);
+
+            b.run("split(), " + columns + " columns", LINES, () -> {
+
+                for(String line: lines) {
+
+                    List<String> tokens = CSVTokenizer.split(null, line, ',');
+                    MicroBenchmark.blackHole = tokens;
+                }
+            });
+
+            final CSVTokenRanges ranges = new CSVTokenRanges();
+
+            b.run("split() into ranges, " + columns + " columns", LINES, () -> {
+
+                for(String line: lines) {
+
+                    CSVTokenizer.split(null, line, ',', ranges);
+                    MicroBenchmark.blackHole = ranges;
+                }
+            });
+
+            for(final boolean direct: new boolean[] { false, true }) {
+
+                final Utf8Line[] utf8Lines = toUtf8Lines(lines, direct);
+
+                b.run("split() into ranges, " + (direct ? "direct" : "heap") + " UTF-8 bytes, " + columns + " columns",
+                        LINES, () -> {
+
+                    for(Utf8Line line: utf8Lines) {
+
+                        CSVTokenizer.split(null, line, ',', ranges);
+                        MicroBenchmark.blackHole = ranges;
+                    }
+                });
+            }
+        }
+    }
+
+    static String[] generateLines(int columns) {
+
+        Random r = new Random(0);
+
+        String[] lines = new String[LINES];
+
+        for(int i = 0; i < LINES; i ++) {
+
+            StringBuilder sb = new StringBuilder("12/01/16 00:00:00");
+
+            for(int j = 1; j < columns; j ++) {
+
+                sb.append(", ");
+
+                if (j % 10 == 0) {
+
+                    sb.append("\"host-").append(r.nextInt(5)).append('"');
+                }
+                else {
+
+                    sb.append(r.nextInt(100000));
+                }
+            }
+
+            lines[i] = sb.toString();
+        }
+
+        return lines;
+    }
+
+    static Utf8Line[] toUtf8Lines(String[] lines, boolean direct) {
+
+        Utf8Line[] result = new Utf8Line[lines.length];
+
+        for(int i = 0; i < lines.length; i ++) {
+
+            byte[] bytes = lines[i].getBytes(StandardCharsets.UTF_8);
+
+            ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+            buffer.put(bytes);
+
+            result[i] = new Utf8Line(buffer, 0, bytes.length);
+        }
+
+        return result;
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -19,10 +19,15 @@ package io.novaordis.events.csv;
 import io.novaordis.utilities.parsing.ParsingException;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -487,6 +492,204 @@ public class CSVTokenizerTest {
         assertEquals("", s);
     }
 
+    // offset-based split() -------------------------------------------------------------------------------------------
+
+    @Test
+    public void split_Ranges_NullInputString() throws Exception {
+
+        try {
+
+            CSVTokenizer.split(7L, null, ',', new CSVTokenRanges());
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("null input string"));
+        }
+    }
+
+    @Test
+    public void split_Ranges_EmptyString() throws Exception {
+
+        CSVTokenRanges r = new CSVTokenRanges();
+
+        CSVTokenizer.split(7L, "", ',', r);
+
+        assertEquals(1, r.size());
+        assertTrue(r.isNull(0));
+        assertNull(r.toString(0));
+    }
+
+    @Test
+    public void split_Ranges() throws Exception {
+
+        String line = " A,  \"B, C\" ,, \"\", D ";
+
+        CSVTokenRanges r = new CSVTokenRanges();
+
+        CSVTokenizer.split(7L, line, ',', r);
+
+        assertEquals(5, r.size());
+
+        assertSame(line, r.getLine());
+
+        assertEquals(1, r.getStart(0));
+        assertEquals(2, r.getEnd(0));
+        assertEquals("A", r.toString(0));
+
+        assertEquals("B, C", r.toString(1));
+        assertEquals(4, r.getLength(1));
+
+        assertTrue(r.isNull(2));
+        assertEquals(-1, r.getLength(2));
+
+        assertFalse(r.isNull(3));
+        assertEquals(0, r.getLength(3));
+        assertEquals("", r.toString(3));
+
+        assertEquals("D", r.toString(4));
+    }
+
+    @Test
+    public void split_Ranges_TrailingSeparator() throws Exception {
+
+        CSVTokenRanges r = new CSVTokenRanges();
+
+        CSVTokenizer.split(7L, "a,b,", ',', r);
+
+        assertEquals(3, r.size());
+        assertEquals("a", r.toString(0));
+        assertEquals("b", r.toString(1));
+        assertTrue(r.isNull(2));
+    }
+
+    @Test
+    public void split_Ranges_UnbalancedQuotes() throws Exception {
+
+        try {
+
+            CSVTokenizer.split(7L, "a, \"b", ',', new CSVTokenRanges());
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("unbalanced quotes"));
+        }
+    }
+
+    @Test
+    public void split_Ranges_Reuse() throws Exception {
+
+        CSVTokenRanges r = new CSVTokenRanges();
+
+        CSVTokenizer.split(7L, "a, b, c, d", ',', r);
+        assertEquals(4, r.size());
+
+        StringBuilder sb = new StringBuilder("x, y");
+
+        CSVTokenizer.split(8L, sb, ',', r);
+
+        assertEquals(2, r.size());
+        assertSame(sb, r.getLine());
+        assertEquals("x", r.toString(0));
+        assertEquals("y", r.toString(1));
+    }
+
+    @Test
+    public void split_Ranges_ConsistentWithListSplit() throws Exception {
+
+        String[] lines = {
+
+                "", " ", "  \t \t  ,", "\"\"", "    \"\"      ", "\" , \"", "A, B ", "a,,b,", " \" \" , x",
+                "\"something \"A\" something else\"", "X \"A\"", ",,,,",
+        };
+
+        CSVTokenRanges r = new CSVTokenRanges();
+
+        for(String line: lines) {
+
+            List<String> expected = CSVTokenizer.split(7L, line, ',');
+
+            CSVTokenizer.split(7L, line, ',', r);
+
+            assertEquals(expected.size(), r.size());
+
+            for(int i = 0; i < expected.size(); i ++) {
+
+                assertEquals(expected.get(i), r.toString(i));
+            }
+        }
+    }
+
+    @Test
+    public void split_Utf8Line_ConsistentWithStringSplit() throws Exception {
+
+        String[] lines = {
+
+                "", " ", "  \t \t  ,", "\"\"", "    \"\"      ", "\" , \"", "A, B ", "a,,b,", " \" \" , x",
+                "\"something \"A\" something else\"", "X \"A\"", ",,,,",
+                "1, 22, 333, 4444, 55555, 666666, 7777777, 88888888, 999999999, \"a, b, c, d, e, f, g, h\", 10",
+                "\"Z\u00fcrich, CH\", \u00e9t\u00e9, 12345678",
+        };
+
+        CSVTokenRanges r = new CSVTokenRanges();
+
+        for(ByteOrder order: new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+
+            for(String line: lines) {
+
+                List<String> expected = CSVTokenizer.split(7L, line, ',');
+
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+
+                //
+                // surround the line with separators, to make sure the scan does not look outside the line
+                //
+
+                ByteBuffer b = ByteBuffer.allocateDirect(bytes.length + 6).order(order);
+
+                for(int i = 0; i < b.capacity(); i ++) {
+
+                    b.put(i, (byte)',');
+                }
+
+                for(int i = 0; i < bytes.length; i ++) {
+
+                    b.put(3 + i, bytes[i]);
+                }
+
+                CSVTokenizer.split(7L, new Utf8Line(b, 3, bytes.length), ',', r);
+
+                assertEquals(expected.size(), r.size());
+
+                for(int i = 0; i < expected.size(); i ++) {
+
+                    assertEquals(expected.get(i), r.toString(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void split_Utf8Line_UnbalancedQuotes() throws Exception {
+
+        byte[] bytes = "a, b, c, d, \"e, f, g".getBytes(StandardCharsets.UTF_8);
+
+        try {
+
+            CSVTokenizer.split(7L, new Utf8Line(bytes), ',', new CSVTokenRanges());
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            assertEquals(7L, e.getLineNumber().longValue());
+            assertEquals(12, e.getPositionInLine().intValue());
+            assertTrue(e.getMessage().contains("unbalanced quotes"));
+        }
+    }
+
     // Package protected -----------------------------------------------------------------------------------------------
 
     // Protected -------------------------------------------------------------------------------------------------------
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.novaordis.events.csv.event.field.CSVField;
+import io.novaordis.events.csv.event.field.CSVFieldImpl;
+import io.novaordis.events.csv.event.field.FieldConverter;
+import io.novaordis.events.csv.event.field.IntegerConverter;
+import io.novaordis.events.csv.event.field.LongConverter;
+import io.novaordis.events.csv.event.field.StringConverter;
+import io.novaordis.events.csv.event.field.TimestampCSVField;
+import io.novaordis.events.csv.event.field.TimestampConverter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class ConversionPlanTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void onlyTheFirstTimestampFieldProducesTheTimestamp() throws Exception {
+
+        List<CSVField> fields = new ArrayList<>();
+
+        fields.add(new CSVFieldImpl("a", String.class));
+        fields.add(new TimestampCSVField());
+        fields.add(new CSVFieldImpl("b", Integer.class));
+        fields.add(new TimestampCSVField("other-time"));
+
+        ConversionPlan p = new ConversionPlan(fields);
+
+        assertEquals(4, p.size());
+        assertEquals(1, p.getTimestampIndex());
+
+        FieldConverter[] converters = p.getConverters();
+
+        assertEquals(StringConverter.class, converters[0].getClass());
+        assertEquals(TimestampConverter.class, converters[1].getClass());
+        assertEquals(IntegerConverter.class, converters[2].getClass());
+
+        //
+        // the subsequent timestamp fields are converted as regular (long) fields
+        //
+
+        assertEquals(LongConverter.class, converters[3].getClass());
+    }
+
+    @Test
+    public void noTimestampField() throws Exception {
+
+        List<CSVField> fields = new ArrayList<>();
+        fields.add(new CSVFieldImpl("a", String.class));
+
+        ConversionPlan p = new ConversionPlan(fields);
+
+        assertEquals(-1, p.getTimestampIndex());
+    }
+
+    @Test
+    public void project() throws Exception {
+
+        List<CSVField> fields = new ArrayList<>();
+
+        fields.add(new CSVFieldImpl("a", String.class));
+        fields.add(new TimestampCSVField());
+        fields.add(new CSVFieldImpl("b", Integer.class));
+        fields.add(new CSVFieldImpl("c", Long.class));
+
+        ConversionPlan p = new ConversionPlan(fields);
+
+        assertEquals("b", p.getNames()[2]);
+
+        ConversionPlan projected = p.project(new HashSet<>(Arrays.asList("c", "no-such-field")));
+
+        assertEquals(4, projected.size());
+        assertEquals(1, projected.getTimestampIndex());
+        assertSame(p.getFields(), projected.getFields());
+
+        FieldConverter[] converters = projected.getConverters();
+
+        assertNull(converters[0]);
+        assertSame(p.getConverters()[1], converters[1]);
+        assertNull(converters[2]);
+        assertSame(p.getConverters()[3], converters[3]);
+
+        //
+        // the timestamp column is always projected
+        //
+
+        converters = p.project(Collections.<String>emptySet()).getConverters();
+
+        assertNull(converters[0]);
+        assertSame(p.getConverters()[1], converters[1]);
+        assertNull(converters[2]);
+        assertNull(converters[3]);
+    }
+
+    @Test
+    public void project_AllColumns() throws Exception {
+
+        List<CSVField> fields = new ArrayList<>();
+
+        fields.add(new CSVFieldImpl("a", String.class));
+        fields.add(new CSVFieldImpl("b", Integer.class));
+
+        ConversionPlan p = new ConversionPlan(fields);
+
+        assertSame(p, p.project(new HashSet<>(Arrays.asList("a", "b", "c"))));
+
+        ConversionPlan projected = p.project(Collections.singleton("a"));
+
+        assertSame(projected, projected.project(Collections.singleton("a")));
+    }
+
+    @Test
+    public void withStringDictionaries() throws Exception {
+
+        List<CSVField> fields = new ArrayList<>();
+
+        fields.add(new CSVFieldImpl("a", String.class));
+        fields.add(new TimestampCSVField());
+        fields.add(new CSVFieldImpl("b", Integer.class));
+        fields.add(new CSVFieldImpl("c", String.class));
+
+        ConversionPlan p = new ConversionPlan(fields);
+
+        ConversionPlan d = p.withStringDictionaries(10, true);
+
+        assertEquals(4, d.size());
+        assertEquals(1, d.getTimestampIndex());
+        assertSame(p.getFields(), d.getFields());
+
+        FieldConverter[] converters = d.getConverters();
+
+        StringDictionary sd = (StringDictionary)converters[0];
+        assertEquals("a", sd.getName());
+        assertEquals(10, sd.getMaxCardinality());
+        assertTrue(sd.isShareProperties());
+        assertSame(p.getConverters()[1], converters[1]);
+        assertSame(p.getConverters()[2], converters[2]);
+        assertEquals("c", ((StringDictionary)converters[3]).getName());
+
+        //
+        // the original plan is not modified
+        //
+
+        assertTrue(p.getConverters()[0] instanceof StringConverter);
+
+        //
+        // projections keep the dictionaries
+        //
+
+        converters = d.project(Collections.singleton("c")).getConverters();
+
+        assertNull(converters[0]);
+        assertSame(d.getConverters()[3], converters[3]);
+    }
+
+    @Test
+    public void withStringDictionaries_NoStringColumns() throws Exception {
+
+        List<CSVField> fields = new ArrayList<>();
+
+        fields.add(new CSVFieldImpl("a", Integer.class));
+
+        ConversionPlan p = new ConversionPlan(fields);
+
+        assertSame(p, p.withStringDictionaries(10, false));
+    }
+
+    @Test
+    public void getConversionPlan_CSVFormat() throws Exception {
+
+        CSVFormat f = new CSVFormat("a, b(int)");
+
+        ConversionPlan p = f.getConversionPlan();
+        assertEquals(2, p.size());
+        assertSame(p, f.getConversionPlan());
+
+        f.addField("c(long)");
+
+        ConversionPlan p2 = f.getConversionPlan();
+        assertEquals(3, p2.size());
+        assertSame(p2, f.getConversionPlan());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.csv.event.RecycledCSVEvent;
+import io.novaordis.events.csv.event.RecycledNonTimedCSVLine;
+import io.novaordis.events.csv.event.RecycledTimedCSVLine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class EventRecyclerTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void convert_TimedAndNonTimed() throws Exception {
+
+        CSVFormat format = new CSVFormat("time(MM/dd/yy HH:mm:ss), a, b(int)");
+
+        EventRecycler r = new EventRecycler();
+
+        RecycledCSVEvent e = r.convert(1L, format.getConversionPlan(), split("12/25/16 13:00:00, x, 1"));
+
+        assertTrue(e instanceof RecycledTimedCSVLine);
+        assertEquals(4, e.getProperties().size());
+
+        RecycledCSVEvent e2 = r.convert(2L, new CSVFormat("a, b(int)").getConversionPlan(), split("x, 1"));
+
+        assertTrue(e2 instanceof RecycledNonTimedCSVLine);
+        assertEquals(2L, e2.getLineNumber().longValue());
+        assertEquals(3, e2.getProperties().size());
+    }
+
+    @Test
+    public void convert_SameTokensReuseProperties() throws Exception {
+
+        CSVFormat format = new CSVFormat("a, b(int), c");
+
+        EventRecycler r = new EventRecycler();
+
+        RecycledCSVEvent e = r.convert(1L, format.getConversionPlan(), split("x, 1, "));
+
+        Property a = e.getProperty("a");
+        Property b = e.getProperty("b");
+        Property c = e.getProperty("c");
+
+        e = r.convert(2L, format.getConversionPlan(), split("x, 2,"));
+
+        assertTrue(a == e.getProperty("a"));
+        assertFalse(b == e.getProperty("b"));
+        assertTrue(c == e.getProperty("c"));
+        assertEquals(2, e.getProperty("b").getValue());
+
+        //
+        // same length, different content
+        //
+
+        e = r.convert(3L, format.getConversionPlan(), split("y, 2, z"));
+
+        assertEquals("y", e.getProperty("a").getValue());
+        assertEquals("z", e.getProperty("c").getValue());
+    }
+
+    @Test
+    public void convert_FormatChange() throws Exception {
+
+        EventRecycler r = new EventRecycler();
+
+        RecycledCSVEvent e = r.convert(1L, new CSVFormat("a").getConversionPlan(), split("1"));
+
+        assertEquals("1", e.getProperty("a").getValue());
+
+        e = r.convert(2L, new CSVFormat("a(int)").getConversionPlan(), split("1"));
+
+        assertEquals(1, e.getProperty("a").getValue());
+    }
+
+    @Test
+    public void convert_ConversionFailureDoesNotPoisonTheCache() throws Exception {
+
+        CSVFormat format = new CSVFormat("a(int)");
+
+        EventRecycler r = new EventRecycler();
+
+        r.convert(1L, format.getConversionPlan(), split("1"));
+
+        try {
+
+            r.convert(2L, format.getConversionPlan(), split("x"));
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("invalid int value"));
+        }
+
+        RecycledCSVEvent e = r.convert(3L, format.getConversionPlan(), split("1"));
+
+        assertEquals(1, e.getProperty("a").getValue());
+        assertNull(e.getProperty("b"));
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static CSVTokenRanges split(String line) throws Exception {
+
+        CSVTokenRanges tokens = new CSVTokenRanges();
+        CSVTokenizer.split(1L, line, CSVParser.SEPARATOR, tokens);
+        return tokens;
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.novaordis.events.csv.event.field.CSVField;
+import io.novaordis.events.csv.event.field.TimestampCSVField;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class FormatInferenceTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void infer_NoSample() throws Exception {
+
+        FormatInference fi = new FormatInference();
+
+        assertEquals(0, fi.getSampleCount());
+        assertTrue(fi.infer().getFields().isEmpty());
+    }
+
+    @Test
+    public void infer_Types() throws Exception {
+
+        FormatInference fi = new FormatInference();
+
+        sample(fi, "1, 1, 1, 1, a, ");
+        sample(fi, "2, 3000000000, 1.5, x, b, ");
+        sample(fi, ", 4, -7, 1e3, c, ");
+
+        assertEquals(3, fi.getSampleCount());
+
+        CSVFormat f = fi.infer();
+
+        assertEquals(
+                "field_0(int), field_1(long), field_2(double), field_3(string), field_4(string), field_5(string)",
+                f.toPattern());
+    }
+
+    @Test
+    public void infer_Timestamp() throws Exception {
+
+        FormatInference fi = new FormatInference();
+
+        sample(fi, "12/25/16 13:00:00, 2016-12-25 13:00:00, 10");
+        sample(fi, "12/25/16 13:00:01, 2016-12-25 13:00:01, 11");
+
+        CSVFormat f = fi.infer();
+
+        assertEquals("time(time:MM/dd/yy HH:mm:ss), field_1(string), field_2(int)", f.toPattern());
+
+        List<CSVField> fields = f.getFields();
+
+        TimestampCSVField tf = (TimestampCSVField)fields.get(0);
+        assertEquals("MM/dd/yy HH:mm:ss", ((SimpleDateFormat)tf.getFormat()).toPattern());
+        assertFalse(fields.get(1).isTimestamp());
+    }
+
+    @Test
+    public void infer_Timestamp_NotTheFirstColumn() throws Exception {
+
+        FormatInference fi = new FormatInference();
+
+        sample(fi, "a, 2016-12-25T13:00:00.001");
+        sample(fi, "b, 2016-12-25T13:00:00.002");
+
+        assertEquals("field_0(string), time(time:yyyy-MM-dd'T'HH:mm:ss.SSS)", fi.infer().toPattern());
+    }
+
+    @Test
+    public void infer_Timestamp_AllValuesMustMatch() throws Exception {
+
+        FormatInference fi = new FormatInference();
+
+        sample(fi, "12/25/16 13:00:00");
+        sample(fi, "12/25/16 13:00:61");
+
+        assertEquals("field_0(string)", fi.infer().toPattern());
+    }
+
+    @Test
+    public void infer_Timestamp_FourDigitYear() throws Exception {
+
+        FormatInference fi = new FormatInference();
+
+        sample(fi, "12/25/2016 13:00:00");
+
+        assertEquals("time(time:MM/dd/yyyy HH:mm:ss)", fi.infer().toPattern());
+    }
+
+    @Test
+    public void infer_SpecificationCanBeReused() throws Exception {
+
+        FormatInference fi = new FormatInference();
+
+        sample(fi, "12/25/16 13:00:00, a, 1, 1.1");
+        sample(fi, "12/25/16 13:00:01, b, 2, 2.2");
+
+        CSVFormat f = fi.infer();
+
+        CSVFormat f2 = new CSVFormat(f.toPattern());
+
+        assertEquals(f.toPattern(), f2.toPattern());
+        assertTrue(f2.getFields().get(0).isTimestamp());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static void sample(FormatInference fi, String line) throws Exception {
+
+        CSVTokenRanges tokens = new CSVTokenRanges();
+
+        CSVTokenizer.split(1L, line, CSVParser.SEPARATOR, tokens);
+
+        fi.sample(tokens);
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.IntegerProperty;
+import io.novaordis.events.api.event.MockProperty;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.StringProperty;
+import io.novaordis.events.api.event.TimestampProperty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class IntrospectionOrderTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void compute() throws Exception {
+
+        List<Property> properties = Arrays.asList(
+                new StringProperty("c", "C"),
+                new TimestampProperty(1L),
+                new StringProperty("a", "A"),
+                new IntegerProperty("b", 1));
+
+        IntrospectionOrder o = IntrospectionOrder.compute(properties);
+
+        assertEquals(4, o.size());
+        assertEquals("[2, 3, 0]", Arrays.toString(o.getOrder()));
+        assertTrue(o.appliesTo(properties));
+    }
+
+    @Test
+    public void compute_Empty() throws Exception {
+
+        IntrospectionOrder o = IntrospectionOrder.compute(Collections.<Property>emptyList());
+
+        assertEquals(0, o.getOrder().length);
+        assertTrue(o.appliesTo(new ArrayList<>()));
+        assertFalse(o.appliesTo(Collections.<Property>singletonList(new StringProperty("a", "A"))));
+    }
+
+    @Test
+    public void compute_SameAsCollectionsSort() throws Exception {
+
+        Random r = new Random(3L);
+
+        for(int n = 0; n < 100; n ++) {
+
+            List<Property> properties = new ArrayList<>();
+
+            int size = r.nextInt(30);
+
+            for(int i = 0; i < size; i ++) {
+
+                //
+                // priorities with duplicates, to exercise the stability
+                //
+
+                properties.add(new MockProperty("p" + i, "v" + i, r.nextInt(5)));
+            }
+
+            List<Property> expected = new ArrayList<>(properties);
+            Collections.sort(expected);
+
+            int[] order = IntrospectionOrder.compute(properties).getOrder();
+
+            assertEquals(expected.size(), order.length);
+
+            for(int i = 0; i < order.length; i ++) {
+
+                assertTrue(expected.get(i) == properties.get(order[i]));
+            }
+        }
+    }
+
+    @Test
+    public void appliesTo_SameShapeDifferentValues() throws Exception {
+
+        IntrospectionOrder o = IntrospectionOrder.compute(Arrays.asList(
+                new TimestampProperty(1L), new StringProperty("b", "B"), new StringProperty("a", "A")));
+
+        assertTrue(o.appliesTo(Arrays.asList(
+                new TimestampProperty(2L), new StringProperty(new String("b"), "X"), new IntegerProperty("a", 7))));
+    }
+
+    @Test
+    public void appliesTo_DifferentShape() throws Exception {
+
+        IntrospectionOrder o = IntrospectionOrder.compute(Arrays.asList(
+                new StringProperty("b", "B"), new StringProperty("a", "A")));
+
+        assertFalse(o.appliesTo(Arrays.asList(new StringProperty("a", "A"), new StringProperty("b", "B"))));
+        assertFalse(o.appliesTo(Arrays.asList(new StringProperty("b", "B"), new StringProperty("c", "C"))));
+        assertFalse(o.appliesTo(Collections.<Property>singletonList(new StringProperty("b", "B"))));
+        assertFalse(o.appliesTo(Arrays.asList(
+                new StringProperty("b", "B"), new StringProperty("a", "A"), new StringProperty("c", "C"))));
+    }
+
+    @Test
+    public void appliesTo_TimestampPositionChanged() throws Exception {
+
+        TimestampProperty t = new TimestampProperty(1L);
+
+        IntrospectionOrder o = IntrospectionOrder.compute(Arrays.asList(t, new StringProperty("a", "A")));
+
+        assertFalse(o.appliesTo(Arrays.asList(new StringProperty(t.getName(), "A"), new StringProperty("a", "A"))));
+    }
+
+    @Test
+    public void appliesTo_SameNamesButTheComparisonDependsOnMoreThanTheName() throws Exception {
+
+        IntrospectionOrder o = IntrospectionOrder.compute(Arrays.asList(
+                new MockProperty("a", "A", 1), new MockProperty("b", "B", 2)));
+
+        assertEquals("[0, 1]", Arrays.toString(o.getOrder()));
+
+        assertTrue(o.appliesTo(Arrays.asList(new MockProperty("a", "A", 1), new MockProperty("b", "B", 3))));
+        assertFalse(o.appliesTo(Arrays.asList(new MockProperty("a", "A", 3), new MockProperty("b", "B", 2))));
+
+        //
+        // ties must preserve the list order, like a stable sort
+        //
+
+        assertFalse(IntrospectionOrder.compute(Arrays.asList(
+                new MockProperty("a", "A", 2), new MockProperty("b", "B", 1))).appliesTo(Arrays.asList(
+                new MockProperty("a", "A", 1), new MockProperty("b", "B", 1))));
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class KeywordPrefilterTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor_NoKeywords() throws Exception {
+
+        try {
+
+            new KeywordPrefilter(Collections.<String>emptyList(), false);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("no keywords", msg);
+        }
+    }
+
+    @Test
+    public void constructor_NullKeyword() throws Exception {
+
+        try {
+
+            new KeywordPrefilter(false, "a", null);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("null keyword", msg);
+        }
+    }
+
+    @Test
+    public void singleKeyword() throws Exception {
+
+        KeywordPrefilter f = new KeywordPrefilter(false, "blue");
+
+        assertTrue(f.mayMatch("blue"));
+        assertTrue(f.mayMatch("12/25/16 13:00:00, blue, 10"));
+        assertTrue(f.mayMatch("a, bblue"));
+        assertTrue(f.mayMatch("a, bluebell"));
+        assertFalse(f.mayMatch("a, Blue"));
+        assertFalse(f.mayMatch("a, blu, e"));
+        assertFalse(f.mayMatch("blu"));
+        assertFalse(f.mayMatch(""));
+    }
+
+    @Test
+    public void singleKeyword_IgnoreCase() throws Exception {
+
+        KeywordPrefilter f = new KeywordPrefilter(true, "BluE");
+
+        assertTrue(f.mayMatch("a, blue"));
+        assertTrue(f.mayMatch("a, BLUE"));
+        assertFalse(f.mayMatch("a, red"));
+    }
+
+    @Test
+    public void severalKeywords() throws Exception {
+
+        KeywordPrefilter f = new KeywordPrefilter(false, "he", "she", "his", "hers");
+
+        assertTrue(f.mayMatch("ushers"));
+        assertTrue(f.mayMatch("this"));
+        assertTrue(f.mayMatch("xxhe"));
+        assertFalse(f.mayMatch("hi, s, h, e"));
+        assertFalse(f.mayMatch(""));
+
+        f = new KeywordPrefilter(true, "Paris", "LONDON");
+
+        assertTrue(f.mayMatch("a, london, 1"));
+        assertTrue(f.mayMatch("a, PARIS, 1"));
+        assertFalse(f.mayMatch("a, Rome, 1"));
+    }
+
+    @Test
+    public void utf8Line() throws Exception {
+
+        KeywordPrefilter f = new KeywordPrefilter(false, "M\u00fcnchen");
+
+        assertTrue(f.mayMatch(utf8("a, M\u00fcnchen, 1")));
+        assertTrue(f.mayMatch("a, M\u00fcnchen, 1"));
+        assertFalse(f.mayMatch(utf8("a, Munchen, 1")));
+        assertFalse(f.mayMatch("a, Munchen, 1"));
+
+        f = new KeywordPrefilter(false, "M\u00fcnchen", "Z\u00fcrich");
+
+        assertTrue(f.mayMatch(utf8("a, Z\u00fcrich, 1")));
+        assertTrue(f.mayMatch("a, Z\u00fcrich, 1"));
+        assertFalse(f.mayMatch(utf8("a, Zurich, 1")));
+
+        f = new KeywordPrefilter(true, "blue");
+
+        assertTrue(f.mayMatch(utf8("\u00fc, BLUE")));
+        assertFalse(f.mayMatch(utf8("\u00fc, red")));
+    }
+
+    @Test
+    public void passThrough() throws Exception {
+
+        assertFalse(new KeywordPrefilter(false, "a").isPassThrough());
+
+        //
+        // the case of non-ASCII characters cannot be folded
+        //
+
+        KeywordPrefilter f = new KeywordPrefilter(true, "M\u00fcnchen");
+
+        assertTrue(f.isPassThrough());
+        assertTrue(f.mayMatch("a, M\u00dcNCHEN"));
+        assertTrue(f.mayMatch("b"));
+
+        f = new KeywordPrefilter(false, "a", "");
+
+        assertTrue(f.isPassThrough());
+        assertTrue(f.mayMatch("b"));
+    }
+
+    @Test
+    public void ahoCorasick_StatesAreShared() throws Exception {
+
+        List<int[]> patterns = Arrays.asList(new int[] { 'a', 'b' }, new int[] { 'a', 'c' }, new int[] { 'b' });
+
+        KeywordPrefilter.AhoCorasick m = new KeywordPrefilter.AhoCorasick(patterns, false);
+
+        assertEquals(5, m.getStateCount());
+    }
+
+    @Test
+    public void randomized_SameResultAsContains() throws Exception {
+
+        Random r = new Random(7L);
+
+        for(int round = 0; round < 2000; round ++) {
+
+            int keywordCount = 1 + r.nextInt(4);
+            String[] keywords = new String[keywordCount];
+
+            for(int i = 0; i < keywordCount; i ++) {
+
+                keywords[i] = random(r, 1 + r.nextInt(4));
+            }
+
+            boolean ignoreCase = r.nextBoolean();
+
+            KeywordPrefilter f = new KeywordPrefilter(ignoreCase, keywords);
+
+            String line = random(r, r.nextInt(40));
+
+            boolean expected = false;
+
+            for(String k: keywords) {
+
+                if (ignoreCase) {
+
+                    expected |= line.toLowerCase(Locale.ROOT).contains(k.toLowerCase(Locale.ROOT));
+                }
+                else {
+
+                    expected |= line.contains(k);
+                }
+            }
+
+            assertEquals(line + " " + Arrays.toString(keywords), expected, f.mayMatch(line));
+            assertEquals(line + " " + Arrays.toString(keywords), expected, f.mayMatch(utf8(line)));
+        }
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static Utf8Line utf8(String s) {
+
+        return new Utf8Line(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Random strings over a small alphabet, so matches are frequent.
+     */
+    private static String random(Random r, int length) {
+
+        String alphabet = "abAB, ";
+
+        StringBuilder sb = new StringBuilder();
+
+        for(int i = 0; i < length; i ++) {
+
+            sb.append(alphabet.charAt(r.nextInt(alphabet.length())));
+        }
+
+        return sb.toString();
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+
+import org.junit.Test;
+
+import io.novaordis.events.csv.LinePredicate.Comparison;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class LinePredicateTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void equalTo_String() throws Exception {
+
+        LinePredicate.Filter f = compile(LinePredicate.equalTo("b", "blue"), "a, b, c(int)");
+
+        assertFalse(rejects(f, "1, blue, 3"));
+        assertFalse(rejects(f, "1, \"blue\", 3"));
+        assertTrue(rejects(f, "1, red, 3"));
+        assertTrue(rejects(f, "1, bluer, 3"));
+        assertTrue(rejects(f, "1, Blue, 3"));
+
+        //
+        // missing values and missing columns are not rejected
+        //
+
+        assertFalse(rejects(f, "1, , 3"));
+        assertFalse(rejects(f, "1"));
+    }
+
+    @Test
+    public void equalTo_String_Utf8Line() throws Exception {
+
+        LinePredicate.Filter f = compile(LinePredicate.equalTo("a", "M\u00fcnchen"), "a, b");
+
+        assertFalse(rejectsUtf8(f, "M\u00fcnchen, 1"));
+        assertTrue(rejectsUtf8(f, "Munchen, 1"));
+        assertTrue(rejectsUtf8(f, "M\u00fcnchen2, 1"));
+    }
+
+    @Test
+    public void equalTo_Numeric() throws Exception {
+
+        LinePredicate.Filter f = compile(LinePredicate.equalTo("c", "10"), "a, b, c(int), d(double)");
+
+        assertFalse(rejects(f, "1, 2, 10, 1.0"));
+        assertFalse(rejects(f, "1, 2, +10, 1.0"));
+        assertTrue(rejects(f, "1, 2, 11, 1.0"));
+
+        //
+        // invalid values are left to the conversion
+        //
+
+        assertFalse(rejects(f, "1, 2, ten, 1.0"));
+
+        f = compile(LinePredicate.equalTo("d", "1.5"), "a, b, c(int), d(double)");
+
+        assertFalse(rejects(f, "1, 2, 10, 1.50"));
+        assertTrue(rejects(f, "1, 2, 10, 1.51"));
+    }
+
+    @Test
+    public void equalTo_NotNumericValueForNumericField() throws Exception {
+
+        assertNull(compile(LinePredicate.equalTo("c", "ten"), "c(int)"));
+    }
+
+    @Test
+    public void equalTo_UnknownField() throws Exception {
+
+        assertNull(compile(LinePredicate.equalTo("no-such-field", "x"), "a, b"));
+    }
+
+    @Test
+    public void compare() throws Exception {
+
+        String format = "a, b(long), c(float)";
+
+        LinePredicate.Filter f = compile(LinePredicate.compare("b", Comparison.GT, 100), format);
+
+        assertTrue(rejects(f, "x, 100, 1"));
+        assertFalse(rejects(f, "x, 101, 1"));
+
+        f = compile(LinePredicate.compare("b", Comparison.LE, 100.5), format);
+
+        assertFalse(rejects(f, "x, 100, 1"));
+        assertTrue(rejects(f, "x, 101, 1"));
+
+        f = compile(LinePredicate.compare("c", Comparison.LT, 0.5), format);
+
+        assertFalse(rejects(f, "x, 1, 0.25"));
+        assertTrue(rejects(f, "x, 1, 0.5"));
+
+        f = compile(LinePredicate.compare("c", Comparison.NE, 0), format);
+
+        assertTrue(rejects(f, "x, 1, -0.0"));
+        assertFalse(rejects(f, "x, 1, 0.1"));
+        assertFalse(rejects(f, "x, 1, NaN"));
+
+        //
+        // the comparison is not supported for string fields
+        //
+
+        assertNull(compile(LinePredicate.compare("a", Comparison.EQ, 1), format));
+    }
+
+    @Test
+    public void compare_LargeLongsAreComparedExactly() throws Exception {
+
+        LinePredicate.Filter f =
+                compile(LinePredicate.compare("b", Comparison.EQ, (double)(1L << 60)), "b(long)");
+
+        assertFalse(rejects(f, Long.toString(1L << 60)));
+        assertTrue(rejects(f, Long.toString((1L << 60) + 1)));
+    }
+
+    @Test
+    public void compare_TokensAreParsedAsTheColumnConverterParsesThem() throws Exception {
+
+        String format = "a(int), b(long)";
+
+        //
+        // not integers, the conversion reports them, the lines are not rejected
+        //
+
+        LinePredicate.Filter f = compile(LinePredicate.compare("a", Comparison.GT, 2.5), format);
+
+        assertFalse(rejects(f, "1.5, 1"));
+        assertFalse(rejects(f, "3000000000, 1"));
+        assertTrue(rejects(f, "2, 1"));
+        assertFalse(rejects(f, "3, 1"));
+
+        f = compile(LinePredicate.compare("a", Comparison.LT, 10), format);
+
+        assertFalse(rejects(f, "3000000000, 1"));
+        assertTrue(rejects(f, "2000000000, 1"));
+
+        f = compile(LinePredicate.equalTo("b", "1"), format);
+
+        assertFalse(rejects(f, "1, 1.5"));
+        assertFalse(rejects(f, "1, 99999999999999999999"));
+        assertTrue(rejects(f, "1, 2"));
+    }
+
+    @Test
+    public void compare_FloatColumn() throws Exception {
+
+        //
+        // 0.1f is not equal to 0.1 when compared as double
+        //
+
+        LinePredicate.Filter f = compile(LinePredicate.equalTo("a", "0.1"), "a(float)");
+
+        assertFalse(rejects(f, "0.1"));
+        assertTrue(rejects(f, "0.2"));
+
+        f = compile(LinePredicate.compare("a", Comparison.GT, 0.1), "a(float)");
+
+        assertFalse(rejects(f, "0.1"));
+        assertTrue(rejects(f, "0.05"));
+    }
+
+    @Test
+    public void timeRange() throws Exception {
+
+        SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yy HH:mm:ss");
+
+        long from = sdf.parse("12/25/16 13:00:00").getTime();
+        long to = sdf.parse("12/25/16 14:00:00").getTime();
+
+        String format = "a, time(MM/dd/yy HH:mm:ss)";
+
+        LinePredicate.Filter f = compile(LinePredicate.timeRange(from, to), format);
+
+        assertTrue(rejects(f, "x, 12/25/16 12:59:59"));
+        assertFalse(rejects(f, "x, 12/25/16 13:00:00"));
+        assertFalse(rejects(f, "x, 12/25/16 13:59:59"));
+        assertTrue(rejects(f, "x, 12/25/16 14:00:00"));
+        assertFalse(rejects(f, "x, not a timestamp"));
+
+        f = compile(LinePredicate.timeRange(from, null), format);
+
+        assertTrue(rejects(f, "x, 12/25/16 12:59:59"));
+        assertFalse(rejects(f, "x, 12/25/17 12:59:59"));
+
+        assertNull(compile(LinePredicate.timeRange(from, to), "a, b"));
+        assertNull(compile(LinePredicate.timeRange(null, null), format));
+    }
+
+    @Test
+    public void timeRange_InvalidRange() throws Exception {
+
+        try {
+
+            LinePredicate.timeRange(2L, 1L);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("invalid time range"));
+        }
+    }
+
+    @Test
+    public void and() throws Exception {
+
+        LinePredicate p = LinePredicate.and(
+                LinePredicate.equalTo("a", "x"),
+                LinePredicate.compare("b", Comparison.GE, 10),
+                LinePredicate.equalTo("no-such-field", "y"));
+
+        LinePredicate.Filter f = compile(p, "a, b(int)");
+
+        assertFalse(rejects(f, "x, 10"));
+        assertTrue(rejects(f, "y, 10"));
+        assertTrue(rejects(f, "x, 9"));
+
+        assertNull(compile(LinePredicate.and(LinePredicate.equalTo("no-such-field", "y")), "a, b(int)"));
+    }
+
+    @Test
+    public void and_NoPredicates() throws Exception {
+
+        try {
+
+            LinePredicate.and();
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("no predicates"));
+        }
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static LinePredicate.Filter compile(LinePredicate p, String format) throws Exception {
+
+        return p.compile(new CSVFormat(format).getConversionPlan());
+    }
+
+    private static boolean rejects(LinePredicate.Filter f, String line) throws Exception {
+
+        CSVTokenRanges tokens = new CSVTokenRanges();
+        CSVTokenizer.split(1L, line, CSVParser.SEPARATOR, tokens);
+        return f.rejects(tokens);
+    }
+
+    private static boolean rejectsUtf8(LinePredicate.Filter f, String line) throws Exception {
+
+        CSVTokenRanges tokens = new CSVTokenRanges();
+        CSVTokenizer.split(1L, new Utf8Line(line.getBytes(StandardCharsets.UTF_8)), CSVParser.SEPARATOR, tokens);
+        return f.rejects(tokens);
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A minimal side-by-side benchmark harness, for the *Benchmark classes in the test tree. The benchmarks are not
+ * executed by the build, run them from the IDE or with:
+ *
+ * java -cp target/classes:target/test-classes:<dependencies> io.novaordis.events.csv.CSVTokenizerBenchmark
+ *
+ * Reports the average time and, if the JVM supports thread allocation accounting, the average number of bytes
+ * allocated per operation.
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class MicroBenchmark {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    public static final int DEFAULT_WARMUP_ROUNDS = 5;
+    public static final int DEFAULT_MEASUREMENT_ROUNDS = 5;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    //
+    // prevents the JIT from eliminating benchmarked code whose results are otherwise unused
+    //
+    public static volatile Object blackHole;
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    private int warmupRounds;
+    private int measurementRounds;
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    public MicroBenchmark() {
+
+        this(DEFAULT_WARMUP_ROUNDS, DEFAULT_MEASUREMENT_ROUNDS);
+    }
+
+    public MicroBenchmark(int warmupRounds, int measurementRounds) {
+
+        this.warmupRounds = warmupRounds;
+        this.measurementRounds = measurementRounds;
+    }
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    /**
+     * @param operationsPerRound how many operations a single invocation of the round performs, used to report
+     *                           per-operation figures.
+     */
+    public void run(String label, long operationsPerRound, Round round) throws Exception {
+
+        for(int i = 0; i < warmupRounds; i ++) {
+
+            round.run();
+        }
+
+        long allocatedBefore = allocatedBytes();
+        long t0 = System.nanoTime();
+
+        for(int i = 0; i < measurementRounds; i ++) {
+
+            round.run();
+        }
+
+        long t1 = System.nanoTime();
+        long allocatedAfter = allocatedBytes();
+
+        double operations = (double)operationsPerRound * measurementRounds;
+
+        String s = String.format("%-50s %12.1f ns/op", label, (t1 - t0) / operations);
+
+        if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+
+            s += String.format(" %12.1f bytes/op", (allocatedAfter - allocatedBefore) / operations);
+        }
+
+        System.out.println(s);
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the number of bytes allocated so far by the current thread, or -1 if the JVM does not expose it.
+     */
+    private static long allocatedBytes() {
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+
+            return -1;
+        }
+
+        return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    public interface Round {
+
+        void run() throws Exception;
+    }
+
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class NumberParserTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void getInstance_SameInstanceForTheSameThread() throws Exception {
+
+        assertSame(NumberParser.getInstance(), NumberParser.getInstance());
+    }
+
+    // parseInt() ------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void parseInt() throws Exception {
+
+        NumberParser p = new NumberParser();
+
+        assertEquals(NumberParser.Status.OK, p.parseInt("a, -17, b", 3, 6));
+        assertEquals(-17, p.getInt());
+
+        assertEquals(NumberParser.Status.OK, p.parseInt("+5", 0, 2));
+        assertEquals(5, p.getInt());
+
+        String s = Integer.toString(Integer.MIN_VALUE);
+        assertEquals(NumberParser.Status.OK, p.parseInt(s, 0, s.length()));
+        assertEquals(Integer.MIN_VALUE, p.getInt());
+    }
+
+    @Test
+    public void parseInt_OutOfRange() throws Exception {
+
+        NumberParser p = new NumberParser();
+
+        assertEquals(NumberParser.Status.OUT_OF_RANGE, p.parseInt("2147483648", 0, 10));
+        assertEquals(NumberParser.Status.OUT_OF_RANGE, p.parseInt("-2147483649", 0, 11));
+        assertEquals(NumberParser.Status.OUT_OF_RANGE, p.parseInt("99999999999999999999", 0, 20));
+    }
+
+    @Test
+    public void parseInt_Invalid() throws Exception {
+
+        NumberParser p = new NumberParser();
+
+        assertEquals(NumberParser.Status.EMPTY, p.parseInt("a,,b", 2, 2));
+        assertEquals(NumberParser.Status.INVALID, p.parseInt("-", 0, 1));
+        assertEquals(NumberParser.Status.INVALID, p.parseInt("1.0", 0, 3));
+        assertEquals(NumberParser.Status.INVALID, p.parseInt(" 1", 0, 2));
+        assertEquals(NumberParser.Status.INVALID, p.parseInt("99999999999999999999x", 0, 21));
+    }
+
+    // parseLong() -----------------------------------------------------------------------------------------------------
+
+    @Test
+    public void parseLong_Limits() throws Exception {
+
+        NumberParser p = new NumberParser();
+
+        String s = Long.toString(Long.MIN_VALUE);
+        assertEquals(NumberParser.Status.OK, p.parseLong(s, 0, s.length()));
+        assertEquals(Long.MIN_VALUE, p.getLong());
+
+        s = Long.toString(Long.MAX_VALUE);
+        assertEquals(NumberParser.Status.OK, p.parseLong(s, 0, s.length()));
+        assertEquals(Long.MAX_VALUE, p.getLong());
+
+        assertEquals(NumberParser.Status.OUT_OF_RANGE, p.parseLong("9223372036854775808", 0, 19));
+        assertEquals(NumberParser.Status.OUT_OF_RANGE, p.parseLong("-9223372036854775809", 0, 20));
+    }
+
+    @Test
+    public void parseLong_NonAsciiDigits_SameAsLongParseLong() throws Exception {
+
+        NumberParser p = new NumberParser();
+
+        //
+        // Arabic-Indic digits, accepted by Long.parseLong()
+        //
+
+        String s = "\u0661\u0662";
+
+        assertEquals(NumberParser.Status.OK, p.parseLong(s, 0, s.length()));
+        assertEquals(Long.parseLong(s), p.getLong());
+    }
+
+    @Test
+    public void parseLong_Utf8Line() throws Exception {
+
+        NumberParser p = new NumberParser();
+
+        Utf8Line line = new Utf8Line(ByteBuffer.wrap("x, 123456789012".getBytes(StandardCharsets.UTF_8)), 0, 15);
+
+        assertEquals(NumberParser.Status.OK, p.parseLong(line, 3, 15));
+        assertEquals(123456789012L, p.getLong());
+    }
+
+    @Test
+    public void parseLong_RandomValues_SameAsLongParseLong() throws Exception {
+
+        NumberParser p = new NumberParser();
+
+        Random r = new Random(17L);
+
+        for(int i = 0; i < 10000; i ++) {
+
+            long expected = r.nextLong() >> r.nextInt(64);
+
+            String s = Long.toString(expected);
+
+            assertEquals(NumberParser.Status.OK, p.parseLong(s, 0, s.length()));
+            assertEquals(expected, p.getLong());
+        }
+    }
+
+    // parseDouble() ---------------------------------------------------------------------------------------------------
+
+    @Test
+    public void parseDouble() throws Exception {
+
+        NumberParser p = new NumberParser();
+
+        assertEquals(NumberParser.Status.OK, p.parseDouble("a, 1.5, b", 3, 6));
+        assertEquals(1.5d, p.getDouble(), 0d);
+    }
+
+    @Test
+    public void parseDouble_SameAsDoubleParseDouble() throws Exception {
+
+        String[] literals = {
+
+                "0", "-0", "0.0", "-0.0", "1", "-1", "+1", "1.", ".5", "-.5", "0.1", "0.3", "3.14159",
+                "1e10", "1E10", "1e+10", "1e-10", "1.5e300", "1e308", "1.7976931348623157e308", "1e309", "4.9e-324",
+                "1e-400", "123456789012345678", "1234567890123456789012", "0.000000000000000000000000001",
+                "9007199254740993", "9007199254740992", "2.2250738585072014E-308", "1.00000000000000000000001",
+                "100000000000000000000000", "1e23", "8.41e21", "1.5f", "1.5D", " 1.5 ", "\t-2\n",
+                "NaN", "-NaN", "Infinity", "-Infinity", "+Infinity", "0x1p3", "-0x1.8p1"
+        };
+
+        NumberParser p = new NumberParser();
+
+        for(String s: literals) {
+
+            assertEquals(s, NumberParser.Status.OK, p.parseDouble(s, 0, s.length()));
+
+            assertEquals(
+                    s, Double.doubleToRawLongBits(Double.parseDouble(s)), Double.doubleToRawLongBits(p.getDouble()));
+        }
+    }
+
+    @Test
+    public void parseDouble_RandomValues_SameAsDoubleParseDouble() throws Exception {
+
+        NumberParser p = new NumberParser();
+
+        Random r = new Random(7L);
+
+        for(int i = 0; i < 20000; i ++) {
+
+            String s = randomDecimalLiteral(r);
+
+            assertEquals(s, NumberParser.Status.OK, p.parseDouble(s, 0, s.length()));
+
+            assertEquals(
+                    s, Double.doubleToRawLongBits(Double.parseDouble(s)), Double.doubleToRawLongBits(p.getDouble()));
+        }
+
+        for(int i = 0; i < 10000; i ++) {
+
+            String s = Double.toString(Double.longBitsToDouble(r.nextLong()));
+
+            assertEquals(s, NumberParser.Status.OK, p.parseDouble(s, 0, s.length()));
+
+            assertEquals(
+                    s, Double.doubleToRawLongBits(Double.parseDouble(s)), Double.doubleToRawLongBits(p.getDouble()));
+        }
+    }
+
+    @Test
+    public void parseDouble_Invalid() throws Exception {
+
+        String[] literals = {
+
+                "", "  ", "-", "+", ".", "e5", "1e", "1e+", "1.2.3", "1,5", "blah", "Nan", "Inf", "1x", "1.5ff",
+                "--1", "0x", "1 2"
+        };
+
+        NumberParser p = new NumberParser();
+
+        for(String s: literals) {
+
+            NumberParser.Status status = p.parseDouble(s, 0, s.length());
+
+            if (s.trim().isEmpty()) {
+
+                assertEquals(s, NumberParser.Status.EMPTY, status);
+            }
+            else {
+
+                assertEquals(s, NumberParser.Status.INVALID, status);
+            }
+
+            try {
+
+                Double.parseDouble(s);
+                fail("\"" + s + "\" should not be a valid double");
+            }
+            catch(NumberFormatException e) {
+
+                // expected
+            }
+        }
+    }
+
+    // parseFloat() ----------------------------------------------------------------------------------------------------
+
+    @Test
+    public void parseFloat_RandomValues_SameAsFloatParseFloat() throws Exception {
+
+        NumberParser p = new NumberParser();
+
+        Random r = new Random(11L);
+
+        for(int i = 0; i < 20000; i ++) {
+
+            String s = randomDecimalLiteral(r);
+
+            assertEquals(s, NumberParser.Status.OK, p.parseFloat(s, 0, s.length()));
+
+            assertEquals(s, Float.floatToRawIntBits(Float.parseFloat(s)), Float.floatToRawIntBits(p.getFloat()));
+        }
+    }
+
+    @Test
+    public void parseFloat_NotNarrowedFromDouble() throws Exception {
+
+        //
+        // rounding to double first and then to float gives a different (wrong) result for this value
+        //
+
+        String s = "1.00000017881393432617187499";
+
+        NumberParser p = new NumberParser();
+
+        assertEquals(NumberParser.Status.OK, p.parseFloat(s, 0, s.length()));
+        assertEquals(Float.floatToRawIntBits(Float.parseFloat(s)), Float.floatToRawIntBits(p.getFloat()));
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * Short mantissas and small exponents, the fast path's domain, and its immediate neighborhood.
+     */
+    private static String randomDecimalLiteral(Random r) {
+
+        StringBuilder sb = new StringBuilder();
+
+        if (r.nextBoolean()) {
+
+            sb.append('-');
+        }
+
+        int integerDigits = r.nextInt(12);
+        int fractionDigits = r.nextInt(12);
+
+        for(int i = 0; i < integerDigits; i ++) {
+
+            sb.append((char)('0' + r.nextInt(10)));
+        }
+
+        if (integerDigits == 0 || fractionDigits > 0) {
+
+            sb.append('.');
+
+            for(int i = 0; i < Math.max(1, fractionDigits); i ++) {
+
+                sb.append((char)('0' + r.nextInt(10)));
+            }
+        }
+
+        if (r.nextInt(3) == 0) {
+
+            sb.append('e').append(r.nextInt(61) - 30);
+        }
+
+        return sb.toString();
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
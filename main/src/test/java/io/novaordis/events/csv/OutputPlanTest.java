@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.GenericEvent;
+import io.novaordis.events.api.event.GenericTimedEvent;
+import io.novaordis.events.api.event.MapProperty;
+import io.novaordis.events.api.event.PropertyFactory;
+import io.novaordis.events.csv.event.field.CSVField;
+import io.novaordis.events.csv.event.field.CSVFieldFactory;
+import io.novaordis.events.csv.event.field.CSVFieldImpl;
+import io.novaordis.events.csv.event.field.MetricDefinitionBasedCSVField;
+import io.novaordis.events.csv.event.field.TimestampCSVField;
+import io.novaordis.utilities.address.AddressImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class OutputPlanTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void compile() throws Exception {
+
+        List<CSVField> fields = Arrays.asList(
+                new TimestampCSVField("time"),
+                new CSVFieldImpl("a", String.class),
+                CSVFieldFactory.fromSpecification("m.k"),
+                metricField("host-1", "metric-1"));
+
+        OutputPlan p = new OutputPlan(fields);
+
+        OutputPlan.ColumnExtractor[] extractors = p.getExtractors();
+
+        assertEquals(4, extractors.length);
+        assertTrue(extractors[0] instanceof OutputPlan.TimestampExtractor);
+        assertTrue(extractors[1] instanceof OutputPlan.PropertyExtractor);
+        assertTrue(extractors[2] instanceof OutputPlan.MapKeyExtractor);
+        assertTrue(extractors[3] instanceof OutputPlan.MetricDefinitionExtractor);
+    }
+
+    @Test
+    public void isCompiledFrom() throws Exception {
+
+        List<CSVField> fields = new ArrayList<>();
+        fields.add(new CSVFieldImpl("a", String.class));
+
+        OutputPlan p = new OutputPlan(fields);
+
+        assertTrue(p.isCompiledFrom(fields));
+
+        fields.add(new CSVFieldImpl("b", String.class));
+
+        assertFalse(p.isCompiledFrom(fields));
+
+        fields.remove(1);
+        fields.set(0, new CSVFieldImpl("a", String.class));
+
+        assertFalse(p.isCompiledFrom(fields));
+
+        p = new OutputPlan(fields);
+
+        assertTrue(p.isCompiledFrom(fields));
+
+        ((CSVFieldImpl)fields.get(0)).setName("b");
+
+        assertFalse(p.isCompiledFrom(fields));
+    }
+
+    @Test
+    public void timestampExtractor() throws Exception {
+
+        OutputPlan.TimestampExtractor e = new OutputPlan.TimestampExtractor();
+
+        assertNull(e.extract(new GenericEvent()));
+        assertNull(e.extract(new GenericTimedEvent((Long)null)));
+        assertEquals(Constants.getDefaultTimestampFormat().format(1000L), e.extract(new GenericTimedEvent(1000L)));
+    }
+
+    @Test
+    public void propertyExtractor() throws Exception {
+
+        GenericEvent event = new GenericEvent();
+        event.setIntegerProperty("a", 7);
+
+        assertEquals("7", new OutputPlan.PropertyExtractor("a").extract(event));
+        assertNull(new OutputPlan.PropertyExtractor("b").extract(event));
+    }
+
+    @Test
+    public void mapKeyExtractor() throws Exception {
+
+        GenericEvent event = new GenericEvent();
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("k", "map value");
+        event.setProperty(new MapProperty("m", map));
+
+        assertEquals("map value", new OutputPlan.MapKeyExtractor("m.k", "m", "k").extract(event));
+        assertNull(new OutputPlan.MapKeyExtractor("m.x", "m", "x").extract(event));
+        assertNull(new OutputPlan.MapKeyExtractor("n.k", "n", "k").extract(event));
+    }
+
+    @Test
+    public void mapKeyExtractor_PropertyWithTheFullNameTakesPrecedence() throws Exception {
+
+        GenericEvent event = new GenericEvent();
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("k", "map value");
+        event.setProperty(new MapProperty("m", map));
+        event.setStringProperty("m.k", "dotted name value");
+
+        assertEquals("dotted name value", new OutputPlan.MapKeyExtractor("m.k", "m", "k").extract(event));
+    }
+
+    @Test
+    public void mapKeyExtractor_NotAMap() throws Exception {
+
+        GenericEvent event = new GenericEvent();
+        event.setStringProperty("m", "something");
+
+        assertEquals("something", new OutputPlan.MapKeyExtractor("m.k", "m", "k").extract(event));
+    }
+
+    @Test
+    public void metricDefinitionExtractor() throws Exception {
+
+        GenericTimedEvent event = new GenericTimedEvent(1L);
+
+        GenericTimedEvent host1 = new GenericTimedEvent(1L);
+        host1.setStringProperty("metric-1", "something");
+
+        event.setEventProperty("host-1", host1);
+
+        assertEquals("something", new OutputPlan.MetricDefinitionExtractor("host-1", "metric-1").extract(event));
+        assertNull(new OutputPlan.MetricDefinitionExtractor("host-1", "metric-2").extract(event));
+        assertNull(new OutputPlan.MetricDefinitionExtractor("host-2", "metric-1").extract(event));
+    }
+
+    @Test
+    public void extract_MetricDefinitionBasedCSVField_NoEventPropertyForAddress() throws Exception {
+
+        MetricDefinitionBasedCSVField f = metricField("address-1", "does-not-matter");
+
+        GenericTimedEvent e = new GenericTimedEvent();
+
+        //
+        // no event property corresponding to "address-1"
+        //
+
+        assertNull(e.getProperty("address-1"));
+
+        assertNull(extract(f, e));
+    }
+
+    @Test
+    public void extract_MetricDefinitionBasedCSVField_NoSecondLevelPropertyForMetricID() throws Exception {
+
+        MetricDefinitionBasedCSVField f = metricField("address-1", "no-such-metric-id");
+
+        GenericTimedEvent topLevelEvent = new GenericTimedEvent(1L);
+
+        //
+        // the second-level event has a property for "metric-1", but not for "no-such-metric-id"
+        //
+
+        GenericTimedEvent secondLevelEvent = new GenericTimedEvent(2L);
+        secondLevelEvent.setStringProperty("metric-1", "something");
+
+        topLevelEvent.setEventProperty("address-1", secondLevelEvent);
+
+        assertNull(extract(f, topLevelEvent));
+    }
+
+    @Test
+    public void extract_MetricDefinitionBasedCSVField() throws Exception {
+
+        MetricDefinitionBasedCSVField f = metricField("address-1", "metric-1");
+
+        GenericTimedEvent topLevelEvent = new GenericTimedEvent(1L);
+
+        GenericTimedEvent secondLevelEvent = new GenericTimedEvent(2L);
+        secondLevelEvent.setStringProperty("metric-1", "something");
+
+        topLevelEvent.setEventProperty("address-1", secondLevelEvent);
+
+        assertEquals("something", extract(f, topLevelEvent));
+    }
+
+    @Test
+    public void extract_PropertyWithGivenName_NoPropertyWithSuchName() throws Exception {
+
+        assertNull(extract(new CSVFieldImpl("no-such-name", String.class), new GenericTimedEvent()));
+    }
+
+    @Test
+    public void extract_PropertyWithGivenName() throws Exception {
+
+        GenericTimedEvent e = new GenericTimedEvent(1L);
+
+        e.setStringProperty("property-name-1", "something");
+
+        assertEquals("something", extract(new CSVFieldImpl("property-name-1", String.class), e));
+    }
+
+    @Test
+    public void extract_MapProperty() throws Exception {
+
+        GenericEvent e = new GenericEvent();
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("k", "map value");
+        e.setProperty(new MapProperty("m", map));
+
+        assertEquals("map value", extract(CSVFieldFactory.fromSpecification("m.k"), e));
+        assertNull(extract(CSVFieldFactory.fromSpecification("m.x"), e));
+    }
+
+    @Test
+    public void metricGroups() throws Exception {
+
+        List<CSVField> fields = Arrays.asList(
+                metricField("host-1", "m1"),
+                new CSVFieldImpl("a", String.class),
+                metricField("host-2", "m1"),
+                metricField("host-1", "m2"),
+                metricField("host-3", "m1"),
+                metricField("host-2", "m2"),
+                metricField("host-1", "m3"));
+
+        OutputPlan p = new OutputPlan(fields);
+
+        OutputPlan.MetricGroup[] groups = p.getMetricGroups();
+
+        //
+        // host-3 has a single metric and it is not grouped
+        //
+
+        assertEquals(2, groups.length);
+        assertEquals("host-1", groups[0].getAddressLiteral());
+        assertEquals(3, groups[0].size());
+        assertEquals("host-2", groups[1].getAddressLiteral());
+        assertEquals(2, groups[1].size());
+    }
+
+    @Test
+    public void externalize_MetricGroups() throws Exception {
+
+        List<CSVField> fields = Arrays.asList(
+                metricField("host-1", "m1"),
+                metricField("host-2", "m1"),
+                metricField("host-1", "m2"),
+                metricField("host-1", "m3"),
+                metricField("host-2", "m2"));
+
+        OutputPlan p = new OutputPlan(fields);
+
+        GenericTimedEvent e = new GenericTimedEvent(1L);
+        e.setEventProperty("host-1", metrics("m1", "A", "m2", "B", "m3", "C"));
+        e.setEventProperty("host-2", metrics("m2", "D", "m1", "E"));
+
+        assertEquals("A, E, B, C, D", externalize(p, e));
+
+        //
+        // different property order and missing metrics
+        //
+
+        e = new GenericTimedEvent(2L);
+        e.setEventProperty("host-1", metrics("m3", "F", "x", "G", "m1", "H"));
+
+        assertEquals("H, , , F, ", externalize(p, e));
+
+        //
+        // the original order again
+        //
+
+        e = new GenericTimedEvent(3L);
+        e.setEventProperty("host-1", metrics("m1", "I", "m2", "J", "m3", "K"));
+        e.setEventProperty("host-2", metrics("m1", "L", "m2", "M"));
+
+        assertEquals("I, L, J, K, M", externalize(p, e));
+    }
+
+    @Test
+    public void externalize_MetricGroups_SameAsTheColumnExtractors() throws Exception {
+
+        List<CSVField> fields = new ArrayList<>();
+
+        for(int i = 0; i < 30; i ++) {
+
+            fields.add(metricField("host-" + (i % 3), "m" + (i % 11)));
+        }
+
+        OutputPlan p = new OutputPlan(fields);
+
+        Random r = new Random(5L);
+
+        for(int n = 0; n < 100; n ++) {
+
+            GenericTimedEvent e = new GenericTimedEvent((long)n);
+
+            for(int h = 0; h < 3; h ++) {
+
+                if (r.nextInt(10) == 0) {
+
+                    continue;
+                }
+
+                GenericEvent m = new GenericEvent();
+
+                for(int k = 0; k < 12; k ++) {
+
+                    if (r.nextBoolean()) {
+
+                        m.setStringProperty("m" + r.nextInt(12), "v" + r.nextInt(100));
+                    }
+                }
+
+                e.setEventProperty("host-" + h, m);
+            }
+
+            //
+            // the grouped columns keep their own extractors, which look each metric up individually
+            //
+
+            StringBuilder expected = new StringBuilder();
+
+            for(int i = 0; i < fields.size(); i ++) {
+
+                String v = p.getExtractors()[i].extract(e);
+
+                expected.append(i > 0 ? ", " : "").append(v == null ? "" : v);
+            }
+
+            assertEquals(expected.toString(), externalize(p, e));
+        }
+    }
+
+    @Test
+    public void externalize() throws Exception {
+
+        List<CSVField> fields = Arrays.asList(
+                new CSVFieldImpl("a", String.class),
+                new CSVFieldImpl("no-such-property", String.class),
+                new TimestampCSVField("time"),
+                new CSVFieldImpl("b", Integer.class));
+
+        GenericTimedEvent event = new GenericTimedEvent(1000L);
+        event.setStringProperty("a", "A");
+        event.setIntegerProperty("b", 2);
+
+        StringBuilder sb = new StringBuilder();
+
+        new OutputPlan(fields).externalize(event, sb);
+
+        assertEquals("A, , " + Constants.getDefaultTimestampFormat().format(1000L) + ", 2", sb.toString());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * The value of the single column of a plan compiled from the given field.
+     */
+    private static String extract(CSVField field, Event event) {
+
+        return new OutputPlan(Collections.singletonList(field)).getExtractors()[0].extract(event);
+    }
+
+    private static MetricDefinitionBasedCSVField metricField(String address, String metricId) {
+
+        return new MetricDefinitionBasedCSVField(
+                new MockMetricDefinition(new PropertyFactory(), new AddressImpl(address), metricId));
+    }
+
+    /**
+     * @param namesAndValues name, value, name, value ...
+     */
+    private static GenericEvent metrics(String ... namesAndValues) {
+
+        GenericEvent e = new GenericEvent();
+
+        for(int i = 0; i < namesAndValues.length; i += 2) {
+
+            e.setStringProperty(namesAndValues[i], namesAndValues[i + 1]);
+        }
+
+        return e;
+    }
+
+    private static String externalize(OutputPlan p, GenericTimedEvent e) throws Exception {
+
+        StringBuilder sb = new StringBuilder();
+        p.externalize(e, sb);
+        return sb.toString();
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.csv.event.CSVHeaders;
+import io.novaordis.events.csv.event.NonTimedCSVLine;
+import io.novaordis.events.csv.event.TimedCSVLine;
+import io.novaordis.utilities.parsing.ParsingException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class ParallelCSVParserTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final String CONTENT =
+            "x, 1\n" +
+            "# time(MM/dd/yy HH:mm:ss), color, size(int)\n" +
+            "12/25/16 13:00:00, blue, 10\n" +
+            "12/25/16 13:00:01, red, 11\n" +
+            "\n" +
+            "# name, weight(long)\n" +
+            "   \r\n" +
+            "a, 1\n" +
+            "# this header is overwritten by the next one\n" +
+            "  # time(MM/dd/yy HH:mm:ss), city\n" +
+            "\n" +
+            "\n" +
+            "12/25/16 13:00:02, \"Z\u00fcrich, CH\"\n" +
+            "12/25/16 13:00:03, Paris\n" +
+            "# name\n" +
+            "b\n" +
+            "# last(int)";
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // constructors ----------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor_InvalidThreadCount() throws Exception {
+
+        try {
+
+            new ParallelCSVParser(null, 0);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("invalid thread count"));
+        }
+    }
+
+    @Test
+    public void constructor() throws Exception {
+
+        ParallelCSVParser p = new ParallelCSVParser("a, b(int)", 3);
+
+        assertEquals(3, p.getThreadCount());
+        assertEquals(ParallelCSVParser.DEFAULT_CHUNK_SIZE, p.getChunkSize());
+    }
+
+    // split() ---------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void split_ChunksAreNewlineAligned() throws Exception {
+
+        File f = write(CONTENT);
+
+        try(FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+
+            List<ParallelCSVParser.Chunk> chunks = ParallelCSVParser.split(channel, 10);
+
+            long expectedStart = 0;
+
+            for(int i = 0; i < chunks.size(); i ++) {
+
+                ParallelCSVParser.Chunk c = chunks.get(i);
+
+                assertEquals(i, c.index);
+                assertEquals(expectedStart, c.start);
+
+                ByteBuffer b = c.map(channel);
+
+                if (i < chunks.size() - 1) {
+
+                    assertEquals('\n', b.get(b.limit() - 1));
+                }
+
+                expectedStart = c.end;
+            }
+
+            assertEquals(channel.size(), expectedStart);
+        }
+        finally {
+
+            assertTrue(f.delete());
+        }
+    }
+
+    @Test
+    public void split_EmptyFile() throws Exception {
+
+        File f = write("");
+
+        try(FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+
+            assertTrue(ParallelCSVParser.split(channel, 10).isEmpty());
+        }
+        finally {
+
+            assertTrue(f.delete());
+        }
+    }
+
+    // scan() ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void scan() throws Exception {
+
+        ByteBuffer b = ByteBuffer.wrap("a\n  # x, y(int) \r\nb\n\n".getBytes(StandardCharsets.UTF_8));
+
+        ParallelCSVParser.Chunk c = new ParallelCSVParser.Chunk(0, 0, b.limit());
+
+        ParallelCSVParser.scan(b, c);
+
+        assertEquals(4L, c.lineCount);
+        assertEquals(" x, y(int)", c.lastFormatSpecification);
+    }
+
+    @Test
+    public void scan_NoHeader() throws Exception {
+
+        ByteBuffer b = ByteBuffer.wrap("a, #b\nc".getBytes(StandardCharsets.UTF_8));
+
+        ParallelCSVParser.Chunk c = new ParallelCSVParser.Chunk(0, 0, b.limit());
+
+        ParallelCSVParser.scan(b, c);
+
+        assertEquals(1L, c.lineCount);
+        assertNull(c.lastFormatSpecification);
+    }
+
+    // parse() ---------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void parse_SameResultAsSequentialParser_AllChunkSizes() throws Exception {
+
+        CSVByteBufferParser sequential = new CSVByteBufferParser(new CSVParser());
+
+        List<Event> expected =
+                new ArrayList<>(sequential.parse(ByteBuffer.wrap(CONTENT.getBytes(StandardCharsets.UTF_8))));
+
+        //
+        // the last header is flushed on close
+        //
+        expected.addAll(sequential.close());
+
+        assertEquals(12, expected.size());
+
+        File f = write(CONTENT);
+
+        try {
+
+            for(int chunkSize = 1; chunkSize <= CONTENT.length() + 1; chunkSize ++) {
+
+                ParallelCSVParser p = new ParallelCSVParser(null, 3);
+                p.setChunkSize(chunkSize);
+
+                MockProcedure mp = new MockProcedure();
+
+                p.parse(f, mp);
+
+                assertEquals(toString(expected), toString(mp.getEvents()));
+            }
+        }
+        finally {
+
+            assertTrue(f.delete());
+        }
+    }
+
+    @Test
+    public void parse_HeaderCarriedOverChunks() throws Exception {
+
+        String content =
+                "# time(MM/dd/yy HH:mm:ss), color\n" +
+                "\n" +
+                "\n" +
+                "12/25/16 13:00:00, blue\n";
+
+        File f = write(content);
+
+        try {
+
+            ParallelCSVParser p = new ParallelCSVParser(null, 2);
+            p.setChunkSize(1);
+
+            MockProcedure mp = new MockProcedure();
+
+            p.parse(f, mp);
+
+            List<Event> events = mp.getEvents();
+            assertEquals(2, events.size());
+
+            CSVHeaders h = (CSVHeaders)events.get(0);
+            assertEquals(1L, h.getLineNumber().longValue());
+
+            TimedCSVLine e = (TimedCSVLine)events.get(1);
+            assertEquals(4L, e.getLineNumber().longValue());
+            assertEquals(e.getTime(), h.getNextTimedEventTimestamp());
+            assertEquals("blue", e.getStringProperty("color").getString());
+        }
+        finally {
+
+            assertTrue(f.delete());
+        }
+    }
+
+    @Test
+    public void parse_InitialFormat() throws Exception {
+
+        File f = write("a, 1\nb, 2\n");
+
+        try {
+
+            ParallelCSVParser p = new ParallelCSVParser("name, size(int)", 2);
+            p.setChunkSize(3);
+
+            MockProcedure mp = new MockProcedure();
+
+            p.parse(f, mp);
+
+            List<Event> events = mp.getEvents();
+            assertEquals(2, events.size());
+
+            NonTimedCSVLine e = (NonTimedCSVLine)events.get(1);
+            assertEquals(2L, e.getLineNumber().longValue());
+            assertEquals("b", e.getStringProperty("name").getString());
+            assertEquals(2, e.getIntegerProperty("size").getInteger().intValue());
+        }
+        finally {
+
+            assertTrue(f.delete());
+        }
+    }
+
+    @Test
+    public void parse_ProcedureProjection() throws Exception {
+
+        File f = write("a, 1\nb, 2\n");
+
+        try {
+
+            ParallelCSVParser p = new ParallelCSVParser("name, size(int)", 2);
+            p.setChunkSize(3);
+
+            ProjectingProcedure mp = new ProjectingProcedure(Collections.singleton("size"));
+
+            p.parse(f, mp);
+
+            List<Event> events = mp.getEvents();
+            assertEquals(2, events.size());
+
+            Event e = events.get(1);
+            assertEquals(2L, e.getLineNumber().longValue());
+            assertNull(e.getProperty("name"));
+            assertEquals(2, e.getProperty("size").getValue());
+            assertEquals(2, e.getProperties().size());
+        }
+        finally {
+
+            assertTrue(f.delete());
+        }
+    }
+
+    @Test
+    public void parse_ParsingFailure_FirstFailureInLineOrderIsReported() throws Exception {
+
+        File f = write("# name\na\nb\n\"unbalanced\nc\n\"unbalanced too\n");
+
+        try {
+
+            ParallelCSVParser p = new ParallelCSVParser(null, 4);
+            p.setChunkSize(2);
+
+            try {
+
+                p.parse(f, new MockProcedure());
+                fail("should have thrown exception");
+            }
+            catch(ParsingException e) {
+
+                assertEquals(4L, e.getLineNumber().longValue());
+            }
+        }
+        finally {
+
+            assertTrue(f.delete());
+        }
+    }
+
+    @Test
+    public void parse_ParsingFailure_PrecedingEventsInTheSameChunkAreDelivered() throws Exception {
+
+        File f = write("# name\na\nb\n\"unbalanced\nc\n");
+
+        try {
+
+            ParallelCSVParser p = new ParallelCSVParser(null, 2);
+
+            MockProcedure mp = new MockProcedure();
+
+            try {
+
+                p.parse(f, mp);
+                fail("should have thrown exception");
+            }
+            catch(ParsingException e) {
+
+                assertEquals(4L, e.getLineNumber().longValue());
+            }
+
+            List<Event> events = mp.getEvents();
+            assertEquals(3, events.size());
+            assertTrue(events.get(0) instanceof CSVHeaders);
+            assertEquals("a", events.get(1).getProperty("name").getValue());
+            assertEquals("b", events.get(2).getProperty("name").getValue());
+        }
+        finally {
+
+            assertTrue(f.delete());
+        }
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static File write(String content) throws Exception {
+
+        File f = File.createTempFile("parallel-csv-parser-test", ".csv");
+
+        try(OutputStream os = new FileOutputStream(f)) {
+
+            os.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return f;
+    }
+
+    private static String toString(List<Event> events) {
+
+        StringBuilder sb = new StringBuilder();
+
+        for(Event e: events) {
+
+            sb.append(e.getClass().getSimpleName()).append(':');
+
+            for(Property p: e.getProperties()) {
+
+                sb.append(' ').append(p.getName()).append('=').append(p.getValue());
+            }
+
+            sb.append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    private static class ProjectingProcedure extends MockProcedure implements ReferencedProperties {
+
+        private Set<String> referenced;
+
+        private ProjectingProcedure(Set<String> referenced) {
+
+            this.referenced = referenced;
+        }
+
+        @Override
+        public Set<String> getReferencedPropertyNames() {
+
+            return referenced;
+        }
+    }
+
+}
@@ -0,0 +1,481 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.csv.event.CSVHeaders;
+import io.novaordis.events.csv.event.TimedCSVLine;
+import io.novaordis.events.processing.EventProcessingException;
+import io.novaordis.utilities.parsing.ParsingException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class PipelinedCSVParserTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final String CONTENT =
+            "x, 1\n" +
+            "# time(MM/dd/yy HH:mm:ss), color, size(int)\n" +
+            "12/25/16 13:00:00, blue, 10\n" +
+            "12/25/16 13:00:01, red, 11\n" +
+            "\n" +
+            "# name, weight(long)\n" +
+            "   \r\n" +
+            "a, 1\n" +
+            "# this header is overwritten by the next one\n" +
+            "  # time(MM/dd/yy HH:mm:ss), city\n" +
+            "\n" +
+            "\n" +
+            "12/25/16 13:00:02, \"Z\u00fcrich, CH\"\n" +
+            "12/25/16 13:00:03, Paris\n" +
+            "# name\n" +
+            "b\n" +
+            "# last(int)";
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // constructors ----------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor() throws Exception {
+
+        PipelinedCSVParser p = new PipelinedCSVParser("a, b(int)");
+
+        assertEquals(PipelinedCSVParser.DEFAULT_BLOCK_SIZE, p.getBlockSize());
+        assertEquals(PipelinedCSVParser.DEFAULT_QUEUE_CAPACITY, p.getQueueCapacity());
+    }
+
+    @Test
+    public void setBlockSize_Invalid() throws Exception {
+
+        try {
+
+            new PipelinedCSVParser(null).setBlockSize(0);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid block size 0", msg);
+        }
+    }
+
+    @Test
+    public void setQueueCapacity_Invalid() throws Exception {
+
+        try {
+
+            new PipelinedCSVParser(null).setQueueCapacity(0);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid queue capacity 0", msg);
+        }
+    }
+
+    // endOfLastLine() -------------------------------------------------------------------------------------------------
+
+    @Test
+    public void endOfLastLine() throws Exception {
+
+        byte[] b = "a\nb\nc".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(4, PipelinedCSVParser.endOfLastLine(b, 0, b.length));
+        assertEquals(2, PipelinedCSVParser.endOfLastLine(b, 0, 3));
+        assertEquals(-1, PipelinedCSVParser.endOfLastLine(b, 2, 3));
+    }
+
+    // parse() ---------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void parse_SameResultAsSequentialParser_AllBlockSizes() throws Exception {
+
+        CSVByteBufferParser sequential = new CSVByteBufferParser(new CSVParser());
+
+        List<Event> expected =
+                new ArrayList<>(sequential.parse(ByteBuffer.wrap(CONTENT.getBytes(StandardCharsets.UTF_8))));
+
+        expected.addAll(sequential.close());
+
+        assertEquals(12, expected.size());
+
+        for(int blockSize = 1; blockSize <= CONTENT.length() + 1; blockSize ++) {
+
+            PipelinedCSVParser p = new PipelinedCSVParser(null);
+            p.setBlockSize(blockSize);
+            p.setQueueCapacity(1);
+
+            MockProcedure mp = new MockProcedure();
+
+            //
+            // the stream returns at most 3 bytes per read
+            //
+
+            p.parse(new TrickleInputStream(CONTENT.getBytes(StandardCharsets.UTF_8), 3, null), mp);
+
+            assertEquals(toString(expected), toString(mp.getEvents()));
+        }
+    }
+
+    @Test
+    public void parse_HeaderIssuedBeforeTheNextDataLine() throws Exception {
+
+        String content =
+                "# time(MM/dd/yy HH:mm:ss), color\n" +
+                "\n" +
+                "\n" +
+                "12/25/16 13:00:00, blue\n";
+
+        PipelinedCSVParser p = new PipelinedCSVParser(null);
+        p.setBlockSize(1);
+
+        MockProcedure mp = new MockProcedure();
+
+        p.parse(new TrickleInputStream(content.getBytes(StandardCharsets.UTF_8), 1, null), mp);
+
+        List<Event> events = mp.getEvents();
+        assertEquals(2, events.size());
+
+        CSVHeaders h = (CSVHeaders)events.get(0);
+        assertEquals(1L, h.getLineNumber().longValue());
+
+        TimedCSVLine e = (TimedCSVLine)events.get(1);
+        assertEquals(4L, e.getLineNumber().longValue());
+        assertEquals(e.getTime(), h.getNextTimedEventTimestamp());
+    }
+
+    @Test
+    public void parse_ProcedureProjection() throws Exception {
+
+        PipelinedCSVParser p = new PipelinedCSVParser("name, size(int)");
+
+        ProjectingProcedure mp = new ProjectingProcedure(Collections.singleton("size"));
+
+        p.parse(new ByteArrayInputStream("a, 1\nb, 2\n".getBytes(StandardCharsets.UTF_8)), mp);
+
+        List<Event> events = mp.getEvents();
+        assertEquals(2, events.size());
+
+        Event e = events.get(1);
+        assertEquals(2L, e.getLineNumber().longValue());
+        assertNull(e.getProperty("name"));
+        assertEquals(2, e.getProperty("size").getValue());
+    }
+
+    @Test
+    public void parse_ExitLoop() throws Exception {
+
+        StringBuilder sb = new StringBuilder();
+
+        for(int i = 0; i < 10000; i ++) {
+
+            sb.append("a, ").append(i).append('\n');
+        }
+
+        PipelinedCSVParser p = new PipelinedCSVParser("name, size(int)");
+        p.setBlockSize(16);
+        p.setQueueCapacity(1);
+
+        ExitingProcedure mp = new ExitingProcedure(3);
+
+        p.parse(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)), mp);
+
+        assertEquals(3, mp.batches);
+        assertTrue(mp.getEvents().size() < 10000);
+        assertEquals(1L, mp.getEvents().get(0).getLineNumber().longValue());
+    }
+
+    @Test
+    public void parse_ParsingFailure() throws Exception {
+
+        PipelinedCSVParser p = new PipelinedCSVParser(null);
+        p.setBlockSize(2);
+
+        MockProcedure mp = new MockProcedure();
+
+        try {
+
+            p.parse(new TrickleInputStream(
+                    "# name\na\nb\n\"unbalanced\nc\n".getBytes(StandardCharsets.UTF_8), 2, null), mp);
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            assertEquals(4L, e.getLineNumber().longValue());
+        }
+
+        //
+        // the events parsed before the failing block are delivered
+        //
+
+        assertTrue(mp.getEvents().get(0) instanceof CSVHeaders);
+        assertEquals("a", mp.getEvents().get(1).getProperty("name").getValue());
+    }
+
+    @Test
+    public void parse_ParsingFailure_PrecedingEventsInTheSameBlockAreDelivered() throws Exception {
+
+        PipelinedCSVParser p = new PipelinedCSVParser("name");
+
+        MockProcedure mp = new MockProcedure();
+
+        try {
+
+            p.parse(new ByteArrayInputStream("a\nb\n\"unbalanced\nc\n".getBytes(StandardCharsets.UTF_8)), mp);
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            assertEquals(3L, e.getLineNumber().longValue());
+        }
+
+        List<Event> events = mp.getEvents();
+        assertEquals(2, events.size());
+        assertEquals("a", events.get(0).getProperty("name").getValue());
+        assertEquals("b", events.get(1).getProperty("name").getValue());
+    }
+
+    @Test(timeout = 10000)
+    public void parse_ExitLoop_DoesNotWaitForABlockedRead() throws Exception {
+
+        PipelinedCSVParser p = new PipelinedCSVParser("name");
+
+        ExitingProcedure mp = new ExitingProcedure(1);
+
+        //
+        // the stream blocks after its content, as stdin or a growing file would
+        //
+
+        p.parse(new BlockingInputStream("a\nb\n".getBytes(StandardCharsets.UTF_8)), mp);
+
+        assertEquals(1, mp.batches);
+        assertEquals("a", mp.getEvents().get(0).getProperty("name").getValue());
+    }
+
+    @Test
+    public void parse_ReadFailure_PrecedingEventsAreDelivered() throws Exception {
+
+        PipelinedCSVParser p = new PipelinedCSVParser("name");
+
+        MockProcedure mp = new MockProcedure();
+
+        IOException failure = new IOException("SYNTHETIC");
+
+        try {
+
+            p.parse(new TrickleInputStream("a\nb\nc\n".getBytes(StandardCharsets.UTF_8), 2, failure), mp);
+            fail("should have thrown exception");
+        }
+        catch(IOException e) {
+
+            assertTrue(e == failure);
+        }
+
+        List<Event> events = mp.getEvents();
+        assertEquals(3, events.size());
+        assertEquals("c", events.get(2).getProperty("name").getValue());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static String toString(List<Event> events) {
+
+        StringBuilder sb = new StringBuilder();
+
+        for(Event e: events) {
+
+            sb.append(e.getClass().getSimpleName()).append(' ').append(e.getLineNumber()).append(':');
+
+            for(Property p: e.getProperties()) {
+
+                sb.append(' ').append(p.getName()).append('=').append(p.getValue());
+            }
+
+            sb.append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns at most maxRead bytes per read, and fails, if a failure is specified, once the content is exhausted.
+     */
+    private static class TrickleInputStream extends InputStream {
+
+        private final byte[] content;
+        private final int maxRead;
+        private final IOException failure;
+        private int position;
+
+        private TrickleInputStream(byte[] content, int maxRead, IOException failure) {
+
+            this.content = content;
+            this.maxRead = maxRead;
+            this.failure = failure;
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            byte[] b = new byte[1];
+
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+
+            if (position == content.length) {
+
+                if (failure != null) {
+
+                    throw failure;
+                }
+
+                return -1;
+            }
+
+            int n = Math.min(Math.min(len, maxRead), content.length - position);
+
+            System.arraycopy(content, position, b, off, n);
+
+            position += n;
+
+            return n;
+        }
+    }
+
+    private static class BlockingInputStream extends InputStream {
+
+        private byte[] content;
+        private boolean read;
+
+        private BlockingInputStream(byte[] content) {
+
+            this.content = content;
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            throw new UnsupportedOperationException("read() not supported");
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+
+            if (!read) {
+
+                int n = Math.min(len, content.length);
+                System.arraycopy(content, 0, b, off, n);
+                read = true;
+                return n;
+            }
+
+            try {
+
+                new CountDownLatch(1).await();
+            }
+            catch(InterruptedException e) {
+
+                Thread.currentThread().interrupt();
+            }
+
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static class ProjectingProcedure extends MockProcedure implements ReferencedProperties {
+
+        private Set<String> referenced;
+
+        private ProjectingProcedure(Set<String> referenced) {
+
+            this.referenced = referenced;
+        }
+
+        @Override
+        public Set<String> getReferencedPropertyNames() {
+
+            return referenced;
+        }
+    }
+
+    private static class ExitingProcedure extends MockProcedure {
+
+        private int maxBatches;
+        private int batches;
+
+        private ExitingProcedure(int maxBatches) {
+
+            this.maxBatches = maxBatches;
+        }
+
+        @Override
+        public void process(List<Event> in) throws EventProcessingException {
+
+            super.process(in);
+            batches ++;
+        }
+
+        @Override
+        public boolean isExitLoop() {
+
+            return batches >= maxBatches;
+        }
+    }
+
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.query.FieldQuery;
+import io.novaordis.events.query.KeywordQuery;
+import io.novaordis.events.query.MixedQuery;
+import io.novaordis.events.query.Query;
+import io.novaordis.events.query.TimeQuery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class QueryAdapterTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // getReferencedPropertyNames() ------------------------------------------------------------------------------------
+
+    @Test
+    public void getReferencedPropertyNames_ReferencedProperties() throws Exception {
+
+        Set<String> names = QueryAdapter.getReferencedPropertyNames(new ReferencingQuery());
+
+        assertEquals(Collections.singleton("a"), names);
+    }
+
+    @Test
+    public void getReferencedPropertyNames_KeywordQuery() throws Exception {
+
+        assertNull(QueryAdapter.getReferencedPropertyNames(new KeywordQuery("a")));
+    }
+
+    @Test
+    public void getReferencedPropertyNames_FieldQuery() throws Exception {
+
+        Set<String> names = QueryAdapter.getReferencedPropertyNames(new FieldQuery("a", "1"));
+
+        assertEquals(Collections.singleton("a"), names);
+    }
+
+    @Test
+    public void getReferencedPropertyNames_TimeQuery() throws Exception {
+
+        Set<String> names = QueryAdapter.getReferencedPropertyNames(new TimeQuery(1L, 2L));
+
+        assertTrue(names.isEmpty());
+    }
+
+    @Test
+    public void getReferencedPropertyNames_MixedQuery() throws Exception {
+
+        Set<String> names = QueryAdapter.getReferencedPropertyNames(
+                mixed(
+                        new FieldQuery("a", "1"),
+                        new FieldQuery("b", "2"),
+                        new TimeQuery(1L, 2L)));
+
+        assertEquals(2, names.size());
+        assertTrue(names.contains("a"));
+        assertTrue(names.contains("b"));
+    }
+
+    @Test
+    public void getReferencedPropertyNames_MixedQueryWithKeyword() throws Exception {
+
+        Set<String> names = QueryAdapter.getReferencedPropertyNames(
+                mixed(new FieldQuery("a", "1"), new KeywordQuery("b")));
+
+        assertNull(names);
+    }
+
+    @Test
+    public void getReferencedPropertyNames_UnknownQuery() throws Exception {
+
+        assertNull(QueryAdapter.getReferencedPropertyNames(new UnknownQuery()));
+    }
+
+    // getLinePredicate() ----------------------------------------------------------------------------------------------
+
+    @Test
+    public void getLinePredicate_LinePredicateSource() throws Exception {
+
+        LinePredicate p = QueryAdapter.getLinePredicate(new PredicateQuery());
+
+        assertEquals("a == \"1\"", p.toString());
+    }
+
+    @Test
+    public void getLinePredicate_FieldQuery() throws Exception {
+
+        //
+        // the value matching of the field queries is not a raw token equality, they are never pushed down
+        //
+
+        assertNull(QueryAdapter.getLinePredicate(new FieldQuery("a", "x")));
+        assertNull(QueryAdapter.getLinePredicate(new FieldQuery("a", "x*")));
+    }
+
+    @Test
+    public void getLinePredicate_TimeQuery() throws Exception {
+
+        LinePredicate p = QueryAdapter.getLinePredicate(new TimeQuery(10L, 20L));
+
+        //
+        // the upper bound is included
+        //
+
+        assertEquals("time in [10, 21)", p.toString());
+
+        p = QueryAdapter.getLinePredicate(new TimeQuery(null, 20L));
+
+        assertEquals("time in [null, 21)", p.toString());
+
+        assertNull(QueryAdapter.getLinePredicate(new TimeQuery(null, null)));
+        assertNull(QueryAdapter.getLinePredicate(new TimeQuery(20L, 10L)));
+    }
+
+    @Test
+    public void getLinePredicate_KeywordQuery() throws Exception {
+
+        assertNull(QueryAdapter.getLinePredicate(new KeywordQuery("a")));
+    }
+
+    @Test
+    public void getLinePredicate_MixedQuery() throws Exception {
+
+        LinePredicate p = QueryAdapter.getLinePredicate(mixed(new TimeQuery(1L, 2L)));
+
+        assertEquals("time in [1, 3)", p.toString());
+
+        //
+        // the way the queries are combined is not known
+        //
+
+        p = QueryAdapter.getLinePredicate(mixed(new FieldQuery("a", "x"), new TimeQuery(1L, 2L)));
+
+        assertNull(p);
+    }
+
+    @Test
+    public void getLinePredicate_UnknownQuery() throws Exception {
+
+        assertNull(QueryAdapter.getLinePredicate(new UnknownQuery()));
+    }
+
+    // getKeywordPrefilter() -------------------------------------------------------------------------------------------
+
+    @Test
+    public void getKeywordPrefilter_KeywordQuery() throws Exception {
+
+        KeywordPrefilter p = QueryAdapter.getKeywordPrefilter(new KeywordQuery("abc"));
+
+        assertEquals(Collections.singletonList("abc"), p.getKeywords());
+
+        //
+        // the prefilter accepts the lines of the events the query selects whether the query ignores case or not
+        //
+
+        assertTrue(p.isIgnoreCase());
+    }
+
+    @Test
+    public void getKeywordPrefilter_NumericKeyword() throws Exception {
+
+        //
+        // may be found in the line number or the timestamp
+        //
+
+        assertNull(QueryAdapter.getKeywordPrefilter(new KeywordQuery("-12")));
+        assertNotNull(QueryAdapter.getKeywordPrefilter(new KeywordQuery("12a")));
+    }
+
+    @Test
+    public void getKeywordPrefilter_MixedQuery() throws Exception {
+
+        KeywordPrefilter p = QueryAdapter.getKeywordPrefilter(mixed(new KeywordQuery("a"), new KeywordQuery("b")));
+
+        assertEquals(Arrays.asList("a", "b"), p.getKeywords());
+        assertTrue(p.isIgnoreCase());
+
+        //
+        // the field query may select events without the keywords
+        //
+
+        assertNull(QueryAdapter.getKeywordPrefilter(mixed(new KeywordQuery("a"), new FieldQuery("b", "c"))));
+    }
+
+    @Test
+    public void getKeywordPrefilter_OtherQueries() throws Exception {
+
+        assertNull(QueryAdapter.getKeywordPrefilter(new FieldQuery("a", "b")));
+        assertNull(QueryAdapter.getKeywordPrefilter(new UnknownQuery()));
+    }
+
+    // isVerbatim() ----------------------------------------------------------------------------------------------------
+
+    @Test
+    public void isVerbatim() throws Exception {
+
+        assertTrue(QueryAdapter.isVerbatim(new CSVFormat("a, time(MM/dd/yy HH:mm:ss), b").getConversionPlan()));
+        assertFalse(QueryAdapter.isVerbatim(new CSVFormat("a, b(int)").getConversionPlan()));
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static MixedQuery mixed(Query... queries) {
+
+        MixedQuery q = new MixedQuery();
+
+        for(Query c: queries) {
+
+            q.addQuery(c);
+        }
+
+        return q;
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+    private static class ReferencingQuery implements Query, ReferencedProperties {
+
+        @Override
+        public boolean selects(Event e) {
+
+            return true;
+        }
+
+        @Override
+        public Set<String> getReferencedPropertyNames() {
+
+            return Collections.singleton("a");
+        }
+    }
+
+    private static class PredicateQuery implements Query, LinePredicateSource {
+
+        @Override
+        public boolean selects(Event e) {
+
+            return true;
+        }
+
+        @Override
+        public LinePredicate getLinePredicate() {
+
+            return LinePredicate.equalTo("a", "1");
+        }
+    }
+
+    private static class UnknownQuery implements Query {
+
+        @Override
+        public boolean selects(Event e) {
+
+            return true;
+        }
+    }
+
+}
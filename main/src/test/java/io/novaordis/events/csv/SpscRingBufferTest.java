@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class SpscRingBufferTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor_InvalidCapacity() throws Exception {
+
+        try {
+
+            new SpscRingBuffer<String>(0);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid capacity 0", msg);
+        }
+    }
+
+    @Test
+    public void constructor_CapacityRoundedUpToPowerOfTwo() throws Exception {
+
+        assertEquals(1, new SpscRingBuffer<String>(1).getCapacity());
+        assertEquals(8, new SpscRingBuffer<String>(5).getCapacity());
+        assertEquals(8, new SpscRingBuffer<String>(8).getCapacity());
+    }
+
+    @Test
+    public void offer_Null() throws Exception {
+
+        try {
+
+            new SpscRingBuffer<String>(2).offer(null);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("null element", msg);
+        }
+    }
+
+    @Test
+    public void offerAndPoll_WrapAround() throws Exception {
+
+        SpscRingBuffer<String> q = new SpscRingBuffer<>(2);
+
+        assertNull(q.poll());
+
+        for(int i = 0; i < 5; i ++) {
+
+            assertTrue(q.offer("a" + i));
+            assertTrue(q.offer("b" + i));
+            assertFalse(q.offer("c" + i));
+            assertEquals(2, q.size());
+
+            assertEquals("a" + i, q.poll());
+            assertEquals("b" + i, q.poll());
+            assertNull(q.poll());
+            assertEquals(0, q.size());
+        }
+    }
+
+    @Test
+    public void close_ConsumerDrainsFirst() throws Exception {
+
+        SpscRingBuffer<String> q = new SpscRingBuffer<>(4);
+
+        assertTrue(q.put("a"));
+
+        q.close();
+
+        assertTrue(q.isClosed());
+        assertFalse(q.put("b"));
+
+        assertEquals("a", q.take());
+        assertNull(q.take());
+    }
+
+    @Test
+    public void close_UnblocksProducer() throws Exception {
+
+        SpscRingBuffer<String> q = new SpscRingBuffer<>(1);
+
+        assertTrue(q.put("a"));
+
+        AtomicReference<Boolean> result = new AtomicReference<>();
+
+        Thread t = new Thread(() -> {
+
+            try {
+
+                result.set(q.put("b"));
+            }
+            catch(InterruptedException e) {
+
+                // not expected
+            }
+        });
+
+        t.start();
+
+        q.close();
+
+        t.join();
+
+        assertFalse(result.get());
+    }
+
+    @Test
+    public void producerAndConsumer_OrderIsPreserved() throws Exception {
+
+        SpscRingBuffer<Integer> q = new SpscRingBuffer<>(4);
+
+        int count = 100000;
+
+        Thread producer = new Thread(() -> {
+
+            try {
+
+                for(int i = 0; i < count; i ++) {
+
+                    q.put(i);
+                }
+
+                q.close();
+            }
+            catch(InterruptedException e) {
+
+                // not expected
+            }
+        });
+
+        producer.start();
+
+        int expected = 0;
+
+        Integer i;
+
+        while((i = q.take()) != null) {
+
+            assertEquals(expected ++, i.intValue());
+        }
+
+        producer.join();
+
+        assertEquals(count, expected);
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.StringProperty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class StringDictionaryTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor_NullName() throws Exception {
+
+        try {
+
+            new StringDictionary(null, 1, false);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("null name", msg);
+        }
+    }
+
+    @Test
+    public void constructor_InvalidMaxCardinality() throws Exception {
+
+        try {
+
+            new StringDictionary("a", 0, false);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid maximum cardinality 0", msg);
+        }
+
+        try {
+
+            new StringDictionary("a", StringDictionary.MAX_CARDINALITY + 1, false);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid maximum cardinality " + (StringDictionary.MAX_CARDINALITY + 1), msg);
+        }
+    }
+
+    @Test
+    public void constructor_MaxCardinality() throws Exception {
+
+        //
+        // the table is allocated on demand, not for the maximum cardinality
+        //
+
+        StringDictionary d = new StringDictionary("a", StringDictionary.MAX_CARDINALITY, true);
+
+        assertEquals(StringDictionary.MAX_CARDINALITY, d.getMaxCardinality());
+        assertEquals("x", d.convert("x", 0, 1).getValue());
+        assertEquals(1, d.getCardinality());
+    }
+
+    @Test
+    public void convert_CanonicalStrings() throws Exception {
+
+        StringDictionary d = new StringDictionary("color", 4, false);
+
+        StringProperty p = (StringProperty)d.convert("x, red, y", 3, 6);
+        StringProperty p2 = (StringProperty)d.convert("red, blue", 0, 3);
+        StringProperty p3 = (StringProperty)d.convert("red, blue", 5, 9);
+
+        assertEquals("color", p.getName());
+        assertEquals("red", p.getValue());
+        assertEquals("blue", p3.getValue());
+
+        assertNotSame(p, p2);
+        assertSame(p.getValue(), p2.getValue());
+
+        assertEquals(2, d.getCardinality());
+        assertEquals(1L, d.getHitCount());
+        assertEquals(2L, d.getMissCount());
+        assertFalse(d.isOverflown());
+    }
+
+    @Test
+    public void convert_SharedProperties() throws Exception {
+
+        StringDictionary d = new StringDictionary("color", 4, true);
+
+        Property p = d.convert("red", 0, 3);
+        Property p2 = d.convert("a red", 2, 5);
+
+        assertSame(p, p2);
+
+        Property m = d.convertMissing();
+        assertEquals("color", m.getName());
+        assertNull(m.getValue());
+        assertSame(m, d.convertMissing());
+    }
+
+    @Test
+    public void convert_SharedPropertiesAreReadOnly() throws Exception {
+
+        StringDictionary d = new StringDictionary("color", 4, true);
+
+        StringProperty p = (StringProperty)d.convert("red", 0, 3);
+
+        try {
+
+            p.setValue("blue");
+            fail("should have thrown exception");
+        }
+        catch(UnsupportedOperationException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("cannot be modified"));
+        }
+
+        try {
+
+            p.setName("shade");
+            fail("should have thrown exception");
+        }
+        catch(UnsupportedOperationException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("cannot be modified"));
+        }
+
+        try {
+
+            ((StringProperty)d.convertMissing()).setValue("blue");
+            fail("should have thrown exception");
+        }
+        catch(UnsupportedOperationException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("cannot be modified"));
+        }
+
+        assertEquals("red", d.convert("red", 0, 3).getValue());
+        assertEquals(String.class, p.getType());
+    }
+
+    @Test
+    public void convert_NotSharedPropertiesCanBeModified() throws Exception {
+
+        StringDictionary d = new StringDictionary("color", 4, false);
+
+        StringProperty p = (StringProperty)d.convert("red", 0, 3);
+
+        p.setValue("blue");
+
+        assertEquals("red", d.convert("red", 0, 3).getValue());
+    }
+
+    @Test
+    public void convertMissing_NotShared() throws Exception {
+
+        StringDictionary d = new StringDictionary("color", 4, false);
+
+        assertNotSame(d.convertMissing(), d.convertMissing());
+    }
+
+    @Test
+    public void convert_Overflow() throws Exception {
+
+        StringDictionary d = new StringDictionary("id", 2, true);
+
+        Property a = d.convert("a", 0, 1);
+        d.convert("b", 0, 1);
+        assertSame(a, d.convert("a", 0, 1));
+
+        Property c = d.convert("c", 0, 1);
+
+        assertEquals("c", c.getValue());
+        assertTrue(d.isOverflown());
+        assertEquals(3L, d.getMissCount());
+
+        //
+        // values are converted as usual from now on
+        //
+
+        Property a2 = d.convert("a", 0, 1);
+
+        assertEquals("a", a2.getValue());
+        assertNotSame(a, a2);
+        assertEquals(1L, d.getHitCount());
+        assertEquals(3L, d.getMissCount());
+    }
+
+    @Test
+    public void convert_LongValuesAreNotAdded() throws Exception {
+
+        StringDictionary d = new StringDictionary("message", 2, true);
+
+        StringBuilder sb = new StringBuilder();
+
+        for(int i = 0; i <= StringDictionary.MAX_VALUE_LENGTH; i ++) {
+
+            sb.append('x');
+        }
+
+        String s = sb.toString();
+
+        Property p = d.convert(s, 0, s.length());
+
+        assertEquals(s, p.getValue());
+        assertNotSame(p, d.convert(s, 0, s.length()));
+        assertEquals(0, d.getCardinality());
+        assertEquals(0L, d.getMissCount());
+    }
+
+    @Test
+    public void convert_Utf8Line() throws Exception {
+
+        StringDictionary d = new StringDictionary("city", 4, false);
+
+        Utf8Line line = new Utf8Line("Z\u00fcrich, Z\u00fcrich".getBytes(StandardCharsets.UTF_8));
+
+        Property p = d.convert(line, 0, 7);
+        Property p2 = d.convert(line, 9, 16);
+
+        assertEquals("Z\u00fcrich", p.getValue());
+        assertSame(p.getValue(), p2.getValue());
+
+        //
+        // same decoded content, different raw content
+        //
+
+        Property p3 = d.convert("Z\u00fcrich", 0, 6);
+
+        assertEquals("Z\u00fcrich", p3.getValue());
+        assertEquals(2, d.getCardinality());
+    }
+
+    @Test
+    public void convert_ManyValues() throws Exception {
+
+        StringDictionary d = new StringDictionary("n", 100, false);
+
+        for(int round = 0; round < 3; round ++) {
+
+            for(int i = 0; i < 100; i ++) {
+
+                String s = "v" + i;
+
+                assertEquals(s, d.convert(s, 0, s.length()).getValue());
+            }
+        }
+
+        assertFalse(d.isOverflown());
+        assertEquals(100, d.getCardinality());
+        assertEquals(200L, d.getHitCount());
+        assertEquals(100L, d.getMissCount());
+    }
+
+    @Test
+    public void convert_SharedPropertiesSurviveTheGrowth() throws Exception {
+
+        StringDictionary d = new StringDictionary("n", 1000, true);
+
+        Property first = d.convert("v0", 0, 2);
+
+        //
+        // enough values to double the table several times
+        //
+
+        for(int i = 1; i < 10 * StringDictionary.INITIAL_CAPACITY; i ++) {
+
+            String s = "v" + i;
+
+            d.convert(s, 0, s.length());
+        }
+
+        assertSame(first, d.convert("v0", 0, 2));
+
+        for(int i = 0; i < 10 * StringDictionary.INITIAL_CAPACITY; i ++) {
+
+            String s = "v" + i;
+
+            assertEquals(s, d.convert(s, 0, s.length()).getValue());
+        }
+
+        assertFalse(d.isOverflown());
+        assertEquals(10 * StringDictionary.INITIAL_CAPACITY, d.getCardinality());
+        assertEquals(10L * StringDictionary.INITIAL_CAPACITY, d.getMissCount());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
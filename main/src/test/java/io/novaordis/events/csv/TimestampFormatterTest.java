@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class TimestampFormatterTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor_InvalidPattern() throws Exception {
+
+        try {
+
+            new TimestampFormatter("yyyy-bb");
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("b"));
+        }
+    }
+
+    @Test
+    public void getDefault() throws Exception {
+
+        TimestampFormatter f = TimestampFormatter.getDefault();
+
+        assertSame(f, TimestampFormatter.getDefault());
+        assertEquals(Constants.DEFAULT_TIMESTAMP_FORMAT_LITERAL, f.getPattern());
+    }
+
+    @Test
+    public void isMinutePrefixCacheable() throws Exception {
+
+        assertTrue(TimestampFormatter.isMinutePrefixCacheable("MM/dd/yy HH:mm:ss"));
+        assertTrue(TimestampFormatter.isMinutePrefixCacheable("yyyy-MM-dd'T'HH:mm:ss"));
+        assertTrue(TimestampFormatter.isMinutePrefixCacheable("ss"));
+        assertFalse(TimestampFormatter.isMinutePrefixCacheable("MM/dd/yy HH:mm:ss.SSS"));
+        assertFalse(TimestampFormatter.isMinutePrefixCacheable("MM/dd/yy HH:mm:sss"));
+        assertFalse(TimestampFormatter.isMinutePrefixCacheable("MM/dd/yy HH:mm:ss Z"));
+        assertTrue(TimestampFormatter.isMinutePrefixCacheable("dd MMM yyyy HH:mm:ss"));
+        assertFalse(TimestampFormatter.isMinutePrefixCacheable("EEE HH:mm:ss"));
+        assertFalse(TimestampFormatter.isMinutePrefixCacheable("z HH:mm:ss"));
+        assertFalse(TimestampFormatter.isMinutePrefixCacheable("'x"));
+    }
+
+    @Test
+    public void format_SameAsSimpleDateFormat_OneSecondIntervals() throws Exception {
+
+        TimeZone originalTimeZone = TimeZone.getDefault();
+        Locale originalLocale = Locale.getDefault(Locale.Category.FORMAT);
+
+        try {
+
+            TimeZone.setDefault(TimeZone.getTimeZone("America/Chicago"));
+
+            TimestampFormatter f = new TimestampFormatter(Constants.DEFAULT_TIMESTAMP_FORMAT_LITERAL);
+
+            long t = new SimpleDateFormat("MM/dd/yy HH:mm:ss").parse("12/31/16 23:58:00").getTime() + 123;
+
+            for(int i = 0; i < 300; i ++) {
+
+                assertFormat(f, t + i * 1000L);
+            }
+        }
+        finally {
+
+            TimeZone.setDefault(originalTimeZone);
+            Locale.setDefault(Locale.Category.FORMAT, originalLocale);
+        }
+    }
+
+    @Test
+    public void format_SameAsSimpleDateFormat_RandomTimes() throws Exception {
+
+        TimeZone originalTimeZone = TimeZone.getDefault();
+        Locale originalLocale = Locale.getDefault(Locale.Category.FORMAT);
+
+        try {
+
+            Random r = new Random(7L);
+
+            String[] patterns = {
+                    "MM/dd/yy HH:mm:ss",
+                    "yyyy-MM-dd'T'HH:mm:ss",
+                    "MM/dd/yy HH:mm:ss.SSS",
+                    "EEE MMM d HH:mm:ss yyyy",
+                    "HH 'o''clock' mm ss",
+            };
+
+            for(String zone: new String[] { "UTC", "America/Los_Angeles", "Asia/Kolkata", "Australia/Lord_Howe" }) {
+
+                TimeZone.setDefault(TimeZone.getTimeZone(zone));
+
+                for(String pattern: patterns) {
+
+                    TimestampFormatter f = new TimestampFormatter(pattern);
+
+                    for(int i = 0; i < 2000; i ++) {
+
+                        long t = r.nextLong() % (200L * 365 * 24 * 3600 * 1000);
+
+                        //
+                        // exercise the cached minute as well
+                        //
+
+                        assertFormat(f, t);
+                        assertFormat(f, t + r.nextInt(60000));
+                        assertFormat(f, t - r.nextInt(60000));
+                    }
+                }
+            }
+        }
+        finally {
+
+            TimeZone.setDefault(originalTimeZone);
+            Locale.setDefault(Locale.Category.FORMAT, originalLocale);
+        }
+    }
+
+    @Test
+    public void format_SameAsSimpleDateFormat_OffsetTransitions() throws Exception {
+
+        TimeZone originalTimeZone = TimeZone.getDefault();
+        Locale originalLocale = Locale.getDefault(Locale.Category.FORMAT);
+
+        try {
+
+            String[][] transitions = {
+
+                    { "America/New_York", "2016-03-13T01:58:00", "2016-11-06T00:58:00" },
+                    { "Europe/Berlin", "2016-03-27T01:58:00", "2016-10-30T01:58:00" },
+                    { "Australia/Lord_Howe", "2016-04-03T01:28:00", "2016-10-02T01:58:00" },
+                    { "Asia/Kolkata", "1942-08-31T23:58:00", "1945-10-14T23:58:00" },
+            };
+
+            for(String[] transition: transitions) {
+
+                TimeZone zone = TimeZone.getTimeZone(transition[0]);
+                TimeZone.setDefault(zone);
+
+                SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+                iso.setTimeZone(zone);
+
+                TimestampFormatter f = new TimestampFormatter(Constants.DEFAULT_TIMESTAMP_FORMAT_LITERAL);
+
+                for(int i = 1; i < transition.length; i ++) {
+
+                    long start = iso.parse(transition[i]).getTime();
+
+                    for(long t = start; t < start + 2 * 3600 * 1000L; t += 500) {
+
+                        assertFormat(f, t);
+                    }
+                }
+            }
+        }
+        finally {
+
+            TimeZone.setDefault(originalTimeZone);
+            Locale.setDefault(Locale.Category.FORMAT, originalLocale);
+        }
+    }
+
+    @Test
+    public void format_DefaultTimeZoneChange() throws Exception {
+
+        TimeZone originalTimeZone = TimeZone.getDefault();
+        Locale originalLocale = Locale.getDefault(Locale.Category.FORMAT);
+
+        try {
+
+            TimestampFormatter f = new TimestampFormatter(Constants.DEFAULT_TIMESTAMP_FORMAT_LITERAL);
+
+            TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+            assertEquals("01/01/70 00:00:01", f.format(1000L));
+
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+            assertEquals("01/01/70 05:30:02", f.format(2000L));
+
+            TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+            assertEquals("01/01/70 00:00:03", f.format(3000L));
+        }
+        finally {
+
+            TimeZone.setDefault(originalTimeZone);
+            Locale.setDefault(Locale.Category.FORMAT, originalLocale);
+        }
+    }
+
+    @Test
+    public void format_DefaultLocaleChange() throws Exception {
+
+        TimeZone originalTimeZone = TimeZone.getDefault();
+        Locale originalLocale = Locale.getDefault(Locale.Category.FORMAT);
+
+        try {
+
+            TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+
+            TimestampFormatter f = new TimestampFormatter(Constants.DEFAULT_TIMESTAMP_FORMAT_LITERAL);
+
+            Locale.setDefault(Locale.Category.FORMAT, Locale.US);
+            assertFormat(f, 1000L);
+
+            Locale.setDefault(Locale.Category.FORMAT, new Locale("th", "TH", "TH"));
+            assertFormat(f, 2000L);
+
+            Locale.setDefault(Locale.Category.FORMAT, Locale.forLanguageTag("ar-SA-u-nu-arab"));
+            assertFormat(f, 3000L);
+
+            Locale.setDefault(Locale.Category.FORMAT, Locale.US);
+            assertFormat(f, 4000L);
+        }
+        finally {
+
+            TimeZone.setDefault(originalTimeZone);
+            Locale.setDefault(Locale.Category.FORMAT, originalLocale);
+        }
+    }
+
+    @Test
+    public void format_Concurrent() throws Exception {
+
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+
+        final TimestampFormatter f = new TimestampFormatter(Constants.DEFAULT_TIMESTAMP_FORMAT_LITERAL);
+
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        List<Thread> threads = new ArrayList<>();
+
+        for(int i = 0; i < 4; i ++) {
+
+            final long seed = i;
+
+            Thread t = new Thread(() -> {
+
+                Random r = new Random(seed);
+                SimpleDateFormat reference = new SimpleDateFormat(Constants.DEFAULT_TIMESTAMP_FORMAT_LITERAL);
+
+                for(int j = 0; j < 20000; j ++) {
+
+                    //
+                    // a few minutes, so the threads compete for the cached minute
+                    //
+
+                    long time = 1482667200000L + r.nextInt(5 * 60 * 1000);
+
+                    String expected = reference.format(new Date(time));
+                    String actual = f.format(time);
+
+                    if (!expected.equals(actual)) {
+
+                        failure.compareAndSet(null, time + ": expected " + expected + " but got " + actual);
+                    }
+                }
+            });
+
+            threads.add(t);
+            t.start();
+        }
+
+        for(Thread t: threads) {
+
+            t.join();
+        }
+
+        assertNull(failure.get());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static void assertFormat(TimestampFormatter f, long time) {
+
+        String expected = new SimpleDateFormat(f.getPattern()).format(new Date(time));
+
+        assertEquals("" + time, expected, f.format(time));
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class Utf8LineTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor_InvalidRegion() throws Exception {
+
+        try {
+
+            new Utf8Line(ByteBuffer.allocate(10), 5, 6);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("invalid region"));
+        }
+    }
+
+    @Test
+    public void ascii() throws Exception {
+
+        Utf8Line line = new Utf8Line("a, b".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(4, line.length());
+        assertEquals('a', line.charAt(0));
+        assertEquals(',', line.charAt(1));
+        assertEquals("a, b", line.toString());
+        assertEquals("b", line.toString(3, 4));
+        assertEquals("", line.toString(2, 2));
+    }
+
+    @Test
+    public void charAt_OutOfBounds() throws Exception {
+
+        Utf8Line line = new Utf8Line("a".getBytes(StandardCharsets.UTF_8));
+
+        try {
+
+            line.charAt(1);
+            fail("should have thrown exception");
+        }
+        catch(IndexOutOfBoundsException e) {
+
+            // ok
+        }
+    }
+
+    @Test
+    public void multiByte() throws Exception {
+
+        byte[] bytes = "\u00e9,\u00fc".getBytes(StandardCharsets.UTF_8);
+
+        Utf8Line line = new Utf8Line(bytes);
+
+        //
+        // length in bytes, the multi-byte sequences are exposed as chars above 0x7F
+        //
+        assertEquals(5, line.length());
+        assertTrue(line.charAt(0) > 0x7F);
+        assertTrue(line.charAt(1) > 0x7F);
+        assertEquals(',', line.charAt(2));
+        assertEquals((byte)0xC3, line.byteAt(0));
+
+        assertEquals("\u00e9", line.toString(0, 2));
+        assertEquals("\u00fc", line.subSequence(3, 5).toString());
+        assertEquals("\u00e9,\u00fc", line.toString());
+    }
+
+    @Test
+    public void subSequence_IsAView() throws Exception {
+
+        byte[] bytes = "abcdef".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        Utf8Line line = new Utf8Line(buffer, 1, 4);
+        assertEquals("bcde", line.toString());
+
+        Utf8Line sub = line.subSequence(1, 3);
+
+        assertSame(buffer, sub.getBuffer());
+        assertEquals(2, sub.getOffset());
+        assertEquals("cd", sub.toString());
+
+        bytes[2] = 'X';
+        assertEquals("Xd", sub.toString());
+    }
+
+    @Test
+    public void directBuffer() throws Exception {
+
+        byte[] bytes = "x,Z\u00fcrich".getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+
+        //
+        // position and limit are irrelevant
+        //
+
+        Utf8Line line = new Utf8Line(buffer, 2, bytes.length - 2);
+
+        assertEquals("Z\u00fcrich", line.toString());
+        assertEquals(bytes.length, buffer.position());
+    }
+
+    @Test
+    public void trim() throws Exception {
+
+        Utf8Line line = new Utf8Line(" \t a b \r".getBytes(StandardCharsets.UTF_8));
+
+        Utf8Line trimmed = line.trim();
+
+        assertEquals("a b", trimmed.toString());
+        assertSame(trimmed, trimmed.trim());
+        assertEquals(0, new Utf8Line("   ".getBytes(StandardCharsets.UTF_8)).trim().length());
+    }
+
+    @Test
+    public void reset() throws Exception {
+
+        Utf8Line line = new Utf8Line();
+        assertEquals(0, line.length());
+
+        ByteBuffer buffer = ByteBuffer.wrap("a\nbc\n".getBytes(StandardCharsets.UTF_8));
+
+        line.reset(buffer, 0, 1);
+        assertEquals("a", line.toString());
+
+        line.reset(buffer, 2, 2);
+        assertEquals("bc", line.toString());
+    }
+
+    @Test
+    public void copy() throws Exception {
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(8);
+        buffer.put("xyz-abc".getBytes(StandardCharsets.UTF_8));
+
+        Utf8Line line = new Utf8Line(buffer, 4, 3);
+
+        Utf8Line copy = line.copy();
+
+        buffer.put(4, (byte)'q');
+        line.reset(buffer, 0, 1);
+
+        assertEquals(3, copy.length());
+        assertEquals('a', copy.charAt(0));
+        assertEquals("abc", copy.toString());
+        assertEquals("bc", copy.toString(1, 3));
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.TimestampProperty;
+import io.novaordis.events.csv.CSVParser;
+import io.novaordis.utilities.parsing.ParsingException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class LazyLineContentTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void timed() throws Exception {
+
+        LazyLineContent c = content("a, time(MM/dd/yy HH:mm:ss), b(int)", "x, 12/25/16 13:00:00, 1");
+
+        assertEquals(1L, c.getLineNumber());
+        assertEquals(3, c.getColumnCount());
+
+        TimestampProperty tp = c.getTimestampProperty();
+        assertTrue(tp == c.getProperty(tp.getName()));
+
+        assertFalse(c.isConverted(0));
+        assertTrue(c.isConverted(1));
+        assertFalse(c.isConverted(2));
+
+        List<Property> properties = c.getProperties();
+
+        assertEquals(4, properties.size());
+        assertTrue(properties.get(0) == tp);
+        assertEquals(Event.LINE_PROPERTY_NAME, properties.get(1).getName());
+        assertEquals(1L, properties.get(1).getValue());
+        assertEquals("x", properties.get(2).getValue());
+        assertEquals(1, properties.get(3).getValue());
+
+        assertTrue(properties.get(3) == c.getProperty("b"));
+        assertTrue(properties.get(1) == c.getProperty(Event.LINE_PROPERTY_NAME));
+        assertNull(c.getProperty("no-such-property"));
+    }
+
+    @Test
+    public void nonTimed_MissingValuesAndMissingColumns() throws Exception {
+
+        LazyLineContent c = content("a, b, c, d", "x, , z");
+
+        assertNull(c.getTimestampProperty());
+        assertEquals(3, c.getColumnCount());
+
+        assertEquals("z", c.getProperty("c").getValue());
+        assertTrue(c.isConverted(2));
+        assertFalse(c.isConverted(1));
+
+        assertNull(c.getProperty("d"));
+
+        List<Property> properties = c.getProperties();
+
+        assertEquals(4, properties.size());
+        assertEquals(Event.LINE_PROPERTY_NAME, properties.get(0).getName());
+        assertEquals("b", properties.get(2).getName());
+    }
+
+    @Test
+    public void timestampColumnNotPresent() throws Exception {
+
+        LazyLineContent c = content("a, time(MM/dd/yy HH:mm:ss)", "x");
+
+        assertNull(c.getTimestampProperty());
+        assertEquals(2, c.getProperties().size());
+    }
+
+    @Test
+    public void invalidTimestamp() throws Exception {
+
+        try {
+
+            content("time(MM/dd/yy HH:mm:ss), a", "something, x");
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("something"));
+        }
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static LazyLineContent content(String format, String line) throws Exception {
+
+        CSVParser p = new CSVParser(format);
+        p.setLazyProperties(true);
+
+        Event e = p.parse(line).get(0);
+
+        return e.isTimed() ? ((LazyTimedCSVLine)e).getContent() : ((LazyNonTimedCSVLine)e).getContent();
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.StringProperty;
+import io.novaordis.events.csv.CSVParser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class LazyNonTimedCSVLineTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void lazyAccess() throws Exception {
+
+        LazyNonTimedCSVLine e = new LazyNonTimedCSVLine(content("a, b(long)", "x, 10"));
+
+        assertEquals(1L, e.getLineNumber().longValue());
+        assertEquals(10L, e.getProperty("b").getValue());
+        assertEquals("1, x, 10", e.getPreferredRepresentation(","));
+    }
+
+    @Test
+    public void setProperty() throws Exception {
+
+        LazyNonTimedCSVLine e = new LazyNonTimedCSVLine(content("a, b(long)", "x, 10"));
+
+        e.setProperty(new StringProperty("c", "z"));
+
+        assertNull(e.getContent());
+        assertEquals(1L, e.getLineNumber().longValue());
+        assertEquals("x", e.getProperty("a").getValue());
+        assertEquals("z", e.getProperty("c").getValue());
+        assertEquals(4, e.getProperties().size());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static LazyLineContent content(String format, String line) throws Exception {
+
+        CSVParser p = new CSVParser(format);
+        p.setLazyProperties(true);
+
+        Event e = p.parse(line).get(0);
+
+        return e.isTimed() ? ((LazyTimedCSVLine)e).getContent() : ((LazyNonTimedCSVLine)e).getContent();
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.StringProperty;
+import io.novaordis.events.csv.CSVParser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class LazyTimedCSVLineTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void constructor_NotTimed() throws Exception {
+
+        try {
+
+            new LazyTimedCSVLine(content("a", "x"));
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("line 1 is not timed", msg);
+        }
+    }
+
+    @Test
+    public void lazyAccess() throws Exception {
+
+        LazyLineContent c = content("time(MM/dd/yy HH:mm:ss), a, b(int)", "12/25/16 13:00:00, x, 1");
+
+        LazyTimedCSVLine e = new LazyTimedCSVLine(c);
+
+        assertEquals(c.getTimestampProperty().getValue(), e.getTime());
+        assertEquals(1L, e.getLineNumber().longValue());
+        assertEquals("x", e.getProperty("a").getValue());
+        assertFalse(c.isConverted(2));
+        assertEquals(4, e.getProperties().size());
+    }
+
+    @Test
+    public void setProperty() throws Exception {
+
+        LazyLineContent c = content("time(MM/dd/yy HH:mm:ss), a, b(int)", "12/25/16 13:00:00, x, 1");
+
+        LazyTimedCSVLine e = new LazyTimedCSVLine(c);
+
+        Long time = e.getTime();
+
+        e.setProperty(new StringProperty("a", "y"));
+
+        assertNull(e.getContent());
+        assertEquals(time, e.getTime());
+        assertEquals(1L, e.getLineNumber().longValue());
+        assertEquals("y", e.getProperty("a").getValue());
+        assertEquals(1, e.getProperty("b").getValue());
+        assertEquals(4, e.getProperties().size());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    private static LazyLineContent content(String format, String line) throws Exception {
+
+        CSVParser p = new CSVParser(format);
+        p.setLazyProperties(true);
+
+        Event e = p.parse(line).get(0);
+
+        return e.isTimed() ? ((LazyTimedCSVLine)e).getContent() : ((LazyNonTimedCSVLine)e).getContent();
+    }
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.IntegerProperty;
+import io.novaordis.events.api.event.Property;
+import io.novaordis.events.api.event.StringProperty;
+import io.novaordis.events.api.event.TimestampProperty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class RecycledLineContentTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void nonTimed() throws Exception {
+
+        RecycledLineContent c = new RecycledLineContent();
+
+        c.reset(7L);
+        c.add(new StringProperty("a", "A"));
+        c.add(new IntegerProperty("b", 1));
+
+        assertEquals(7L, c.getLineNumber());
+        assertNull(c.getTimestampProperty());
+
+        List<Property> properties = c.getProperties();
+
+        assertEquals(3, properties.size());
+        assertEquals(Event.LINE_PROPERTY_NAME, properties.get(0).getName());
+        assertEquals(7L, properties.get(0).getValue());
+        assertEquals("a", properties.get(1).getName());
+        assertEquals("b", properties.get(2).getName());
+
+        assertEquals("A", c.getProperty("a").getValue());
+        assertEquals(7L, c.getProperty(Event.LINE_PROPERTY_NAME).getValue());
+        assertNull(c.getProperty("no-such-property"));
+
+        //
+        // the line number property is created once per line
+        //
+
+        assertTrue(c.getProperty(Event.LINE_PROPERTY_NAME) == properties.get(0));
+    }
+
+    @Test
+    public void timed_TimestampComesFirst() throws Exception {
+
+        RecycledLineContent c = new RecycledLineContent();
+
+        c.reset(1L);
+        c.add(new StringProperty("a", "A"));
+        c.add(new TimestampProperty(100L));
+        c.add(new StringProperty("b", "B"));
+        c.setTimestampIndex(1);
+
+        assertEquals(100L, c.getTimestampProperty().getValue());
+
+        List<Property> properties = c.getProperties();
+
+        assertEquals(4, properties.size());
+        assertTrue(properties.get(0) instanceof TimestampProperty);
+        assertEquals(Event.LINE_PROPERTY_NAME, properties.get(1).getName());
+        assertEquals("a", properties.get(2).getName());
+        assertEquals("b", properties.get(3).getName());
+
+        try {
+
+            properties.get(4);
+            fail("should have thrown exception");
+        }
+        catch(IndexOutOfBoundsException e) {
+
+            // expected
+        }
+    }
+
+    @Test
+    public void setTimestampIndex_NotATimestamp() throws Exception {
+
+        RecycledLineContent c = new RecycledLineContent();
+
+        c.reset(1L);
+        c.add(new StringProperty("a", "A"));
+
+        try {
+
+            c.setTimestampIndex(0);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("is not a timestamp"));
+        }
+    }
+
+    @Test
+    public void reset() throws Exception {
+
+        RecycledLineContent c = new RecycledLineContent();
+
+        c.reset(1L);
+
+        for(int i = 0; i < 20; i ++) {
+
+            c.add(new IntegerProperty("p" + i, i));
+        }
+
+        c.add(new TimestampProperty(100L));
+        c.setTimestampIndex(20);
+
+        List<Property> view = c.getProperties();
+        List<Property> copy = c.copyProperties();
+
+        c.reset(2L);
+        c.add(new StringProperty("a", "A"));
+
+        assertTrue(view == c.getProperties());
+        assertEquals(2, view.size());
+        assertNull(c.getTimestampProperty());
+        assertEquals(2L, view.get(0).getValue());
+
+        assertEquals(22, copy.size());
+        assertTrue(copy.get(0) instanceof TimestampProperty);
+        assertEquals(1L, copy.get(1).getValue());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
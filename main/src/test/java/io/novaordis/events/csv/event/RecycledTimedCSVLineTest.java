@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.Event;
+import io.novaordis.events.api.event.LongProperty;
+import io.novaordis.events.api.event.StringProperty;
+import io.novaordis.events.api.event.TimestampProperty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class RecycledTimedCSVLineTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void contentIsAView() throws Exception {
+
+        RecycledLineContent c = new RecycledLineContent();
+        RecycledTimedCSVLine e = new RecycledTimedCSVLine(c);
+
+        c.reset(3L);
+        c.add(new TimestampProperty(100L));
+        c.add(new StringProperty("a", "A"));
+        c.setTimestampIndex(0);
+
+        assertTrue(e.isTimed());
+        assertEquals(100L, e.getTime().longValue());
+        assertEquals(100L, e.getTimestamp().getTime());
+        assertEquals(3L, e.getLineNumber().longValue());
+        assertEquals("A", e.getProperty("a").getValue());
+        assertEquals(3, e.getProperties().size());
+
+        c.reset(4L);
+        c.add(new TimestampProperty(200L));
+        c.add(new StringProperty("a", "B"));
+        c.setTimestampIndex(0);
+
+        assertEquals(200L, e.getTime().longValue());
+        assertEquals(4L, e.getLineNumber().longValue());
+        assertEquals("B", e.getProperty("a").getValue());
+    }
+
+    @Test
+    public void copy() throws Exception {
+
+        RecycledLineContent c = new RecycledLineContent();
+        RecycledTimedCSVLine e = new RecycledTimedCSVLine(c);
+
+        c.reset(3L);
+        c.add(new StringProperty("a", "A"));
+        c.add(new TimestampProperty(100L));
+        c.setTimestampIndex(1);
+
+        TimedCSVLine copy = e.copy();
+
+        c.reset(4L);
+
+        assertFalse(copy instanceof RecycledCSVEvent);
+        assertEquals(100L, copy.getTime().longValue());
+        assertEquals(3L, copy.getLineNumber().longValue());
+        assertEquals("A", copy.getProperty("a").getValue());
+    }
+
+    @Test
+    public void getTime_LineNotTimed() throws Exception {
+
+        RecycledLineContent c = new RecycledLineContent();
+        RecycledTimedCSVLine e = new RecycledTimedCSVLine(c);
+
+        c.reset(1L);
+
+        try {
+
+            e.getTime();
+            fail("should have thrown exception");
+        }
+        catch(IllegalStateException ex) {
+
+            String msg = ex.getMessage();
+            assertTrue(msg.contains("does not carry a timestamp"));
+        }
+    }
+
+    @Test
+    public void typedAccessorsReadTheContent() throws Exception {
+
+        RecycledLineContent c = new RecycledLineContent();
+        RecycledTimedCSVLine e = new RecycledTimedCSVLine(c);
+
+        c.reset(3L);
+        c.add(new TimestampProperty(100L));
+        c.add(new StringProperty("a", "A"));
+        c.setTimestampIndex(0);
+        c.add(new LongProperty("b", 7L));
+
+        assertEquals("A", e.getStringProperty("a").getValue());
+        assertNull(e.getLongProperty("a"));
+        assertEquals(7L, e.getLongProperty("b").getLong().longValue());
+        assertEquals(3L, e.getLongProperty(Event.LINE_PROPERTY_NAME).getLong().longValue());
+        assertNull(e.getIntegerProperty("b"));
+    }
+
+    @Test
+    public void mutatorsAreRejected() throws Exception {
+
+        RecycledLineContent c = new RecycledLineContent();
+        RecycledTimedCSVLine e = new RecycledTimedCSVLine(c);
+
+        c.reset(3L);
+        c.add(new TimestampProperty(100L));
+        c.add(new StringProperty("a", "A"));
+        c.setTimestampIndex(0);
+
+        try {
+
+            e.setProperty(new StringProperty("a", "B"));
+            fail("should have thrown exception");
+        }
+        catch(UnsupportedOperationException ex) {
+
+            String msg = ex.getMessage();
+            assertTrue(msg.contains("read-only"));
+        }
+
+        try {
+
+            e.setStringProperty("c", "C");
+            fail("should have thrown exception");
+        }
+        catch(UnsupportedOperationException ex) {
+
+            String msg = ex.getMessage();
+            assertTrue(msg.contains("read-only"));
+        }
+
+        try {
+
+            e.setLineNumber(4L);
+            fail("should have thrown exception");
+        }
+        catch(UnsupportedOperationException ex) {
+
+            String msg = ex.getMessage();
+            assertTrue(msg.contains("read-only"));
+        }
+
+        assertEquals("A", e.getProperty("a").getValue());
+        assertNull(e.getProperty("c"));
+        assertEquals(3L, e.getLineNumber().longValue());
+
+        //
+        // the copy can be modified
+        //
+
+        CSVEvent copy = e.copy();
+        copy.setStringProperty("c", "C");
+        assertEquals("C", copy.getProperty("c").getValue());
+        assertNull(e.getProperty("c"));
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -27,6 +27,7 @@ import io.novaordis.events.api.event.LongProperty;
 import io.novaordis.events.api.event.Property;
 import io.novaordis.events.api.event.StringProperty;
 import io.novaordis.events.api.event.TimestampProperty;
+import io.novaordis.events.csv.CSVFormatter;
 import io.novaordis.events.csv.Constants;
 
 import static org.junit.Assert.assertEquals;
@@ -136,6 +137,14 @@ public class TimedCSVLineTest extends CSVEventTest {
         assertEquals(expected, line);
     }
 
+    @Test
+    public void getPreferredRepresentation_NoTime() throws Exception {
+
+        TimedCSVLine e = new TimedCSVLine((Long)null);
+
+        assertEquals(CSVFormatter.NULL_EXTERNALIZATION, e.getPreferredRepresentation(","));
+    }
+
     @Test
     public void getPreferredRepresentationHeader() throws Exception {
 
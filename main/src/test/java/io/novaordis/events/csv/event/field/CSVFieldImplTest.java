@@ -33,6 +33,8 @@ import io.novaordis.events.api.event.StringProperty;
 import io.novaordis.events.api.event.TimedEvent;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 /**
@@ -228,6 +230,120 @@ public class CSVFieldImplTest extends CSVFieldTest {
         }
     }
 
+    // toProperty() range-based --------------------------------------------------------------------------------------
+
+    @Test
+    public void toProperty_Range_String() throws Exception {
+
+        CSVFieldImpl f = new CSVFieldImpl("test", String.class);
+        StringProperty sp = (StringProperty)f.toProperty("a, blah, b", 3, 7);
+        assertEquals("test", sp.getName());
+        assertEquals("blah", sp.getValue());
+    }
+
+    @Test
+    public void toProperty_Range_Integer() throws Exception {
+
+        CSVFieldImpl f = new CSVFieldImpl("test", Integer.class);
+        IntegerProperty ip = (IntegerProperty)f.toProperty("a, -17, b", 3, 6);
+        assertEquals("test", ip.getName());
+        assertEquals(-17, ip.getInteger().intValue());
+    }
+
+    @Test
+    public void toProperty_Range_Integer_Overflow() throws Exception {
+
+        CSVFieldImpl f = new CSVFieldImpl("test", Integer.class);
+
+        String s = "x" + ((long)Integer.MAX_VALUE + 1) + "x";
+
+        try {
+
+            f.toProperty(s, 1, s.length() - 1);
+            fail("Should throw exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid int value \"2147483648\"", msg);
+        }
+    }
+
+    @Test
+    public void toProperty_Range_Integer_InvalidValue() throws Exception {
+
+        CSVFieldImpl f = new CSVFieldImpl("test", Integer.class);
+
+        try {
+
+            f.toProperty("1, blah", 3, 7);
+            fail("Should throw exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid int value \"blah\"", msg);
+        }
+    }
+
+    @Test
+    public void toProperty_Range_Long() throws Exception {
+
+        CSVFieldImpl f = new CSVFieldImpl("test", Long.class);
+        LongProperty lp = (LongProperty)f.toProperty("+12345678901", 0, 12);
+        assertEquals("test", lp.getName());
+        assertEquals(12345678901L, lp.getLong().longValue());
+    }
+
+    @Test
+    public void toProperty_Range_Long_MinValue() throws Exception {
+
+        CSVFieldImpl f = new CSVFieldImpl("test", Long.class);
+        String s = Long.toString(Long.MIN_VALUE);
+        LongProperty lp = (LongProperty)f.toProperty(s, 0, s.length());
+        assertEquals(Long.MIN_VALUE, lp.getLong().longValue());
+    }
+
+    @Test
+    public void toProperty_Range_Double() throws Exception {
+
+        CSVFieldImpl f = new CSVFieldImpl("test", Double.class);
+        DoubleProperty dp = (DoubleProperty)f.toProperty("1.1, 2.2", 5, 8);
+        assertEquals("test", dp.getName());
+        assertEquals(2.2d, dp.getDouble(), 0.00001);
+    }
+
+    // getConverter() --------------------------------------------------------------------------------------------------
+
+    @Test
+    public void getConverter() throws Exception {
+
+        assertEquals(StringConverter.class, new CSVFieldImpl("test", String.class).getConverter().getClass());
+        assertEquals(IntegerConverter.class, new CSVFieldImpl("test", Integer.class).getConverter().getClass());
+        assertEquals(LongConverter.class, new CSVFieldImpl("test", Long.class).getConverter().getClass());
+        assertEquals(FloatConverter.class, new CSVFieldImpl("test", Float.class).getConverter().getClass());
+        assertEquals(DoubleConverter.class, new CSVFieldImpl("test", Double.class).getConverter().getClass());
+        assertEquals(DateConverter.class, new CSVFieldImpl("test", Date.class).getConverter().getClass());
+        assertEquals(
+                UnsupportedTypeConverter.class, new CSVFieldImpl("test", Boolean.class).getConverter().getClass());
+    }
+
+    @Test
+    public void getConverter_CachedAndDiscardedOnNameChange() throws Exception {
+
+        CSVFieldImpl f = new CSVFieldImpl("test", Integer.class);
+
+        TypedConverter c = f.getConverter();
+        assertSame(c, f.getConverter());
+
+        f.setName("test2");
+
+        TypedConverter c2 = f.getConverter();
+        assertNotSame(c, c2);
+        assertEquals("test2", c2.getName());
+        assertEquals("test2", f.toProperty("1").getName());
+    }
+
     // typeToCommandLineLiteral() --------------------------------------------------------------------------------------
 
     @Test
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.IntegerProperty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class IntegerConverterTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // convert() -------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void convert() throws Exception {
+
+        IntegerConverter c = new IntegerConverter("test");
+
+        IntegerProperty p = (IntegerProperty)c.convert("a, -17, b", 3, 6);
+        assertEquals("test", p.getName());
+        assertEquals(-17, p.getInteger().intValue());
+    }
+
+    @Test
+    public void convert_MinValue() throws Exception {
+
+        IntegerConverter c = new IntegerConverter("test");
+
+        String s = Integer.toString(Integer.MIN_VALUE);
+
+        IntegerProperty p = (IntegerProperty)c.convert(s, 0, s.length());
+        assertEquals(Integer.MIN_VALUE, p.getInteger().intValue());
+    }
+
+    @Test
+    public void convert_Overflow() throws Exception {
+
+        IntegerConverter c = new IntegerConverter("test");
+
+        try {
+
+            c.convert("2147483648", 0, 10);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            assertEquals("invalid int value \"2147483648\"", e.getMessage());
+            assertNull(e.getCause());
+        }
+    }
+
+    @Test
+    public void convert_EmptyRange() throws Exception {
+
+        IntegerConverter c = new IntegerConverter("test");
+
+        try {
+
+            c.convert("a,,b", 2, 2);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            assertEquals("invalid int value \"\"", e.getMessage());
+        }
+    }
+
+    @Test
+    public void convert_String() throws Exception {
+
+        IntegerConverter c = new IntegerConverter("test");
+
+        IntegerProperty p = (IntegerProperty)c.convert("+5");
+        assertEquals(5, p.getInteger().intValue());
+
+        IntegerProperty p2 = (IntegerProperty)c.convert(null);
+        assertEquals("test", p2.getName());
+        assertNull(p2.getValue());
+    }
+
+    // convertMissing() ------------------------------------------------------------------------------------------------
+
+    @Test
+    public void convertMissing() throws Exception {
+
+        IntegerConverter c = new IntegerConverter("test");
+
+        IntegerProperty p = (IntegerProperty)c.convertMissing();
+        assertEquals("test", p.getName());
+        assertNull(p.getValue());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.LongProperty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class LongConverterTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // convert() -------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void convert() throws Exception {
+
+        LongConverter c = new LongConverter("test");
+
+        LongProperty p = (LongProperty)c.convert("x12345678901x", 1, 12);
+        assertEquals("test", p.getName());
+        assertEquals(12345678901L, p.getLong().longValue());
+    }
+
+    @Test
+    public void convert_MaxValue_StringFallback() throws Exception {
+
+        LongConverter c = new LongConverter("test");
+
+        String s = Long.toString(Long.MAX_VALUE);
+
+        LongProperty p = (LongProperty)c.convert(s, 0, s.length());
+        assertEquals(Long.MAX_VALUE, p.getLong().longValue());
+    }
+
+    @Test
+    public void convert_InvalidValue() throws Exception {
+
+        LongConverter c = new LongConverter("test");
+
+        try {
+
+            c.convert("1.0", 0, 3);
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            assertEquals("invalid long value \"1.0\"", e.getMessage());
+        }
+    }
+
+    // convertMissing() ------------------------------------------------------------------------------------------------
+
+    @Test
+    public void convertMissing() throws Exception {
+
+        LongConverter c = new LongConverter("test");
+
+        LongProperty p = (LongProperty)c.convertMissing();
+        assertEquals("test", p.getName());
+        assertNull(p.getValue());
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
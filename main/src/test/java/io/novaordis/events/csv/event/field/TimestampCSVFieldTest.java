@@ -25,6 +25,8 @@ import io.novaordis.events.csv.Constants;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -256,6 +258,26 @@ public class TimestampCSVFieldTest extends CSVFieldTest {
         assertEquals("time(time:yy/MM/dd hh:mm)", f.getSpecification());
     }
 
+    // getTimestampConverter() -----------------------------------------------------------------------------------------
+
+    @Test
+    public void getTimestampConverter_CachedAndDiscardedOnFormatChange() throws Exception {
+
+        TimestampCSVField f = new TimestampCSVField();
+
+        TimestampConverter c = f.getTimestampConverter();
+        assertTrue(c.getParser().isCompiled());
+        assertSame(c, f.getTimestampConverter());
+        assertSame(c, TimestampConverter.forField(f));
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        f.setFormat(format);
+
+        TimestampConverter c2 = f.getTimestampConverter();
+        assertNotSame(c, c2);
+        assertEquals(format, c2.getFormat());
+    }
+
     // Package protected -----------------------------------------------------------------------------------------------
 
     // Protected -------------------------------------------------------------------------------------------------------
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import java.text.SimpleDateFormat;
+
+import org.junit.Test;
+
+import io.novaordis.events.api.event.TimedEvent;
+import io.novaordis.events.api.event.TimestampProperty;
+import io.novaordis.utilities.parsing.ParsingException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class TimestampConverterTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // convert() -------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void convert() throws Exception {
+
+        SimpleDateFormat f = new SimpleDateFormat("MM/dd/yy HH:mm:ss");
+
+        TimestampConverter c = new TimestampConverter(f);
+
+        TimestampProperty p = (TimestampProperty)c.convert("blue, 12/25/16 13:00:00, 1", 6, 23);
+
+        assertEquals(TimedEvent.TIME_PROPERTY_NAME, p.getName());
+        assertEquals(f.parse("12/25/16 13:00:00").getTime(), p.getLong().longValue());
+    }
+
+    @Test
+    public void convert_InvalidValue() throws Exception {
+
+        TimestampConverter c = new TimestampConverter(new SimpleDateFormat("MM/dd/yy HH:mm:ss"));
+
+        try {
+
+            c.convert("blah", 0, 4);
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            String msg = e.getMessage();
+            assertEquals("invalid timestamp value \"blah\", does not match the required timestamp format", msg);
+        }
+    }
+
+    // convertMissing() ------------------------------------------------------------------------------------------------
+
+    @Test
+    public void convertMissing() throws Exception {
+
+        TimestampConverter c = new TimestampConverter(new SimpleDateFormat("MM/dd/yy HH:mm:ss"));
+
+        try {
+
+            c.convertMissing();
+            fail("should have thrown exception");
+        }
+        catch(ParsingException e) {
+
+            String msg = e.getMessage();
+            assertTrue(msg.contains("invalid timestamp value \"null\""));
+        }
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
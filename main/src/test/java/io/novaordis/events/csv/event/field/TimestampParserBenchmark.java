@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+
+import io.novaordis.events.csv.MicroBenchmark;
+
+/**
+ * Timestamp parsing with SimpleDateFormat and with the compiled TimestampParser, over realistic 1 Hz and 100 Hz
+ * series, where consecutive timestamps share the minute, and over random timestamps, where the minute base cache
+ * always misses.
+ *
+ * @see MicroBenchmark
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class TimestampParserBenchmark {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    private static final int TIMESTAMPS = 10000;
+
+    private static final long START = 1482699600000L;
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    public static void main(String[] args) throws Exception {
+
+        run("1 Hz", "MM/dd/yy HH:mm:ss", 1000L);
+        run("100 Hz", "yyyy-MM-dd HH:mm:ss.SSS", 10L);
+        run("random", "MM/dd/yy HH:mm:ss", -1L);
+    }
+
+    /**
+     * @param period the distance between consecutive timestamps, in milliseconds, or a negative value for random
+     *               timestamps.
+     */
+    private static void run(String label, String pattern, long period) throws Exception {
+
+        final SimpleDateFormat format = new SimpleDateFormat(pattern);
+
+        final String[] timestamps = new String[TIMESTAMPS];
+
+        Random r = new Random(1L);
+
+        for(int i = 0; i < TIMESTAMPS; i ++) {
+
+            long t = period < 0 ? START + 1000L * r.nextInt(100000000) : START + i * period;
+            timestamps[i] = format.format(new Date(t));
+        }
+
+        MicroBenchmark b = new MicroBenchmark(50, 20);
+
+        b.run("SimpleDateFormat.parse(), " + label, TIMESTAMPS, () -> {
+
+            long sum = 0;
+
+            for(String s: timestamps) {
+
+                sum += format.parse(s).getTime();
+            }
+
+            MicroBenchmark.blackHole = sum;
+        });
+
+        final TimestampParser parser = TimestampParser.compile(format);
+
+        b.run("TimestampParser.parse(), " + label, TIMESTAMPS, () -> {
+
+            long sum = 0;
+
+            for(String s: timestamps) {
+
+                sum += parser.parse(s);
+            }
+
+            MicroBenchmark.blackHole = sum;
+        });
+    }
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
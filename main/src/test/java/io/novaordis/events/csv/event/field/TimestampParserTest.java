@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2017 Nova Ordis LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.novaordis.events.csv.event.field;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import io.novaordis.events.csv.Constants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ *
+ * @author Ovidiu Feodorov <ovidiu@novaordis.com>
+ * @since 10/17/26
+ */
+public class TimestampParserTest {
+
+    // Constants -------------------------------------------------------------------------------------------------------
+
+    // Static ----------------------------------------------------------------------------------------------------------
+
+    // Attributes ------------------------------------------------------------------------------------------------------
+
+    // Constructors ----------------------------------------------------------------------------------------------------
+
+    // Public ----------------------------------------------------------------------------------------------------------
+
+    // compile() -------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void compile_DefaultFormat() throws Exception {
+
+        assertTrue(TimestampParser.compile(Constants.getDefaultTimestampFormat()).isCompiled());
+    }
+
+    @Test
+    public void compile_FixedLayoutPatterns() throws Exception {
+
+        assertTrue(TimestampParser.compile(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS")).isCompiled());
+        assertTrue(TimestampParser.compile(new SimpleDateFormat("yyyyMMddHHmmss")).isCompiled());
+        assertTrue(TimestampParser.compile(new SimpleDateFormat("HH 'o''clock'")).isCompiled());
+        assertTrue(TimestampParser.compile(new UTCMillisecondsLongTimestampFormat()).isCompiled());
+    }
+
+    @Test
+    public void compile_PatternsThatCannotBeCompiled() throws Exception {
+
+        assertFalse(TimestampParser.compile(new SimpleDateFormat("dd MMM yyyy")).isCompiled());
+        assertFalse(TimestampParser.compile(new SimpleDateFormat("MM/dd/yy HH:mm:ss Z")).isCompiled());
+        assertFalse(TimestampParser.compile(new SimpleDateFormat("M/d/y H:m:s")).isCompiled());
+        assertFalse(TimestampParser.compile(new SimpleDateFormat("hh:mm a")).isCompiled());
+        assertFalse(TimestampParser.compile(new SimpleDateFormat("HH'0'mm")).isCompiled());
+        assertFalse(TimestampParser.compile(new SimpleDateFormat("yyyy", new Locale("th", "TH", "TH"))).isCompiled());
+        assertFalse(TimestampParser.compile(null).isCompiled());
+    }
+
+    // parse() ---------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void parse_QuotedLiterals() throws Exception {
+
+        SimpleDateFormat f = new SimpleDateFormat("HH 'o''clock'");
+
+        TimestampParser p = TimestampParser.compile(f);
+
+        assertEquals(f.parse("17 o'clock").getTime(), p.parse("17 o'clock"));
+    }
+
+    @Test
+    public void parse_DefaultFormat() throws Exception {
+
+        SimpleDateFormat f = Constants.getDefaultTimestampFormat();
+
+        TimestampParser p = TimestampParser.compile(f);
+
+        assertEquals(f.parse("12/25/16 13:00:01").getTime(), p.parse("x, 12/25/16 13:00:01, y", 3, 20));
+    }
+
+    @Test
+    public void parse_SameResultAsTheFormat_RandomTimestamps() throws Exception {
+
+        String[] patterns = {
+
+                "MM/dd/yy HH:mm:ss", "yyyy-MM-dd'T'HH:mm:ss.SSS", "yyyyMMddHHmmssSSS", "dd.MM.yyyy HH:mm"
+        };
+
+        String[] timeZones = { "UTC", "America/New_York", "Australia/Lord_Howe", "Asia/Kolkata" };
+
+        Random r = new Random(5L);
+
+        for(String pattern: patterns) {
+
+            for(String timeZone: timeZones) {
+
+                SimpleDateFormat f = new SimpleDateFormat(pattern);
+                f.setTimeZone(TimeZone.getTimeZone(timeZone));
+
+                TimestampParser p = TimestampParser.compile(f);
+                assertTrue(p.isCompiled());
+
+                for(int i = 0; i < 2000; i ++) {
+
+                    //
+                    // 1950 - 2049, so the two digit years are rendered unambiguously
+                    //
+
+                    long t = -631152000000L + (long)(r.nextDouble() * 3155760000000L);
+
+                    String s = f.format(new Date(t));
+
+                    assertEquals(pattern + ", " + timeZone + ": " + s, f.parse(s).getTime(), p.parse(s));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parse_DaylightSavingTimeTransitions() throws Exception {
+
+        SimpleDateFormat f = new SimpleDateFormat("MM/dd/yy HH:mm:ss");
+        f.setTimeZone(TimeZone.getTimeZone("America/New_York"));
+
+        TimestampParser p = TimestampParser.compile(f);
+
+        //
+        // the gap (spring forward) and the overlap (fall back)
+        //
+
+        for(String s: new String[] { "03/13/16 02:30:00", "11/06/16 01:30:00", "11/06/16 02:00:00" }) {
+
+            assertEquals(s, f.parse(s).getTime(), p.parse(s));
+        }
+    }
+
+    @Test
+    public void parse_ConsecutiveTimestamps_1Hz_AcrossOffsetTransitions() throws Exception {
+
+        //
+        // one second apart, over the hours that contain the offset transitions, including Lord Howe's 30 minute one
+        //
+
+        String[][] cases = {
+
+                { "America/New_York", "03/13/16 00:00:00" },
+                { "America/New_York", "11/06/16 00:00:00" },
+                { "Australia/Lord_Howe", "04/03/16 00:00:00" },
+                { "Australia/Lord_Howe", "10/02/16 01:00:00" },
+        };
+
+        for(String[] c: cases) {
+
+            SimpleDateFormat f = new SimpleDateFormat("MM/dd/yy HH:mm:ss");
+            f.setTimeZone(TimeZone.getTimeZone(c[0]));
+
+            TimestampParser p = TimestampParser.compile(f);
+
+            long t = f.parse(c[1]).getTime();
+
+            for(int i = 0; i < 4 * 3600; i ++, t += 1000L) {
+
+                String s = f.format(new Date(t));
+
+                assertEquals(c[0] + ": " + s, f.parse(s).getTime(), p.parse(s));
+            }
+        }
+    }
+
+    @Test
+    public void parse_ConsecutiveTimestamps_100Hz() throws Exception {
+
+        SimpleDateFormat f = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+        TimestampParser p = TimestampParser.compile(f);
+
+        long t = f.parse("2016-12-31 23:58:59.990").getTime();
+
+        for(int i = 0; i < 20000; i ++, t += 10L) {
+
+            String s = f.format(new Date(t));
+
+            assertEquals(s, t, p.parse(s));
+        }
+    }
+
+    @Test
+    public void parse_SamePrefix_OutOfRangeSeconds() throws Exception {
+
+        SimpleDateFormat f = new SimpleDateFormat("MM/dd/yy HH:mm:ss");
+
+        TimestampParser p = TimestampParser.compile(f);
+
+        //
+        // the first parsing caches the minute, the lenient 60th and 99th seconds must not be computed from it
+        //
+
+        for(String s: new String[] { "12/25/16 13:00:10", "12/25/16 13:00:60", "12/25/16 13:00:99" }) {
+
+            assertEquals(s, f.parse(s).getTime(), p.parse(s));
+        }
+    }
+
+    @Test
+    public void parse_InputThatDoesNotMatchTheLayout_FallsBackToTheFormat() throws Exception {
+
+        SimpleDateFormat f = new SimpleDateFormat("MM/dd/yy HH:mm:ss");
+
+        TimestampParser p = TimestampParser.compile(f);
+
+        //
+        // single digit fields, trailing content, lenient out of range values
+        //
+
+        for(String s: new String[] { "1/5/16 3:04:05", "12/25/16 13:00:00 extra", "13/45/16 25:61:61" }) {
+
+            assertEquals(s, f.parse(s).getTime(), p.parse(s));
+        }
+    }
+
+    @Test
+    public void parse_AmbiguousTwoDigitYear_FallsBackToTheFormat() throws Exception {
+
+        SimpleDateFormat f = new SimpleDateFormat("MM/dd/yy HH:mm:ss");
+
+        Date centuryStart = new SimpleDateFormat("MM/dd/yyyy HH:mm:ss").parse("07/01/1950 00:00:00");
+        f.set2DigitYearStart(centuryStart);
+
+        TimestampParser p = TimestampParser.compile(f);
+
+        for(String s: new String[] { "01/01/50 00:00:00", "12/31/50 00:00:00", "12/31/49 00:00:00" }) {
+
+            assertEquals(s, f.parse(s).getTime(), p.parse(s));
+        }
+    }
+
+    @Test
+    public void parse_NonLenientFormat() throws Exception {
+
+        SimpleDateFormat f = new SimpleDateFormat("MM/dd/yy HH:mm:ss");
+        f.setLenient(false);
+
+        TimestampParser p = TimestampParser.compile(f);
+
+        assertEquals(f.parse("02/29/16 10:00:00").getTime(), p.parse("02/29/16 10:00:00"));
+
+        try {
+
+            p.parse("02/30/16 10:00:00");
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            assertTrue(e.getCause() instanceof ParseException);
+        }
+    }
+
+    @Test
+    public void parse_InvalidValue() throws Exception {
+
+        TimestampParser p = TimestampParser.compile(new SimpleDateFormat("MM/dd/yy HH:mm:ss"));
+
+        try {
+
+            p.parse("12/25/16 1x:00:00");
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            assertTrue(e.getCause() instanceof ParseException);
+        }
+    }
+
+    @Test
+    public void parse_UTCMillisecondsLongTimestampFormat() throws Exception {
+
+        TimestampParser p = TimestampParser.compile(new UTCMillisecondsLongTimestampFormat());
+
+        assertEquals(1482699600000L, p.parse("a,1482699600000", 2, 15));
+
+        try {
+
+            p.parse("blah");
+            fail("should have thrown exception");
+        }
+        catch(IllegalArgumentException e) {
+
+            assertTrue(e.getCause() instanceof ParseException);
+        }
+    }
+
+    @Test
+    public void parse_ConcurrentAccess() throws Exception {
+
+        final SimpleDateFormat f = new SimpleDateFormat("MM/dd/yy HH:mm:ss");
+
+        final TimestampParser p = TimestampParser.compile(f);
+
+        final List<String> timestamps = new ArrayList<>();
+        final List<Long> expected = new ArrayList<>();
+
+        Random r = new Random(3L);
+
+        for(int i = 0; i < 1000; i ++) {
+
+            long t = 1000L * (1000000000L + r.nextInt(500000000));
+
+            String s = f.format(new Date(t));
+            timestamps.add(s);
+            expected.add(f.parse(s).getTime());
+
+            //
+            // exercise the fallback as well
+            //
+
+            timestamps.add(s + " ");
+            expected.add(f.parse(s).getTime());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+
+            List<Future<Boolean>> futures = new ArrayList<>();
+
+            for(int i = 0; i < 4; i ++) {
+
+                futures.add(executor.submit(new Callable<Boolean>() {
+
+                    @Override
+                    public Boolean call() throws Exception {
+
+                        for(int j = 0; j < 20; j ++) {
+
+                            for(int k = 0; k < timestamps.size(); k ++) {
+
+                                if (p.parse(timestamps.get(k)) != expected.get(k)) {
+
+                                    return false;
+                                }
+                            }
+                        }
+
+                        return true;
+                    }
+                }));
+            }
+
+            for(Future<Boolean> future: futures) {
+
+                assertTrue(future.get());
+            }
+        }
+        finally {
+
+            executor.shutdownNow();
+        }
+    }
+
+    // Package protected -----------------------------------------------------------------------------------------------
+
+    // Protected -------------------------------------------------------------------------------------------------------
+
+    // Private ---------------------------------------------------------------------------------------------------------
+
+    // Inner classes ---------------------------------------------------------------------------------------------------
+
+}
@@ -16,12 +16,15 @@
 
 package io.novaordis.events.csv.procedures;
 
+import io.novaordis.events.csv.CSVParser;
+import io.novaordis.events.csv.procedures.headers.Headers;
 import io.novaordis.events.processing.Procedure;
 import org.junit.Test;
 
 import java.util.ArrayList;
 
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Ovidiu Feodorov <ovidiu@novaordis.com>
@@ -51,6 +54,19 @@ public class CSVProcedureFactoryTest {
         assertNull(p);
     }
 
+    @Test
+    public void find_ProcedureProjectionIsInstalledOnTheParser() throws Exception {
+
+        CSVParser parser = new CSVParser();
+
+        CSVProcedureFactory f = new CSVProcedureFactory(parser);
+
+        Procedure p = f.find(Headers.COMMAND_LINE_LABELS[0], 0, new ArrayList<>());
+
+        assertTrue(p instanceof Headers);
+        assertTrue(parser.getProjection().isEmpty());
+    }
+
     // Package protected -----------------------------------------------------------------------------------------------
 
     // Protected -------------------------------------------------------------------------------------------------------
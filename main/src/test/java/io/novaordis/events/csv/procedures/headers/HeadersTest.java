@@ -90,6 +90,17 @@ public class HeadersTest extends ProcedureTest {
         assertTrue(System.out.equals(h.getOutputStream()));
     }
 
+    @Test
+    public void getReferencedPropertyNames() throws Exception {
+
+        Headers h = new Headers(0, new ArrayList<>(), new ByteArrayOutputStream());
+
+        //
+        // only the headers are used
+        //
+        assertTrue(h.getReferencedPropertyNames().isEmpty());
+    }
+
     @Test
     public void procedureFactoryFind_AlternativeName() throws Exception {
 